@@ -0,0 +1,33 @@
+import wavl.bench.Target;
+
+/**
+ * CompactWAVLTree (no parent pointers) as a benchmark Target
+ */
+public class CompactWAVLTreeTarget implements Target {
+
+	private final CompactWAVLTree tree = new CompactWAVLTree();
+
+	public int insert(int k, String v) {
+		return tree.insert(k, v);
+	}
+
+	public int delete(int k) {
+		return tree.delete(k);
+	}
+
+	public String search(int k) {
+		return tree.search(k);
+	}
+
+	public String select(int i) {
+		return tree.select(i);
+	}
+
+	public int[] keysToArray() {
+		return tree.keysToArray();
+	}
+
+	public int size() {
+		return tree.size();
+	}
+}
@@ -0,0 +1,56 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import wavl.bench.Target;
+
+/**
+ * DurableWAVLTree as a benchmark Target, logging to dir. close() closes the tree and deletes its files
+ */
+public class DurableWAVLTreeTarget implements Target, Closeable {
+
+	private final Path dir;
+	private final DurableWAVLTree tree;
+
+	/**
+	 * policy is the name of a DurableWAVLTree.SyncPolicy
+	 */
+	public DurableWAVLTreeTarget(String dir, String policy, long syncMillis, long checkpointBytes) throws IOException {
+		this.dir = Paths.get(dir);
+		tree = new DurableWAVLTree(this.dir, DurableWAVLTree.SyncPolicy.valueOf(policy), syncMillis, checkpointBytes);
+	}
+
+	public int insert(int k, String v) {
+		return tree.insert(k, v);
+	}
+
+	public int delete(int k) {
+		return tree.delete(k);
+	}
+
+	public String search(int k) {
+		return tree.search(k);
+	}
+
+	public String select(int i) {
+		return tree.select(i);
+	}
+
+	public int[] keysToArray() {
+		return tree.keysToArray();
+	}
+
+	public int size() {
+		return tree.size();
+	}
+
+	public void close() throws IOException {
+		tree.close();
+		Files.deleteIfExists(dir.resolve(DurableWAVLTree.LOG));
+		Files.deleteIfExists(dir.resolve(DurableWAVLTree.CHECKPOINT));
+		Files.deleteIfExists(dir);
+	}
+}
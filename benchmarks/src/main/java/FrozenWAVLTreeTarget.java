@@ -0,0 +1,40 @@
+import wavl.bench.Target;
+
+/**
+ * the frozen copy (WAVLTree.freeze) of a tree built by inserting keys in the given order, as a benchmark Target.
+ * it is read only: insert and delete throw UnsupportedOperationException
+ */
+public class FrozenWAVLTreeTarget implements Target {
+
+	private final FrozenWAVLTree tree;
+
+	public FrozenWAVLTreeTarget(int[] keys, String v, boolean prefetch) {
+		WAVLTree source = new WAVLTree();
+		for (int k : keys) source.insert(k, v);
+		tree = source.freeze(prefetch);
+	}
+
+	public int insert(int k, String v) {
+		throw new UnsupportedOperationException("frozen tree");
+	}
+
+	public int delete(int k) {
+		throw new UnsupportedOperationException("frozen tree");
+	}
+
+	public String search(int k) {
+		return tree.search(k);
+	}
+
+	public String select(int i) {
+		return tree.select(i);
+	}
+
+	public int[] keysToArray() {
+		return tree.keysToArray();
+	}
+
+	public int size() {
+		return tree.size();
+	}
+}
@@ -0,0 +1,42 @@
+import wavl.bench.Compactable;
+import wavl.bench.Target;
+
+/**
+ * WAVLTree with lazy delete on or off (see WAVLTree.setLazyDelete) as a benchmark Target
+ */
+public class LazyWAVLTreeTarget implements Target, Compactable {
+
+	private final WAVLTree tree = new WAVLTree();
+
+	public LazyWAVLTreeTarget(boolean lazyDelete) {
+		tree.setLazyDelete(lazyDelete);
+	}
+
+	public int insert(int k, String v) {
+		return tree.insert(k, v);
+	}
+
+	public int delete(int k) {
+		return tree.delete(k);
+	}
+
+	public String search(int k) {
+		return tree.search(k);
+	}
+
+	public String select(int i) {
+		return tree.select(i);
+	}
+
+	public int[] keysToArray() {
+		return tree.keysToArray();
+	}
+
+	public int size() {
+		return tree.size();
+	}
+
+	public int compact() {
+		return tree.compact();
+	}
+}
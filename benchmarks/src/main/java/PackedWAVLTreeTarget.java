@@ -0,0 +1,33 @@
+import wavl.bench.Target;
+
+/**
+ * PackedWAVLTree (no parent pointers, two rank difference bits per node) as a benchmark Target
+ */
+public class PackedWAVLTreeTarget implements Target {
+
+	private final PackedWAVLTree tree = new PackedWAVLTree();
+
+	public int insert(int k, String v) {
+		return tree.insert(k, v);
+	}
+
+	public int delete(int k) {
+		return tree.delete(k);
+	}
+
+	public String search(int k) {
+		return tree.search(k);
+	}
+
+	public String select(int i) {
+		return tree.select(i);
+	}
+
+	public int[] keysToArray() {
+		return tree.keysToArray();
+	}
+
+	public int size() {
+		return tree.size();
+	}
+}
@@ -0,0 +1,43 @@
+import wavl.bench.Target;
+
+/**
+ * ShardedWAVLTree as a benchmark Target. toString reports the shards the tree ended with
+ */
+public class ShardedWAVLTreeTarget implements Target {
+
+	private final ShardedWAVLTree tree;
+
+	public ShardedWAVLTreeTarget(int shards, int maxShardSize) {
+		tree = new ShardedWAVLTree(shards, maxShardSize);
+	}
+
+	public int insert(int k, String v) {
+		return tree.insert(k, v);
+	}
+
+	public int delete(int k) {
+		return tree.delete(k);
+	}
+
+	public String search(int k) {
+		return tree.search(k);
+	}
+
+	public String select(int i) {
+		return tree.select(i);
+	}
+
+	public int[] keysToArray() {
+		return tree.keysToArray();
+	}
+
+	public int size() {
+		return tree.size();
+	}
+
+	@Override
+	public String toString() {
+		int[] reshapes = tree.reshapeCounts();
+		return tree.shardCount() + " shards, " + reshapes[0] + " splits, " + reshapes[1] + " merges";
+	}
+}
@@ -0,0 +1,33 @@
+import wavl.bench.Target;
+
+/**
+ * a WAVLTree behind a single synchronized monitor, the baseline of the multi-threaded benchmarks
+ */
+public class SynchronizedWAVLTreeTarget implements Target {
+
+	private final WAVLTree tree = new WAVLTree();
+
+	public synchronized int insert(int k, String v) {
+		return tree.insert(k, v);
+	}
+
+	public synchronized int delete(int k) {
+		return tree.delete(k);
+	}
+
+	public synchronized String search(int k) {
+		return tree.search(k);
+	}
+
+	public synchronized String select(int i) {
+		return tree.select(i);
+	}
+
+	public synchronized int[] keysToArray() {
+		return tree.keysToArray();
+	}
+
+	public synchronized int size() {
+		return tree.size();
+	}
+}
@@ -0,0 +1,26 @@
+import wavl.bench.PriorityQueue;
+
+/**
+ * WAVLTree as a benchmark PriorityQueue, polling with pollMin (the cached min node)
+ * or with delete(peekMin()) (a descent per poll)
+ */
+public class WAVLTreeQueue implements PriorityQueue {
+
+	private final WAVLTree tree = new WAVLTree();
+	private final boolean pollMin;
+
+	public WAVLTreeQueue(boolean pollMin) {
+		this.pollMin = pollMin;
+	}
+
+	public void insert(int k) {
+		tree.insert(k, "v");
+	}
+
+	public int poll() {
+		if (pollMin) return (int) tree.pollMin();
+		int k = (int) tree.peekMin();
+		tree.delete(k);
+		return k;
+	}
+}
@@ -0,0 +1,41 @@
+import wavl.bench.Splittable;
+
+/**
+ * a WAVLTree of the keys 0, 2, .. 2(n-1) (built by WAVLTree.fromSorted) as a benchmark Splittable
+ */
+public class WAVLTreeSplitTarget implements Splittable {
+
+	private static final String VALUE = "v";
+
+	private WAVLTree tree;
+	private final int n;
+
+	public WAVLTreeSplitTarget(int n) {
+		this.n = n;
+		int[] keys = new int[n];
+		String[] values = new String[n];
+		for (int j = 0; j < n; j++) {
+			keys[j] = 2 * j;
+			values[j] = VALUE;
+		}
+		tree = WAVLTree.fromSorted(keys, values);
+	}
+
+	public int splitAndJoin(int k) {
+		WAVLTree[] parts = tree.split(k);
+		tree = WAVLTree.join(parts[0], k, VALUE, parts[1]);
+		return tree.size();
+	}
+
+	public int perKeySplitAndJoin(int k) {
+		WAVLTree larger = new WAVLTree();
+		for (int key = k + 2; key < 2 * n; key += 2) {
+			tree.delete(key);
+			larger.insert(key, VALUE);
+		}
+		for (int key = k + 2; key < 2 * n; key += 2) {
+			tree.insert(key, VALUE);
+		}
+		return tree.size() + larger.size();
+	}
+}
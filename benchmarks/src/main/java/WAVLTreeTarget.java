@@ -0,0 +1,51 @@
+import wavl.bench.Target;
+
+/**
+ * WAVLTree as a benchmark Target. it lives in the unnamed package because WAVLTree does,
+ * the benchmarks load it by name (see WAVLTreeBenchmark.Tree and Target).
+ */
+public class WAVLTreeTarget implements Target {
+
+	private final WAVLTree tree = new WAVLTree();
+
+	public WAVLTreeTarget() {
+	}
+
+	/**
+	 * a tree recycling up to pool nodes of deleted items (see WAVLTree.setNodePool)
+	 */
+	public WAVLTreeTarget(int pool) {
+		tree.setNodePool(pool);
+	}
+
+	/**
+	 * a tree in finger mode or not (see WAVLTree.setFingerMode)
+	 */
+	public WAVLTreeTarget(boolean fingerMode) {
+		tree.setFingerMode(fingerMode);
+	}
+
+	public int insert(int k, String v) {
+		return tree.insert(k, v);
+	}
+
+	public int delete(int k) {
+		return tree.delete(k);
+	}
+
+	public String search(int k) {
+		return tree.search(k);
+	}
+
+	public String select(int i) {
+		return tree.select(i);
+	}
+
+	public int[] keysToArray() {
+		return tree.keysToArray();
+	}
+
+	public int size() {
+		return tree.size();
+	}
+}
@@ -0,0 +1,84 @@
+package wavl.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * steady churn: every call deletes the oldest key of the tree and inserts a new random one, so the tree keeps its size
+ * and every insert needs a node. WAVLTree allocating a node per insert, WAVLTree recycling the nodes of deleted
+ * items (setNodePool) and TreeMap (an entry and a boxed key per insert).
+ * the allocation per call is the point, run it with the GC profiler and read gc.alloc.rate.norm (bytes per call):
+ * java -jar benchmarks/target/benchmarks.jar ChurnBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChurnBenchmark {
+
+	private static final String VALUE = "value";
+	private static final int POOL = 1024;
+
+	/**
+	 * the tree and its keys in insertion order (a ring, the oldest is deleted next)
+	 */
+	@State(Scope.Thread)
+	public static class Tree {
+
+		@Param({"wavl", "wavl-pooled", "treemap"})
+		public String impl;
+
+		@Param({"1000", "100000"})
+		public int size;
+
+		Target target;
+		private int[] ring;
+		private int oldest;
+		private Random rand;
+
+		@Setup(Level.Trial)
+		public void build() throws ReflectiveOperationException {
+			if (impl.equals("treemap")) {
+				target = new TreeMapTarget();
+			}
+			else {
+				Class<?> c = Class.forName("WAVLTreeTarget"); //unnamed package, can't be imported
+				target = (Target) c.getConstructor(int.class).newInstance(impl.equals("wavl") ? 0 : POOL);
+			}
+			rand = new Random(size);
+			ring = new int[size];
+			for (int j = 0; j < size; j++) ring[j] = fresh();
+		}
+
+		//a key not in the tree, inserted
+		private int fresh() {
+			int k;
+			do {
+				k = rand.nextInt();
+			} while (target.insert(k, VALUE) == -1);
+			return k;
+		}
+	}
+
+	@Benchmark
+	public int deleteInsert(Tree tree) {
+		int result = tree.target.delete(tree.ring[tree.oldest]);
+		tree.ring[tree.oldest] = tree.fresh();
+		tree.oldest = tree.oldest + 1 == tree.size ? 0 : tree.oldest + 1;
+		return result;
+	}
+}
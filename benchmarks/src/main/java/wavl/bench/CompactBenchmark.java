@@ -0,0 +1,145 @@
+package wavl.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CompactWAVLTree (no parent pointers, rebalancing from the descent stack) and PackedWAVLTree (no ranks either,
+ * two rank difference bits per node) against WAVLTree, ns per operation of
+ * inserting KEYS keys in random order, searching (half hits), churn (insert and delete of an absent key, per pair)
+ * and deleting all keys.
+ * the heap bytes per item of the full tree (measured after GC, values shared) are printed after the trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompactBenchmark {
+
+	static final int KEYS = 1000000;
+	private static final String VALUE = "v";
+
+	/**
+	 * the keys in insertion order and a full tree holding 2*order[j]
+	 */
+	@State(Scope.Thread)
+	public static class Tree {
+
+		@Param({"wavl", "compact", "packed"})
+		public String impl;
+
+		int[] order;
+		Target target;
+		Random rand;
+		private double bytesPerItem;
+
+		@Setup(Level.Trial)
+		public void build() throws ReflectiveOperationException {
+			rand = new Random(KEYS);
+			order = new int[KEYS];
+			for (int j = 0; j < KEYS; j++) order[j] = j;
+			for (int j = KEYS - 1; j > 0; j--) {
+				int r = rand.nextInt(j + 1);
+				int t = order[j];
+				order[j] = order[r];
+				order[r] = t;
+			}
+			long before = usedMemory();
+			target = full();
+			bytesPerItem = (double) (usedMemory() - before) / KEYS;
+		}
+
+		@TearDown(Level.Trial)
+		public void report() {
+			System.out.printf("%n%s: %.1f bytes/item%n", impl, bytesPerItem);
+		}
+
+		Target empty() throws ReflectiveOperationException {
+			//unnamed package, can't be imported
+			String name = impl.equals("wavl") ? "WAVLTreeTarget" : impl.equals("compact") ? "CompactWAVLTreeTarget" : "PackedWAVLTreeTarget";
+			return (Target) Class.forName(name).getConstructor().newInstance();
+		}
+
+		Target full() throws ReflectiveOperationException {
+			Target t = empty();
+			for (int k : order) t.insert(2 * k, VALUE);
+			return t;
+		}
+
+		private static long usedMemory() {
+			Runtime runtime = Runtime.getRuntime();
+			for (int j = 0; j < 3; j++) System.gc();
+			return runtime.totalMemory() - runtime.freeMemory();
+		}
+	}
+
+	/**
+	 * an empty tree for every insert call
+	 */
+	@State(Scope.Thread)
+	public static class Empty {
+		Target target;
+
+		@Setup(Level.Invocation)
+		public void make(Tree tree) throws ReflectiveOperationException {
+			target = tree.empty();
+		}
+	}
+
+	/**
+	 * a full tree for every delete call
+	 */
+	@State(Scope.Thread)
+	public static class Full {
+		Target target;
+
+		@Setup(Level.Invocation)
+		public void make(Tree tree) throws ReflectiveOperationException {
+			target = tree.full();
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(KEYS)
+	public int insert(Tree tree, Empty empty) {
+		int result = 0;
+		for (int k : tree.order) result += empty.target.insert(2 * k, VALUE);
+		return result;
+	}
+
+	@Benchmark
+	public String search(Tree tree) {
+		return tree.target.search(tree.rand.nextInt(2 * KEYS));
+	}
+
+	@Benchmark
+	public int churn(Tree tree) {
+		int k = 2 * tree.rand.nextInt(KEYS) + 1; //an odd key in and out, next to a random even key
+		tree.target.insert(k, VALUE);
+		return tree.target.delete(k);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(KEYS)
+	public int delete(Tree tree, Full full) {
+		int result = 0;
+		for (int k : tree.order) result += full.target.delete(2 * k);
+		return result;
+	}
+}
@@ -0,0 +1,12 @@
+package wavl.bench;
+
+/**
+ * a Target whose deletes may leave work behind (tombstones), done at once by compact
+ */
+public interface Compactable {
+
+	/**
+	 * finishes the deletes so far, returns how many it finished
+	 */
+	int compact();
+}
@@ -0,0 +1,86 @@
+package wavl.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * a read heavy mix (50% search, 45% select, 5% insert/delete) shared by all benchmark threads,
+ * ConcurrentWAVLTree (optimistic reads) against a WAVLTree behind a single synchronized monitor.
+ * the tree holds the even keys 0, 2, .. 2(size-1), the writes insert and delete odd keys.
+ * the reported throughput is that of all threads together, set their number with -t:
+ * java -jar benchmarks/target/benchmarks.jar ConcurrentBenchmark -t 16
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 3)
+@Threads(4)
+@Fork(1)
+public class ConcurrentBenchmark {
+
+	private static final String VALUE = "value";
+
+	/**
+	 * the tree all threads share
+	 */
+	@State(Scope.Benchmark)
+	public static class Tree {
+
+		@Param({"synchronized", "stamped"})
+		public String impl;
+
+		@Param({"1000000"})
+		public int size;
+
+		Target target;
+
+		@Setup(Level.Trial)
+		public void build() throws ReflectiveOperationException {
+			//unnamed package, can't be imported
+			String name = impl.equals("stamped") ? "ConcurrentWAVLTreeTarget" : "SynchronizedWAVLTreeTarget";
+			target = (Target) Class.forName(name).getConstructor().newInstance();
+			for (int j = 0; j < size; j++) target.insert(2 * j, VALUE);
+		}
+	}
+
+	/**
+	 * the random operations of one thread
+	 */
+	@State(Scope.Thread)
+	public static class Operations {
+		private static int seeds;
+
+		Random rand;
+
+		@Setup(Level.Trial)
+		public void seed() {
+			synchronized (Operations.class) {
+				rand = new Random(seeds++);
+			}
+		}
+	}
+
+	@Benchmark
+	public Object readHeavy(Tree tree, Operations ops) {
+		int op = ops.rand.nextInt(100);
+		int k = ops.rand.nextInt(2 * tree.size);
+		if (op < 50) return tree.target.search(k);
+		if (op < 95) return tree.target.select(k >> 1);
+		if ((k & 1) == 0) return tree.target.insert(k | 1, VALUE);
+		return tree.target.delete(k);
+	}
+}
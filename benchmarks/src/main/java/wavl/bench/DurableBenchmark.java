@@ -0,0 +1,98 @@
+package wavl.bench;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * write throughput (a 50/50 mix of insert and delete of random keys, about half of which change the tree and get logged)
+ * of DurableWAVLTree under every SyncPolicy, against a WAVLTree in memory behind a synchronized monitor.
+ * more writer threads (-t) let EVERY_OP share every force among more operations.
+ * the log lives in a temporary directory under dir (default: java.io.tmpdir), which should be on the disk being measured:
+ * java -jar benchmarks/target/benchmarks.jar DurableBenchmark -t 8 -p dir=/mnt/disk
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class DurableBenchmark {
+
+	private static final int KEYS = 1 << 20;
+	private static final long SYNC_MILLIS = 10; //period of INTERVAL
+	private static final long CHECKPOINT_BYTES = 64L << 20;
+	private static final String VALUE = "value";
+
+	/**
+	 * the tree all threads write to
+	 */
+	@State(Scope.Benchmark)
+	public static class Tree {
+
+		@Param({"memory", "EVERY_OP", "INTERVAL", "OS"})
+		public String policy;
+
+		@Param({""})
+		public String dir;
+
+		Target target;
+
+		@Setup(Level.Trial)
+		public void open() throws IOException, ReflectiveOperationException {
+			//unnamed package, can't be imported
+			if (policy.equals("memory")) {
+				target = (Target) Class.forName("SynchronizedWAVLTreeTarget").getConstructor().newInstance();
+				return;
+			}
+			Path log = dir.isEmpty() ? Files.createTempDirectory("wal-bench") : Files.createTempDirectory(Paths.get(dir), "wal-bench");
+			target = (Target) Class.forName("DurableWAVLTreeTarget").getConstructor(String.class, String.class, long.class, long.class)
+					.newInstance(log.toString(), policy, SYNC_MILLIS, CHECKPOINT_BYTES);
+		}
+
+		@TearDown(Level.Trial)
+		public void close() throws IOException {
+			if (target instanceof Closeable) ((Closeable) target).close();
+		}
+	}
+
+	/**
+	 * the random operations of one thread
+	 */
+	@State(Scope.Thread)
+	public static class Operations {
+		private static int seeds;
+
+		Random rand;
+
+		@Setup(Level.Trial)
+		public void seed() {
+			synchronized (Operations.class) {
+				rand = new Random(seeds++);
+			}
+		}
+	}
+
+	@Benchmark
+	public int write(Tree tree, Operations ops) {
+		int k = ops.rand.nextInt(KEYS);
+		return ops.rand.nextBoolean() ? tree.target.insert(k, VALUE) : tree.target.delete(k);
+	}
+}
@@ -0,0 +1,154 @@
+package wavl.bench;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ns per operation of insert, search, select and delete over a key stream, WAVLTree with and without finger mode.
+ * streams: monotonic (increasing keys), nearly sorted (every key at most 32 places from its sorted place)
+ * and random (for the cost of finger mode when there is no locality).
+ * every call goes through all KEYS keys in stream order (select through the indices in order),
+ * insert starts from an empty tree and delete from a full one, both made before the call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(FingerSearchBenchmark.KEYS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FingerSearchBenchmark {
+
+	static final int KEYS = 1 << 20;
+	private static final int DISPLACEMENT = 32; //how far a key of the nearly sorted stream may be from its place
+	private static final String VALUE = "v";
+
+	/**
+	 * the key stream and a full tree
+	 */
+	@State(Scope.Thread)
+	public static class Stream {
+
+		@Param({"monotonic", "nearly-sorted", "random"})
+		public String stream;
+
+		@Param({"false", "true"})
+		public boolean finger;
+
+		int[] keys;
+		Target target;
+
+		@Setup(Level.Trial)
+		public void build() throws ReflectiveOperationException {
+			keys = stream(stream, new Random(KEYS));
+			target = full();
+		}
+
+		Target empty() throws ReflectiveOperationException {
+			//unnamed package, can't be imported
+			return (Target) Class.forName("WAVLTreeTarget").getConstructor(boolean.class).newInstance(finger);
+		}
+
+		Target full() throws ReflectiveOperationException {
+			Target t = empty();
+			for (int k : keys) t.insert(k, VALUE);
+			return t;
+		}
+	}
+
+	/**
+	 * an empty tree for every insert call
+	 */
+	@State(Scope.Thread)
+	public static class Empty {
+		Target target;
+
+		@Setup(Level.Invocation)
+		public void make(Stream stream) throws ReflectiveOperationException {
+			target = stream.empty();
+		}
+	}
+
+	/**
+	 * a full tree for every delete call
+	 */
+	@State(Scope.Thread)
+	public static class Full {
+		Target target;
+
+		@Setup(Level.Invocation)
+		public void make(Stream stream) throws ReflectiveOperationException {
+			target = stream.full();
+		}
+	}
+
+	//keys 0,4,8,... in stream order
+	private static int[] stream(String stream, Random rand) {
+		int[] k = new int[KEYS];
+		if (stream.equals("nearly-sorted")) {
+			long[] order = new long[KEYS]; //position j moved forward by up to DISPLACEMENT places, j in the low bits
+			for (int j = 0; j < KEYS; j++) {
+				order[j] = ((long) (j + rand.nextInt(DISPLACEMENT)) << 32) | j;
+			}
+			Arrays.sort(order);
+			for (int j = 0; j < KEYS; j++) {
+				k[j] = 4 * (int) order[j];
+			}
+			return k;
+		}
+		for (int j = 0; j < KEYS; j++) {
+			k[j] = 4 * j;
+		}
+		if (stream.equals("random")) {
+			for (int j = KEYS - 1; j > 0; j--) {
+				int r = rand.nextInt(j + 1);
+				int t = k[j];
+				k[j] = k[r];
+				k[r] = t;
+			}
+		}
+		return k;
+	}
+
+	@Benchmark
+	public int insert(Stream stream, Empty tree) {
+		int result = 0;
+		for (int k : stream.keys) result += tree.target.insert(k, VALUE);
+		return result;
+	}
+
+	@Benchmark
+	public int search(Stream stream) {
+		int found = 0;
+		for (int k : stream.keys) if (stream.target.search(k) != null) found++;
+		return found;
+	}
+
+	@Benchmark
+	public int select(Stream stream) {
+		int found = 0;
+		for (int i = 0; i < KEYS; i++) if (stream.target.select(i) != null) found++;
+		return found;
+	}
+
+	@Benchmark
+	public int delete(Stream stream, Full tree) {
+		int result = 0;
+		for (int k : stream.keys) result += tree.target.delete(k);
+		return result;
+	}
+}
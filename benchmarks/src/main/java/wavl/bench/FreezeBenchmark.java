@@ -0,0 +1,85 @@
+package wavl.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * lookup latency (random search, half hits) of a WAVLTree against its frozen copy (FrozenWAVLTree),
+ * with and without prefetching.
+ * the tree is built by inserting the keys 0, 2, .. 2(size-1) in random order, so its nodes are spread over the heap
+ * like after an ingest. it takes about 100 bytes per key, 10^8 keys need a heap of about 12GB:
+ * java -Xmx12g -jar benchmarks/target/benchmarks.jar FreezeBenchmark -p size=100000000 -jvmArgs -Xmx12g
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FreezeBenchmark {
+
+	private static final int QUERIES = 1 << 20;
+	private static final String VALUE = "v";
+
+	/**
+	 * the tree or its frozen copy, and the queries
+	 */
+	@State(Scope.Thread)
+	public static class Tree {
+
+		@Param({"wavl", "frozen", "frozen-prefetch"})
+		public String impl;
+
+		@Param({"100000", "10000000"})
+		public int size;
+
+		Target target;
+		private int[] queries;
+		private int cursor;
+
+		@Setup(Level.Trial)
+		public void build() throws ReflectiveOperationException {
+			Random rand = new Random(size);
+			int[] keys = new int[size];
+			for (int j = 0; j < size; j++) keys[j] = 2 * j;
+			for (int j = size - 1; j > 0; j--) {
+				int r = rand.nextInt(j + 1);
+				int t = keys[j];
+				keys[j] = keys[r];
+				keys[r] = t;
+			}
+			//unnamed package, can't be imported
+			if (impl.equals("wavl")) {
+				target = (Target) Class.forName("WAVLTreeTarget").getConstructor().newInstance();
+				for (int k : keys) target.insert(k, VALUE);
+			}
+			else {
+				target = (Target) Class.forName("FrozenWAVLTreeTarget").getConstructor(int[].class, String.class, boolean.class)
+						.newInstance(keys, VALUE, impl.equals("frozen-prefetch"));
+			}
+			queries = new int[QUERIES];
+			for (int j = 0; j < QUERIES; j++) queries[j] = rand.nextInt(2 * size); //keys are even, so half of them hit
+		}
+
+		int next() {
+			return queries[cursor++ & (QUERIES - 1)];
+		}
+	}
+
+	@Benchmark
+	public String search(Tree tree) {
+		return tree.target.search(tree.next());
+	}
+}
@@ -0,0 +1,74 @@
+package wavl.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * cutting a tree of 10^7 keys in two at a key and putting it back together: WAVLTree.split and join
+ * (O(log n) each) against moving every key above the cut out and back in one insert/delete at a time.
+ * splitAndJoin cuts at a random key, perKeySplitAndJoin at the median (half the keys move, seconds per call).
+ * the tree takes about 60 bytes per key, so the fork gets a heap of 2GB:
+ * java -jar benchmarks/target/benchmarks.jar JoinSplitBenchmark
+ */
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class JoinSplitBenchmark {
+
+	private static final int STREAM_LENGTH = 1 << 16;
+
+	/**
+	 * the tree and the random cut keys
+	 */
+	@State(Scope.Thread)
+	public static class Tree {
+
+		@Param({"10000000"})
+		public int size;
+
+		Splittable target;
+		private int[] cuts;
+		private int cursor;
+
+		@Setup(Level.Trial)
+		public void build() throws ReflectiveOperationException {
+			//unnamed package, can't be imported
+			target = (Splittable) Class.forName("WAVLTreeSplitTarget").getConstructor(int.class).newInstance(size);
+			Random rand = new Random(size);
+			cuts = new int[STREAM_LENGTH];
+			for (int j = 0; j < STREAM_LENGTH; j++) cuts[j] = 2 * rand.nextInt(size);
+		}
+
+		int nextCut() {
+			return cuts[cursor++ & (STREAM_LENGTH - 1)];
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@Warmup(iterations = 3, time = 1)
+	@Measurement(iterations = 5, time = 1)
+	public int splitAndJoin(Tree tree) {
+		return tree.target.splitAndJoin(tree.nextCut());
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 1)
+	@Measurement(iterations = 3)
+	public int perKeySplitAndJoin(Tree tree) {
+		return tree.target.perKeySplitAndJoin(2 * (tree.size / 2));
+	}
+}
@@ -0,0 +1,91 @@
+package wavl.bench;
+
+import java.util.Random;
+
+/**
+ * how the benchmarks pick keys: every distribution draws indices in [0, n) (the benchmarks turn them into keys),
+ * and gives the order in which the tree is first filled.
+ */
+public enum KeyDistribution {
+
+	/** every index equally likely, filled in random order */
+	UNIFORM,
+	/** Zipfian with theta 0.99 (the YCSB constant) over a random permutation, so the hot keys are spread out */
+	ZIPFIAN,
+	/** 0, 1, 2, ... wrapping around, filled in increasing order */
+	SEQUENTIAL,
+	/**
+	 * 0, n-1, 1, n-2, ... converging from both ends, filled in that order.
+	 * while filling, every key goes to the innermost gap, alternating sides, so the inserts keep taking zig-zag paths
+	 * (double rotations), and consecutive operations jump across the whole tree, defeating locality.
+	 */
+	ADVERSARIAL;
+
+	private static final double ZIPF_THETA = 0.99;
+
+	/**
+	 * the order in which to insert the indices 0..n-1 when the tree is built
+	 */
+	public int[] fillOrder(int n, Random rand) {
+		if (this == SEQUENTIAL || this == ADVERSARIAL) {
+			return stream(n, n, rand); //one pass of the stream visits every index once
+		}
+		return permutation(n, rand);
+	}
+
+	/**
+	 * length indices in [0, n) drawn from this distribution
+	 */
+	public int[] stream(int n, int length, Random rand) {
+		int[] indices = new int[length];
+		switch (this) {
+		case UNIFORM:
+			for (int j = 0; j < length; j++) indices[j] = rand.nextInt(n);
+			break;
+		case ZIPFIAN:
+			zipfian(indices, n, rand);
+			break;
+		case SEQUENTIAL:
+			for (int j = 0; j < length; j++) indices[j] = j % n;
+			break;
+		case ADVERSARIAL:
+			for (int j = 0; j < length; j++) {
+				int i = (j % n) / 2;
+				indices[j] = (j % n & 1) == 0 ? i : n - 1 - i;
+			}
+			break;
+		}
+		return indices;
+	}
+
+	private static int[] permutation(int n, Random rand) {
+		int[] p = new int[n];
+		for (int j = 0; j < n; j++) p[j] = j;
+		for (int j = n - 1; j > 0; j--) {
+			int r = rand.nextInt(j + 1);
+			int t = p[j];
+			p[j] = p[r];
+			p[r] = t;
+		}
+		return p;
+	}
+
+	//Gray et al., "Quickly generating billion-record synthetic databases" (as in YCSB's ZipfianGenerator)
+	private static void zipfian(int[] indices, int n, Random rand) {
+		double zetan = 0;
+		for (int i = 1; i <= n; i++) zetan += 1 / Math.pow(i, ZIPF_THETA);
+		double zeta2 = 1 + Math.pow(0.5, ZIPF_THETA);
+		double alpha = 1 / (1 - ZIPF_THETA);
+		double eta = (1 - Math.pow(2.0 / n, 1 - ZIPF_THETA)) / (1 - zeta2 / zetan);
+		int[] scramble = permutation(n, rand);
+		for (int j = 0; j < indices.length; j++) {
+			double u = rand.nextDouble();
+			double uz = u * zetan;
+			int rank;
+			if (uz < 1) rank = 0;
+			else if (uz < zeta2) rank = 1;
+			else rank = Math.min(n - 1, (int) (n * Math.pow(eta * u - eta + 1, alpha)));
+			indices[j] = scramble[rank];
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package wavl.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * latency of the deletes of a burst (random keys of a tree built by random inserts), with eager delete
+ * and with lazy delete (setLazyDelete), and the time of the compact() run after a lazy burst.
+ * delete samples every call (read the percentiles), after every burst of deletes the tree is compacted and
+ * refilled outside the measurement. bursts are smaller than half the tree, so lazy delete never compacts inside one.
+ * java -jar benchmarks/target/benchmarks.jar LazyDeleteBenchmark
+ */
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LazyDeleteBenchmark {
+
+	private static final String VALUE = "v";
+
+	/**
+	 * a tree of the keys 0, 2, .. 2(size-1), inserted in random order, which is also the order they are deleted in
+	 */
+	@State(Scope.Thread)
+	public static class Tree {
+
+		@Param({"eager", "lazy"})
+		public String mode;
+
+		@Param({"1000000"})
+		public int size;
+
+		@Param({"100000"})
+		public int burst;
+
+		Target target;
+		private int[] order;
+		private int next; //next key of order to delete
+		int deleted; //deletes of the current burst
+
+		@Setup(Level.Trial)
+		public void build() throws ReflectiveOperationException {
+			Random rand = new Random(size);
+			order = new int[size];
+			for (int j = 0; j < size; j++) order[j] = 2 * j;
+			for (int j = size - 1; j > 0; j--) {
+				int r = rand.nextInt(j + 1);
+				int t = order[j];
+				order[j] = order[r];
+				order[r] = t;
+			}
+			//unnamed package, can't be imported
+			target = (Target) Class.forName("LazyWAVLTreeTarget").getConstructor(boolean.class).newInstance(mode.equals("lazy"));
+			for (int k : order) target.insert(k, VALUE);
+		}
+
+		int nextKey() {
+			deleted++;
+			int k = order[next];
+			next = next + 1 == size ? 0 : next + 1;
+			return k;
+		}
+
+		//compacts and inserts the keys of the burst again
+		void refill() {
+			((Compactable) target).compact();
+			for (int j = 1; j <= deleted; j++) target.insert(order[(next - j + size) % size], VALUE);
+			deleted = 0;
+		}
+	}
+
+	/**
+	 * the tree, refilled after every burst of delete calls
+	 */
+	@State(Scope.Thread)
+	public static class Burst extends Tree {
+
+		@TearDown(Level.Invocation)
+		public void endOfBurst() {
+			if (deleted == burst) refill();
+		}
+	}
+
+	/**
+	 * the tree with a burst of deletes behind it for every compact call, refilled after it
+	 */
+	@State(Scope.Thread)
+	public static class Deleted extends Tree {
+
+		@Setup(Level.Invocation)
+		public void deleteBurst() {
+			for (int j = 0; j < burst; j++) target.delete(nextKey());
+		}
+
+		@TearDown(Level.Invocation)
+		public void undo() {
+			refill();
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SampleTime)
+	public int delete(Burst tree) {
+		return tree.target.delete(tree.nextKey());
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 5)
+	@Measurement(iterations = 20)
+	public int compact(Deleted tree) {
+		return ((Compactable) tree.target).compact();
+	}
+}
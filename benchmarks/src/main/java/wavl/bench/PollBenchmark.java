@@ -0,0 +1,97 @@
+package wavl.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * the tree used as a priority queue: WAVLTree.pollMin (cached min node, no descent) against
+ * TreeMap.pollFirstEntry, and WAVLTree.delete(min key) (a descent per poll) for reference.
+ * drain: a queue of KEYS scattered keys is polled empty, ns per poll.
+ * steady: every poll is followed by an insert of a random key above the polled one (an event queue),
+ * so the size stays the same, ns per poll and insert.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PollBenchmark {
+
+	static final int KEYS = 1000000;
+	private static final int SCATTER = 0x9E3779B1; //odd, so j*SCATTER are distinct keys in scattered order
+
+	/**
+	 * which queue
+	 */
+	@State(Scope.Thread)
+	public static class Impl {
+
+		@Param({"pollMin", "deleteMin", "treemap"})
+		public String impl;
+
+		PriorityQueue empty() throws ReflectiveOperationException {
+			if (impl.equals("treemap")) return new TreeMapQueue();
+			//unnamed package, can't be imported
+			return (PriorityQueue) Class.forName("WAVLTreeQueue").getConstructor(boolean.class).newInstance(impl.equals("pollMin"));
+		}
+	}
+
+	/**
+	 * a full queue of scattered keys for every drain call
+	 */
+	@State(Scope.Thread)
+	public static class Full {
+		PriorityQueue queue;
+
+		@Setup(Level.Invocation)
+		public void fill(Impl impl) throws ReflectiveOperationException {
+			queue = impl.empty();
+			for (int j = 0; j < KEYS; j++) queue.insert(j * SCATTER);
+		}
+	}
+
+	/**
+	 * the queue of the steady state, the keys 0, 16, 32, .. at first
+	 */
+	@State(Scope.Thread)
+	public static class Steady {
+		PriorityQueue queue;
+		Random rand;
+
+		@Setup(Level.Trial)
+		public void fill(Impl impl) throws ReflectiveOperationException {
+			queue = impl.empty();
+			rand = new Random(KEYS);
+			for (int j = 0; j < KEYS; j++) queue.insert(j * 16);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(KEYS)
+	public long drain(Full full) {
+		long sum = 0;
+		for (int j = 0; j < KEYS; j++) sum += full.queue.poll();
+		return sum;
+	}
+
+	@Benchmark
+	public int steady(Steady steady) {
+		int k = steady.queue.poll();
+		steady.queue.insert(k + 1 + steady.rand.nextInt(KEYS * 16)); //new events land anywhere after the current one
+		return k;
+	}
+}
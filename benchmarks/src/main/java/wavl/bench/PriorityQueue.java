@@ -0,0 +1,15 @@
+package wavl.bench;
+
+/**
+ * the queue operations PollBenchmark runs, over WAVLTree (WAVLTreeQueue, in the unnamed package)
+ * and over java.util.TreeMap (TreeMapQueue)
+ */
+public interface PriorityQueue {
+
+	void insert(int k);
+
+	/**
+	 * removes the smallest key and returns it, the queue must not be empty
+	 */
+	int poll();
+}
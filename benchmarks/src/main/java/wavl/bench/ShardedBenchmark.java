@@ -0,0 +1,101 @@
+package wavl.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * a write heavy mix (50% search, 25% insert, 25% delete of random keys, scattered over the whole int range so every
+ * key range gets its share) shared by all benchmark threads, ShardedWAVLTree against ConcurrentWAVLTree
+ * (one lock for all writers).
+ * the sharded tree starts with the given number of shards and a small split size, the shards it ended with
+ * are printed after the run. scaling needs cores: with fewer cores than threads both trees just take turns.
+ * the reported throughput is that of all threads together, set their number with -t:
+ * java -jar benchmarks/target/benchmarks.jar ShardedBenchmark -t 16 -p shards=1,16
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 3)
+@Threads(4)
+@Fork(1)
+public class ShardedBenchmark {
+
+	private static final int SCATTER = 0x9E3779B1; //odd, so multiplying by it is a bijection of int
+	private static final String VALUE = "v";
+
+	/**
+	 * the tree all threads share, holding j*SCATTER for the even j < 2*size
+	 */
+	@State(Scope.Benchmark)
+	public static class Tree {
+
+		@Param({"single", "sharded"})
+		public String impl;
+
+		@Param({"1000000"})
+		public int size;
+
+		@Param({"1"})
+		public int shards;
+
+		@Param({"65536"})
+		public int maxShardSize;
+
+		Target target;
+
+		@Setup(Level.Trial)
+		public void build() throws ReflectiveOperationException {
+			//unnamed package, can't be imported
+			target = impl.equals("sharded")
+					? (Target) Class.forName("ShardedWAVLTreeTarget").getConstructor(int.class, int.class).newInstance(shards, maxShardSize)
+					: (Target) Class.forName("ConcurrentWAVLTreeTarget").getConstructor().newInstance();
+			for (int j = 0; j < size; j++) target.insert(2 * j * SCATTER, VALUE);
+		}
+
+		@TearDown(Level.Trial)
+		public void report() {
+			if (impl.equals("sharded")) System.out.println("\n" + target);
+		}
+	}
+
+	/**
+	 * the random operations of one thread
+	 */
+	@State(Scope.Thread)
+	public static class Operations {
+		private static int seeds;
+
+		Random rand;
+
+		@Setup(Level.Trial)
+		public void seed() {
+			synchronized (Operations.class) {
+				rand = new Random(seeds++);
+			}
+		}
+	}
+
+	@Benchmark
+	public Object writeHeavy(Tree tree, Operations ops) {
+		int op = ops.rand.nextInt(4);
+		int k = ops.rand.nextInt(2 * tree.size) * SCATTER; //half of them filled
+		if (op < 2) return tree.target.search(k);
+		if (op == 2) return tree.target.insert(k, VALUE);
+		return tree.target.delete(k);
+	}
+}
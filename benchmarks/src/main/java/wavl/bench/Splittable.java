@@ -0,0 +1,19 @@
+package wavl.bench;
+
+/**
+ * a tree of the keys 0, 2, .. 2(n-1) that can be cut in two at a key and put back together,
+ * by WAVLTree.split/join (WAVLTreeSplitTarget, in the unnamed package) or one key at a time
+ */
+public interface Splittable {
+
+	/**
+	 * splits the tree at k (a key of the tree) and joins the parts back with k, returns the size
+	 */
+	int splitAndJoin(int k);
+
+	/**
+	 * the same with single inserts and deletes: every key above k is deleted and inserted into a second tree,
+	 * then they are all inserted back. returns the size
+	 */
+	int perKeySplitAndJoin(int k);
+}
@@ -0,0 +1,31 @@
+package wavl.bench;
+
+/**
+ * the operations a benchmark runs, implemented over WAVLTree (WAVLTreeTarget) and the other trees
+ * (ConcurrentWAVLTreeTarget, DurableWAVLTreeTarget, ..., all in the unnamed package like the trees themselves,
+ * loaded by name) and over java.util.TreeMap (TreeMapTarget, the baseline).
+ * every fork runs a single implementation, so the calls stay monomorphic and get inlined.
+ */
+public interface Target {
+
+	/**
+	 * inserts k (if absent), returns the tree's own result so the work can't be eliminated
+	 */
+	int insert(int k, String v);
+
+	/**
+	 * deletes k (if present)
+	 */
+	int delete(int k);
+
+	String search(int k);
+
+	/**
+	 * value of the i'th smallest key, counting from 0
+	 */
+	String select(int i);
+
+	int[] keysToArray();
+
+	int size();
+}
@@ -0,0 +1,19 @@
+package wavl.bench;
+
+import java.util.TreeMap;
+
+/**
+ * the baseline queue, TreeMap.pollFirstEntry
+ */
+public class TreeMapQueue implements PriorityQueue {
+
+	private final TreeMap<Integer, String> map = new TreeMap<Integer, String>();
+
+	public void insert(int k) {
+		map.put(k, "v");
+	}
+
+	public int poll() {
+		return map.pollFirstEntry().getKey();
+	}
+}
@@ -0,0 +1,44 @@
+package wavl.bench;
+
+import java.util.TreeMap;
+
+/**
+ * the baseline, a java.util.TreeMap (red-black tree, boxed keys)
+ */
+public class TreeMapTarget implements Target {
+
+	private final TreeMap<Integer, String> map = new TreeMap<Integer, String>();
+
+	public int insert(int k, String v) {
+		return map.putIfAbsent(k, v) == null ? 0 : -1;
+	}
+
+	public int delete(int k) {
+		return map.remove(k) != null ? 0 : -1;
+	}
+
+	public String search(int k) {
+		return map.get(k);
+	}
+
+	/**
+	 * TreeMap has no order statistics, this walks i values (O(i)), the price of doing without them
+	 */
+	public String select(int i) {
+		for (String v : map.values()) {
+			if (i-- == 0) return v;
+		}
+		return null;
+	}
+
+	public int[] keysToArray() {
+		int[] keys = new int[map.size()];
+		int i = 0;
+		for (Integer k : map.keySet()) keys[i++] = k;
+		return keys;
+	}
+
+	public int size() {
+		return map.size();
+	}
+}
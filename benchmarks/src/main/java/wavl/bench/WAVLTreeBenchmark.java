@@ -0,0 +1,178 @@
+package wavl.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * WAVLTree against java.util.TreeMap: insert, delete, search, select, keysToArray and two mixed workloads,
+ * for every KeyDistribution and tree size.
+ *
+ * the tree holds the even keys 2i for every index i in [0, size), filled in the distribution's order.
+ * operations draw indices from the distribution: search and delete use 2i (always present),
+ * insert uses 2i+1 (always absent). insert and delete are undone after every call, outside the measurement,
+ * so the tree keeps its size (JMH then times every call on its own, which adds a few ns to their throughput). TreeMap has no order statistics- its select walks i values.
+ *
+ * every benchmark reports throughput and sampled latency (percentiles), add -prof gc for the allocation rate:
+ * mvn -B package && java -jar benchmarks/target/benchmarks.jar -prof gc
+ * a subset, e.g. java -jar benchmarks/target/benchmarks.jar WAVLTreeBenchmark.search -p size=100000 -prof gc
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WAVLTreeBenchmark {
+
+	private static final int STREAM_LENGTH = 1 << 16;
+	private static final int STREAM_MASK = STREAM_LENGTH - 1;
+	private static final int RECENT = 1 << 10; //inserts of the mixed workloads that may still be deleted
+	private static final String VALUE = "value";
+
+	/**
+	 * the tree under test and the stream of indices the operations draw from
+	 */
+	@State(Scope.Thread)
+	public static class Tree {
+
+		@Param({"wavl", "treemap"})
+		public String impl;
+
+		@Param({"1000", "100000", "1000000"})
+		public int size;
+
+		@Param({"UNIFORM", "ZIPFIAN", "SEQUENTIAL", "ADVERSARIAL"})
+		public KeyDistribution distribution;
+
+		Target target;
+		private int[] stream;
+		int cursor;
+		private final int[] recent = new int[RECENT];
+		private int recentHead, recentTail;
+
+		@Setup(Level.Trial)
+		public void build() throws ReflectiveOperationException {
+			target = impl.equals("wavl")
+					? (Target) Class.forName("WAVLTreeTarget").getConstructor().newInstance() //unnamed package, can't be imported
+					: new TreeMapTarget();
+			Random rand = new Random(size);
+			for (int i : distribution.fillOrder(size, rand)) {
+				target.insert(2 * i, VALUE);
+			}
+			stream = distribution.stream(size, STREAM_LENGTH, rand);
+			if (target.size() != size) {
+				throw new IllegalStateException("tree has " + target.size() + " keys, expected " + size);
+			}
+		}
+
+		@TearDown(Level.Iteration)
+		public void check() {
+			if (target.size() < size || target.size() > size + RECENT) {
+				throw new IllegalStateException("tree has " + target.size() + " keys, expected about " + size);
+			}
+		}
+
+		int next() {
+			return stream[cursor++ & STREAM_MASK];
+		}
+	}
+
+	/**
+	 * the tree, deleting the key inserted by the last insert call after it
+	 */
+	@State(Scope.Thread)
+	public static class InsertUndone extends Tree {
+		int key;
+
+		@TearDown(Level.Invocation)
+		public void undo() {
+			target.delete(key);
+		}
+	}
+
+	/**
+	 * the tree, inserting the key deleted by the last delete call again after it
+	 */
+	@State(Scope.Thread)
+	public static class DeleteUndone extends Tree {
+		int key;
+
+		@TearDown(Level.Invocation)
+		public void undo() {
+			target.insert(key, VALUE);
+		}
+	}
+
+	@Benchmark
+	public int insert(InsertUndone tree) {
+		tree.key = 2 * tree.next() + 1;
+		return tree.target.insert(tree.key, VALUE);
+	}
+
+	@Benchmark
+	public int delete(DeleteUndone tree) {
+		tree.key = 2 * tree.next();
+		return tree.target.delete(tree.key);
+	}
+
+	@Benchmark
+	public String search(Tree tree) {
+		return tree.target.search(2 * tree.next());
+	}
+
+	@Benchmark
+	public String select(Tree tree) {
+		return tree.target.select(tree.next());
+	}
+
+	@Benchmark
+	public int[] keysToArray(Tree tree) {
+		return tree.target.keysToArray();
+	}
+
+	/**
+	 * 90% search, 5% insert, 5% delete of an earlier insert
+	 */
+	@Benchmark
+	public void mixedReadHeavy(Tree tree, Blackhole blackhole) {
+		mixed(tree, 10, blackhole);
+	}
+
+	/**
+	 * 50% search, 25% insert, 25% delete of an earlier insert
+	 */
+	@Benchmark
+	public void mixedWriteHeavy(Tree tree, Blackhole blackhole) {
+		mixed(tree, 2, blackhole);
+	}
+
+	//one write every period calls, alternating insert and delete (of the oldest mixed insert still in the tree)
+	private static void mixed(Tree tree, int period, Blackhole blackhole) {
+		int i = tree.next();
+		int phase = tree.cursor % (2 * period);
+		if (phase == 0 && tree.recentTail - tree.recentHead < RECENT) {
+			int key = 2 * i + 1;
+			if (tree.target.insert(key, VALUE) != -1) tree.recent[tree.recentTail++ & (RECENT - 1)] = key;
+		}
+		else if (phase == period && tree.recentHead < tree.recentTail) {
+			blackhole.consume(tree.target.delete(tree.recent[tree.recentHead++ & (RECENT - 1)]));
+		}
+		else {
+			blackhole.consume(tree.target.search(2 * i));
+		}
+	}
+}
@@ -0,0 +1,552 @@
+/**
+ *
+ * AbstractWAVLTree
+ *
+ * The key independent part of a WAVL Tree (Haupler, Sen & Tarajan), shared by the specialized trees
+ * (IntIntWAVLTree, LongLongWAVLTree, LongObjWAVLTree, ComparatorWAVLTree).
+ * Holds the rank/size/pointer structure and all of the insert/delete rebalancing,
+ * so that the specialized trees only have to implement the descent on their own key type
+ * (primitive keys are compared directly and never boxed).
+ *
+ * rebalancing is the same algorithm as WAVLTree (cases as shown in class). which case applies is decided in one
+ * place, WAVLCases, for this class, WAVLTree, ArenaWAVLTree, OffHeapWAVLTree and CompactWAVLTree. the rank changes
+ * and rotations of each case are written out here and in WAVLTree separately: WAVLTree does not extend this class,
+ * its insert/delete do more on the same paths- sizes fixed on the way up only once the operation is sure to happen,
+ * live counts with lazy delete, aggregate refresh in rotations, the cached min/max nodes, the node pool and the
+ * fingers- and routing all of that through hooks here would put virtual calls in the rebalancing of every
+ * specialized tree. PersistentWAVLTree (path copying) and PackedWAVLTree (rank differences as bits) test the cases
+ * in their own representation.
+ * RebalanceParityTest runs all of them against WAVLTree and checks every insert/delete returns the same count.
+ */
+
+abstract class AbstractWAVLTree<N extends AbstractWAVLTree.Node<N>> {
+
+	N root;
+	final N EXT; //general object used as external leaf (rank -1, size 0)
+	static final int ERROR_INDICTATOR = -1;
+
+	/**
+	 * ext is the subclass' external leaf object, it is never inserted as an inner node.
+	 */
+	AbstractWAVLTree(N ext) {
+		EXT = ext;
+		EXT.rank = -1;
+		EXT.size = 0;
+	}
+
+	/**
+	 * public boolean empty()
+	 *
+	 * returns true if and only if the tree is empty
+	 *
+	 */
+	public boolean empty() {
+		return root == null;
+	}
+
+	/**
+	 * public int size()
+	 *
+	 * Returns the number of nodes in the tree.
+	 *
+	 */
+	public int size() {
+		return root != null ? root.size : 0;
+	}
+
+	/**
+	 * initilizes an empty tree by making node the root of the tree, init size,rank
+	 */
+	void initializeRoot(N node) {
+		root = node;
+		root.size = 1;
+		root.rank = 0;
+		root.left = EXT;
+		root.right = EXT;
+		root.parent = null;
+	}
+
+	/**
+	 * attaches a new leaf as the left/right child of parentNode (found by the subclass descent, which
+	 * already checked the key is not in the tree), fixes sizes up to the root and rebalances.
+	 * returns the number of rebalancing operations, like WAVLTree.insert
+	 */
+	int insertNode(N parentNode, N insertionNode, boolean asLeft) {
+		insertionNode.rank = 0;
+		insertionNode.size = 1;
+		insertionNode.left = EXT;
+		insertionNode.right = EXT; //Initialize all of new node's fields
+		insertionNode.parent = parentNode;
+		if (asLeft) parentNode.left = insertionNode;
+		else parentNode.right = insertionNode;
+
+		increaseSizesUp(parentNode);
+
+		int rebalances = 0;
+
+		N temp = insertionNode;
+		int caseNum = whichCase(temp);
+
+		while (caseNum != 0) { //tree isn't fixed
+			switch (caseNum) {
+			case 1:
+				temp.parent.rank++; //promote x
+				temp = temp.parent;
+				rebalances++; //one promote
+				if (temp == root) { //root need not push problem upwards- fixed
+					caseNum = 0;
+					break;
+				}
+				caseNum = whichCase(temp);
+				break;
+			case 2:
+				if (temp.parent.left == temp) { //check if in normal or symmetric case
+					rightRotate(temp.parent);
+					temp.right.rank--; //demote z
+				}
+				else { //symmetric case
+					leftRotate(temp.parent);
+					temp.left.rank--; //demote z
+				}
+				rebalances += 2; //1 rotate, 1 demote
+				caseNum = 0;
+				break;
+			case 3:
+				if (temp.parent.left == temp) {
+					leftRotate(temp);
+					rightRotate(temp.parent.parent); //left-right double rotate
+					temp.rank--; //demote x
+					temp.parent.right.rank--; //demote z
+					temp.parent.rank++; //promote b
+				}
+				else {
+					rightRotate(temp);
+					leftRotate(temp.parent.parent); //right-left double rotate
+					temp.rank--; //demote x
+					temp.parent.left.rank--; //demote z
+					temp.parent.rank++; //promote b
+				}
+				rebalances += 5; //2 rotates, 3 demotes/promotes
+				caseNum = 0;
+				break;
+			} //switch ends
+		}
+
+		return rebalances;
+	}
+
+	/**
+	 * determines the needed insert rebalancing action at currentNode (WAVLCases.insertCase), see WAVLTree.whichCase
+	 * @return 0 if tree is balanced, 1,2,3 according to cases shown in lecture (including symmetric cases).
+	 */
+	private int whichCase(N currentNode) {
+		int diff1 = rank(currentNode.parent) - rank(currentNode); //z
+		if (diff1 != 0) return 0;
+		int diff2 = rank(currentNode.parent) - rank(sibling(currentNode)); //z-y
+		int diff3 = rank(currentNode) - rank(currentNode.left);
+		return WAVLCases.insertCase(diff1, diff2, diff3, currentNode.parent.left == currentNode);
+	}
+
+	/**
+	 * removes an inner node (found by the subclass descent) from the tree and rebalances.
+	 * returns the number of rebalancing operations, like WAVLTree.delete
+	 */
+	int deleteNode(N deletionNode) {
+
+		N rebalanceNode = deletionNode.parent; //save for later for rebalancing
+		N resizeNode = rebalanceNode; //we may mess with rebalanceNode later, save this for size fixing
+
+		boolean checkLeaf = isLeaf(deletionNode); //pre-saved check if we are deleting leaf or unary
+		boolean checkUnary = isUnary(deletionNode);
+
+		if (!checkLeaf && !checkUnary) { // if internal binary leaf
+			N suc = successor(deletionNode);
+
+			rebalanceNode = suc.parent; //find new rebalancenode (NOTE: suc is NOT the root)
+			resizeNode = rebalanceNode;
+
+			checkLeaf = isLeaf(suc);
+			checkUnary = isUnary(suc); //update checker to what we are actually deleting
+
+			if (rebalanceNode == deletionNode) {
+				rebalanceNode = suc; //edge case: rebalance from the successor which took deletionNode's place
+				resizeNode = rebalanceNode;
+			}
+
+			deleteBinary(deletionNode, suc);
+		}
+		else if (checkLeaf) {
+			deleteLeaf(deletionNode);
+
+			if (root == null) { //there was 1 node in tree- now empty
+				return 0;
+			}
+		}
+		else {
+			deleteUnary(deletionNode);
+
+			if (root.right == EXT && root.left == EXT) { //was root with one child- now only root
+				root.size = 1;
+				return 0;
+			}
+		}
+
+		decreaseSizesUp(resizeNode); //fix sizes up the tree- opposite of insert updates
+
+		//"pre rebalance" -special first cases in accordence with WAVL presentation slides 52,53
+
+		int rebalances = 0; //don't miss a rebalance count
+
+		if (checkLeaf || checkUnary) {
+			int firstCase = deletionCases(rebalanceNode);
+			if (firstCase == 1) { //case 1-tree balanced
+				return 0;
+			}
+			if (firstCase == 2) {
+				if (checkUnary) { //unary deletion with 2,2 parent is already valid
+					return 0;
+				}
+				rebalanceNode.rank--; //case 2- 2,2 node as leaf (demote z)
+				rebalanceNode = rebalanceNode.parent; //go up
+				rebalances++; //1 demote
+			}
+		}
+		//in both leaf, unary we only take care of case 3 later
+
+		if (rebalanceNode == null) return rebalances; //if problem already moved up after reaching root- then fixed
+
+		int caseNum = whichCaseDelete(rebalanceNode);
+		int diff1, diff2;
+
+		while (caseNum != 0) { //tree isn't fixed
+			switch (caseNum) {
+
+			case 1: //demote
+				rebalanceNode.rank--; // demote z
+				rebalanceNode = rebalanceNode.parent;
+				rebalances++; //one demote
+				if (rebalanceNode == null) { //root need not push problem upwards- fixed
+					caseNum = 0;
+					break;
+				}
+				caseNum = whichCaseDelete(rebalanceNode);
+				break;
+
+			case 2: //double demote
+				diff1 = rank(rebalanceNode) - rank(rebalanceNode.right);
+				diff2 = rank(rebalanceNode) - rank(rebalanceNode.left);
+				if (diff1 == 1) { //check normal of symmetric cases
+					rebalanceNode.right.rank--; //demote y
+				}
+				if (diff2 == 1) {
+					rebalanceNode.left.rank--; //demote y
+				}
+				rebalanceNode.rank--; //demote z
+				rebalanceNode = rebalanceNode.parent;
+
+				rebalances += 2; //double demote
+
+				if (rebalanceNode == null) { //root need not push problem upwards- fixed
+					caseNum = 0;
+					break;
+				}
+				caseNum = whichCaseDelete(rebalanceNode);
+				break;
+
+			case 3: //rotate (+rank changes)
+				diff1 = rank(rebalanceNode) - rank(rebalanceNode.right);
+				diff2 = rank(rebalanceNode) - rank(rebalanceNode.left);
+				if (diff1 == 1) { //check normal of symmetric cases
+					leftRotate(rebalanceNode);
+				}
+				if (diff2 == 1) {
+					rightRotate(rebalanceNode);
+				}
+
+				rebalanceNode.parent.rank++; //promote y
+				rebalanceNode.rank--; //demote z
+
+				if (rank(rebalanceNode) - rank(rebalanceNode.right) == 2
+						&& rank(rebalanceNode) - rank(rebalanceNode.left) == 2) { //if z=2,2 demote z again
+					rebalanceNode.rank--;
+					rebalances++;
+				}
+
+				rebalances += 3; //rotate, demote,promote (if extra demote: already counted)
+				caseNum = 0;
+				break;
+
+			case 4: //double rotate (+rank changes)
+				diff1 = rank(rebalanceNode) - rank(rebalanceNode.right);
+				diff2 = rank(rebalanceNode) - rank(rebalanceNode.left);
+				if (diff1 == 1) { //check normal of symmetric cases
+					rightRotate(rebalanceNode.right);
+					leftRotate(rebalanceNode);
+				}
+				if (diff2 == 1) {
+					leftRotate(rebalanceNode.left);
+					rightRotate(rebalanceNode);
+				}
+
+				rebalanceNode.rank -= 2; //demote z twice
+				rebalanceNode.parent.rank += 2; //promote a twice
+				sibling(rebalanceNode).rank--; //demote y
+
+				rebalances += 7; //2 rotations, 3 demotions, 2 promotions
+				caseNum = 0;
+				break;
+			} // end switch cases
+		} // end while loop
+
+		return rebalances;
+	}
+
+	/**
+	 * first rebalance operation after deleting a leaf/unary node, for reference see WAVL slides 52,53.
+	 * 1 - balanced, 2 - 2,2 node, 3 - continue with whichCaseDelete
+	 */
+	private int deletionCases(N node) {
+		return WAVLCases.firstDeleteCase(rank(node) - rank(node.right), rank(node) - rank(node.left));
+	}
+
+	/**
+	 * returns the delete rebalance operation num at node (for reference see WAVL slide 54),
+	 * decided by WAVLCases.deleteCase and, at the 1-child y, WAVLCases.siblingCase.
+	 */
+	private int whichCaseDelete(N node) {
+		int diff1 = rank(node) - rank(node.right);
+		int diff2 = rank(node) - rank(node.left);
+		int caseNum = WAVLCases.deleteCase(diff1, diff2);
+		if (caseNum != WAVLCases.AT_SIBLING) {
+			return caseNum;
+		}
+		if (diff1 == 1) { //normal case
+			N y = node.right;
+			return WAVLCases.siblingCase(rank(y) - rank(y.right), rank(y) - rank(y.left));
+		}
+		N y = node.left; // diff2 == 1 (symmetric case)
+		return WAVLCases.siblingCase(rank(y) - rank(y.left), rank(y) - rank(y.right));
+	}
+
+	/**
+	 * removes a leaf (replaced with EXT, the node is put in a 1 node tree).
+	 */
+	private void deleteLeaf(N deletionNode) {
+		deletionNode.size = 1;
+
+		if (deletionNode == root) { //single node in tree
+			root = null;
+			return;
+		}
+		if (deletionNode.parent.left == deletionNode) deletionNode.parent.left = EXT;
+		else deletionNode.parent.right = EXT;
+		deletionNode.parent = null;
+	}
+
+	/**
+	 * removes an unary node (its child becomes its parents child, the node is put in a 1 node tree).
+	 */
+	private void deleteUnary(N deletionNode) {
+		deletionNode.size = 1;
+
+		N sonNode = deletionNode.right != EXT ? deletionNode.right : deletionNode.left;
+		deletionNode.right = EXT;
+		deletionNode.left = EXT;
+
+		if (deletionNode == root) { //fix edgecase root pointer
+			root = sonNode;
+			sonNode.parent = null;
+			return;
+		}
+
+		N parentNode = deletionNode.parent;
+		deletionNode.parent = null;
+		sonNode.parent = parentNode;
+		if (parentNode.right == deletionNode) parentNode.right = sonNode;
+		else parentNode.left = sonNode;
+	}
+
+	/**
+	 * removes a binary node by first removing its successor and then putting the successor in its place
+	 * (same as WAVLTree.deleteBinary).
+	 */
+	private void deleteBinary(N deletionNode, N succsesor) {
+		if (isLeaf(succsesor)) deleteLeaf(succsesor);
+		else deleteUnary(succsesor);
+
+		if (deletionNode == root) root = succsesor; //update root
+
+		succsesor.size = deletionNode.size;
+		deletionNode.size = 1; //fix sizes
+
+		succsesor.rank = deletionNode.rank;
+		deletionNode.rank = 0; //fix ranks
+
+		N rightNode = deletionNode.right;
+		N leftNode = deletionNode.left;
+		N parentNode = deletionNode.parent;
+
+		succsesor.right = rightNode;
+		rightNode.parent = succsesor;
+		succsesor.left = leftNode;
+		leftNode.parent = succsesor;
+		succsesor.parent = parentNode;
+		if (parentNode != null) {
+			if (deletionNode == parentNode.right) parentNode.right = succsesor;
+			else parentNode.left = succsesor;
+		}
+
+		//put deletion in 1 node tree
+		deletionNode.right = EXT;
+		deletionNode.left = EXT;
+		deletionNode.parent = null;
+	}
+
+	private boolean isLeaf(N node) {
+		return node.left == EXT && node.right == EXT;
+	}
+
+	private boolean isUnary(N node) {
+		return (node.left == EXT) != (node.right == EXT);
+	}
+
+	private void increaseSizesUp(N node) {
+		while (node != null) {
+			node.size++;
+			node = node.parent;
+		}
+	}
+
+	private void decreaseSizesUp(N node) {
+		while (node != null) {
+			node.size--;
+			node = node.parent;
+		}
+	}
+
+	/**
+	 * rotates tree right around x (y=x.left becomes x's parent), updates sizes, rank update done separately
+	 */
+	private void rightRotate(N x) {
+		N y = x.left;
+		N B = y.right;
+
+		if (x != root && x.parent.left == x) x.parent.left = y; //fix upper tree connection
+		else if (x != root && x.parent.right == x) x.parent.right = y;
+
+		y.parent = x.parent;
+		y.right = x;
+		x.parent = y;
+		x.left = B;
+		B.parent = x;
+
+		if (root.parent != null) root = root.parent; //fix root pointer
+
+		x.size = x.left.size + x.right.size + 1;
+		y.size = y.left.size + y.right.size + 1; //y relies on x size- important to update it first
+	}
+
+	/**
+	 * rotates tree left around y (x=y.right becomes y's parent), updates sizes, rank update done separately
+	 */
+	private void leftRotate(N y) {
+		N x = y.right;
+		N B = x.left;
+
+		if (y != root && y.parent.left == y) y.parent.left = x; //fix upper tree connection
+		else if (y != root && y.parent.right == y) y.parent.right = x;
+
+		x.parent = y.parent;
+		x.left = y;
+		y.parent = x;
+		y.right = B;
+		B.parent = y;
+
+		if (root.parent != null) root = root.parent; //fix root pointer
+
+		y.size = y.left.size + y.right.size + 1;
+		x.size = x.left.size + x.right.size + 1; //x relies on y size- important to update it first
+	}
+
+	/**
+	 * returns nodes rank (-1 for EXT)
+	 */
+	int rank(N node) {
+		return node == EXT ? -1 : node.rank;
+	}
+
+	/**
+	 * returns the sibling of the current node, meaning its parents other child
+	 */
+	N sibling(N node) {
+		return node.parent.right == node ? node.parent.left : node.parent.right;
+	}
+
+	/**
+	 * returns the node with the minimal key in the tree, or null if the tree is empty
+	 */
+	N minNode() {
+		N node = root;
+		if (node == null) return null;
+		while (node.left != EXT) node = node.left;
+		return node;
+	}
+
+	/**
+	 * returns the node with the maximal key in the tree, or null if the tree is empty
+	 */
+	N maxNode() {
+		N node = root;
+		if (node == null) return null;
+		while (node.right != EXT) node = node.right;
+		return node;
+	}
+
+	/**
+	 * returns the node with the next key in the tree, or null if x is the maximum
+	 */
+	N successor(N x) {
+		if (x.right != EXT) {
+			x = x.right;
+			while (x.left != EXT) x = x.left;
+			return x;
+		}
+		N y = x.parent;
+		while (y != null && x == y.right) {
+			x = y;
+			y = x.parent;
+		}
+		return y;
+	}
+
+	/**
+	 * returns the node of the i'th smallest key (counting from 0, like WAVLTree.selectNode),
+	 * or null if i is out of range. iterative version of WAVLTree.selectNode
+	 */
+	N selectNode(int i) {
+		if (i < 0 || i >= size()) return null;
+		N node = root;
+		while (true) {
+			int r = node.left.size;
+			if (i == r) return node;
+			if (i < r) {
+				node = node.left;
+			}
+			else {
+				i -= r + 1;
+				node = node.right;
+			}
+		}
+	}
+
+	/**
+	 * rank, size and pointers shared by every specialized node, subclasses add the key and value fields.
+	 */
+	static class Node<N extends Node<N>> {
+		int rank;
+		int size;
+		N left;
+		N right;
+		N parent;
+	}
+}
@@ -0,0 +1,671 @@
+import java.util.Arrays;
+
+/**
+ *
+ * ArenaWAVLTree
+ *
+ * WAVL Tree with int keys and String values (same API as WAVLTree) that keeps its nodes in an arena:
+ * rank/key/size/left/right/parent are parallel int arrays indexed by node id instead of one WAVLNode object per item.
+ * id 0 is reserved for EXT (rank -1, size 0), NIL (-1) is used for a missing parent / empty tree.
+ * ids of deleted nodes are kept in a free list (linked through the left array) and reused by later inserts.
+ *
+ * memory per item (64 bit JVM, compressed oops, not counting the String values themselves):
+ * WAVLTree node object - 12 header + 3 ints + value + 3 references + outer instance pointer = 48 bytes.
+ * arena slot - 6 ints + 1 value reference = 28 bytes, up to 42 bytes right after the arrays grow by half.
+ * the arena is also 7 arrays in total for the GC to mark instead of one object per item.
+ *
+ * rebalancing cases are the same as WAVLTree (as shown in class).
+ */
+
+public class ArenaWAVLTree {
+
+	private static final int EXT = 0; //reserved id used as external leaf
+	private static final int NIL = -1; //parent of root, root of empty tree, end of free list
+	private static final int ERROR_INDICTATOR = -1;
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private int[] rank;
+	private int[] key;
+	private int[] size;
+	private int[] left;
+	private int[] right;
+	private int[] parent;
+	private String[] value;
+
+	private int root = NIL;
+	private int nextId = 1; //first never used id
+	private int freeList = NIL; //head of deleted ids
+
+	public ArenaWAVLTree() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * capacity is the number of items the arena holds before it has to grow
+	 */
+	public ArenaWAVLTree(int capacity) {
+		int length = Math.max(capacity, 1) + 1; //+1 for EXT
+		rank = new int[length];
+		key = new int[length];
+		size = new int[length];
+		left = new int[length];
+		right = new int[length];
+		parent = new int[length];
+		value = new String[length];
+		rank[EXT] = -1;
+		size[EXT] = 0;
+	}
+
+	/**
+	 * public boolean empty()
+	 *
+	 * returns true if and only if the tree is empty
+	 *
+	 */
+	public boolean empty() {
+		return root == NIL;
+	}
+
+	/**
+	 * public String search(int k)
+	 *
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public String search(int k) {
+		int node = searchNode(k);
+		return node != NIL ? value[node] : null;
+	}
+
+	//returns the id of the node with key k or NIL if not in tree
+	private int searchNode(int k) {
+		int current = root;
+		if (current == NIL) return NIL;
+		while (current != EXT) {
+			int currentKey = key[current];
+			if (k == currentKey) return current;
+			current = k < currentKey ? left[current] : right[current];
+		}
+		return NIL;
+	}
+
+	/**
+	 * public int insert(int k, String i)
+	 *
+	 * inserts an item with key k and info i to the WAVL tree.
+	 * the tree must remain valid (keep its invariants).
+	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were necessary.
+	 * returns -1 if an item with key k already exists in the tree.
+	 */
+	public int insert(int k, String i) {
+		if (empty()) {
+			root = newNode(k, i); //base case
+			return 0;
+		}
+
+		int parentNode = root;
+		while (true) { //single descent: finds insertion point or the existing key
+			if (k == key[parentNode]) return ERROR_INDICTATOR; //for error: key in tree
+			int next = k < key[parentNode] ? left[parentNode] : right[parentNode];
+			if (next == EXT) break;
+			parentNode = next;
+		}
+
+		int insertionNode = newNode(k, i);
+		parent[insertionNode] = parentNode;
+		if (k < key[parentNode]) left[parentNode] = insertionNode;
+		else right[parentNode] = insertionNode;
+
+		for (int node = parentNode; node != NIL; node = parent[node]) {
+			size[node]++; //fix sizes up to the root
+		}
+
+		//rebalance
+
+		int rebalances = 0;
+
+		int temp = insertionNode;
+		int caseNum = whichCase(temp);
+
+		while (caseNum != 0) { //tree isn't fixed
+			switch (caseNum) {
+			case 1:
+				rank[parent[temp]]++; //promote x
+				temp = parent[temp];
+				rebalances++; //one promote
+				if (temp == root) { //root need not push problem upwards- fixed
+					caseNum = 0;
+					break;
+				}
+				caseNum = whichCase(temp);
+				break;
+			case 2:
+				if (left[parent[temp]] == temp) { //check if in normal or symmetric case
+					rightRotate(parent[temp]);
+					rank[right[temp]]--; //demote z
+				}
+				else { //symmetric case
+					leftRotate(parent[temp]);
+					rank[left[temp]]--; //demote z
+				}
+				rebalances += 2; //1 rotate, 1 demote
+				caseNum = 0;
+				break;
+			case 3:
+				if (left[parent[temp]] == temp) {
+					leftRotate(temp);
+					rightRotate(parent[parent[temp]]); //left-right double rotate
+					rank[temp]--; //demote x
+					rank[right[parent[temp]]]--; //demote z
+					rank[parent[temp]]++; //promote b
+				}
+				else {
+					rightRotate(temp);
+					leftRotate(parent[parent[temp]]); //right-left double rotate
+					rank[temp]--; //demote x
+					rank[left[parent[temp]]]--; //demote z
+					rank[parent[temp]]++; //promote b
+				}
+				rebalances += 5; //2 rotates, 3 demotes/promotes
+				caseNum = 0;
+				break;
+			} //switch ends
+		}
+
+		return rebalances;
+	}
+
+	/**
+	 * takes an id from the free list (or a never used one) and initializes it as a 1 node tree
+	 */
+	private int newNode(int k, String i) {
+		int node;
+		if (freeList != NIL) {
+			node = freeList;
+			freeList = left[node];
+		}
+		else {
+			if (nextId == key.length) grow();
+			node = nextId++;
+		}
+		key[node] = k;
+		value[node] = i;
+		rank[node] = 0;
+		size[node] = 1;
+		left[node] = EXT;
+		right[node] = EXT;
+		parent[node] = NIL;
+		return node;
+	}
+
+	/**
+	 * returns a detached id to the free list
+	 */
+	private void freeNode(int node) {
+		value[node] = null; //don't keep the info reachable
+		left[node] = freeList;
+		freeList = node;
+	}
+
+	private void grow() {
+		int length = key.length + (key.length >> 1) + 1;
+		rank = Arrays.copyOf(rank, length);
+		key = Arrays.copyOf(key, length);
+		size = Arrays.copyOf(size, length);
+		left = Arrays.copyOf(left, length);
+		right = Arrays.copyOf(right, length);
+		parent = Arrays.copyOf(parent, length);
+		value = Arrays.copyOf(value, length);
+	}
+
+	/**
+	 * determines the needed insert rebalancing action at currentNode (WAVLCases.insertCase), see WAVLTree.whichCase
+	 * @return 0 if tree is balanced, 1,2,3 according to cases shown in lecture (including symmetric cases).
+	 */
+	private int whichCase(int currentNode) {
+		int parentNode = parent[currentNode];
+		int diff1 = rank[parentNode] - rank[currentNode]; //z
+		if (diff1 != 0) return 0;
+		int diff2 = rank[parentNode] - rank[sibling(currentNode)]; //z-y
+		int diff3 = rank[currentNode] - rank[left[currentNode]];
+		return WAVLCases.insertCase(diff1, diff2, diff3, left[parentNode] == currentNode);
+	}
+
+	/**
+	 * public int delete(int k)
+	 *
+	 * deletes an item with key k from the binary tree, if it is there;
+	 * the tree must remain valid (keep its invariants).
+	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were needed.
+	 * returns -1 if an item with key k was not found in the tree.
+	 */
+	public int delete(int k) {
+		int deletionNode = searchNode(k);
+		if (deletionNode == NIL) {
+			return ERROR_INDICTATOR;
+		}
+
+		int rebalanceNode = parent[deletionNode]; //save for later for rebalancing
+		int resizeNode = rebalanceNode; //we may mess with rebalanceNode later, save this for size fixing
+
+		boolean checkLeaf = isLeaf(deletionNode); //pre-saved check if we are deleting leaf or unary
+		boolean checkUnary = isUnary(deletionNode);
+
+		if (!checkLeaf && !checkUnary) { // if internal binary leaf
+			int suc = successor(deletionNode);
+
+			rebalanceNode = parent[suc]; //find new rebalancenode (NOTE: suc is NOT the root)
+			resizeNode = rebalanceNode;
+
+			checkLeaf = isLeaf(suc);
+			checkUnary = isUnary(suc); //update checker to what we are actually deleting
+
+			if (rebalanceNode == deletionNode) {
+				rebalanceNode = suc; //edge case: rebalance from the successor which took deletionNode's place
+				resizeNode = rebalanceNode;
+			}
+
+			deleteBinary(deletionNode, suc);
+			freeNode(deletionNode);
+		}
+		else if (checkLeaf) {
+			deleteLeaf(deletionNode);
+			freeNode(deletionNode);
+
+			if (root == NIL) { //there was 1 node in tree- now empty
+				return 0;
+			}
+		}
+		else {
+			deleteUnary(deletionNode);
+			freeNode(deletionNode);
+
+			if (right[root] == EXT && left[root] == EXT) { //was root with one child- now only root
+				size[root] = 1;
+				return 0;
+			}
+		}
+
+		for (int node = resizeNode; node != NIL; node = parent[node]) {
+			size[node]--; //fix sizes up the tree- opposite of insert updates
+		}
+
+		//"pre rebalance" -special first cases in accordence with WAVL presentation slides 52,53
+
+		int rebalances = 0; //don't miss a rebalance count
+
+		int firstCase = deletionCases(rebalanceNode);
+		if (firstCase == 1) { //case 1-tree balanced
+			return 0;
+		}
+		if (firstCase == 2) {
+			if (checkUnary) { //unary deletion with 2,2 parent is already valid
+				return 0;
+			}
+			rank[rebalanceNode]--; //case 2- 2,2 node as leaf (demote z)
+			rebalanceNode = parent[rebalanceNode]; //go up
+			rebalances++; //1 demote
+		}
+		//in both leaf, unary we only take care of case 3 later
+
+		if (rebalanceNode == NIL) return rebalances; //if problem already moved up after reaching root- then fixed
+
+		int caseNum = whichCaseDelete(rebalanceNode);
+		int diff1, diff2;
+
+		while (caseNum != 0) { //tree isn't fixed
+			switch (caseNum) {
+
+			case 1: //demote
+				rank[rebalanceNode]--; // demote z
+				rebalanceNode = parent[rebalanceNode];
+				rebalances++; //one demote
+				if (rebalanceNode == NIL) { //root need not push problem upwards- fixed
+					caseNum = 0;
+					break;
+				}
+				caseNum = whichCaseDelete(rebalanceNode);
+				break;
+
+			case 2: //double demote
+				diff1 = rank[rebalanceNode] - rank[right[rebalanceNode]];
+				diff2 = rank[rebalanceNode] - rank[left[rebalanceNode]];
+				if (diff1 == 1) { //check normal of symmetric cases
+					rank[right[rebalanceNode]]--; //demote y
+				}
+				if (diff2 == 1) {
+					rank[left[rebalanceNode]]--; //demote y
+				}
+				rank[rebalanceNode]--; //demote z
+				rebalanceNode = parent[rebalanceNode];
+
+				rebalances += 2; //double demote
+
+				if (rebalanceNode == NIL) { //root need not push problem upwards- fixed
+					caseNum = 0;
+					break;
+				}
+				caseNum = whichCaseDelete(rebalanceNode);
+				break;
+
+			case 3: //rotate (+rank changes)
+				diff1 = rank[rebalanceNode] - rank[right[rebalanceNode]];
+				diff2 = rank[rebalanceNode] - rank[left[rebalanceNode]];
+				if (diff1 == 1) { //check normal of symmetric cases
+					leftRotate(rebalanceNode);
+				}
+				if (diff2 == 1) {
+					rightRotate(rebalanceNode);
+				}
+
+				rank[parent[rebalanceNode]]++; //promote y
+				rank[rebalanceNode]--; //demote z
+
+				if (rank[rebalanceNode] - rank[right[rebalanceNode]] == 2
+						&& rank[rebalanceNode] - rank[left[rebalanceNode]] == 2) { //if z=2,2 demote z again
+					rank[rebalanceNode]--;
+					rebalances++;
+				}
+
+				rebalances += 3; //rotate, demote,promote (if extra demote: already counted)
+				caseNum = 0;
+				break;
+
+			case 4: //double rotate (+rank changes)
+				diff1 = rank[rebalanceNode] - rank[right[rebalanceNode]];
+				diff2 = rank[rebalanceNode] - rank[left[rebalanceNode]];
+				if (diff1 == 1) { //check normal of symmetric cases
+					rightRotate(right[rebalanceNode]);
+					leftRotate(rebalanceNode);
+				}
+				if (diff2 == 1) {
+					leftRotate(left[rebalanceNode]);
+					rightRotate(rebalanceNode);
+				}
+
+				rank[rebalanceNode] -= 2; //demote z twice
+				rank[parent[rebalanceNode]] += 2; //promote a twice
+				rank[sibling(rebalanceNode)]--; //demote y
+
+				rebalances += 7; //2 rotations, 3 demotions, 2 promotions
+				caseNum = 0;
+				break;
+			} // end switch cases
+		} // end while loop
+
+		return rebalances;
+	}
+
+	/**
+	 * first rebalance operation after deleting a leaf/unary node, for reference see WAVL slides 52,53.
+	 * 1 - balanced, 2 - 2,2 node, 3 - continue with whichCaseDelete
+	 */
+	private int deletionCases(int node) {
+		return WAVLCases.firstDeleteCase(rank[node] - rank[right[node]], rank[node] - rank[left[node]]);
+	}
+
+	/**
+	 * returns the delete rebalance operation num at node (for reference see WAVL slide 54),
+	 * decided by WAVLCases.deleteCase and, at the 1-child y, WAVLCases.siblingCase.
+	 */
+	private int whichCaseDelete(int node) {
+		int diff1 = rank[node] - rank[right[node]];
+		int diff2 = rank[node] - rank[left[node]];
+		int caseNum = WAVLCases.deleteCase(diff1, diff2);
+		if (caseNum != WAVLCases.AT_SIBLING) {
+			return caseNum;
+		}
+		if (diff1 == 1) { //normal case
+			int y = right[node];
+			return WAVLCases.siblingCase(rank[y] - rank[right[y]], rank[y] - rank[left[y]]);
+		}
+		int y = left[node]; // diff2 == 1 (symmetric case)
+		return WAVLCases.siblingCase(rank[y] - rank[left[y]], rank[y] - rank[right[y]]);
+	}
+
+	/**
+	 * removes a leaf (replaced with EXT, the node is put in a 1 node tree).
+	 */
+	private void deleteLeaf(int deletionNode) {
+		size[deletionNode] = 1;
+
+		int parentNode = parent[deletionNode];
+		if (parentNode == NIL) { //single node in tree
+			root = NIL;
+			return;
+		}
+		if (left[parentNode] == deletionNode) left[parentNode] = EXT;
+		else right[parentNode] = EXT;
+		parent[deletionNode] = NIL;
+	}
+
+	/**
+	 * removes an unary node (its child becomes its parents child, the node is put in a 1 node tree).
+	 */
+	private void deleteUnary(int deletionNode) {
+		size[deletionNode] = 1;
+
+		int sonNode = right[deletionNode] != EXT ? right[deletionNode] : left[deletionNode];
+		right[deletionNode] = EXT;
+		left[deletionNode] = EXT;
+
+		int parentNode = parent[deletionNode];
+		parent[sonNode] = parentNode;
+		if (parentNode == NIL) { //fix edgecase root pointer
+			root = sonNode;
+			return;
+		}
+		parent[deletionNode] = NIL;
+		if (right[parentNode] == deletionNode) right[parentNode] = sonNode;
+		else left[parentNode] = sonNode;
+	}
+
+	/**
+	 * removes a binary node by first removing its successor and then putting the successor in its place
+	 * (same as WAVLTree.deleteBinary).
+	 */
+	private void deleteBinary(int deletionNode, int succsesor) {
+		if (isLeaf(succsesor)) deleteLeaf(succsesor);
+		else deleteUnary(succsesor);
+
+		if (deletionNode == root) root = succsesor; //update root
+
+		size[succsesor] = size[deletionNode];
+		size[deletionNode] = 1; //fix sizes
+
+		rank[succsesor] = rank[deletionNode];
+		rank[deletionNode] = 0; //fix ranks
+
+		int rightNode = right[deletionNode];
+		int leftNode = left[deletionNode];
+		int parentNode = parent[deletionNode];
+
+		right[succsesor] = rightNode;
+		parent[rightNode] = succsesor;
+		left[succsesor] = leftNode;
+		parent[leftNode] = succsesor;
+		parent[succsesor] = parentNode;
+		if (parentNode != NIL) {
+			if (deletionNode == right[parentNode]) right[parentNode] = succsesor;
+			else left[parentNode] = succsesor;
+		}
+
+		//put deletion in 1 node tree
+		right[deletionNode] = EXT;
+		left[deletionNode] = EXT;
+		parent[deletionNode] = NIL;
+	}
+
+	private boolean isLeaf(int node) {
+		return left[node] == EXT && right[node] == EXT;
+	}
+
+	private boolean isUnary(int node) {
+		return (left[node] == EXT) != (right[node] == EXT);
+	}
+
+	/**
+	 * rotates tree right around x (y=x.left becomes x's parent), updates sizes, rank update done separately
+	 */
+	private void rightRotate(int x) {
+		int y = left[x];
+		int B = right[y];
+		int parentNode = parent[x];
+
+		if (parentNode == NIL) root = y; //fix root pointer
+		else if (left[parentNode] == x) left[parentNode] = y; //fix upper tree connection
+		else right[parentNode] = y;
+
+		parent[y] = parentNode;
+		right[y] = x;
+		parent[x] = y;
+		left[x] = B;
+		parent[B] = x;
+
+		size[x] = size[left[x]] + size[right[x]] + 1;
+		size[y] = size[left[y]] + size[right[y]] + 1; //y relies on x size- important to update it first
+	}
+
+	/**
+	 * rotates tree left around y (x=y.right becomes y's parent), updates sizes, rank update done separately
+	 */
+	private void leftRotate(int y) {
+		int x = right[y];
+		int B = left[x];
+		int parentNode = parent[y];
+
+		if (parentNode == NIL) root = x; //fix root pointer
+		else if (left[parentNode] == y) left[parentNode] = x; //fix upper tree connection
+		else right[parentNode] = x;
+
+		parent[x] = parentNode;
+		left[x] = y;
+		parent[y] = x;
+		right[y] = B;
+		parent[B] = y;
+
+		size[y] = size[left[y]] + size[right[y]] + 1;
+		size[x] = size[left[x]] + size[right[x]] + 1; //x relies on y size- important to update it first
+	}
+
+	/**
+	 * returns the sibling of the current node, meaning its parents other child
+	 */
+	private int sibling(int node) {
+		int parentNode = parent[node];
+		return right[parentNode] == node ? left[parentNode] : right[parentNode];
+	}
+
+	/**
+	 * returns the node with the next key in the tree, or NIL if x is the maximum
+	 */
+	private int successor(int x) {
+		if (right[x] != EXT) {
+			x = right[x];
+			while (left[x] != EXT) x = left[x];
+			return x;
+		}
+		int y = parent[x];
+		while (y != NIL && x == right[y]) {
+			x = y;
+			y = parent[x];
+		}
+		return y;
+	}
+
+	/**
+	 * public String min()
+	 *
+	 * Returns the info of the item with the smallest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public String min() {
+		int node = minNode();
+		return node != NIL ? value[node] : null;
+	}
+
+	private int minNode() {
+		int node = root;
+		if (node == NIL) return NIL;
+		while (left[node] != EXT) node = left[node];
+		return node;
+	}
+
+	/**
+	 * public String max()
+	 *
+	 * Returns the info of the item with the largest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public String max() {
+		int node = root;
+		if (node == NIL) return null;
+		while (right[node] != EXT) node = right[node];
+		return value[node];
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 *
+	 * Returns a sorted array which contains all keys in the tree,
+	 * or an empty array if the tree is empty.
+	 */
+	public int[] keysToArray() {
+		int[] keys = new int[size()];
+		int i = 0;
+		for (int node = minNode(); node != NIL; node = successor(node)) {
+			keys[i++] = key[node];
+		}
+		return keys;
+	}
+
+	/**
+	 * public String[] infoToArray()
+	 *
+	 * Returns an array which contains all info in the tree,
+	 * sorted by their respective keys,
+	 * or an empty array if the tree is empty.
+	 */
+	public String[] infoToArray() {
+		String[] info = new String[size()];
+		int i = 0;
+		for (int node = minNode(); node != NIL; node = successor(node)) {
+			info[i++] = value[node];
+		}
+		return info;
+	}
+
+	/**
+	 * public int size()
+	 *
+	 * Returns the number of nodes in the tree.
+	 *
+	 */
+	public int size() {
+		return root != NIL ? size[root] : 0;
+	}
+
+	/**
+	 * public String select(int i)
+	 *
+	 * Returns the value of the i'th smallest key (counting from 0 like WAVLTree.select),
+	 * or null if i is out of range
+	 */
+	public String select(int i) {
+		if (i < 0 || i >= size()) {
+			return null;
+		}
+		int node = root;
+		while (true) {
+			int r = size[left[node]];
+			if (i == r) return value[node];
+			if (i < r) {
+				node = left[node];
+			}
+			else {
+				i -= r + 1;
+				node = right[node];
+			}
+		}
+	}
+}
@@ -0,0 +1,438 @@
+/**
+ *
+ * CompactWAVLTree
+ *
+ * WAVL Tree with int keys and String values (same API as ArenaWAVLTree) whose nodes have no parent pointer.
+ * insert/delete keep the nodes of their descent on a stack preallocated with the tree (path) and rebalance bottom-up
+ * from it: the parent of path[d] is path[d-1], so the climbs of the rebalancing, the sibling of a node and the
+ * relinking above a rotation all read the stack instead of a parent field. a rotation writes 3 links instead of 6.
+ * deleting a binary node copies its successor's item into it and removes the successor's node (nothing outside
+ * the tree holds nodes, so no node needs to keep its item).
+ *
+ * memory per item (64 bit JVM, compressed oops, not counting the String values themselves):
+ * WAVLTree node object - 12 header + 3 ints + value + 3 references + outer instance pointer = 48 bytes.
+ * Node here - 12 header + 3 ints + value + 2 references = 36, 40 bytes with alignment (static, no outer instance).
+ *
+ * rebalancing cases are the same as WAVLTree (as shown in class), decided by WAVLCases.
+ */
+
+public class CompactWAVLTree {
+
+	private static final Node EXT = new Node(); //general object used as external leaf (rank -1, size 0)
+	private static final int ERROR_INDICTATOR = -1;
+	private static final int MAX_DEPTH = 64; //rank >= height, and a WAVL tree of up to 2^31 items has rank at most 2*31
+
+	private Node root = EXT;
+	private final Node[] path = new Node[MAX_DEPTH]; //ancestors of the node being inserted/deleted, root first
+	private int rebalances; //counts rebalancing operations of the current delete
+
+	/**
+	 * node of the tree- no parent, the parent is the previous node on the path of the operation
+	 */
+	private static final class Node {
+		private int rank;
+		private int key;
+		private int size;
+		private String value;
+		private Node left = EXT;
+		private Node right = EXT;
+
+		private Node() { //EXT- its children stay null (EXT does not exist yet when it is created)
+			rank = -1;
+		}
+
+		private Node(int key, String value) {
+			this.key = key;
+			this.value = value;
+			size = 1;
+		}
+	}
+
+	/**
+	 * public boolean empty()
+	 *
+	 * returns true if and only if the tree is empty
+	 *
+	 */
+	public boolean empty() {
+		return root == EXT;
+	}
+
+	/**
+	 * public String search(int k)
+	 *
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public String search(int k) {
+		Node node = root;
+		while (node != EXT) {
+			if (k == node.key) return node.value;
+			node = k < node.key ? node.left : node.right;
+		}
+		return null;
+	}
+
+	/**
+	 * public int insert(int k, String i)
+	 *
+	 * inserts an item with key k and info i to the WAVL tree.
+	 * the tree must remain valid (keep its invariants).
+	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were necessary.
+	 * returns -1 if an item with key k already exists in the tree.
+	 */
+	public int insert(int k, String i) {
+		if (root == EXT) {
+			root = new Node(k, i); //base case
+			return 0;
+		}
+
+		int depth = 0; //single descent: pushes every node on the way, finds insertion point or the existing key
+		Node parentNode = root;
+		while (true) {
+			if (k == parentNode.key) return ERROR_INDICTATOR; //for error: key in tree
+			path[depth++] = parentNode;
+			Node next = k < parentNode.key ? parentNode.left : parentNode.right;
+			if (next == EXT) break;
+			parentNode = next;
+		}
+
+		Node x = new Node(k, i);
+		if (k < parentNode.key) parentNode.left = x;
+		else parentNode.right = x;
+		for (int d = 0; d < depth; d++) {
+			path[d].size++; //fix sizes up to the root
+		}
+
+		//rebalance- x is the node that may be a 0 child, path[top] its parent
+
+		int rebalances = 0;
+		for (int top = depth - 1; top >= 0; top--) {
+			Node z = path[top];
+			if (z.rank != x.rank) break; //not a 0 child- balanced
+			Node y = z.left == x ? z.right : z.left; //sibling
+			int caseNum = WAVLCases.insertCase(z.rank - x.rank, z.rank - y.rank, x.rank - x.left.rank, z.left == x);
+			if (caseNum == 1) { //case 1- promote z, the problem may move up
+				z.rank++;
+				rebalances++; //one promote
+				x = z;
+				continue;
+			}
+			Node above = top > 0 ? path[top - 1] : null;
+			if (z.left == x) {
+				if (caseNum == 2) { //case 2- rotate, demote z
+					rightRotate(z, above);
+					z.rank--;
+					rebalances += 2; //1 rotate, 1 demote
+				}
+				else { //case 3- left-right double rotate around b
+					Node b = x.right;
+					leftRotate(x, z);
+					rightRotate(z, above);
+					x.rank--; //demote x
+					z.rank--; //demote z
+					b.rank++; //promote b
+					rebalances += 5; //2 rotates, 3 demotes/promotes
+				}
+			}
+			else { //symmetric cases
+				if (caseNum == 2) {
+					leftRotate(z, above);
+					z.rank--;
+					rebalances += 2;
+				}
+				else {
+					Node b = x.left;
+					rightRotate(x, z);
+					leftRotate(z, above);
+					x.rank--;
+					z.rank--;
+					b.rank++;
+					rebalances += 5;
+				}
+			}
+			break; //a rotation always ends the rebalancing
+		}
+		return rebalances;
+	}
+
+	/**
+	 * public int delete(int k)
+	 *
+	 * deletes an item with key k from the binary tree, if it is there;
+	 * the tree must remain valid (keep its invariants).
+	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were needed.
+	 * returns -1 if an item with key k was not found in the tree.
+	 */
+	public int delete(int k) {
+		int depth = 0;
+		Node deletionNode = root;
+		while (deletionNode != EXT && deletionNode.key != k) {
+			path[depth++] = deletionNode;
+			deletionNode = k < deletionNode.key ? deletionNode.left : deletionNode.right;
+		}
+		if (deletionNode == EXT) {
+			return ERROR_INDICTATOR;
+		}
+
+		if (deletionNode.left != EXT && deletionNode.right != EXT) { //binary: its successor's node goes instead
+			path[depth++] = deletionNode;
+			Node suc = deletionNode.right;
+			while (suc.left != EXT) {
+				path[depth++] = suc;
+				suc = suc.left;
+			}
+			deletionNode.key = suc.key; //the successor's item moves up, its node (a leaf or unary) is removed
+			deletionNode.value = suc.value;
+			deletionNode = suc;
+		}
+
+		boolean checkUnary = deletionNode.left != EXT || deletionNode.right != EXT;
+		Node sonNode = deletionNode.left != EXT ? deletionNode.left : deletionNode.right; //EXT for a leaf
+		if (depth == 0) { //deleting the root, its only child (if any) is a valid tree
+			root = sonNode;
+			return 0;
+		}
+		Node rebalanceNode = path[depth - 1];
+		if (rebalanceNode.left == deletionNode) rebalanceNode.left = sonNode;
+		else rebalanceNode.right = sonNode;
+		for (int d = 0; d < depth; d++) {
+			path[d].size--; //fix sizes up the tree- opposite of insert updates
+		}
+
+		//"pre rebalance" -special first cases in accordence with WAVL presentation slides 52,53
+
+		rebalances = 0;
+		int top = depth - 1; //rebalanceNode is path[top]
+
+		int firstCase = deletionCases(rebalanceNode);
+		if (firstCase == 1) { //case 1-tree balanced
+			return 0;
+		}
+		if (firstCase == 2) {
+			if (checkUnary) { //unary deletion with 2,2 parent is already valid
+				return 0;
+			}
+			rebalanceNode.rank--; //case 2- 2,2 node as leaf (demote z)
+			top--; //go up
+			rebalances++; //1 demote
+		}
+		//in both leaf, unary we only take care of case 3 later
+
+		while (top >= 0 && rebalanceStep(top)) { //the problem moved up to path[top - 1]
+			top--;
+		}
+		return rebalances;
+	}
+
+	/**
+	 * one delete rebalancing step at path[top] (for reference see WAVL slide 54, cases decided by WAVLCases),
+	 * counted in rebalances.
+	 * returns true if it demoted path[top] and its parent must be checked next
+	 */
+	private boolean rebalanceStep(int top) {
+		Node z = path[top];
+		int diff1 = z.rank - z.right.rank;
+		int diff2 = z.rank - z.left.rank;
+		int caseNum = WAVLCases.deleteCase(diff1, diff2);
+		if (caseNum == 0) {
+			return false; //balanced
+		}
+		if (caseNum == 1) { //case 1- demote
+			z.rank--;
+			rebalances++;
+			return true;
+		}
+		boolean normal = diff1 == 1; //the 1 child is on the right (diff2 == 1 is the symmetric case)
+		Node y = normal ? z.right : z.left;
+		int diff3 = normal ? y.rank - y.right.rank : y.rank - y.left.rank; //outer child of y
+		int diff4 = normal ? y.rank - y.left.rank : y.rank - y.right.rank; //inner child of y
+		caseNum = WAVLCases.siblingCase(diff3, diff4);
+		Node above = top > 0 ? path[top - 1] : null;
+		if (caseNum == 3) { //case 3- rotate (+rank changes)
+			if (normal) leftRotate(z, above);
+			else rightRotate(z, above);
+			y.rank++; //promote y
+			z.rank--; //demote z
+			if (z.rank - z.right.rank == 2 && z.rank - z.left.rank == 2) { //if z=2,2 demote z again
+				z.rank--;
+				rebalances++;
+			}
+			rebalances += 3; //rotate, demote,promote (if extra demote: already counted)
+			return false;
+		}
+		if (caseNum == 4) { //case 4- double rotate (+rank changes)
+			Node a = normal ? y.left : y.right;
+			if (normal) {
+				rightRotate(y, z);
+				leftRotate(z, above);
+			}
+			else {
+				leftRotate(y, z);
+				rightRotate(z, above);
+			}
+			z.rank -= 2; //demote z twice
+			a.rank += 2; //promote a twice
+			y.rank--; //demote y
+			rebalances += 7; //2 rotations, 3 demotions, 2 promotions
+			return false;
+		}
+		y.rank--; //case 2- double demote
+		z.rank--;
+		rebalances += 2;
+		return true;
+	}
+
+	/**
+	 * first rebalance operation after deleting a leaf/unary node, for reference see WAVL slides 52,53.
+	 * 1 - balanced, 2 - 2,2 node, 3 - continue with rebalanceStep
+	 */
+	private static int deletionCases(Node node) {
+		return WAVLCases.firstDeleteCase(node.rank - node.right.rank, node.rank - node.left.rank);
+	}
+
+	/**
+	 * rotates tree right around x (y=x.left takes its place under above, null if x is the root),
+	 * updates sizes, rank update done separately
+	 */
+	private void rightRotate(Node x, Node above) {
+		Node y = x.left;
+		x.left = y.right;
+		y.right = x;
+		if (above == null) root = y; //fix root pointer
+		else if (above.left == x) above.left = y; //fix upper tree connection
+		else above.right = y;
+
+		x.size = x.left.size + x.right.size + 1;
+		y.size = y.left.size + y.right.size + 1; //y relies on x size- important to update it first
+	}
+
+	/**
+	 * rotates tree left around y (x=y.right takes its place under above, null if y is the root),
+	 * updates sizes, rank update done separately
+	 */
+	private void leftRotate(Node y, Node above) {
+		Node x = y.right;
+		y.right = x.left;
+		x.left = y;
+		if (above == null) root = x; //fix root pointer
+		else if (above.left == y) above.left = x; //fix upper tree connection
+		else above.right = x;
+
+		y.size = y.left.size + y.right.size + 1;
+		x.size = x.left.size + x.right.size + 1; //x relies on y size- important to update it first
+	}
+
+	/**
+	 * public String min()
+	 *
+	 * Returns the info of the item with the smallest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public String min() {
+		Node node = root;
+		if (node == EXT) return null;
+		while (node.left != EXT) node = node.left;
+		return node.value;
+	}
+
+	/**
+	 * public String max()
+	 *
+	 * Returns the info of the item with the largest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public String max() {
+		Node node = root;
+		if (node == EXT) return null;
+		while (node.right != EXT) node = node.right;
+		return node.value;
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 *
+	 * Returns a sorted array which contains all keys in the tree,
+	 * or an empty array if the tree is empty.
+	 */
+	public int[] keysToArray() {
+		int[] keys = new int[size()];
+		int i = 0;
+		Node[] stack = new Node[root.rank + 2]; //in order walk- the stack holds the nodes whose right subtree is next
+		int depth = 0;
+		Node node = root;
+		while (node != EXT || depth > 0) {
+			if (node != EXT) {
+				stack[depth++] = node;
+				node = node.left;
+			}
+			else {
+				node = stack[--depth];
+				keys[i++] = node.key;
+				node = node.right;
+			}
+		}
+		return keys;
+	}
+
+	/**
+	 * public String[] infoToArray()
+	 *
+	 * Returns an array which contains all info in the tree,
+	 * sorted by their respective keys,
+	 * or an empty array if the tree is empty.
+	 */
+	public String[] infoToArray() {
+		String[] info = new String[size()];
+		int i = 0;
+		Node[] stack = new Node[root.rank + 2];
+		int depth = 0;
+		Node node = root;
+		while (node != EXT || depth > 0) {
+			if (node != EXT) {
+				stack[depth++] = node;
+				node = node.left;
+			}
+			else {
+				node = stack[--depth];
+				info[i++] = node.value;
+				node = node.right;
+			}
+		}
+		return info;
+	}
+
+	/**
+	 * public int size()
+	 *
+	 * Returns the number of nodes in the tree.
+	 *
+	 */
+	public int size() {
+		return root.size;
+	}
+
+	/**
+	 * public String select(int i)
+	 *
+	 * Returns the value of the i'th smallest key (counting from 0 like WAVLTree.select),
+	 * or null if i is out of range
+	 */
+	public String select(int i) {
+		if (i < 0 || i >= size()) {
+			return null;
+		}
+		Node node = root;
+		while (true) {
+			int r = node.left.size;
+			if (i == r) return node.value;
+			if (i < r) {
+				node = node.left;
+			}
+			else {
+				i -= r + 1;
+				node = node.right;
+			}
+		}
+	}
+}
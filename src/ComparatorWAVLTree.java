@@ -0,0 +1,177 @@
+import java.util.Comparator;
+
+/**
+ *
+ * ComparatorWAVLTree
+ *
+ * WAVL Tree with generic keys ordered by a Comparator (or their natural ordering if none is given)
+ * and generic values.
+ * rebalancing is shared with the other specialized trees (see AbstractWAVLTree).
+ *
+ */
+
+public class ComparatorWAVLTree<K, V> extends AbstractWAVLTree<ComparatorWAVLTree.ObjNode<K, V>> {
+
+	private final Comparator<? super K> comparator;
+
+	/**
+	 * keys are ordered by their natural ordering, they must implement Comparable
+	 */
+	public ComparatorWAVLTree() {
+		this(null);
+	}
+
+	public ComparatorWAVLTree(Comparator<? super K> comparator) {
+		super(new ObjNode<K, V>(null, null));
+		this.comparator = comparator;
+	}
+
+	@SuppressWarnings("unchecked")
+	private int compare(K k1, K k2) {
+		return comparator != null ? comparator.compare(k1, k2) : ((Comparable<? super K>) k1).compareTo(k2);
+	}
+
+	/**
+	 * public V search(K k)
+	 *
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public V search(K k) {
+		ObjNode<K, V> node = searchNode(k);
+		return node != null ? node.value : null;
+	}
+
+	/**
+	 * public boolean contains(K k)
+	 *
+	 * returns true if and only if an item with key k exists in the tree
+	 */
+	public boolean contains(K k) {
+		return searchNode(k) != null;
+	}
+
+	//returns the node with key k or null if not in tree
+	private ObjNode<K, V> searchNode(K k) {
+		ObjNode<K, V> current = root;
+		if (current == null) return null;
+		while (current != EXT) {
+			int cmp = compare(k, current.key);
+			if (cmp == 0) return current;
+			current = cmp < 0 ? current.left : current.right;
+		}
+		return null;
+	}
+
+	/**
+	 * public int insert(K k, V i)
+	 *
+	 * inserts an item with key k and info i to the WAVL tree.
+	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were necessary.
+	 * returns -1 if an item with key k already exists in the tree.
+	 */
+	public int insert(K k, V i) {
+		if (empty()) {
+			compare(k, k); //type (and null) check like TreeMap
+			initializeRoot(new ObjNode<K, V>(k, i)); //base case
+			return 0;
+		}
+		ObjNode<K, V> parentNode = root;
+		int cmp;
+		while (true) { //single descent: finds insertion point or the existing key
+			cmp = compare(k, parentNode.key);
+			if (cmp == 0) return ERROR_INDICTATOR; //for error: key in tree
+			ObjNode<K, V> next = cmp < 0 ? parentNode.left : parentNode.right;
+			if (next == EXT) break;
+			parentNode = next;
+		}
+		return insertNode(parentNode, new ObjNode<K, V>(k, i), cmp < 0);
+	}
+
+	/**
+	 * public int delete(K k)
+	 *
+	 * deletes an item with key k from the tree, if it is there.
+	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were needed.
+	 * returns -1 if an item with key k was not found in the tree.
+	 */
+	public int delete(K k) {
+		ObjNode<K, V> deletionNode = searchNode(k);
+		if (deletionNode == null) return ERROR_INDICTATOR;
+		return deleteNode(deletionNode);
+	}
+
+	/**
+	 * public V min()
+	 *
+	 * Returns the info of the item with the smallest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public V min() {
+		ObjNode<K, V> node = minNode();
+		return node != null ? node.value : null;
+	}
+
+	/**
+	 * public V max()
+	 *
+	 * Returns the info of the item with the largest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public V max() {
+		ObjNode<K, V> node = maxNode();
+		return node != null ? node.value : null;
+	}
+
+	/**
+	 * public V select(int i)
+	 *
+	 * Returns the value of the i'th smallest key (counting from 0 like WAVLTree.select),
+	 * or null if i is out of range
+	 */
+	public V select(int i) {
+		ObjNode<K, V> node = selectNode(i);
+		return node != null ? node.value : null;
+	}
+
+	/**
+	 * public Object[] keysToArray()
+	 *
+	 * Returns a sorted array which contains all keys in the tree,
+	 * or an empty array if the tree is empty.
+	 */
+	public Object[] keysToArray() {
+		Object[] keys = new Object[size()];
+		int i = 0;
+		for (ObjNode<K, V> node = minNode(); node != null; node = successor(node)) {
+			keys[i++] = node.key;
+		}
+		return keys;
+	}
+
+	/**
+	 * public Object[] infoToArray()
+	 *
+	 * Returns an array which contains all info in the tree,
+	 * sorted by their respective keys,
+	 * or an empty array if the tree is empty.
+	 */
+	public Object[] infoToArray() {
+		Object[] info = new Object[size()];
+		int i = 0;
+		for (ObjNode<K, V> node = minNode(); node != null; node = successor(node)) {
+			info[i++] = node.value;
+		}
+		return info;
+	}
+
+	static final class ObjNode<K, V> extends AbstractWAVLTree.Node<ObjNode<K, V>> {
+		K key;
+		V value;
+
+		ObjNode(K key, V value) {
+			this.key = key;
+			this.value = value;
+		}
+	}
+}
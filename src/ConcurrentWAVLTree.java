@@ -0,0 +1,301 @@
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ *
+ * ConcurrentWAVLTree
+ *
+ * Thread-safe wrapper of a WAVLTree.
+ * mutations (insert/delete) take the write lock of a StampedLock.
+ * point reads (search/select/rank/min/max/size) first run without any lock on an optimistic stamp
+ * and validate it afterwards, so readers never block each other or the writer.
+ * a read that raced with a writer may see a half rotated tree: it is then thrown away
+ * (failed validation, an exception from a torn pointer, or a descent longer than any valid WAVL tree)
+ * and retried under the read lock.
+ *
+ */
+
+public class ConcurrentWAVLTree {
+
+	private static final int OPTIMISTIC_ATTEMPTS = 2; //optimistic tries before falling back to the read lock
+	private static final int MAX_DEPTH = 128; //a WAVL tree of up to 2^31 items has height at most 2*31- longer means a torn read
+	private static final String RETRY = new String("retry"); //returned by optimistic reads that gave up (compared by identity)
+
+	private final WAVLTree tree;
+	private final StampedLock lock = new StampedLock();
+
+	public ConcurrentWAVLTree() {
+		this(new WAVLTree());
+	}
+
+	/**
+	 * wraps an existing tree, which must not be used directly afterwards.
+	 * the tree must be in a mode whose reads don't write to it, as readers share the read lock:
+	 * throws IllegalArgumentException if it is in finger mode (reads move the finger)
+	 * or records metrics (reads count themselves).
+	 */
+	public ConcurrentWAVLTree(WAVLTree tree) {
+		if (tree.isFingerMode()) {
+			throw new IllegalArgumentException("a tree in finger mode can't be shared by readers");
+		}
+		if (tree.getMetrics() != null) {
+			throw new IllegalArgumentException("a tree recording metrics can't be shared by readers");
+		}
+		this.tree = tree;
+	}
+
+	/**
+	 * public int insert(int k, String i)
+	 *
+	 * same as WAVLTree.insert, under the write lock
+	 */
+	public int insert(int k, String i) {
+		long stamp = lock.writeLock();
+		try {
+			return tree.insert(k, i);
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * public int delete(int k)
+	 *
+	 * same as WAVLTree.delete, under the write lock
+	 */
+	public int delete(int k) {
+		long stamp = lock.writeLock();
+		try {
+			return tree.delete(k);
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * public String search(int k)
+	 *
+	 * same as WAVLTree.search, lock free unless it races with a writer
+	 */
+	public String search(int k) {
+		for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+			long stamp = lock.tryOptimisticRead();
+			if (stamp == 0) break; //write locked right now
+			try {
+				String value = optimisticSearch(k);
+				if (value != RETRY && lock.validate(stamp)) return value;
+			}
+			catch (RuntimeException e) {
+				//torn read of a node being rotated- retry
+			}
+		}
+		long stamp = lock.readLock();
+		try {
+			return tree.search(k);
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	//descent of WAVLTree.search bounded by MAX_DEPTH, returns RETRY if the bound is hit
+	private String optimisticSearch(int k) {
+		WAVLTree.WAVLNode node = tree.getRoot();
+		for (int depth = 0; node != null; depth++) {
+			if (depth == MAX_DEPTH) return RETRY;
+			int key = node.getKey();
+			if (k == key) return node.getValue();
+			node = k < key ? node.getLeft() : node.getRight();
+		}
+		return null;
+	}
+
+	/**
+	 * public String select(int i)
+	 *
+	 * same as WAVLTree.select, lock free unless it races with a writer
+	 */
+	public String select(int i) {
+		for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+			long stamp = lock.tryOptimisticRead();
+			if (stamp == 0) break;
+			try {
+				String value = optimisticSelect(i);
+				if (value != RETRY && lock.validate(stamp)) return value;
+			}
+			catch (RuntimeException e) {
+				//torn read of a node being rotated- retry
+			}
+		}
+		long stamp = lock.readLock();
+		try {
+			return tree.select(i);
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	//descent of WAVLTree.selectNode bounded by MAX_DEPTH, returns RETRY if the bound is hit or sizes don't add up.
+	//sizes count live items only, so a tombstone (lazy delete) takes no index
+	private String optimisticSelect(int i) {
+		WAVLTree.WAVLNode node = tree.getRoot();
+		if (node == null || i < 0 || i >= node.getSubtreeSize()) return null;
+		for (int depth = 0; node != null; depth++) {
+			if (depth == MAX_DEPTH) return RETRY;
+			WAVLTree.WAVLNode left = node.getLeft();
+			int r = left != null ? left.getSubtreeSize() : 0;
+			boolean tombstone = node.isTombstone();
+			if (i == r && !tombstone) return node.getValue();
+			if (i < r) {
+				node = left;
+			}
+			else {
+				i -= tombstone ? r : r + 1;
+				node = node.getRight();
+			}
+		}
+		return RETRY; //fell off the tree- sizes were read mid update
+	}
+
+	/**
+	 * public int rank(int k)
+	 *
+	 * same as WAVLTree.rank, lock free unless it races with a writer
+	 */
+	public int rank(int k) {
+		for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+			long stamp = lock.tryOptimisticRead();
+			if (stamp == 0) break;
+			try {
+				int rank = optimisticRank(k);
+				if (rank >= 0 && lock.validate(stamp)) return rank;
+			}
+			catch (RuntimeException e) {
+				//torn read of a node being rotated- retry
+			}
+		}
+		long stamp = lock.readLock();
+		try {
+			return tree.rank(k);
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	//descent of WAVLTree.rank bounded by MAX_DEPTH, returns -1 if the bound is hit. tombstones are not counted
+	private int optimisticRank(int k) {
+		int count = 0;
+		WAVLTree.WAVLNode node = tree.getRoot();
+		for (int depth = 0; node != null; depth++) {
+			if (depth == MAX_DEPTH) return -1;
+			WAVLTree.WAVLNode left = node.getLeft();
+			if (k <= node.getKey()) {
+				node = left;
+			}
+			else {
+				count += (left != null ? left.getSubtreeSize() : 0) + (node.isTombstone() ? 0 : 1);
+				node = node.getRight();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * public String min()
+	 *
+	 * same as WAVLTree.min (null if empty), lock free unless it races with a writer
+	 */
+	public String min() {
+		return extreme(true);
+	}
+
+	/**
+	 * public String max()
+	 *
+	 * same as WAVLTree.max (null if empty), lock free unless it races with a writer
+	 */
+	public String max() {
+		return extreme(false);
+	}
+
+	//the tree caches its extreme nodes (WAVLTree.min/max are O(1)), so the optimistic read is a field read, no descent
+	private String extreme(boolean min) {
+		long stamp = lock.tryOptimisticRead();
+		if (stamp != 0) {
+			try {
+				String value = min ? tree.min() : tree.max();
+				if (lock.validate(stamp)) return value;
+			}
+			catch (RuntimeException e) {
+				//the cached node was cleared between its null check and its read- retry
+			}
+		}
+		stamp = lock.readLock();
+		try {
+			return min ? tree.min() : tree.max();
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * public int size()
+	 *
+	 * same as WAVLTree.size, lock free unless it races with a writer
+	 */
+	public int size() {
+		long stamp = lock.tryOptimisticRead();
+		int size = tree.size();
+		if (stamp != 0 && lock.validate(stamp)) return size;
+		stamp = lock.readLock();
+		try {
+			return tree.size();
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * public boolean empty()
+	 *
+	 * same as WAVLTree.empty
+	 */
+	public boolean empty() {
+		return size() == 0;
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 *
+	 * same as WAVLTree.keysToArray, under the read lock (writers wait for the copy)
+	 */
+	public int[] keysToArray() {
+		long stamp = lock.readLock();
+		try {
+			return tree.keysToArray();
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * public String[] infoToArray()
+	 *
+	 * same as WAVLTree.infoToArray, under the read lock (writers wait for the copy)
+	 */
+	public String[] infoToArray() {
+		long stamp = lock.readLock();
+		try {
+			return tree.infoToArray();
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+}
@@ -0,0 +1,440 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ *
+ * DurableWAVLTree
+ *
+ * WAVLTree that survives a crash: every insert/delete that changes the tree is appended to a write-ahead log,
+ * and the whole tree is checkpointed (WAVLTree.save) once the log grows past a threshold, after which the log starts over.
+ * opening a directory loads the last checkpoint and replays the log on top of it.
+ *
+ * the directory holds:
+ * checkpoint - the tree as of the last checkpoint, in the format of MappedWAVLTree
+ * wal - log records since that checkpoint: op 1 | key 4 | value length 4 (-1 for null) | UTF-8 value | CRC32 4
+ * replay stops at the first incomplete or corrupt record (a write cut short by the crash) and cuts the log there.
+ *
+ * when a log record reaches the disk depends on the SyncPolicy:
+ * EVERY_OP - insert/delete return only once their record is forced to the disk. writers that arrive while a force
+ *            is running wait for the next one, which then covers all of them (group commit).
+ * INTERVAL - a background thread forces the log every syncMillis, a crash loses at most that much.
+ * OS - records are written to the file on every operation but never forced, a process crash loses nothing,
+ *      a power loss whatever the OS had not written back.
+ *
+ * replaying a record that is already part of the checkpoint changes nothing (insert of a present key and delete of
+ * a missing key are no-ops), so a crash between replacing the checkpoint and cutting the log is harmless.
+ * all methods are thread-safe- the tree itself is guarded by the monitor of this object, forcing the log is not.
+ * after an I/O error of the log, every operation throws IllegalStateException.
+ *
+ */
+
+public class DurableWAVLTree implements AutoCloseable {
+
+	/**
+	 * when log records are forced to the disk, see the class comment
+	 */
+	public enum SyncPolicy { EVERY_OP, INTERVAL, OS }
+
+	static final String CHECKPOINT = "checkpoint";
+	static final String LOG = "wal";
+	private static final byte INSERT = 1;
+	private static final byte DELETE = 2;
+	private static final int RECORD_BYTES = 9; //op, key, value length (without the value and the CRC)
+	private static final long DEFAULT_CHECKPOINT_BYTES = 64L << 20;
+
+	private final Path dir;
+	private final SyncPolicy policy;
+	private final long checkpointBytes;
+	private final WAVLTree tree;
+	private final FileChannel log;
+	private final CRC32 crc = new CRC32();
+	private final ScheduledExecutorService syncer; //INTERVAL only
+
+	//guarded by this
+	private ByteBuffer pending = ByteBuffer.allocate(1 << 12); //records not written to the log file yet
+	private long appended; //bytes of records ever appended (log sequence number of the last one)
+	private long logBytes; //bytes in the log file since the last checkpoint, including pending
+	private boolean closed;
+
+	//guarded by syncLock
+	private final Object syncLock = new Object();
+	private long durable; //every record up to this sequence number is on the disk (or in the checkpoint)
+	private boolean syncing; //a thread is forcing the log
+	private volatile IOException failure;
+
+	/**
+	 * opens (or creates) a durable tree in dir with the INTERVAL policy forcing every 10ms
+	 */
+	public DurableWAVLTree(Path dir) throws IOException {
+		this(dir, SyncPolicy.INTERVAL, 10, DEFAULT_CHECKPOINT_BYTES);
+	}
+
+	/**
+	 * opens (or creates) a durable tree in dir, recovering it from the checkpoint and log found there.
+	 * syncMillis is the period of the INTERVAL policy (ignored by the others),
+	 * a checkpoint is taken whenever the log grows past checkpointBytes.
+	 */
+	public DurableWAVLTree(Path dir, SyncPolicy policy, long syncMillis, long checkpointBytes) throws IOException {
+		if (policy == SyncPolicy.INTERVAL && syncMillis <= 0) {
+			throw new IllegalArgumentException("syncMillis must be positive: " + syncMillis);
+		}
+		if (checkpointBytes <= 0) {
+			throw new IllegalArgumentException("checkpointBytes must be positive: " + checkpointBytes);
+		}
+		this.dir = dir;
+		this.policy = policy;
+		this.checkpointBytes = checkpointBytes;
+		Files.createDirectories(dir);
+		Files.deleteIfExists(WAVLTree.tempFile(dir.resolve(CHECKPOINT))); //left by a crash during a checkpoint
+		tree = loadCheckpoint(dir.resolve(CHECKPOINT));
+		log = FileChannel.open(dir.resolve(LOG), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			logBytes = replay();
+			log.truncate(logBytes); //drop a torn record at the end
+			log.position(logBytes);
+		}
+		catch (IOException e) {
+			log.close();
+			throw e;
+		}
+		if (policy == SyncPolicy.INTERVAL) {
+			syncer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "wal-sync " + DurableWAVLTree.this.dir);
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			syncer.scheduleWithFixedDelay(new Runnable() {
+				public void run() {
+					try {
+						sync(appended());
+					}
+					catch (RuntimeException e) {
+						//failure is kept and reported to the writers
+					}
+				}
+			}, syncMillis, syncMillis, TimeUnit.MILLISECONDS);
+		}
+		else {
+			syncer = null;
+		}
+	}
+
+	private static WAVLTree loadCheckpoint(Path checkpoint) throws IOException {
+		if (!Files.exists(checkpoint)) {
+			return new WAVLTree();
+		}
+		MappedWAVLTree saved = WAVLTree.open(checkpoint);
+		return WAVLTree.fromSorted(saved.keysToArray(), saved.infoToArray());
+	}
+
+	//applies the records of the log to the tree, returns the length of its valid prefix
+	private long replay() throws IOException {
+		long valid = 0;
+		long size = Files.size(dir.resolve(LOG));
+		DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(dir.resolve(LOG)), 1 << 16));
+		try {
+			CRC32 check = new CRC32();
+			byte[] head = new byte[RECORD_BYTES];
+			while (true) {
+				in.readFully(head);
+				ByteBuffer record = ByteBuffer.wrap(head);
+				byte op = record.get();
+				int key = record.getInt();
+				int length = record.getInt();
+				if ((op != INSERT && op != DELETE) || length < -1 || valid + RECORD_BYTES + length + 4 > size) break; //a garbled length ends the log too
+				byte[] value = length > 0 ? new byte[length] : null;
+				if (value != null) in.readFully(value);
+				check.reset();
+				check.update(head, 0, head.length);
+				if (value != null) check.update(value, 0, value.length);
+				if (in.readInt() != (int) check.getValue()) break;
+				if (op == INSERT) tree.insert(key, length == -1 ? null : length == 0 ? "" : new String(value, StandardCharsets.UTF_8));
+				else tree.delete(key);
+				valid += RECORD_BYTES + Math.max(length, 0) + 4;
+			}
+		}
+		catch (EOFException e) {
+			//end of the log, possibly in the middle of a record
+		}
+		finally {
+			in.close();
+		}
+		return valid;
+	}
+
+	/**
+	 * public int insert(int k, String i)
+	 *
+	 * same as WAVLTree.insert, logged if the tree changed
+	 */
+	public int insert(int k, String i) {
+		long lsn;
+		int result;
+		synchronized (this) {
+			checkOpen();
+			result = tree.insert(k, i);
+			if (result == -1) return result;
+			lsn = append(INSERT, k, i);
+		}
+		if (policy == SyncPolicy.EVERY_OP) sync(lsn);
+		return result;
+	}
+
+	/**
+	 * public int delete(int k)
+	 *
+	 * same as WAVLTree.delete, logged if the tree changed
+	 */
+	public int delete(int k) {
+		long lsn;
+		int result;
+		synchronized (this) {
+			checkOpen();
+			result = tree.delete(k);
+			if (result == -1) return result;
+			lsn = append(DELETE, k, null);
+		}
+		if (policy == SyncPolicy.EVERY_OP) sync(lsn);
+		return result;
+	}
+
+	private void checkOpen() {
+		if (closed) {
+			throw new IllegalStateException("tree is closed");
+		}
+		if (failure != null) {
+			throw new IllegalStateException("write-ahead log failed", failure);
+		}
+	}
+
+	//appends a record to pending (OS: also to the log file), checkpoints if the log is full. returns its sequence number
+	private long append(byte op, int key, String value) {
+		byte[] bytes = value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+		int length = RECORD_BYTES + (bytes == null ? 0 : bytes.length) + 4;
+		if (pending.remaining() < length) {
+			ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + length));
+			pending.flip();
+			pending = grown.put(pending);
+		}
+		int start = pending.position();
+		pending.put(op).putInt(key).putInt(bytes == null ? -1 : bytes.length);
+		if (bytes != null) pending.put(bytes);
+		crc.reset();
+		crc.update(pending.array(), start, pending.position() - start);
+		pending.putInt((int) crc.getValue());
+		appended += length;
+		logBytes += length;
+		try {
+			if (logBytes >= checkpointBytes) {
+				checkpoint();
+			}
+			else if (policy == SyncPolicy.OS) {
+				writePending();
+			}
+		}
+		catch (IOException e) {
+			failure = e;
+			throw new UncheckedIOException(e);
+		}
+		return appended;
+	}
+
+	//writes pending to the log file, caller holds this
+	private void writePending() throws IOException {
+		pending.flip();
+		while (pending.hasRemaining()) log.write(pending);
+		pending.clear();
+	}
+
+	private synchronized long appended() {
+		return appended;
+	}
+
+	/**
+	 * forces the log to the disk up to sequence number lsn.
+	 * only one thread forces at a time- the others wait, and usually find their record forced along with the leader's.
+	 */
+	private void sync(long lsn) {
+		synchronized (syncLock) {
+			while (durable < lsn && syncing) {
+				try {
+					syncLock.wait();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException("interrupted waiting for the write-ahead log", e);
+				}
+			}
+			if (durable >= lsn) return;
+			if (failure != null) throw new IllegalStateException("write-ahead log failed", failure);
+			syncing = true;
+		}
+		long target = 0;
+		try {
+			synchronized (this) {
+				target = appended;
+				writePending();
+			}
+			log.force(false);
+		}
+		catch (IOException e) {
+			failure = e;
+			target = 0;
+			throw new UncheckedIOException(e);
+		}
+		finally {
+			synchronized (syncLock) {
+				durable = Math.max(durable, target);
+				syncing = false;
+				syncLock.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * public synchronized void checkpoint()
+	 *
+	 * saves the whole tree as the new checkpoint and empties the log.
+	 * the new checkpoint is written to a temporary file and moved over the old one, so a crash keeps one of them whole.
+	 * called automatically once the log grows past checkpointBytes. O(n)- writers wait for it.
+	 */
+	public synchronized void checkpoint() throws IOException {
+		checkOpen();
+		tree.save(dir.resolve(CHECKPOINT)); //through a temporary file, moved over the old checkpoint
+		pending.clear(); //these records are in the checkpoint
+		log.truncate(0);
+		logBytes = 0;
+		synchronized (syncLock) {
+			durable = Math.max(durable, appended);
+			syncLock.notifyAll();
+		}
+	}
+
+	/**
+	 * public void close()
+	 *
+	 * forces every logged operation to the disk (whatever the policy) and closes the log,
+	 * any later call throws IllegalStateException
+	 */
+	public void close() throws IOException {
+		if (syncer != null) {
+			syncer.shutdown();
+			try {
+				syncer.awaitTermination(1, TimeUnit.SECONDS); //let a running force finish before the log is closed
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		synchronized (this) {
+			if (closed) return;
+			try {
+				if (failure == null) {
+					writePending();
+					log.force(false);
+				}
+			}
+			finally {
+				closed = true;
+				log.close();
+			}
+		}
+	}
+
+	/**
+	 * public synchronized String search(int k)
+	 *
+	 * same as WAVLTree.search
+	 */
+	public synchronized String search(int k) {
+		return tree.search(k);
+	}
+
+	/**
+	 * public synchronized String select(int i)
+	 *
+	 * same as WAVLTree.select
+	 */
+	public synchronized String select(int i) {
+		return tree.select(i);
+	}
+
+	/**
+	 * public synchronized int rank(int k)
+	 *
+	 * same as WAVLTree.rank
+	 */
+	public synchronized int rank(int k) {
+		return tree.rank(k);
+	}
+
+	/**
+	 * public synchronized String min()
+	 *
+	 * same as WAVLTree.min, null if the tree is empty
+	 */
+	public synchronized String min() {
+		return tree.empty() ? null : tree.min();
+	}
+
+	/**
+	 * public synchronized String max()
+	 *
+	 * same as WAVLTree.max, null if the tree is empty
+	 */
+	public synchronized String max() {
+		return tree.empty() ? null : tree.max();
+	}
+
+	/**
+	 * public synchronized int size()
+	 *
+	 * same as WAVLTree.size
+	 */
+	public synchronized int size() {
+		return tree.size();
+	}
+
+	/**
+	 * public synchronized boolean empty()
+	 *
+	 * same as WAVLTree.empty
+	 */
+	public synchronized boolean empty() {
+		return tree.empty();
+	}
+
+	/**
+	 * public synchronized int[] keysToArray()
+	 *
+	 * same as WAVLTree.keysToArray
+	 */
+	public synchronized int[] keysToArray() {
+		return tree.keysToArray();
+	}
+
+	/**
+	 * public synchronized String[] infoToArray()
+	 *
+	 * same as WAVLTree.infoToArray
+	 */
+	public synchronized String[] infoToArray() {
+		return tree.infoToArray();
+	}
+}
@@ -0,0 +1,232 @@
+import java.util.Arrays;
+
+/**
+ *
+ * FrozenWAVLTree
+ *
+ * Immutable, pointer free copy of a WAVLTree (see WAVLTree.freeze), laid out for fast lookups.
+ * the keys are kept twice in int arrays:
+ * eytzinger - the keys in BFS order of a complete binary search tree (Eytzinger layout): the children of
+ *             position j are 2j and 2j+1 (position 0 unused), so a descent walks one array from the front
+ *             and the top levels, read by every lookup, share a few cache lines.
+ * sorted - the keys in increasing order, with the values at the same index, for select and range scans.
+ * rankOf maps an eytzinger position to the index of its key in sorted.
+ *
+ * search/rank descend the eytzinger array without branching on the comparison (the next position is computed),
+ * so there are no mispredictions to wait for and the loads of successive levels can overlap.
+ * java has no prefetch instruction, so prefetching (optional, see freeze(boolean)) reads the 16 descendants
+ * 4 levels below the current position (one 64 byte line) while the descent is still 4 levels above them.
+ * it pays off once the array is far bigger than the cache, and costs a little below that.
+ *
+ */
+
+public class FrozenWAVLTree {
+
+	private static final int PREFETCH_LEVELS = 4; //16 ints = one cache line of descendants
+
+	private final int n;
+	private final int[] eytzinger; //n+1 positions, 0 unused
+	private final int[] rankOf;
+	private final int[] sorted;
+	private final String[] values;
+	private final boolean prefetch;
+	private final int prefetchLimit; //positions whose descendants PREFETCH_LEVELS down exist
+	//keep the prefetching reads from being optimized away without writing shared memory (see lowerBound).
+	//the JIT can't know the volatile fields are never written, nor that they differ
+	private static volatile int sinkA = 0;
+	private static volatile int sinkB = 1;
+	private static int sinkBait;
+
+	/**
+	 * builds a frozen tree from keys in strictly increasing order and their values, called by WAVLTree.freeze
+	 */
+	FrozenWAVLTree(int[] sorted, String[] values, boolean prefetch) {
+		if (sorted.length >= 1 << 30) {
+			throw new IllegalArgumentException("too many keys to freeze: " + sorted.length); //positions 2j+1 must fit an int
+		}
+		this.n = sorted.length;
+		this.sorted = sorted;
+		this.values = values;
+		this.prefetch = prefetch;
+		this.prefetchLimit = n >> PREFETCH_LEVELS;
+		eytzinger = new int[n + 1];
+		rankOf = new int[n + 1];
+		//in-order walk of the implicit tree, filling positions with the keys in increasing order
+		int j = 1;
+		while (2 * j <= n) j *= 2; //leftmost position
+		for (int i = 0; i < n; i++) {
+			eytzinger[j] = sorted[i];
+			rankOf[j] = i;
+			if (2 * j + 1 <= n) {
+				j = 2 * j + 1;
+				while (2 * j <= n) j *= 2;
+			}
+			else {
+				while ((j & 1) == 1) j >>= 1; //climb while a right child
+				j >>= 1;
+			}
+		}
+	}
+
+	/**
+	 * returns the eytzinger position of the smallest key >= k, or 0 if there is none
+	 */
+	private int lowerBound(int k) {
+		int j = 1;
+		if (prefetch) {
+			int sink = 0;
+			while (j <= n) {
+				if (j <= prefetchLimit) sink += eytzinger[j << PREFETCH_LEVELS];
+				j = 2 * j + (eytzinger[j] < k ? 1 : 0);
+			}
+			if ((sink ^ sinkA) == (sink ^ sinkB)) sinkBait = sink; //never true- lookups only read shared lines
+		}
+		else {
+			while (j <= n) {
+				j = 2 * j + (eytzinger[j] < k ? 1 : 0);
+			}
+		}
+		//the path went right past every key < k: drop those right turns and the last left turn
+		return j >> (Integer.numberOfTrailingZeros(~j) + 1);
+	}
+
+	/**
+	 * public boolean empty()
+	 *
+	 * returns true if and only if the tree is empty
+	 */
+	public boolean empty() {
+		return n == 0;
+	}
+
+	/**
+	 * public int size()
+	 *
+	 * Returns the number of nodes in the tree.
+	 */
+	public int size() {
+		return n;
+	}
+
+	/**
+	 * public String search(int k)
+	 *
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public String search(int k) {
+		int j = lowerBound(k);
+		return j != 0 && eytzinger[j] == k ? values[rankOf[j]] : null;
+	}
+
+	/**
+	 * public boolean contains(int k)
+	 *
+	 * returns true if and only if the tree has key k (without touching the values)
+	 */
+	public boolean contains(int k) {
+		int j = lowerBound(k);
+		return j != 0 && eytzinger[j] == k;
+	}
+
+	/**
+	 * public String select(int i)
+	 *
+	 * Returns the value of the i'th smallest key (counting from 0 like WAVLTree.select),
+	 * or null if i is out of range. O(1)
+	 */
+	public String select(int i) {
+		return i >= 0 && i < n ? values[i] : null;
+	}
+
+	/**
+	 * public String min()
+	 *
+	 * Returns the info of the item with the smallest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public String min() {
+		return select(0);
+	}
+
+	/**
+	 * public String max()
+	 *
+	 * Returns the info of the item with the largest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public String max() {
+		return select(n - 1);
+	}
+
+	/**
+	 * public int rank(int k)
+	 *
+	 * returns the number of keys in the tree smaller than k (like WAVLTree.rank)
+	 */
+	public int rank(int k) {
+		int j = lowerBound(k);
+		return j != 0 ? rankOf[j] : n;
+	}
+
+	/**
+	 * public int countInRange(int lo, int hi)
+	 *
+	 * returns the number of keys k with lo <= k <= hi (0 if lo > hi)
+	 */
+	public int countInRange(int lo, int hi) {
+		if (lo > hi) {
+			return 0;
+		}
+		return (hi == Integer.MAX_VALUE ? n : rank(hi + 1)) - rank(lo);
+	}
+
+	/**
+	 * public int keysInRange(int lo, int hi, int[] out)
+	 *
+	 * writes the keys k with lo <= k <= hi in increasing order into out, stopping when out is full.
+	 * returns the number of keys written. O(log n + m)
+	 */
+	public int keysInRange(int lo, int hi, int[] out) {
+		int written = 0;
+		for (int i = rank(lo); i < n && written < out.length && sorted[i] <= hi; i++) {
+			out[written++] = sorted[i];
+		}
+		return written;
+	}
+
+	/**
+	 * public int valuesInRange(int lo, int hi, String[] out)
+	 *
+	 * writes the values of the keys k with lo <= k <= hi in key order into out, stopping when out is full.
+	 * returns the number of values written.
+	 */
+	public int valuesInRange(int lo, int hi, String[] out) {
+		int written = 0;
+		for (int i = rank(lo); i < n && written < out.length && sorted[i] <= hi; i++) {
+			out[written++] = values[i];
+		}
+		return written;
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 *
+	 * Returns a sorted array which contains all keys in the tree,
+	 * or an empty array if the tree is empty.
+	 */
+	public int[] keysToArray() {
+		return Arrays.copyOf(sorted, n);
+	}
+
+	/**
+	 * public String[] infoToArray()
+	 *
+	 * Returns an array which contains all info in the tree,
+	 * sorted by their respective keys,
+	 * or an empty array if the tree is empty.
+	 */
+	public String[] infoToArray() {
+		return Arrays.copyOf(values, n);
+	}
+}
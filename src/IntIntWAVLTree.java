@@ -0,0 +1,175 @@
+/**
+ *
+ * IntIntWAVLTree
+ *
+ * WAVL Tree with primitive int keys and int values.
+ * rebalancing is shared with the other specialized trees (see AbstractWAVLTree),
+ * nothing is boxed. lookups that find nothing return noValue (-1 unless given to the constructor).
+ *
+ */
+
+public class IntIntWAVLTree extends AbstractWAVLTree<IntIntWAVLTree.IntIntNode> {
+
+	private final int noValue;
+
+	public IntIntWAVLTree() {
+		this(ERROR_INDICTATOR);
+	}
+
+	/**
+	 * noValue is returned by search/min/max/select when there is no matching item
+	 */
+	public IntIntWAVLTree(int noValue) {
+		super(new IntIntNode(-1, noValue));
+		this.noValue = noValue;
+	}
+
+	/**
+	 * public int noValue()
+	 *
+	 * returns the value returned by lookups that find no item
+	 */
+	public int noValue() {
+		return noValue;
+	}
+
+	/**
+	 * public int search(int k)
+	 *
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns noValue()
+	 */
+	public int search(int k) {
+		IntIntNode node = searchNode(k);
+		return node != null ? node.value : noValue;
+	}
+
+	/**
+	 * public boolean contains(int k)
+	 *
+	 * returns true if and only if an item with key k exists in the tree
+	 */
+	public boolean contains(int k) {
+		return searchNode(k) != null;
+	}
+
+	//returns the node with key k or null if not in tree
+	private IntIntNode searchNode(int k) {
+		IntIntNode current = root;
+		if (current == null) return null;
+		while (current != EXT) {
+			if (k == current.key) return current;
+			current = k < current.key ? current.left : current.right;
+		}
+		return null;
+	}
+
+	/**
+	 * public int insert(int k, int i)
+	 *
+	 * inserts an item with key k and info i to the WAVL tree.
+	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were necessary.
+	 * returns -1 if an item with key k already exists in the tree.
+	 */
+	public int insert(int k, int i) {
+		if (empty()) {
+			initializeRoot(new IntIntNode(k, i)); //base case
+			return 0;
+		}
+		IntIntNode parentNode = root;
+		while (true) { //single descent: finds insertion point or the existing key
+			if (k == parentNode.key) return ERROR_INDICTATOR; //for error: key in tree
+			IntIntNode next = k < parentNode.key ? parentNode.left : parentNode.right;
+			if (next == EXT) break;
+			parentNode = next;
+		}
+		return insertNode(parentNode, new IntIntNode(k, i), k < parentNode.key);
+	}
+
+	/**
+	 * public int delete(int k)
+	 *
+	 * deletes an item with key k from the tree, if it is there.
+	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were needed.
+	 * returns -1 if an item with key k was not found in the tree.
+	 */
+	public int delete(int k) {
+		IntIntNode deletionNode = searchNode(k);
+		if (deletionNode == null) return ERROR_INDICTATOR;
+		return deleteNode(deletionNode);
+	}
+
+	/**
+	 * public int min()
+	 *
+	 * Returns the info of the item with the smallest key in the tree,
+	 * or noValue() if the tree is empty
+	 */
+	public int min() {
+		IntIntNode node = minNode();
+		return node != null ? node.value : noValue;
+	}
+
+	/**
+	 * public int max()
+	 *
+	 * Returns the info of the item with the largest key in the tree,
+	 * or noValue() if the tree is empty
+	 */
+	public int max() {
+		IntIntNode node = maxNode();
+		return node != null ? node.value : noValue;
+	}
+
+	/**
+	 * public int select(int i)
+	 *
+	 * Returns the value of the i'th smallest key (counting from 0 like WAVLTree.select),
+	 * or noValue() if i is out of range
+	 */
+	public int select(int i) {
+		IntIntNode node = selectNode(i);
+		return node != null ? node.value : noValue;
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 *
+	 * Returns a sorted array which contains all keys in the tree,
+	 * or an empty array if the tree is empty.
+	 */
+	public int[] keysToArray() {
+		int[] keys = new int[size()];
+		int i = 0;
+		for (IntIntNode node = minNode(); node != null; node = successor(node)) {
+			keys[i++] = node.key;
+		}
+		return keys;
+	}
+
+	/**
+	 * public int[] infoToArray()
+	 *
+	 * Returns an array which contains all info in the tree,
+	 * sorted by their respective keys,
+	 * or an empty array if the tree is empty.
+	 */
+	public int[] infoToArray() {
+		int[] info = new int[size()];
+		int i = 0;
+		for (IntIntNode node = minNode(); node != null; node = successor(node)) {
+			info[i++] = node.value;
+		}
+		return info;
+	}
+
+	static final class IntIntNode extends AbstractWAVLTree.Node<IntIntNode> {
+		int key;
+		int value;
+
+		IntIntNode(int key, int value) {
+			this.key = key;
+			this.value = value;
+		}
+	}
+}
@@ -0,0 +1,175 @@
+/**
+ *
+ * LongLongWAVLTree
+ *
+ * WAVL Tree with primitive long keys and long values.
+ * rebalancing is shared with the other specialized trees (see AbstractWAVLTree),
+ * nothing is boxed. lookups that find nothing return noValue (-1 unless given to the constructor).
+ *
+ */
+
+public class LongLongWAVLTree extends AbstractWAVLTree<LongLongWAVLTree.LongLongNode> {
+
+	private final long noValue;
+
+	public LongLongWAVLTree() {
+		this(ERROR_INDICTATOR);
+	}
+
+	/**
+	 * noValue is returned by search/min/max/select when there is no matching item
+	 */
+	public LongLongWAVLTree(long noValue) {
+		super(new LongLongNode(-1, noValue));
+		this.noValue = noValue;
+	}
+
+	/**
+	 * public long noValue()
+	 *
+	 * returns the value returned by lookups that find no item
+	 */
+	public long noValue() {
+		return noValue;
+	}
+
+	/**
+	 * public long search(long k)
+	 *
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns noValue()
+	 */
+	public long search(long k) {
+		LongLongNode node = searchNode(k);
+		return node != null ? node.value : noValue;
+	}
+
+	/**
+	 * public boolean contains(long k)
+	 *
+	 * returns true if and only if an item with key k exists in the tree
+	 */
+	public boolean contains(long k) {
+		return searchNode(k) != null;
+	}
+
+	//returns the node with key k or null if not in tree
+	private LongLongNode searchNode(long k) {
+		LongLongNode current = root;
+		if (current == null) return null;
+		while (current != EXT) {
+			if (k == current.key) return current;
+			current = k < current.key ? current.left : current.right;
+		}
+		return null;
+	}
+
+	/**
+	 * public int insert(long k, long i)
+	 *
+	 * inserts an item with key k and info i to the WAVL tree.
+	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were necessary.
+	 * returns -1 if an item with key k already exists in the tree.
+	 */
+	public int insert(long k, long i) {
+		if (empty()) {
+			initializeRoot(new LongLongNode(k, i)); //base case
+			return 0;
+		}
+		LongLongNode parentNode = root;
+		while (true) { //single descent: finds insertion point or the existing key
+			if (k == parentNode.key) return ERROR_INDICTATOR; //for error: key in tree
+			LongLongNode next = k < parentNode.key ? parentNode.left : parentNode.right;
+			if (next == EXT) break;
+			parentNode = next;
+		}
+		return insertNode(parentNode, new LongLongNode(k, i), k < parentNode.key);
+	}
+
+	/**
+	 * public int delete(long k)
+	 *
+	 * deletes an item with key k from the tree, if it is there.
+	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were needed.
+	 * returns -1 if an item with key k was not found in the tree.
+	 */
+	public int delete(long k) {
+		LongLongNode deletionNode = searchNode(k);
+		if (deletionNode == null) return ERROR_INDICTATOR;
+		return deleteNode(deletionNode);
+	}
+
+	/**
+	 * public long min()
+	 *
+	 * Returns the info of the item with the smallest key in the tree,
+	 * or noValue() if the tree is empty
+	 */
+	public long min() {
+		LongLongNode node = minNode();
+		return node != null ? node.value : noValue;
+	}
+
+	/**
+	 * public long max()
+	 *
+	 * Returns the info of the item with the largest key in the tree,
+	 * or noValue() if the tree is empty
+	 */
+	public long max() {
+		LongLongNode node = maxNode();
+		return node != null ? node.value : noValue;
+	}
+
+	/**
+	 * public long select(int i)
+	 *
+	 * Returns the value of the i'th smallest key (counting from 0 like WAVLTree.select),
+	 * or noValue() if i is out of range
+	 */
+	public long select(int i) {
+		LongLongNode node = selectNode(i);
+		return node != null ? node.value : noValue;
+	}
+
+	/**
+	 * public long[] keysToArray()
+	 *
+	 * Returns a sorted array which contains all keys in the tree,
+	 * or an empty array if the tree is empty.
+	 */
+	public long[] keysToArray() {
+		long[] keys = new long[size()];
+		int i = 0;
+		for (LongLongNode node = minNode(); node != null; node = successor(node)) {
+			keys[i++] = node.key;
+		}
+		return keys;
+	}
+
+	/**
+	 * public long[] infoToArray()
+	 *
+	 * Returns an array which contains all info in the tree,
+	 * sorted by their respective keys,
+	 * or an empty array if the tree is empty.
+	 */
+	public long[] infoToArray() {
+		long[] info = new long[size()];
+		int i = 0;
+		for (LongLongNode node = minNode(); node != null; node = successor(node)) {
+			info[i++] = node.value;
+		}
+		return info;
+	}
+
+	static final class LongLongNode extends AbstractWAVLTree.Node<LongLongNode> {
+		long key;
+		long value;
+
+		LongLongNode(long key, long value) {
+			this.key = key;
+			this.value = value;
+		}
+	}
+}
@@ -0,0 +1,156 @@
+/**
+ *
+ * LongObjWAVLTree
+ *
+ * WAVL Tree with primitive long keys and object values.
+ * rebalancing is shared with the other specialized trees (see AbstractWAVLTree),
+ * keys are compared as primitives and never boxed.
+ *
+ */
+
+public class LongObjWAVLTree<V> extends AbstractWAVLTree<LongObjWAVLTree.LongObjNode<V>> {
+
+	public LongObjWAVLTree() {
+		super(new LongObjNode<V>(-1, null));
+	}
+
+	/**
+	 * public V search(long k)
+	 *
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public V search(long k) {
+		LongObjNode<V> node = searchNode(k);
+		return node != null ? node.value : null;
+	}
+
+	/**
+	 * public boolean contains(long k)
+	 *
+	 * returns true if and only if an item with key k exists in the tree
+	 */
+	public boolean contains(long k) {
+		return searchNode(k) != null;
+	}
+
+	//returns the node with key k or null if not in tree
+	private LongObjNode<V> searchNode(long k) {
+		LongObjNode<V> current = root;
+		if (current == null) return null;
+		while (current != EXT) {
+			if (k == current.key) return current;
+			current = k < current.key ? current.left : current.right;
+		}
+		return null;
+	}
+
+	/**
+	 * public int insert(long k, V i)
+	 *
+	 * inserts an item with key k and info i to the WAVL tree.
+	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were necessary.
+	 * returns -1 if an item with key k already exists in the tree.
+	 */
+	public int insert(long k, V i) {
+		if (empty()) {
+			initializeRoot(new LongObjNode<V>(k, i)); //base case
+			return 0;
+		}
+		LongObjNode<V> parentNode = root;
+		while (true) { //single descent: finds insertion point or the existing key
+			if (k == parentNode.key) return ERROR_INDICTATOR; //for error: key in tree
+			LongObjNode<V> next = k < parentNode.key ? parentNode.left : parentNode.right;
+			if (next == EXT) break;
+			parentNode = next;
+		}
+		return insertNode(parentNode, new LongObjNode<V>(k, i), k < parentNode.key);
+	}
+
+	/**
+	 * public int delete(long k)
+	 *
+	 * deletes an item with key k from the tree, if it is there.
+	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were needed.
+	 * returns -1 if an item with key k was not found in the tree.
+	 */
+	public int delete(long k) {
+		LongObjNode<V> deletionNode = searchNode(k);
+		if (deletionNode == null) return ERROR_INDICTATOR;
+		return deleteNode(deletionNode);
+	}
+
+	/**
+	 * public V min()
+	 *
+	 * Returns the info of the item with the smallest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public V min() {
+		LongObjNode<V> node = minNode();
+		return node != null ? node.value : null;
+	}
+
+	/**
+	 * public V max()
+	 *
+	 * Returns the info of the item with the largest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public V max() {
+		LongObjNode<V> node = maxNode();
+		return node != null ? node.value : null;
+	}
+
+	/**
+	 * public V select(int i)
+	 *
+	 * Returns the value of the i'th smallest key (counting from 0 like WAVLTree.select),
+	 * or null if i is out of range
+	 */
+	public V select(int i) {
+		LongObjNode<V> node = selectNode(i);
+		return node != null ? node.value : null;
+	}
+
+	/**
+	 * public long[] keysToArray()
+	 *
+	 * Returns a sorted array which contains all keys in the tree,
+	 * or an empty array if the tree is empty.
+	 */
+	public long[] keysToArray() {
+		long[] keys = new long[size()];
+		int i = 0;
+		for (LongObjNode<V> node = minNode(); node != null; node = successor(node)) {
+			keys[i++] = node.key;
+		}
+		return keys;
+	}
+
+	/**
+	 * public Object[] infoToArray()
+	 *
+	 * Returns an array which contains all info in the tree,
+	 * sorted by their respective keys,
+	 * or an empty array if the tree is empty.
+	 */
+	public Object[] infoToArray() {
+		Object[] info = new Object[size()];
+		int i = 0;
+		for (LongObjNode<V> node = minNode(); node != null; node = successor(node)) {
+			info[i++] = node.value;
+		}
+		return info;
+	}
+
+	static final class LongObjNode<V> extends AbstractWAVLTree.Node<LongObjNode<V>> {
+		long key;
+		V value;
+
+		LongObjNode(long key, V value) {
+			this.key = key;
+			this.value = value;
+		}
+	}
+}
@@ -0,0 +1,271 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ *
+ * MappedWAVLTree
+ *
+ * Read-only WAVL Tree served straight from a file written by WAVLTree.save, memory mapped with FileChannel.map.
+ * opening only maps the file and checks its header, so the time to the first query does not depend on the
+ * size of the tree- nodes and values are read from the mapping when a query touches them.
+ *
+ * file layout (big endian):
+ * header 32 bytes: magic 'WAVL' 4 | version 4 | node count 4 | root record 4 | node region offset 4 |
+ *                  value region offset 4 | file length 8
+ * value region: per node in key order- UTF-8 length 4 (-1 for a null value) | UTF-8 bytes
+ * node region: one 24 byte record per node, in key order (record i holds the i'th smallest key):
+ *                  key 4 | rank 4 | subtree size 4 | left record 4 | right record 4 | value offset 4
+ * left/right are record numbers (-1 for EXT), the value offset is relative to the value region.
+ * records in key order make select a direct read and range reads a sequential scan,
+ * while search/rank still go down the saved tree through the child links.
+ * a file is limited to 2GB (a single mapping).
+ *
+ */
+
+public class MappedWAVLTree {
+
+	static final int MAGIC = 0x5741564C; //'WAVL'
+	static final int VERSION = 1;
+	static final int HEADER_BYTES = 32;
+	static final int NODE_BYTES = 24;
+	static final int NONE = -1; //child record of EXT, root of an empty tree, length of a null value
+
+	//offsets inside a node record
+	static final int KEY = 0;
+	static final int RANK = 4;
+	static final int SIZE = 8;
+	static final int LEFT = 12;
+	static final int RIGHT = 16;
+	static final int VALUE = 20;
+
+	private final ByteBuffer map;
+	private final int count;
+	private final int root;
+	private final int nodes; //byte offset of the node region
+	private final int values; //byte offset of the value region
+
+	private MappedWAVLTree(ByteBuffer map) throws IOException {
+		this.map = map;
+		if (map.capacity() < HEADER_BYTES || map.getInt(0) != MAGIC) {
+			throw new IOException("not a WAVL tree file");
+		}
+		if (map.getInt(4) != VERSION) {
+			throw new IOException("unsupported WAVL tree file version: " + map.getInt(4));
+		}
+		count = map.getInt(8);
+		root = map.getInt(12);
+		nodes = map.getInt(16);
+		values = map.getInt(20);
+		if (map.getLong(24) != map.capacity() || (long) nodes + (long) count * NODE_BYTES != map.capacity()) {
+			throw new IOException("WAVL tree file is truncated or corrupt");
+		}
+	}
+
+	/**
+	 * maps the file at path read-only. called by WAVLTree.open
+	 */
+	static MappedWAVLTree open(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("WAVL tree file larger than 2GB: " + channel.size());
+			}
+			MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); //stays valid after close
+			map.order(ByteOrder.BIG_ENDIAN);
+			return new MappedWAVLTree(map);
+		}
+	}
+
+	private int key(int record) {
+		return map.getInt(nodes + record * NODE_BYTES + KEY);
+	}
+
+	private int left(int record) {
+		return map.getInt(nodes + record * NODE_BYTES + LEFT);
+	}
+
+	private int right(int record) {
+		return map.getInt(nodes + record * NODE_BYTES + RIGHT);
+	}
+
+	/**
+	 * decodes the value of a record from the value region
+	 */
+	private String value(int record) {
+		int offset = values + map.getInt(nodes + record * NODE_BYTES + VALUE);
+		int length = map.getInt(offset);
+		if (length == NONE) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		ByteBuffer view = map.duplicate(); //own position, so concurrent readers don't interfere
+		view.position(offset + 4);
+		view.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * public boolean empty()
+	 *
+	 * returns true if and only if the tree is empty
+	 */
+	public boolean empty() {
+		return count == 0;
+	}
+
+	/**
+	 * public int size()
+	 *
+	 * Returns the number of nodes in the tree.
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * public String search(int k)
+	 *
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public String search(int k) {
+		int record = root;
+		while (record != NONE) {
+			int key = key(record);
+			if (k == key) return value(record);
+			record = k < key ? left(record) : right(record);
+		}
+		return null;
+	}
+
+	/**
+	 * public String select(int i)
+	 *
+	 * Returns the value of the i'th smallest key (counting from 0 like WAVLTree.select),
+	 * or null if i is out of range. O(1)- records are in key order.
+	 */
+	public String select(int i) {
+		if (i < 0 || i >= count) {
+			return null;
+		}
+		return value(i);
+	}
+
+	/**
+	 * public String min()
+	 *
+	 * Returns the info of the item with the smallest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public String min() {
+		return select(0);
+	}
+
+	/**
+	 * public String max()
+	 *
+	 * Returns the info of the item with the largest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public String max() {
+		return select(count - 1);
+	}
+
+	/**
+	 * public int rank(int k)
+	 *
+	 * returns the number of keys in the tree smaller than k (like WAVLTree.rank).
+	 * the record number of a node is its rank, so this is the record of the smallest key >= k found on the way down.
+	 */
+	public int rank(int k) {
+		int ceiling = count;
+		int record = root;
+		while (record != NONE) {
+			if (k <= key(record)) {
+				ceiling = record;
+				record = left(record);
+			}
+			else {
+				record = right(record);
+			}
+		}
+		return ceiling;
+	}
+
+	/**
+	 * public int countInRange(int lo, int hi)
+	 *
+	 * returns the number of keys k with lo <= k <= hi (0 if lo > hi)
+	 */
+	public int countInRange(int lo, int hi) {
+		if (lo > hi) {
+			return 0;
+		}
+		return (hi == Integer.MAX_VALUE ? count : rank(hi + 1)) - rank(lo);
+	}
+
+	/**
+	 * public int keysInRange(int lo, int hi, int[] out)
+	 *
+	 * writes the keys k with lo <= k <= hi in increasing order into out, stopping when out is full.
+	 * returns the number of keys written. O(log n + m), a sequential read of the node region.
+	 */
+	public int keysInRange(int lo, int hi, int[] out) {
+		int written = 0;
+		for (int record = rank(lo); record < count && written < out.length; record++) {
+			int key = key(record);
+			if (key > hi) break;
+			out[written++] = key;
+		}
+		return written;
+	}
+
+	/**
+	 * public int valuesInRange(int lo, int hi, String[] out)
+	 *
+	 * writes the values of the keys k with lo <= k <= hi in key order into out, stopping when out is full.
+	 * returns the number of values written.
+	 */
+	public int valuesInRange(int lo, int hi, String[] out) {
+		int written = 0;
+		for (int record = rank(lo); record < count && written < out.length; record++) {
+			if (key(record) > hi) break;
+			out[written++] = value(record);
+		}
+		return written;
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 *
+	 * Returns a sorted array which contains all keys in the tree,
+	 * or an empty array if the tree is empty.
+	 */
+	public int[] keysToArray() {
+		int[] keys = new int[count];
+		for (int record = 0; record < count; record++) {
+			keys[record] = key(record);
+		}
+		return keys;
+	}
+
+	/**
+	 * public String[] infoToArray()
+	 *
+	 * Returns an array which contains all info in the tree,
+	 * sorted by their respective keys,
+	 * or an empty array if the tree is empty.
+	 */
+	public String[] infoToArray() {
+		String[] info = new String[count];
+		for (int record = 0; record < count; record++) {
+			info[record] = value(record);
+		}
+		return info;
+	}
+}
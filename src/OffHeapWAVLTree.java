@@ -0,0 +1,798 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ *
+ * OffHeapWAVLTree
+ *
+ * WAVL Tree with long keys and long values whose nodes live off the java heap,
+ * as fixed width records in direct ByteBuffers (chunks), so the GC never scans them.
+ * node ids, subtree sizes, select and rank are all long, so one tree can hold more than 2^31 items.
+ *
+ * record layout (56 bytes, native byte order):
+ * key 8 | value 8 | size 8 | left 8 | right 8 | parent 8 | rank 4 | padding 4
+ *
+ * id 0 is reserved for EXT (rank -1, size 0), NIL (-1) is used for a missing parent / empty tree.
+ * ids of deleted nodes are kept in a free list (linked through left) and reused by later inserts.
+ * close() drops all chunks, the tree can't be used afterwards. their native memory is released when the garbage
+ * collector reclaims the buffers- release 11 has no public way to free a direct buffer right away.
+ *
+ * rebalancing cases are the same as WAVLTree (as shown in class).
+ */
+
+public class OffHeapWAVLTree implements AutoCloseable {
+
+	private static final long EXT = 0; //reserved id used as external leaf
+	private static final long NIL = -1; //parent of root, root of empty tree, end of free list
+	private static final int ERROR_INDICTATOR = -1;
+	private static final int DEFAULT_CHUNK_SHIFT = 16; //65536 records (3.5MB) per chunk
+
+	private static final int KEY = 0;
+	private static final int VALUE = 8;
+	private static final int SIZE = 16;
+	private static final int LEFT = 24;
+	private static final int RIGHT = 32;
+	private static final int PARENT = 40;
+	private static final int RANK = 48;
+	private static final int RECORD = 56;
+
+	private final int chunkShift;
+	private final long chunkMask;
+	private final long noValue;
+	private ByteBuffer[] chunks;
+	private int chunkCount;
+
+	private long root = NIL;
+	private long nextId = 1; //first never used id
+	private long freeList = NIL; //head of deleted ids
+	private boolean closed;
+
+	public OffHeapWAVLTree() {
+		this(DEFAULT_CHUNK_SHIFT, ERROR_INDICTATOR);
+	}
+
+	/**
+	 * every chunk holds 2^chunkShift records (at most 2^25 so a chunk stays under 2GB).
+	 * noValue is returned by search/min/max/select when there is no matching item
+	 */
+	public OffHeapWAVLTree(int chunkShift, long noValue) {
+		if (chunkShift < 1 || chunkShift > 25) {
+			throw new IllegalArgumentException("chunkShift must be between 1 and 25: " + chunkShift);
+		}
+		this.chunkShift = chunkShift;
+		this.chunkMask = (1L << chunkShift) - 1;
+		this.noValue = noValue;
+		chunks = new ByteBuffer[4];
+		addChunk();
+		setRank(EXT, -1);
+		setSize(EXT, 0);
+	}
+
+	/**
+	 * public void close()
+	 *
+	 * drops the chunks of the tree, so their off heap memory is released once the garbage collector reclaims them
+	 * (not right away). any later call except close throws IllegalStateException.
+	 */
+	public void close() {
+		closed = true;
+		chunks = null;
+		chunkCount = 0;
+		root = NIL;
+	}
+
+	//every public method starts here, so the record accessors need no check of their own
+	private void checkOpen() {
+		if (closed) {
+			throw new IllegalStateException("tree is closed");
+		}
+	}
+
+	private ByteBuffer chunk(long node) {
+		return chunks[(int) (node >>> chunkShift)];
+	}
+
+	private int offset(long node) {
+		return (int) (node & chunkMask) * RECORD;
+	}
+
+	private void addChunk() {
+		if (chunkCount == chunks.length) chunks = Arrays.copyOf(chunks, chunkCount * 2);
+		chunks[chunkCount++] = ByteBuffer.allocateDirect((int) ((chunkMask + 1) * RECORD)).order(ByteOrder.nativeOrder());
+	}
+
+	private long key(long node) {
+		return chunk(node).getLong(offset(node) + KEY);
+	}
+
+	private long value(long node) {
+		return chunk(node).getLong(offset(node) + VALUE);
+	}
+
+	private long size(long node) {
+		return chunk(node).getLong(offset(node) + SIZE);
+	}
+
+	private void setSize(long node, long size) {
+		chunk(node).putLong(offset(node) + SIZE, size);
+	}
+
+	private long left(long node) {
+		return chunk(node).getLong(offset(node) + LEFT);
+	}
+
+	private void setLeft(long node, long left) {
+		chunk(node).putLong(offset(node) + LEFT, left);
+	}
+
+	private long right(long node) {
+		return chunk(node).getLong(offset(node) + RIGHT);
+	}
+
+	private void setRight(long node, long right) {
+		chunk(node).putLong(offset(node) + RIGHT, right);
+	}
+
+	private long parent(long node) {
+		return chunk(node).getLong(offset(node) + PARENT);
+	}
+
+	private void setParent(long node, long parent) {
+		chunk(node).putLong(offset(node) + PARENT, parent);
+	}
+
+	private int rankOf(long node) {
+		return chunk(node).getInt(offset(node) + RANK);
+	}
+
+	private void setRank(long node, int rank) {
+		chunk(node).putInt(offset(node) + RANK, rank);
+	}
+
+	/**
+	 * public boolean empty()
+	 *
+	 * returns true if and only if the tree is empty
+	 *
+	 */
+	public boolean empty() {
+		checkOpen();
+		return root == NIL;
+	}
+
+	/**
+	 * public long size()
+	 *
+	 * Returns the number of nodes in the tree.
+	 *
+	 */
+	public long size() {
+		checkOpen();
+		return root != NIL ? size(root) : 0;
+	}
+
+	/**
+	 * public long search(long k)
+	 *
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns noValue
+	 */
+	public long search(long k) {
+		checkOpen();
+		long node = searchNode(k);
+		return node != NIL ? value(node) : noValue;
+	}
+
+	/**
+	 * public boolean contains(long k)
+	 *
+	 * returns true if and only if an item with key k exists in the tree
+	 */
+	public boolean contains(long k) {
+		checkOpen();
+		return searchNode(k) != NIL;
+	}
+
+	//returns the id of the node with key k or NIL if not in tree
+	private long searchNode(long k) {
+		long current = root;
+		if (current == NIL) return NIL;
+		while (current != EXT) {
+			long currentKey = key(current);
+			if (k == currentKey) return current;
+			current = k < currentKey ? left(current) : right(current);
+		}
+		return NIL;
+	}
+
+	/**
+	 * public int insert(long k, long i)
+	 *
+	 * inserts an item with key k and info i to the WAVL tree.
+	 * the tree must remain valid (keep its invariants).
+	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were necessary.
+	 * returns -1 if an item with key k already exists in the tree.
+	 */
+	public int insert(long k, long i) {
+		checkOpen();
+		if (empty()) {
+			root = newNode(k, i); //base case
+			return 0;
+		}
+
+		long parentNode = root;
+		boolean asLeft;
+		while (true) { //single descent: finds insertion point or the existing key
+			long parentKey = key(parentNode);
+			if (k == parentKey) return ERROR_INDICTATOR; //for error: key in tree
+			asLeft = k < parentKey;
+			long next = asLeft ? left(parentNode) : right(parentNode);
+			if (next == EXT) break;
+			parentNode = next;
+		}
+
+		long insertionNode = newNode(k, i);
+		setParent(insertionNode, parentNode);
+		if (asLeft) setLeft(parentNode, insertionNode);
+		else setRight(parentNode, insertionNode);
+
+		for (long node = parentNode; node != NIL; node = parent(node)) {
+			setSize(node, size(node) + 1); //fix sizes up to the root
+		}
+
+		//rebalance
+
+		int rebalances = 0;
+
+		long temp = insertionNode;
+		int caseNum = whichCase(temp);
+
+		while (caseNum != 0) { //tree isn't fixed
+			switch (caseNum) {
+			case 1:
+				temp = parent(temp);
+				setRank(temp, rankOf(temp) + 1); //promote x
+				rebalances++; //one promote
+				if (temp == root) { //root need not push problem upwards- fixed
+					caseNum = 0;
+					break;
+				}
+				caseNum = whichCase(temp);
+				break;
+			case 2:
+				long z = parent(temp);
+				if (left(z) == temp) rightRotate(z); //check if in normal or symmetric case
+				else leftRotate(z);
+				setRank(z, rankOf(z) - 1); //demote z
+				rebalances += 2; //1 rotate, 1 demote
+				caseNum = 0;
+				break;
+			case 3:
+				z = parent(temp);
+				if (left(z) == temp) {
+					leftRotate(temp);
+					rightRotate(z); //left-right double rotate
+				}
+				else {
+					rightRotate(temp);
+					leftRotate(z); //right-left double rotate
+				}
+				long b = parent(temp);
+				setRank(temp, rankOf(temp) - 1); //demote x
+				setRank(z, rankOf(z) - 1); //demote z
+				setRank(b, rankOf(b) + 1); //promote b
+				rebalances += 5; //2 rotates, 3 demotes/promotes
+				caseNum = 0;
+				break;
+			} //switch ends
+		}
+
+		return rebalances;
+	}
+
+	/**
+	 * takes an id from the free list (or a never used one) and initializes it as a 1 node tree
+	 */
+	private long newNode(long k, long i) {
+		long node;
+		if (freeList != NIL) {
+			node = freeList;
+			freeList = left(node);
+		}
+		else {
+			if ((nextId >>> chunkShift) == chunkCount) addChunk();
+			node = nextId++;
+		}
+		ByteBuffer chunk = chunk(node);
+		int offset = offset(node);
+		chunk.putLong(offset + KEY, k);
+		chunk.putLong(offset + VALUE, i);
+		chunk.putLong(offset + SIZE, 1);
+		chunk.putLong(offset + LEFT, EXT);
+		chunk.putLong(offset + RIGHT, EXT);
+		chunk.putLong(offset + PARENT, NIL);
+		chunk.putInt(offset + RANK, 0);
+		return node;
+	}
+
+	/**
+	 * returns a detached id to the free list
+	 */
+	private void freeNode(long node) {
+		setLeft(node, freeList);
+		freeList = node;
+	}
+
+	/**
+	 * determines the needed insert rebalancing action at currentNode (WAVLCases.insertCase), see WAVLTree.whichCase
+	 * @return 0 if tree is balanced, 1,2,3 according to cases shown in lecture (including symmetric cases).
+	 */
+	private int whichCase(long currentNode) {
+		long parentNode = parent(currentNode);
+		int diff1 = rankOf(parentNode) - rankOf(currentNode); //z
+		if (diff1 != 0) return 0;
+		int diff2 = rankOf(parentNode) - rankOf(sibling(currentNode)); //z-y
+		int diff3 = rankOf(currentNode) - rankOf(left(currentNode));
+		return WAVLCases.insertCase(diff1, diff2, diff3, left(parentNode) == currentNode);
+	}
+
+	/**
+	 * public int delete(long k)
+	 *
+	 * deletes an item with key k from the binary tree, if it is there;
+	 * the tree must remain valid (keep its invariants).
+	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were needed.
+	 * returns -1 if an item with key k was not found in the tree.
+	 */
+	public int delete(long k) {
+		checkOpen();
+		long deletionNode = searchNode(k);
+		if (deletionNode == NIL) {
+			return ERROR_INDICTATOR;
+		}
+
+		long rebalanceNode = parent(deletionNode); //save for later for rebalancing
+		long resizeNode = rebalanceNode; //we may mess with rebalanceNode later, save this for size fixing
+
+		boolean checkLeaf = isLeaf(deletionNode); //pre-saved check if we are deleting leaf or unary
+		boolean checkUnary = isUnary(deletionNode);
+
+		if (!checkLeaf && !checkUnary) { // if internal binary leaf
+			long suc = successor(deletionNode);
+
+			rebalanceNode = parent(suc); //find new rebalancenode (NOTE: suc is NOT the root)
+			resizeNode = rebalanceNode;
+
+			checkLeaf = isLeaf(suc);
+			checkUnary = isUnary(suc); //update checker to what we are actually deleting
+
+			if (rebalanceNode == deletionNode) {
+				rebalanceNode = suc; //edge case: rebalance from the successor which took deletionNode's place
+				resizeNode = rebalanceNode;
+			}
+
+			deleteBinary(deletionNode, suc);
+			freeNode(deletionNode);
+		}
+		else if (checkLeaf) {
+			deleteLeaf(deletionNode);
+			freeNode(deletionNode);
+
+			if (root == NIL) { //there was 1 node in tree- now empty
+				return 0;
+			}
+		}
+		else {
+			deleteUnary(deletionNode);
+			freeNode(deletionNode);
+
+			if (right(root) == EXT && left(root) == EXT) { //was root with one child- now only root
+				setSize(root, 1);
+				return 0;
+			}
+		}
+
+		for (long node = resizeNode; node != NIL; node = parent(node)) {
+			setSize(node, size(node) - 1); //fix sizes up the tree- opposite of insert updates
+		}
+
+		//"pre rebalance" -special first cases in accordence with WAVL presentation slides 52,53
+
+		int rebalances = 0; //don't miss a rebalance count
+
+		int firstCase = deletionCases(rebalanceNode);
+		if (firstCase == 1) { //case 1-tree balanced
+			return 0;
+		}
+		if (firstCase == 2) {
+			if (checkUnary) { //unary deletion with 2,2 parent is already valid
+				return 0;
+			}
+			setRank(rebalanceNode, rankOf(rebalanceNode) - 1); //case 2- 2,2 node as leaf (demote z)
+			rebalanceNode = parent(rebalanceNode); //go up
+			rebalances++; //1 demote
+		}
+		//in both leaf, unary we only take care of case 3 later
+
+		if (rebalanceNode == NIL) return rebalances; //if problem already moved up after reaching root- then fixed
+
+		int caseNum = whichCaseDelete(rebalanceNode);
+
+		while (caseNum != 0) { //tree isn't fixed
+			int zRank = rankOf(rebalanceNode);
+			boolean rightIsY = zRank - rankOf(right(rebalanceNode)) == 1; //normal case: y is the right child
+			long y = rightIsY ? right(rebalanceNode) : left(rebalanceNode);
+
+			switch (caseNum) {
+
+			case 1: //demote
+				setRank(rebalanceNode, zRank - 1); // demote z
+				rebalanceNode = parent(rebalanceNode);
+				rebalances++; //one demote
+				if (rebalanceNode == NIL) { //root need not push problem upwards- fixed
+					caseNum = 0;
+					break;
+				}
+				caseNum = whichCaseDelete(rebalanceNode);
+				break;
+
+			case 2: //double demote
+				setRank(y, rankOf(y) - 1); //demote y
+				setRank(rebalanceNode, zRank - 1); //demote z
+				rebalanceNode = parent(rebalanceNode);
+
+				rebalances += 2; //double demote
+
+				if (rebalanceNode == NIL) { //root need not push problem upwards- fixed
+					caseNum = 0;
+					break;
+				}
+				caseNum = whichCaseDelete(rebalanceNode);
+				break;
+
+			case 3: //rotate (+rank changes)
+				if (rightIsY) leftRotate(rebalanceNode); //check normal of symmetric cases
+				else rightRotate(rebalanceNode);
+
+				setRank(y, rankOf(y) + 1); //promote y
+				zRank--; //demote z
+
+				if (zRank - rankOf(right(rebalanceNode)) == 2 && zRank - rankOf(left(rebalanceNode)) == 2) { //if z=2,2 demote z again
+					zRank--;
+					rebalances++;
+				}
+				setRank(rebalanceNode, zRank);
+
+				rebalances += 3; //rotate, demote,promote (if extra demote: already counted)
+				caseNum = 0;
+				break;
+
+			case 4: //double rotate (+rank changes)
+				if (rightIsY) { //check normal of symmetric cases
+					rightRotate(y);
+					leftRotate(rebalanceNode);
+				}
+				else {
+					leftRotate(y);
+					rightRotate(rebalanceNode);
+				}
+				long a = parent(rebalanceNode);
+
+				setRank(rebalanceNode, zRank - 2); //demote z twice
+				setRank(a, rankOf(a) + 2); //promote a twice
+				setRank(y, rankOf(y) - 1); //demote y
+
+				rebalances += 7; //2 rotations, 3 demotions, 2 promotions
+				caseNum = 0;
+				break;
+			} // end switch cases
+		} // end while loop
+
+		return rebalances;
+	}
+
+	/**
+	 * first rebalance operation after deleting a leaf/unary node, for reference see WAVL slides 52,53.
+	 * 1 - balanced, 2 - 2,2 node, 3 - continue with whichCaseDelete
+	 */
+	private int deletionCases(long node) {
+		return WAVLCases.firstDeleteCase(rankOf(node) - rankOf(right(node)), rankOf(node) - rankOf(left(node)));
+	}
+
+	/**
+	 * returns the delete rebalance operation num at node (for reference see WAVL slide 54),
+	 * decided by WAVLCases.deleteCase and, at the 1-child y, WAVLCases.siblingCase.
+	 */
+	private int whichCaseDelete(long node) {
+		int diff1 = rankOf(node) - rankOf(right(node));
+		int diff2 = rankOf(node) - rankOf(left(node));
+		int caseNum = WAVLCases.deleteCase(diff1, diff2);
+		if (caseNum != WAVLCases.AT_SIBLING) {
+			return caseNum;
+		}
+		if (diff1 == 1) { //normal case
+			long y = right(node);
+			return WAVLCases.siblingCase(rankOf(y) - rankOf(right(y)), rankOf(y) - rankOf(left(y)));
+		}
+		long y = left(node); // diff2 == 1 (symmetric case)
+		return WAVLCases.siblingCase(rankOf(y) - rankOf(left(y)), rankOf(y) - rankOf(right(y)));
+	}
+
+	/**
+	 * removes a leaf (replaced with EXT, the node is put in a 1 node tree).
+	 */
+	private void deleteLeaf(long deletionNode) {
+		setSize(deletionNode, 1);
+
+		long parentNode = parent(deletionNode);
+		if (parentNode == NIL) { //single node in tree
+			root = NIL;
+			return;
+		}
+		if (left(parentNode) == deletionNode) setLeft(parentNode, EXT);
+		else setRight(parentNode, EXT);
+		setParent(deletionNode, NIL);
+	}
+
+	/**
+	 * removes an unary node (its child becomes its parents child, the node is put in a 1 node tree).
+	 */
+	private void deleteUnary(long deletionNode) {
+		setSize(deletionNode, 1);
+
+		long sonNode = right(deletionNode) != EXT ? right(deletionNode) : left(deletionNode);
+		setRight(deletionNode, EXT);
+		setLeft(deletionNode, EXT);
+
+		long parentNode = parent(deletionNode);
+		setParent(sonNode, parentNode);
+		if (parentNode == NIL) { //fix edgecase root pointer
+			root = sonNode;
+			return;
+		}
+		setParent(deletionNode, NIL);
+		if (right(parentNode) == deletionNode) setRight(parentNode, sonNode);
+		else setLeft(parentNode, sonNode);
+	}
+
+	/**
+	 * removes a binary node by first removing its successor and then putting the successor in its place
+	 * (same as WAVLTree.deleteBinary).
+	 */
+	private void deleteBinary(long deletionNode, long succsesor) {
+		if (isLeaf(succsesor)) deleteLeaf(succsesor);
+		else deleteUnary(succsesor);
+
+		if (deletionNode == root) root = succsesor; //update root
+
+		setSize(succsesor, size(deletionNode));
+		setSize(deletionNode, 1); //fix sizes
+
+		setRank(succsesor, rankOf(deletionNode));
+		setRank(deletionNode, 0); //fix ranks
+
+		long rightNode = right(deletionNode);
+		long leftNode = left(deletionNode);
+		long parentNode = parent(deletionNode);
+
+		setRight(succsesor, rightNode);
+		setParent(rightNode, succsesor);
+		setLeft(succsesor, leftNode);
+		setParent(leftNode, succsesor);
+		setParent(succsesor, parentNode);
+		if (parentNode != NIL) {
+			if (deletionNode == right(parentNode)) setRight(parentNode, succsesor);
+			else setLeft(parentNode, succsesor);
+		}
+
+		//put deletion in 1 node tree
+		setRight(deletionNode, EXT);
+		setLeft(deletionNode, EXT);
+		setParent(deletionNode, NIL);
+	}
+
+	private boolean isLeaf(long node) {
+		return left(node) == EXT && right(node) == EXT;
+	}
+
+	private boolean isUnary(long node) {
+		return (left(node) == EXT) != (right(node) == EXT);
+	}
+
+	/**
+	 * rotates tree right around x (y=x.left becomes x's parent), updates sizes, rank update done separately
+	 */
+	private void rightRotate(long x) {
+		long y = left(x);
+		long B = right(y);
+		long parentNode = parent(x);
+
+		if (parentNode == NIL) root = y; //fix root pointer
+		else if (left(parentNode) == x) setLeft(parentNode, y); //fix upper tree connection
+		else setRight(parentNode, y);
+
+		setParent(y, parentNode);
+		setRight(y, x);
+		setParent(x, y);
+		setLeft(x, B);
+		if (B != EXT) setParent(B, x);
+
+		setSize(x, size(B) + size(right(x)) + 1);
+		setSize(y, size(left(y)) + size(x) + 1); //y relies on x size- important to update it first
+	}
+
+	/**
+	 * rotates tree left around y (x=y.right becomes y's parent), updates sizes, rank update done separately
+	 */
+	private void leftRotate(long y) {
+		long x = right(y);
+		long B = left(x);
+		long parentNode = parent(y);
+
+		if (parentNode == NIL) root = x; //fix root pointer
+		else if (left(parentNode) == y) setLeft(parentNode, x); //fix upper tree connection
+		else setRight(parentNode, x);
+
+		setParent(x, parentNode);
+		setLeft(x, y);
+		setParent(y, x);
+		setRight(y, B);
+		if (B != EXT) setParent(B, y);
+
+		setSize(y, size(left(y)) + size(B) + 1);
+		setSize(x, size(y) + size(right(x)) + 1); //x relies on y size- important to update it first
+	}
+
+	/**
+	 * returns the sibling of the current node, meaning its parents other child
+	 */
+	private long sibling(long node) {
+		long parentNode = parent(node);
+		long rightNode = right(parentNode);
+		return rightNode == node ? left(parentNode) : rightNode;
+	}
+
+	/**
+	 * returns the node with the next key in the tree, or NIL if x is the maximum
+	 */
+	private long successor(long x) {
+		if (right(x) != EXT) {
+			x = right(x);
+			while (left(x) != EXT) x = left(x);
+			return x;
+		}
+		long y = parent(x);
+		while (y != NIL && x == right(y)) {
+			x = y;
+			y = parent(x);
+		}
+		return y;
+	}
+
+	private long minNode() {
+		long node = root;
+		if (node == NIL) return NIL;
+		while (left(node) != EXT) node = left(node);
+		return node;
+	}
+
+	/**
+	 * public long min()
+	 *
+	 * Returns the info of the item with the smallest key in the tree,
+	 * or noValue if the tree is empty
+	 */
+	public long min() {
+		checkOpen();
+		long node = minNode();
+		return node != NIL ? value(node) : noValue;
+	}
+
+	/**
+	 * public long max()
+	 *
+	 * Returns the info of the item with the largest key in the tree,
+	 * or noValue if the tree is empty
+	 */
+	public long max() {
+		checkOpen();
+		long node = root;
+		if (node == NIL) return noValue;
+		while (right(node) != EXT) node = right(node);
+		return value(node);
+	}
+
+	/**
+	 * public long select(long i)
+	 *
+	 * Returns the value of the i'th smallest key (counting from 0 like WAVLTree.select),
+	 * or noValue if i is out of range
+	 */
+	public long select(long i) {
+		checkOpen();
+		if (i < 0 || i >= size()) {
+			return noValue;
+		}
+		long node = root;
+		while (true) {
+			long r = size(left(node));
+			if (i == r) return value(node);
+			if (i < r) {
+				node = left(node);
+			}
+			else {
+				i -= r + 1;
+				node = right(node);
+			}
+		}
+	}
+
+	/**
+	 * public long rank(long k)
+	 *
+	 * Returns the number of keys in the tree smaller than k
+	 * (so select(rank(k)) is the value of k when k is in the tree)
+	 */
+	public long rank(long k) {
+		checkOpen();
+		long smaller = 0;
+		long node = root;
+		if (node == NIL) return 0;
+		while (node != EXT) {
+			long nodeKey = key(node);
+			if (k <= nodeKey) {
+				if (k == nodeKey) return smaller + size(left(node));
+				node = left(node);
+			}
+			else {
+				smaller += size(left(node)) + 1;
+				node = right(node);
+			}
+		}
+		return smaller;
+	}
+
+	/**
+	 * public long[] keysToArray()
+	 *
+	 * Returns a sorted array which contains all keys in the tree,
+	 * or an empty array if the tree is empty.
+	 * throws IllegalStateException if the tree has more items than fit in an array.
+	 */
+	public long[] keysToArray() {
+		checkOpen();
+		long[] keys = new long[arraySize()];
+		int i = 0;
+		for (long node = minNode(); node != NIL; node = successor(node)) {
+			keys[i++] = key(node);
+		}
+		return keys;
+	}
+
+	/**
+	 * public long[] infoToArray()
+	 *
+	 * Returns an array which contains all info in the tree,
+	 * sorted by their respective keys,
+	 * or an empty array if the tree is empty.
+	 * throws IllegalStateException if the tree has more items than fit in an array.
+	 */
+	public long[] infoToArray() {
+		checkOpen();
+		long[] info = new long[arraySize()];
+		int i = 0;
+		for (long node = minNode(); node != NIL; node = successor(node)) {
+			info[i++] = value(node);
+		}
+		return info;
+	}
+
+	private int arraySize() {
+		long size = size();
+		if (size > Integer.MAX_VALUE - 8) {
+			throw new IllegalStateException("tree too large for an array: " + size);
+		}
+		return (int) size;
+	}
+}
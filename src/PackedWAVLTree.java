@@ -0,0 +1,477 @@
+/**
+ *
+ * PackedWAVLTree
+ *
+ * WAVL Tree with int keys and String values (same API as CompactWAVLTree) whose nodes keep no rank at all:
+ * the WAVL rules only look at rank differences, and between operations every child is a 1 child or a 2 child,
+ * so a node keeps one bit per child (set for a 2 child) in the two top bits of its size field (meta).
+ * leaves are 1,1 (both bits clear) and EXT needs no bits. the 0 and 3 children of the fix-up only ever exist
+ * at the node being fixed, so they are never stored- the loops know which child it is (side) and read the
+ * sibling's and nephews' bits, every case is a few bit tests and masks on nodes already in cache
+ * (no getRank() calls, no EXT checks, no rank subtractions).
+ * like CompactWAVLTree there are no parent pointers, insert/delete rebalance bottom-up from their descent stack.
+ *
+ * memory per item (64 bit JVM, compressed oops, not counting the String values themselves):
+ * CompactWAVLTree node - 12 header + 3 ints + value + 2 references = 36, 40 bytes with alignment.
+ * Node here - 12 header + 2 ints + value + 2 references = 32 bytes.
+ * sizes keep the low 30 bits of meta, so a tree holds less than 2^30 items.
+ *
+ * rebalancing cases (and the counts insert/delete return) are the same as WAVLTree (as shown in class).
+ */
+
+public class PackedWAVLTree {
+
+	private static final Node EXT = new Node(); //general object used as external leaf (size 0)
+	private static final int ERROR_INDICTATOR = -1;
+	private static final int MAX_DEPTH = 64; //height <= rank, and a WAVL tree of up to 2^30 items has rank at most 2*30
+	private static final int LEFT2 = 1 << 30; //meta bit: the left child is a 2 child
+	private static final int RIGHT2 = 1 << 31; //meta bit: the right child is a 2 child
+	private static final int BOTH2 = LEFT2 | RIGHT2;
+	private static final int SIZE = LEFT2 - 1; //meta bits of the subtree size
+	private static final int MAX_SIZE = SIZE;
+
+	private Node root = EXT;
+	private final Node[] path = new Node[MAX_DEPTH]; //ancestors of the node being inserted/deleted, root first
+	private int rebalances; //counts rebalancing operations of the current delete
+
+	/**
+	 * node of the tree- no parent and no rank, see the class comment
+	 */
+	private static final class Node {
+		private int key;
+		private int meta; //subtree size | LEFT2 | RIGHT2
+		private String value;
+		private Node left = EXT;
+		private Node right = EXT;
+
+		private Node() { //EXT- its children stay null (EXT does not exist yet when it is created)
+		}
+
+		private Node(int key, String value) {
+			this.key = key;
+			this.value = value;
+			meta = 1; //a leaf, 1,1
+		}
+	}
+
+	/**
+	 * public boolean empty()
+	 *
+	 * returns true if and only if the tree is empty
+	 *
+	 */
+	public boolean empty() {
+		return root == EXT;
+	}
+
+	/**
+	 * public String search(int k)
+	 *
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public String search(int k) {
+		Node node = root;
+		while (node != EXT) {
+			if (k == node.key) return node.value;
+			node = k < node.key ? node.left : node.right;
+		}
+		return null;
+	}
+
+	/**
+	 * public int insert(int k, String i)
+	 *
+	 * inserts an item with key k and info i to the WAVL tree.
+	 * the tree must remain valid (keep its invariants).
+	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were necessary.
+	 * returns -1 if an item with key k already exists in the tree.
+	 * throws IllegalStateException if the tree already holds 2^30 - 1 items.
+	 */
+	public int insert(int k, String i) {
+		if (root == EXT) {
+			root = new Node(k, i); //base case
+			return 0;
+		}
+
+		int depth = 0; //single descent: pushes every node on the way, finds insertion point or the existing key
+		Node parentNode = root;
+		while (true) {
+			if (k == parentNode.key) return ERROR_INDICTATOR; //for error: key in tree
+			path[depth++] = parentNode;
+			Node next = k < parentNode.key ? parentNode.left : parentNode.right;
+			if (next == EXT) break;
+			parentNode = next;
+		}
+		if (size() == MAX_SIZE) {
+			throw new IllegalStateException("tree is full (" + MAX_SIZE + " items)");
+		}
+
+		Node x = new Node(k, i);
+		int side; //side of x under z
+		if (k < parentNode.key) {
+			parentNode.left = x;
+			side = LEFT2;
+		}
+		else {
+			parentNode.right = x;
+			side = RIGHT2;
+		}
+		for (int d = 0; d < depth; d++) {
+			path[d].meta++; //fix sizes up to the root (the size bits never carry into the rank bits)
+		}
+
+		//rebalance- x (on side of z = path[top]) has rank one more than the child it replaced:
+		//a 2 child becomes a 1 child and the tree is balanced, a 1 child becomes a 0 child and needs fixing
+
+		int rebalances = 0;
+		int top = depth - 1;
+		Node z = parentNode;
+		while (true) {
+			if ((z.meta & side) != 0) { //was a 2 child, now a 1 child- balanced
+				z.meta &= ~side;
+				return rebalances;
+			}
+			int other = side ^ BOTH2;
+			if ((z.meta & other) == 0) { //case 1- sibling is a 1 child: promote z (x 0 -> 1, sibling 1 -> 2)
+				z.meta |= other;
+				rebalances++; //one promote
+				if (top == 0) { //root need not push problem upwards- fixed
+					return rebalances;
+				}
+				x = z; //z grew- look at it from its parent
+				z = path[--top];
+				side = z.left == x ? LEFT2 : RIGHT2;
+				continue;
+			}
+			break; //z is 0,2- a rotation ends the rebalancing
+		}
+
+		Node above = top > 0 ? path[top - 1] : null;
+		if (side == LEFT2) {
+			if ((x.meta & LEFT2) == 0) { //case 2- outer child of x is a 1 child: rotate, demote z
+				rightRotate(z, above);
+				x.meta &= SIZE; //x 1,1 (z is now its 1 child)
+				z.meta &= SIZE; //z 1,1 (the inner child of x and the old sibling are 1 children of the demoted z)
+				rebalances += 2; //1 rotate, 1 demote
+			}
+			else { //case 3- left-right double rotate around b (demote x, demote z, promote b)
+				Node b = x.right;
+				int bits = b.meta;
+				leftRotate(x, z);
+				rightRotate(z, above);
+				x.meta = (x.meta & SIZE) | ((bits & LEFT2) != 0 ? RIGHT2 : 0); //x keeps b's left child, at the same difference
+				z.meta = (z.meta & SIZE) | ((bits & RIGHT2) != 0 ? LEFT2 : 0); //z keeps b's right child
+				b.meta &= SIZE; //b 1,1
+				rebalances += 5; //2 rotates, 3 demotes/promotes
+			}
+		}
+		else { //symmetric cases
+			if ((x.meta & RIGHT2) == 0) {
+				leftRotate(z, above);
+				x.meta &= SIZE;
+				z.meta &= SIZE;
+				rebalances += 2;
+			}
+			else {
+				Node b = x.left;
+				int bits = b.meta;
+				rightRotate(x, z);
+				leftRotate(z, above);
+				x.meta = (x.meta & SIZE) | ((bits & RIGHT2) != 0 ? LEFT2 : 0);
+				z.meta = (z.meta & SIZE) | ((bits & LEFT2) != 0 ? RIGHT2 : 0);
+				b.meta &= SIZE;
+				rebalances += 5;
+			}
+		}
+		return rebalances;
+	}
+
+	/**
+	 * public int delete(int k)
+	 *
+	 * deletes an item with key k from the binary tree, if it is there;
+	 * the tree must remain valid (keep its invariants).
+	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were needed.
+	 * returns -1 if an item with key k was not found in the tree.
+	 */
+	public int delete(int k) {
+		int depth = 0;
+		Node deletionNode = root;
+		while (deletionNode != EXT && deletionNode.key != k) {
+			path[depth++] = deletionNode;
+			deletionNode = k < deletionNode.key ? deletionNode.left : deletionNode.right;
+		}
+		if (deletionNode == EXT) {
+			return ERROR_INDICTATOR;
+		}
+
+		if (deletionNode.left != EXT && deletionNode.right != EXT) { //binary: its successor's node goes instead
+			path[depth++] = deletionNode;
+			Node suc = deletionNode.right;
+			while (suc.left != EXT) {
+				path[depth++] = suc;
+				suc = suc.left;
+			}
+			deletionNode.key = suc.key; //the successor's item moves up, its node (a leaf or unary) is removed
+			deletionNode.value = suc.value;
+			deletionNode = suc;
+		}
+
+		boolean checkUnary = deletionNode.left != EXT || deletionNode.right != EXT;
+		Node sonNode = deletionNode.left != EXT ? deletionNode.left : deletionNode.right; //EXT for a leaf
+		if (depth == 0) { //deleting the root, its only child (if any) is a valid tree
+			root = sonNode;
+			return 0;
+		}
+		Node z = path[depth - 1];
+		int side;
+		if (z.left == deletionNode) {
+			z.left = sonNode;
+			side = LEFT2;
+		}
+		else {
+			z.right = sonNode;
+			side = RIGHT2;
+		}
+		for (int d = 0; d < depth; d++) {
+			path[d].meta--; //fix sizes up the tree- opposite of insert updates
+		}
+
+		//"pre rebalance" -special first cases in accordence with WAVL presentation slides 52,53
+		//the removed node (a leaf, or unary with a leaf child) was replaced by a node one rank lower
+
+		rebalances = 0;
+		int top = depth - 1;
+		if ((z.meta & side) == 0 && !checkUnary && (z.meta & (side ^ BOTH2)) != 0) { //case 2- 2,2 node as leaf
+			z.meta &= SIZE; //demote z, a 1,1 leaf
+			rebalances++; //1 demote
+			if (top == 0) {
+				return rebalances;
+			}
+			Node child = z;
+			z = path[--top]; //go up
+			side = z.left == child ? LEFT2 : RIGHT2;
+		}
+		//in both leaf, unary we only take care of case 3 later
+
+		while (true) { //the child on side of z = path[top] lost one rank
+			if ((z.meta & side) == 0) { //a 1 child became a 2 child- balanced
+				z.meta |= side;
+				return rebalances;
+			}
+			if (!rebalanceStep(top, side)) { //a 2 child became a 3 child
+				return rebalances;
+			}
+			if (top == 0) { //root need not push problem upwards- fixed
+				return rebalances;
+			}
+			Node child = z; //z was demoted- look at it from its parent
+			z = path[--top];
+			side = z.left == child ? LEFT2 : RIGHT2;
+		}
+	}
+
+	/**
+	 * one delete rebalancing step at z = path[top], whose child on side is a 3 child
+	 * (for reference see WAVL slide 54), counted in rebalances.
+	 * returns true if it demoted z and its parent must be checked next
+	 */
+	private boolean rebalanceStep(int top, int side) {
+		Node z = path[top];
+		int other = side ^ BOTH2;
+		if ((z.meta & other) != 0) { //case 1- 3,2: demote z (2,1)
+			z.meta &= ~other;
+			rebalances++;
+			return true;
+		}
+		Node y = side == LEFT2 ? z.right : z.left; //the 1 child
+		if ((y.meta & BOTH2) == BOTH2) { //case 2- y is 2,2: double demote (y 1,1, z stays 2,1)
+			y.meta &= SIZE;
+			rebalances += 2;
+			return true;
+		}
+		Node above = top > 0 ? path[top - 1] : null;
+		boolean normal = side == LEFT2; //the 1 child is on the right (else the symmetric case)
+		int outer = normal ? RIGHT2 : LEFT2; //meta bit of y's outer child (on the side away from z), also of z's y side
+		int inner = side; //meta bit of y's inner child
+		if ((y.meta & outer) == 0) { //case 3- rotate (+rank changes): promote y, demote z
+			if (normal) leftRotate(z, above);
+			else rightRotate(z, above);
+			//z: the 3 child is a 2 child, z got y's inner child at the same difference
+			int zBits = side | ((y.meta & inner) != 0 ? outer : 0);
+			int yBits = outer; //y: z is a 1 child, the outer child a 2 child
+			if (zBits == BOTH2) { //if z=2,2 demote z again
+				zBits = 0;
+				yBits = BOTH2;
+				rebalances++;
+			}
+			z.meta = (z.meta & SIZE) | zBits;
+			y.meta = (y.meta & SIZE) | yBits;
+			rebalances += 3; //rotate, demote,promote (if extra demote: already counted)
+			return false;
+		}
+		//case 4- double rotate (+rank changes): the inner child a of y goes to the top, demote z twice, promote a twice, demote y
+		Node a = normal ? y.left : y.right;
+		int bits = a.meta;
+		if (normal) {
+			rightRotate(y, z);
+			leftRotate(z, above);
+		}
+		else {
+			leftRotate(y, z);
+			rightRotate(z, above);
+		}
+		//z keeps a's child on its side and y a's other child, at the same differences (both lost as much rank as a gained)
+		z.meta = (z.meta & SIZE) | ((bits & side) != 0 ? outer : 0);
+		y.meta = (y.meta & SIZE) | ((bits & outer) != 0 ? inner : 0);
+		a.meta |= BOTH2; //a 2,2
+		rebalances += 7; //2 rotations, 3 demotions, 2 promotions
+		return false;
+	}
+
+	/**
+	 * rotates tree right around x (y=x.left takes its place under above, null if x is the root),
+	 * updates sizes, rank difference bits are set separately
+	 */
+	private void rightRotate(Node x, Node above) {
+		Node y = x.left;
+		x.left = y.right;
+		y.right = x;
+		if (above == null) root = y; //fix root pointer
+		else if (above.left == x) above.left = y; //fix upper tree connection
+		else above.right = y;
+
+		x.meta = (x.meta & BOTH2) | ((x.left.meta & SIZE) + (x.right.meta & SIZE) + 1);
+		y.meta = (y.meta & BOTH2) | ((y.left.meta & SIZE) + (y.right.meta & SIZE) + 1); //y relies on x size- important to update it first
+	}
+
+	/**
+	 * rotates tree left around y (x=y.right takes its place under above, null if y is the root),
+	 * updates sizes, rank difference bits are set separately
+	 */
+	private void leftRotate(Node y, Node above) {
+		Node x = y.right;
+		y.right = x.left;
+		x.left = y;
+		if (above == null) root = x; //fix root pointer
+		else if (above.left == y) above.left = x; //fix upper tree connection
+		else above.right = x;
+
+		y.meta = (y.meta & BOTH2) | ((y.left.meta & SIZE) + (y.right.meta & SIZE) + 1);
+		x.meta = (x.meta & BOTH2) | ((x.left.meta & SIZE) + (x.right.meta & SIZE) + 1); //x relies on y size- important to update it first
+	}
+
+	/**
+	 * public String min()
+	 *
+	 * Returns the info of the item with the smallest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public String min() {
+		Node node = root;
+		if (node == EXT) return null;
+		while (node.left != EXT) node = node.left;
+		return node.value;
+	}
+
+	/**
+	 * public String max()
+	 *
+	 * Returns the info of the item with the largest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public String max() {
+		Node node = root;
+		if (node == EXT) return null;
+		while (node.right != EXT) node = node.right;
+		return node.value;
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 *
+	 * Returns a sorted array which contains all keys in the tree,
+	 * or an empty array if the tree is empty.
+	 */
+	public int[] keysToArray() {
+		int[] keys = new int[size()];
+		int i = 0;
+		Node[] stack = new Node[MAX_DEPTH]; //in order walk- the stack holds the nodes whose right subtree is next
+		int depth = 0;
+		Node node = root;
+		while (node != EXT || depth > 0) {
+			if (node != EXT) {
+				stack[depth++] = node;
+				node = node.left;
+			}
+			else {
+				node = stack[--depth];
+				keys[i++] = node.key;
+				node = node.right;
+			}
+		}
+		return keys;
+	}
+
+	/**
+	 * public String[] infoToArray()
+	 *
+	 * Returns an array which contains all info in the tree,
+	 * sorted by their respective keys,
+	 * or an empty array if the tree is empty.
+	 */
+	public String[] infoToArray() {
+		String[] info = new String[size()];
+		int i = 0;
+		Node[] stack = new Node[MAX_DEPTH];
+		int depth = 0;
+		Node node = root;
+		while (node != EXT || depth > 0) {
+			if (node != EXT) {
+				stack[depth++] = node;
+				node = node.left;
+			}
+			else {
+				node = stack[--depth];
+				info[i++] = node.value;
+				node = node.right;
+			}
+		}
+		return info;
+	}
+
+	/**
+	 * public int size()
+	 *
+	 * Returns the number of nodes in the tree.
+	 *
+	 */
+	public int size() {
+		return root.meta & SIZE;
+	}
+
+	/**
+	 * public String select(int i)
+	 *
+	 * Returns the value of the i'th smallest key (counting from 0 like WAVLTree.select),
+	 * or null if i is out of range
+	 */
+	public String select(int i) {
+		if (i < 0 || i >= size()) {
+			return null;
+		}
+		Node node = root;
+		while (true) {
+			int r = node.left.meta & SIZE;
+			if (i == r) return node.value;
+			if (i < r) {
+				node = node.left;
+			}
+			else {
+				i -= r + 1;
+				node = node.right;
+			}
+		}
+	}
+}
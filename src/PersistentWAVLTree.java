@@ -0,0 +1,424 @@
+/**
+ *
+ * PersistentWAVLTree
+ *
+ * WAVL Tree with int keys and String values built from immutable nodes (path copying):
+ * insert/delete copy only the nodes on the root-to-leaf path they change and share everything else,
+ * so snapshot() is O(1) - it just keeps the current root - and is never affected by later changes.
+ *
+ * nodes have no parent pointers (a node is shared by many versions and has no single parent),
+ * so insert/delete recurse down the search path and rebalance on the way back up:
+ * each level gets the (new) child from below and applies the same promote/demote/rotate cases as WAVLTree.
+ *
+ * a retained snapshot costs nothing until the live tree changes; from then on every insert/delete
+ * keeps the replaced path (about log n nodes of 40 bytes) alive until the snapshot is dropped.
+ *
+ */
+
+public class PersistentWAVLTree {
+
+	private static final Node EXT = new Node(-1, null, -1, 0, null, null); //general object used as external leaf
+	private static final int ERROR_INDICTATOR = -1;
+
+	private Node root = EXT;
+	private final boolean readOnly;
+	private int rebalances; //counts rebalancing operations of the current insert/delete
+
+	public PersistentWAVLTree() {
+		this(EXT, false);
+	}
+
+	private PersistentWAVLTree(Node root, boolean readOnly) {
+		this.root = root;
+		this.readOnly = readOnly;
+	}
+
+	/**
+	 * public PersistentWAVLTree snapshot()
+	 *
+	 * returns an immutable read-only view of the tree as it is now, in O(1).
+	 * insert/delete on the snapshot throw UnsupportedOperationException.
+	 */
+	public PersistentWAVLTree snapshot() {
+		return readOnly ? this : new PersistentWAVLTree(root, true);
+	}
+
+	/**
+	 * public boolean isReadOnly()
+	 *
+	 * returns true if this tree is a snapshot
+	 */
+	public boolean isReadOnly() {
+		return readOnly;
+	}
+
+	/**
+	 * public boolean empty()
+	 *
+	 * returns true if and only if the tree is empty
+	 *
+	 */
+	public boolean empty() {
+		return root == EXT;
+	}
+
+	/**
+	 * public int size()
+	 *
+	 * Returns the number of nodes in the tree.
+	 *
+	 */
+	public int size() {
+		return root.size;
+	}
+
+	/**
+	 * public String search(int k)
+	 *
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public String search(int k) {
+		Node node = root;
+		while (node != EXT) {
+			if (k == node.key) return node.value;
+			node = k < node.key ? node.left : node.right;
+		}
+		return null;
+	}
+
+	/**
+	 * public int insert(int k, String i)
+	 *
+	 * inserts an item with key k and info i to the WAVL tree.
+	 * returns the number of rebalancing operations (counted like WAVLTree.insert), or 0 if none were necessary.
+	 * returns -1 if an item with key k already exists in the tree.
+	 */
+	public int insert(int k, String i) {
+		checkWritable();
+		rebalances = 0;
+		Node newRoot = insert(root, k, i);
+		if (newRoot == null) {
+			return ERROR_INDICTATOR; //for error: key in tree
+		}
+		root = newRoot;
+		return rebalances;
+	}
+
+	/**
+	 * inserts into the subtree of node and returns the new subtree root, or null if k is already in it.
+	 * the returned root may be a 0-child of node's parent, which the parent level then fixes.
+	 */
+	private Node insert(Node node, int k, String i) {
+		if (node == EXT) {
+			return new Node(k, i, 0, 1, EXT, EXT);
+		}
+		if (k == node.key) {
+			return null;
+		}
+		if (k < node.key) {
+			Node newLeft = insert(node.left, k, i);
+			if (newLeft == null) return null;
+			if (newLeft.rank != node.rank) { //no 0-child here- just copy the path
+				return node.withChildren(newLeft, node.right);
+			}
+			if (node.rank - node.right.rank == 1) { //case 1- promote
+				rebalances++;
+				return node.with(newLeft, node.right, node.rank + 1);
+			}
+			if (newLeft.rank - newLeft.left.rank == 1) { //case 2- rotate right, demote z
+				rebalances += 2;
+				return newLeft.with(newLeft.left, node.with(newLeft.right, node.right, node.rank - 1), newLeft.rank);
+			}
+			Node b = newLeft.right; //case 3- double rotate, demote x and z, promote b
+			rebalances += 5;
+			return b.with(newLeft.with(newLeft.left, b.left, newLeft.rank - 1),
+					node.with(b.right, node.right, node.rank - 1), b.rank + 1);
+		}
+		else { //symmetric
+			Node newRight = insert(node.right, k, i);
+			if (newRight == null) return null;
+			if (newRight.rank != node.rank) {
+				return node.withChildren(node.left, newRight);
+			}
+			if (node.rank - node.left.rank == 1) {
+				rebalances++;
+				return node.with(node.left, newRight, node.rank + 1);
+			}
+			if (newRight.rank - newRight.right.rank == 1) {
+				rebalances += 2;
+				return newRight.with(node.with(node.left, newRight.left, node.rank - 1), newRight.right, newRight.rank);
+			}
+			Node b = newRight.left;
+			rebalances += 5;
+			return b.with(node.with(node.left, b.left, node.rank - 1),
+					newRight.with(b.right, newRight.right, newRight.rank - 1), b.rank + 1);
+		}
+	}
+
+	/**
+	 * public int delete(int k)
+	 *
+	 * deletes an item with key k from the tree, if it is there.
+	 * returns the number of rebalancing operations (counted like WAVLTree.delete), or 0 if none were needed.
+	 * returns -1 if an item with key k was not found in the tree.
+	 */
+	public int delete(int k) {
+		checkWritable();
+		rebalances = 0;
+		Node newRoot = delete(root, k);
+		if (newRoot == null) {
+			return ERROR_INDICTATOR;
+		}
+		root = newRoot;
+		return rebalances;
+	}
+
+	/**
+	 * deletes k from the subtree of node and returns the new subtree root, or null if k is not in it.
+	 * a binary node is replaced by its successor, which is removed from the right subtree (like WAVLTree.deleteBinary).
+	 */
+	private Node delete(Node node, int k) {
+		if (node == EXT) {
+			return null;
+		}
+		if (k < node.key) {
+			Node newLeft = delete(node.left, k);
+			if (newLeft == null) return null;
+			return fixLeft(node, newLeft, node.right, node.key, node.value);
+		}
+		if (k > node.key) {
+			Node newRight = delete(node.right, k);
+			if (newRight == null) return null;
+			return fixRight(node, node.left, newRight, node.key, node.value);
+		}
+		if (node.left == EXT) return node.right; //leaf or unary- the child takes its place
+		if (node.right == EXT) return node.left;
+		Node successor = node.right;
+		while (successor.left != EXT) successor = successor.left;
+		return fixRight(node, node.left, deleteMin(node.right), successor.key, successor.value);
+	}
+
+	//removes the minimum of a non empty subtree and returns the new subtree root
+	private Node deleteMin(Node node) {
+		if (node.left == EXT) return node.right;
+		return fixLeft(node, deleteMin(node.left), node.right, node.key, node.value);
+	}
+
+	/**
+	 * builds the copy of z with item (key,value) whose left subtree lost a node (now left) and rebalances it,
+	 * returns the new subtree root (which may be a 3-child of its parent, fixed by the parent level).
+	 * cases as WAVLTree.delete (slides 52-54).
+	 */
+	private Node fixLeft(Node z, Node left, Node right, int key, String value) {
+		int rank = z.rank;
+		if (left == EXT && right == EXT && rank == 1) { //2,2 leaf- demote
+			rebalances++;
+			return new Node(key, value, 0, 1, EXT, EXT);
+		}
+		if (rank - left.rank != 3) {
+			return new Node(key, value, rank, left.size + right.size + 1, left, right);
+		}
+		if (rank - right.rank == 2) { //case 1- demote z
+			rebalances++;
+			return new Node(key, value, rank - 1, left.size + right.size + 1, left, right);
+		}
+		Node y = right;
+		int inner = y.rank - y.left.rank;
+		int outer = y.rank - y.right.rank;
+		if (inner == 2 && outer == 2) { //case 2- double demote
+			rebalances += 2;
+			return new Node(key, value, rank - 1, left.size + right.size + 1, left, y.with(y.left, y.right, y.rank - 1));
+		}
+		if (outer == 1) { //case 3- rotate left, promote y, demote z (twice if it is now 2,2)
+			int zRank = rank - 1;
+			rebalances += 3;
+			if (zRank - left.rank == 2 && zRank - y.left.rank == 2) {
+				zRank--;
+				rebalances++;
+			}
+			Node newZ = new Node(key, value, zRank, left.size + y.left.size + 1, left, y.left);
+			return y.with(newZ, y.right, y.rank + 1);
+		}
+		Node a = y.left; //case 4- double rotate, promote a twice, demote z twice, demote y
+		rebalances += 7;
+		Node newZ = new Node(key, value, rank - 2, left.size + a.left.size + 1, left, a.left);
+		return a.with(newZ, y.with(a.right, y.right, y.rank - 1), a.rank + 2);
+	}
+
+	/**
+	 * symmetric to fixLeft- the right subtree of z lost a node
+	 */
+	private Node fixRight(Node z, Node left, Node right, int key, String value) {
+		int rank = z.rank;
+		if (left == EXT && right == EXT && rank == 1) { //2,2 leaf- demote
+			rebalances++;
+			return new Node(key, value, 0, 1, EXT, EXT);
+		}
+		if (rank - right.rank != 3) {
+			return new Node(key, value, rank, left.size + right.size + 1, left, right);
+		}
+		if (rank - left.rank == 2) { //case 1- demote z
+			rebalances++;
+			return new Node(key, value, rank - 1, left.size + right.size + 1, left, right);
+		}
+		Node y = left;
+		int inner = y.rank - y.right.rank;
+		int outer = y.rank - y.left.rank;
+		if (inner == 2 && outer == 2) { //case 2- double demote
+			rebalances += 2;
+			return new Node(key, value, rank - 1, left.size + right.size + 1, y.with(y.left, y.right, y.rank - 1), right);
+		}
+		if (outer == 1) { //case 3- rotate right, promote y, demote z (twice if it is now 2,2)
+			int zRank = rank - 1;
+			rebalances += 3;
+			if (zRank - right.rank == 2 && zRank - y.right.rank == 2) {
+				zRank--;
+				rebalances++;
+			}
+			Node newZ = new Node(key, value, zRank, y.right.size + right.size + 1, y.right, right);
+			return y.with(y.left, newZ, y.rank + 1);
+		}
+		Node a = y.right; //case 4- double rotate, promote a twice, demote z twice, demote y
+		rebalances += 7;
+		Node newZ = new Node(key, value, rank - 2, a.right.size + right.size + 1, a.right, right);
+		return a.with(y.with(y.left, a.left, y.rank - 1), newZ, a.rank + 2);
+	}
+
+	private void checkWritable() {
+		if (readOnly) {
+			throw new UnsupportedOperationException("snapshot is read only");
+		}
+	}
+
+	/**
+	 * public String min()
+	 *
+	 * Returns the info of the item with the smallest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public String min() {
+		Node node = root;
+		if (node == EXT) return null;
+		while (node.left != EXT) node = node.left;
+		return node.value;
+	}
+
+	/**
+	 * public String max()
+	 *
+	 * Returns the info of the item with the largest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public String max() {
+		Node node = root;
+		if (node == EXT) return null;
+		while (node.right != EXT) node = node.right;
+		return node.value;
+	}
+
+	/**
+	 * public String select(int i)
+	 *
+	 * Returns the value of the i'th smallest key (counting from 0 like WAVLTree.select),
+	 * or null if i is out of range
+	 */
+	public String select(int i) {
+		if (i < 0 || i >= size()) {
+			return null;
+		}
+		Node node = root;
+		while (true) {
+			int r = node.left.size;
+			if (i == r) return node.value;
+			if (i < r) {
+				node = node.left;
+			}
+			else {
+				i -= r + 1;
+				node = node.right;
+			}
+		}
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 *
+	 * Returns a sorted array which contains all keys in the tree,
+	 * or an empty array if the tree is empty.
+	 * there are no parent pointers, so the walk keeps the path on an explicit stack.
+	 */
+	public int[] keysToArray() {
+		int[] keys = new int[size()];
+		Node[] stack = new Node[root.rank + 2]; //height <= rank
+		int top = 0;
+		int i = 0;
+		Node node = root;
+		while (node != EXT || top > 0) {
+			while (node != EXT) {
+				stack[top++] = node;
+				node = node.left;
+			}
+			node = stack[--top];
+			keys[i++] = node.key;
+			node = node.right;
+		}
+		return keys;
+	}
+
+	/**
+	 * public String[] infoToArray()
+	 *
+	 * Returns an array which contains all info in the tree,
+	 * sorted by their respective keys,
+	 * or an empty array if the tree is empty.
+	 */
+	public String[] infoToArray() {
+		String[] info = new String[size()];
+		Node[] stack = new Node[root.rank + 2];
+		int top = 0;
+		int i = 0;
+		Node node = root;
+		while (node != EXT || top > 0) {
+			while (node != EXT) {
+				stack[top++] = node;
+				node = node.left;
+			}
+			node = stack[--top];
+			info[i++] = node.value;
+			node = node.right;
+		}
+		return info;
+	}
+
+	/**
+	 * immutable node, shared between all versions that contain it
+	 */
+	private static final class Node {
+		final int key;
+		final String value;
+		final int rank;
+		final int size;
+		final Node left;
+		final Node right;
+
+		Node(int key, String value, int rank, int size, Node left, Node right) {
+			this.key = key;
+			this.value = value;
+			this.rank = rank;
+			this.size = size;
+			this.left = left;
+			this.right = right;
+		}
+
+		//copy of this node with new children (size recomputed), same rank
+		Node withChildren(Node newLeft, Node newRight) {
+			return new Node(key, value, rank, newLeft.size + newRight.size + 1, newLeft, newRight);
+		}
+
+		//copy of this node with new children and rank
+		Node with(Node newLeft, Node newRight, int newRank) {
+			return new Node(key, value, newRank, newLeft.size + newRight.size + 1, newLeft, newRight);
+		}
+	}
+}
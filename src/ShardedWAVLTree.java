@@ -0,0 +1,564 @@
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ *
+ * ShardedWAVLTree
+ *
+ * Thread-safe map of int keys split into range shards, each a WAVLTree behind its own StampedLock,
+ * so writers of different key ranges never wait for each other (ConcurrentWAVLTree has one lock for everything).
+ * shard j holds the keys from lows[j] up to lows[j+1]-1, a key is routed by binary search over lows.
+ * global select/rank/size walk the prefix sums of the shard sizes (one volatile read per shard, nothing is shared
+ * between writers), then descend inside one shard; min/max come from the first/last non empty shard.
+ * keysToArray/infoToArray hold every shard's read lock, so they see one consistent state.
+ *
+ * shard boundaries follow the load: every CHECK_EVERY writes a shard checks its size and how often
+ * its lock was busy. a shard larger than maxShardSize, or a hot one (its lock was busy for HOT_PERCENT of
+ * the writes), is split at its median key; a shard smaller than maxShardSize/16 whose lock nobody waited for
+ * is merged with its smaller neighbour.
+ * the split/join of WAVLTree move nodes in O(log n), so resharding never copies a shard.
+ * a new layout is published before the replaced shards are marked retired (under their write lock),
+ * an operation that locked a retired shard reads the layout again and retries.
+ * one reshape runs at a time, writers that can't get the reshape lock skip it instead of waiting.
+ *
+ */
+
+public class ShardedWAVLTree {
+
+	private static final int DEFAULT_SHARDS = 16;
+	private static final int DEFAULT_MAX_SHARD_SIZE = 1 << 20;
+	private static final int CHECK_EVERY = 1 << 10; //writes to a shard between reshape checks
+	private static final int HOT_PERCENT = 10; //a shard whose lock was busy for this share of its writes is split
+	private static final int MIN_HOT_SPLIT = 1 << 10; //hot shards smaller than this are not split (the lock is the hot key)
+	private static final int MAX_HOT_SHARDS = 1 << 10; //hot shards are not split beyond this many shards
+	private static final int MERGE_FRACTION = 16; //shards smaller than maxShardSize/MERGE_FRACTION are merged
+	private static final int SELECT_ATTEMPTS = 4; //unlocked prefix sums tried before select locks every shard
+
+	/**
+	 * one key range: its tree, lock and counters
+	 */
+	private static final class Shard {
+		final WAVLTree tree;
+		final StampedLock lock = new StampedLock();
+		volatile int size; //tree.size(), readable without the lock
+		boolean retired; //replaced by a split or merge, guarded by lock
+		long writeStamp; //stamp of the write lock while held
+		int writes; //writes in the current window, guarded by lock
+		int contended; //writes of the window that found the lock busy
+
+		Shard(WAVLTree tree) {
+			this.tree = tree;
+			this.size = tree.size();
+		}
+	}
+
+	/**
+	 * immutable routing table, replaced as a whole by a reshape
+	 */
+	private static final class Layout {
+		final int[] lows; //lows[0] is Integer.MIN_VALUE
+		final Shard[] shards;
+
+		Layout(int[] lows, Shard[] shards) {
+			this.lows = lows;
+			this.shards = shards;
+		}
+
+		//index of the shard holding k: the last low <= k
+		int find(int k) {
+			int lo = 0, hi = lows.length - 1;
+			while (lo < hi) {
+				int mid = (lo + hi + 1) >>> 1;
+				if (lows[mid] <= k) lo = mid;
+				else hi = mid - 1;
+			}
+			return lo;
+		}
+	}
+
+	private volatile Layout layout;
+	private final ReentrantLock reshaping = new ReentrantLock();
+	private final int maxShardSize;
+	private int splits, merges; //guarded by reshaping
+
+	public ShardedWAVLTree() {
+		this(DEFAULT_SHARDS, DEFAULT_MAX_SHARD_SIZE);
+	}
+
+	/**
+	 * starts with the given number of shards splitting the int key space evenly.
+	 * shards are split when they grow past maxShardSize and merged when they shrink below maxShardSize/16.
+	 */
+	public ShardedWAVLTree(int shards, int maxShardSize) {
+		if (shards < 1) {
+			throw new IllegalArgumentException("shards must be positive: " + shards);
+		}
+		if (maxShardSize < 2) {
+			throw new IllegalArgumentException("maxShardSize must be at least 2: " + maxShardSize);
+		}
+		this.maxShardSize = maxShardSize;
+		int[] lows = new int[shards];
+		Shard[] s = new Shard[shards];
+		for (int j = 0; j < shards; j++) {
+			lows[j] = (int) (Integer.MIN_VALUE + (1L << 32) * j / shards);
+			s[j] = new Shard(new WAVLTree());
+		}
+		layout = new Layout(lows, s);
+	}
+
+	//write locks the shard currently holding k, counting whether the lock was busy
+	private Shard lockShard(int k) {
+		while (true) {
+			Layout l = layout;
+			Shard s = l.shards[l.find(k)];
+			long stamp = s.lock.tryWriteLock();
+			boolean busy = stamp == 0;
+			if (busy) stamp = s.lock.writeLock();
+			if (!s.retired) {
+				s.writeStamp = stamp;
+				if (busy) s.contended++;
+				return s;
+			}
+			s.lock.unlockWrite(stamp); //reshaped meanwhile
+		}
+	}
+
+	/**
+	 * public int insert(int k, String i)
+	 *
+	 * same as WAVLTree.insert, under the write lock of k's shard
+	 */
+	public int insert(int k, String i) {
+		Shard s = lockShard(k);
+		int result;
+		boolean check;
+		try {
+			result = s.tree.insert(k, i);
+			s.size = s.tree.size();
+			check = ++s.writes >= CHECK_EVERY;
+		}
+		finally {
+			s.lock.unlockWrite(s.writeStamp);
+		}
+		if (check) reshape(s);
+		return result;
+	}
+
+	/**
+	 * public int delete(int k)
+	 *
+	 * same as WAVLTree.delete, under the write lock of k's shard
+	 */
+	public int delete(int k) {
+		Shard s = lockShard(k);
+		int result;
+		boolean check;
+		try {
+			result = s.tree.delete(k);
+			s.size = s.tree.size();
+			check = ++s.writes >= CHECK_EVERY;
+		}
+		finally {
+			s.lock.unlockWrite(s.writeStamp);
+		}
+		if (check) reshape(s);
+		return result;
+	}
+
+	/**
+	 * public String search(int k)
+	 *
+	 * same as WAVLTree.search, under the read lock of k's shard
+	 */
+	public String search(int k) {
+		while (true) {
+			Layout l = layout;
+			Shard s = l.shards[l.find(k)];
+			long stamp = s.lock.readLock();
+			try {
+				if (!s.retired) return s.tree.search(k);
+			}
+			finally {
+				s.lock.unlockRead(stamp);
+			}
+		}
+	}
+
+	/**
+	 * public boolean empty()
+	 *
+	 * returns true if and only if no shard has items
+	 */
+	public boolean empty() {
+		return size() == 0;
+	}
+
+	/**
+	 * public int size()
+	 *
+	 * Returns the number of items, the sum of the shard sizes (exact when no writer runs)
+	 */
+	public int size() {
+		int n = 0;
+		for (Shard s : layout.shards) n += s.size;
+		return n;
+	}
+
+	/**
+	 * public String select(int i)
+	 *
+	 * same as WAVLTree.select (counting from 0, null if out of range): the prefix sums of the shard sizes
+	 * pick the shard, which is then read locked and checked. if writers keep moving the sums,
+	 * every shard is locked for one exact answer.
+	 */
+	public String select(int i) {
+		if (i < 0) {
+			return null;
+		}
+		for (int attempt = 0; attempt < SELECT_ATTEMPTS; attempt++) {
+			Layout l = layout;
+			int before = 0;
+			int j = 0;
+			for (; j < l.shards.length; j++) {
+				int size = l.shards[j].size;
+				if (i < before + size) break;
+				before += size;
+			}
+			if (j == l.shards.length) {
+				return null; //past the end (of a recent state)
+			}
+			Shard s = l.shards[j];
+			long stamp = s.lock.readLock();
+			try {
+				//the shard may have changed since its size was read, the shards before it as well-
+				//the answer is right if the sizes before it still add up and i falls inside it
+				if (!s.retired && i - before < s.tree.size() && before == sizeBefore(l, j)) {
+					return s.tree.select(i - before);
+				}
+			}
+			finally {
+				s.lock.unlockRead(stamp);
+			}
+		}
+		long[] stamps = lockAll();
+		try {
+			for (Shard s : layout.shards) {
+				int size = s.tree.size();
+				if (i < size) return s.tree.select(i);
+				i -= size;
+			}
+			return null;
+		}
+		finally {
+			unlockAll(stamps);
+		}
+	}
+
+	private static int sizeBefore(Layout l, int j) {
+		int n = 0;
+		for (int p = 0; p < j; p++) n += l.shards[p].size;
+		return n;
+	}
+
+	/**
+	 * public int rank(int k)
+	 *
+	 * same as WAVLTree.rank: the sizes of the shards below k's shard plus the rank inside it
+	 * (exact when no writer runs)
+	 */
+	public int rank(int k) {
+		while (true) {
+			Layout l = layout;
+			int j = l.find(k);
+			Shard s = l.shards[j];
+			long stamp = s.lock.readLock();
+			try {
+				if (!s.retired) return sizeBefore(l, j) + s.tree.rank(k);
+			}
+			finally {
+				s.lock.unlockRead(stamp);
+			}
+		}
+	}
+
+	/**
+	 * public String min()
+	 *
+	 * Returns the info of the item with the smallest key, or null if empty
+	 */
+	public String min() {
+		return extreme(true);
+	}
+
+	/**
+	 * public String max()
+	 *
+	 * Returns the info of the item with the largest key, or null if empty
+	 */
+	public String max() {
+		return extreme(false);
+	}
+
+	//the first (last) shard that is non empty under its lock
+	private String extreme(boolean min) {
+		retry:
+		while (true) {
+			Layout l = layout;
+			int n = l.shards.length;
+			for (int p = 0; p < n; p++) {
+				Shard s = l.shards[min ? p : n - 1 - p];
+				if (s.size == 0) continue;
+				long stamp = s.lock.readLock();
+				try {
+					if (s.retired) continue retry;
+					if (!s.tree.empty()) return min ? s.tree.min() : s.tree.max();
+				}
+				finally {
+					s.lock.unlockRead(stamp);
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * public int keysInRange(int lo, int hi, int[] out)
+	 *
+	 * writes the keys k with lo <= k <= hi in increasing order into out, stopping when out is full.
+	 * returns the number of keys written. each shard is read under its own lock, so a concurrent writer
+	 * may be seen in one shard and not yet in the next. nothing is allocated.
+	 */
+	public int keysInRange(int lo, int hi, int[] out) {
+		if (lo > hi) {
+			return 0;
+		}
+		retry:
+		while (true) {
+			Layout l = layout;
+			int written = 0;
+			for (int j = l.find(lo); j < l.shards.length && l.lows[j] <= hi && written < out.length; j++) {
+				Shard s = l.shards[j];
+				long stamp = s.lock.readLock();
+				try {
+					if (s.retired) continue retry;
+					written += s.tree.keysInRange(lo, hi, out, written); //straight into out, after the shards before
+				}
+				finally {
+					s.lock.unlockRead(stamp);
+				}
+			}
+			return written;
+		}
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 *
+	 * Returns a sorted array which contains all keys, shard after shard, under every shard's read lock
+	 */
+	public int[] keysToArray() {
+		long[] stamps = lockAll();
+		try {
+			int[] keys = new int[0];
+			for (Shard s : layout.shards) {
+				int[] part = s.tree.keysToArray();
+				int n = keys.length;
+				keys = Arrays.copyOf(keys, n + part.length);
+				System.arraycopy(part, 0, keys, n, part.length);
+			}
+			return keys;
+		}
+		finally {
+			unlockAll(stamps);
+		}
+	}
+
+	/**
+	 * public String[] infoToArray()
+	 *
+	 * Returns an array which contains all info sorted by their keys, under every shard's read lock
+	 */
+	public String[] infoToArray() {
+		long[] stamps = lockAll();
+		try {
+			String[] info = new String[0];
+			for (Shard s : layout.shards) {
+				String[] part = s.tree.infoToArray();
+				int n = info.length;
+				info = Arrays.copyOf(info, n + part.length);
+				System.arraycopy(part, 0, info, n, part.length);
+			}
+			return info;
+		}
+		finally {
+			unlockAll(stamps);
+		}
+	}
+
+	/**
+	 * public int shardCount()
+	 *
+	 * Returns the current number of shards
+	 */
+	public int shardCount() {
+		return layout.shards.length;
+	}
+
+	/**
+	 * public int[] shardSizes()
+	 *
+	 * Returns the sizes of the shards in key order (not one consistent state while writers run)
+	 */
+	public int[] shardSizes() {
+		Shard[] shards = layout.shards;
+		int[] sizes = new int[shards.length];
+		for (int j = 0; j < shards.length; j++) sizes[j] = shards[j].size;
+		return sizes;
+	}
+
+	/**
+	 * public int[] reshapeCounts()
+	 *
+	 * Returns {splits, merges} done so far
+	 */
+	public int[] reshapeCounts() {
+		reshaping.lock();
+		try {
+			return new int[] {splits, merges};
+		}
+		finally {
+			reshaping.unlock();
+		}
+	}
+
+	//freezes the layout and read locks every shard in key order (the order every multi shard lock follows),
+	//returns the stamps for unlockAll
+	private long[] lockAll() {
+		reshaping.lock();
+		Shard[] shards = layout.shards;
+		long[] stamps = new long[shards.length];
+		for (int j = 0; j < shards.length; j++) stamps[j] = shards[j].lock.readLock();
+		return stamps;
+	}
+
+	private void unlockAll(long[] stamps) {
+		Shard[] shards = layout.shards;
+		for (int j = 0; j < shards.length; j++) shards[j].lock.unlockRead(stamps[j]);
+		reshaping.unlock();
+	}
+
+	/**
+	 * splits or merges s if its window shows it too large, hot or too small.
+	 * called by the writer that closed the window, after it released s.
+	 */
+	private void reshape(Shard s) {
+		if (!reshaping.tryLock()) {
+			return; //another reshape or a global read runs- this shard is checked again after its next window
+		}
+		try {
+			Layout l = layout;
+			int j = Arrays.asList(l.shards).indexOf(s);
+			if (j < 0) {
+				return; //retired meanwhile
+			}
+			long stamp = s.lock.writeLock();
+			int size = s.tree.size();
+			boolean busy = s.contended > 0;
+			boolean hot = s.contended * 100L >= (long) s.writes * HOT_PERCENT && size >= MIN_HOT_SPLIT
+					&& l.shards.length < MAX_HOT_SHARDS;
+			s.writes = 0;
+			s.contended = 0;
+			if (size > maxShardSize || hot) {
+				split(l, j, stamp);
+				return;
+			}
+			s.lock.unlockWrite(stamp);
+			//only a shard nobody waited for is merged, so the halves of a hot split don't merge right back
+			if (size < maxShardSize / MERGE_FRACTION && !busy && l.shards.length > 1) {
+				//the smaller neighbour, if the two fit well below the split size
+				int other = j == 0 ? 1 : j == l.shards.length - 1 ? j - 1
+						: l.shards[j - 1].size <= l.shards[j + 1].size ? j - 1 : j + 1;
+				if (size + l.shards[other].size <= maxShardSize / 2) {
+					merge(l, Math.min(j, other));
+				}
+			}
+		}
+		finally {
+			reshaping.unlock();
+		}
+	}
+
+	//splits shard j (write locked with stamp) at its median key, holding reshaping
+	private void split(Layout l, int j, long stamp) {
+		Shard s = l.shards[j];
+		try {
+			if (s.tree.size() < 2) {
+				return;
+			}
+			WAVLTree.Cursor median = s.tree.cursor();
+			median.seekRank(s.tree.size() / 2);
+			int m = median.key();
+			String v = median.value();
+			WAVLTree[] parts = s.tree.split(m); //m is in neither part
+			parts[1].insert(m, v);
+			int n = l.shards.length;
+			int[] lows = new int[n + 1];
+			Shard[] shards = new Shard[n + 1];
+			System.arraycopy(l.lows, 0, lows, 0, j + 1);
+			System.arraycopy(l.shards, 0, shards, 0, j);
+			lows[j + 1] = m;
+			shards[j] = new Shard(parts[0]);
+			shards[j + 1] = new Shard(parts[1]);
+			System.arraycopy(l.lows, j + 1, lows, j + 2, n - j - 1);
+			System.arraycopy(l.shards, j + 1, shards, j + 2, n - j - 1);
+			layout = new Layout(lows, shards);
+			s.retired = true;
+			splits++;
+		}
+		finally {
+			s.lock.unlockWrite(stamp);
+		}
+	}
+
+	//merges shards j and j+1, holding reshaping
+	private void merge(Layout l, int j) {
+		Shard a = l.shards[j], b = l.shards[j + 1];
+		long stampA = a.lock.writeLock();
+		long stampB = b.lock.writeLock();
+		try {
+			WAVLTree tree;
+			if (b.tree.empty()) {
+				tree = a.tree;
+			}
+			else if (a.tree.empty()) {
+				tree = b.tree;
+			}
+			else {
+				//join needs a middle item: the smallest of the right shard
+				WAVLTree.Cursor first = b.tree.cursor();
+				first.first();
+				int k = first.key();
+				String v = first.value();
+				b.tree.delete(k);
+				tree = WAVLTree.join(a.tree, k, v, b.tree);
+			}
+			int n = l.shards.length;
+			int[] lows = new int[n - 1];
+			Shard[] shards = new Shard[n - 1];
+			System.arraycopy(l.lows, 0, lows, 0, j + 1);
+			System.arraycopy(l.shards, 0, shards, 0, j);
+			shards[j] = new Shard(tree);
+			System.arraycopy(l.lows, j + 2, lows, j + 1, n - j - 2);
+			System.arraycopy(l.shards, j + 2, shards, j + 1, n - j - 2);
+			layout = new Layout(lows, shards);
+			a.retired = true;
+			b.retired = true;
+			merges++;
+		}
+		finally {
+			b.lock.unlockWrite(stampB);
+			a.lock.unlockWrite(stampA);
+		}
+	}
+}
@@ -0,0 +1,118 @@
+/**
+ *
+ * WAVLAggregate
+ *
+ * Monoids a WAVLTree keeps summed up over every subtree, next to the subtree size (see WAVLTree(WAVLAggregate.OfLong)),
+ * so the aggregate of any key range is answered in O(log n) by WAVLTree.aggregate/aggregateLong/aggregateDouble.
+ * an aggregate maps every item to an element (of) and combines elements in key order (combine must be associative,
+ * identity is its neutral element). combine need not be commutative- left holds the smaller keys.
+ * OfLong and OfDouble keep primitives in the nodes, so the common numeric cases never box.
+ *
+ * of is called when an item is added (insertAll calls it on the whole batch once more before changing the tree).
+ * if it throws, the exception is passed on and the tree is left unchanged- insert adds nothing, and insertAll adds
+ * none of the batch.
+ *
+ */
+
+public final class WAVLAggregate {
+
+	private WAVLAggregate() {
+	}
+
+	/**
+	 * a monoid over long elements
+	 */
+	public interface OfLong {
+		long identity();
+		long of(int key, String value);
+		long combine(long left, long right);
+	}
+
+	/**
+	 * a monoid over double elements
+	 */
+	public interface OfDouble {
+		double identity();
+		double of(int key, String value);
+		double combine(double left, double right);
+	}
+
+	/**
+	 * a monoid over elements of any type, which combine must not modify (they are shared by the nodes)
+	 */
+	public interface Of<A> {
+		A identity();
+		A of(int key, String value);
+		A combine(A left, A right);
+	}
+
+	//values parsed as longs, null counts as 0
+	private static long parseLong(String value) {
+		return value == null ? 0 : Long.parseLong(value);
+	}
+
+	/**
+	 * public static OfLong sum()
+	 *
+	 * sum of the values parsed as longs (null is 0)
+	 */
+	public static OfLong sum() {
+		return new OfLong() {
+			public long identity() { return 0; }
+			public long of(int key, String value) { return parseLong(value); }
+			public long combine(long left, long right) { return left + right; }
+		};
+	}
+
+	/**
+	 * public static OfLong min()
+	 *
+	 * minimum of the values parsed as longs (null is 0), Long.MAX_VALUE for an empty range
+	 */
+	public static OfLong min() {
+		return new OfLong() {
+			public long identity() { return Long.MAX_VALUE; }
+			public long of(int key, String value) { return parseLong(value); }
+			public long combine(long left, long right) { return Math.min(left, right); }
+		};
+	}
+
+	/**
+	 * public static OfLong max()
+	 *
+	 * maximum of the values parsed as longs (null is 0), Long.MIN_VALUE for an empty range
+	 */
+	public static OfLong max() {
+		return new OfLong() {
+			public long identity() { return Long.MIN_VALUE; }
+			public long of(int key, String value) { return parseLong(value); }
+			public long combine(long left, long right) { return Math.max(left, right); }
+		};
+	}
+
+	/**
+	 * public static OfLong count(String category)
+	 *
+	 * number of items whose value equals category
+	 */
+	public static OfLong count(final String category) {
+		return new OfLong() {
+			public long identity() { return 0; }
+			public long of(int key, String value) { return category.equals(value) ? 1 : 0; }
+			public long combine(long left, long right) { return left + right; }
+		};
+	}
+
+	/**
+	 * public static OfDouble doubleSum()
+	 *
+	 * sum of the values parsed as doubles (null is 0)
+	 */
+	public static OfDouble doubleSum() {
+		return new OfDouble() {
+			public double identity() { return 0; }
+			public double of(int key, String value) { return value == null ? 0 : Double.parseDouble(value); }
+			public double combine(double left, double right) { return left + right; }
+		};
+	}
+}
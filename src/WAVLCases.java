@@ -0,0 +1,83 @@
+/**
+ *
+ * WAVLCases
+ *
+ * The rebalancing cases of a WAVL Tree (as shown in class), decided from rank differences only.
+ * WAVLTree, AbstractWAVLTree, ArenaWAVLTree, OffHeapWAVLTree and CompactWAVLTree read the ranks in their own
+ * node layout and ask here which case applies, so the case analysis exists once and the variants can't drift
+ * apart in it. the rank changes and rotations of each case stay with the trees- they work on different node
+ * layouts and WAVLTree fixes sizes, aggregates and fingers on the same paths.
+ * a rank difference is rank(parent)-rank(child), EXT has rank -1.
+ */
+
+final class WAVLCases {
+
+	/**
+	 * returned by deleteCase when the case depends on the sibling of the 3-child, see siblingCase
+	 */
+	static final int AT_SIBLING = -1;
+
+	private WAVLCases() {
+	}
+
+	/**
+	 * the insert rebalancing case at x (just inserted or promoted), for reference see WAVL slides.
+	 * parentDiff- rank(parent)-rank(x), siblingDiff- rank(parent)-rank(sibling of x), leftDiff- rank(x)-rank(x.left),
+	 * isLeft- x is the left child of its parent.
+	 * uses process of elimination under the assumption that there are no other cases (told but not proven in class).
+	 * @return 0 if tree is balanced, 1,2,3 according to cases shown in lecture (including symmetric cases).
+	 */
+	static int insertCase(int parentDiff, int siblingDiff, int leftDiff, boolean isLeft) {
+		if (parentDiff != 0) return 0;
+		if (siblingDiff == 1) return 1;
+		if (isLeft && leftDiff == 1) return 2;
+		if (!isLeft && leftDiff == 2) return 2;
+		return 3;
+	}
+
+	/**
+	 * first rebalance operation at the parent of a deleted leaf/unary node, from its rank differences to its
+	 * right and left child (for reference see WAVL slides 52,53).
+	 * 1 - balanced, 2 - 2,2 node, 3 - continue with deleteCase
+	 */
+	static int firstDeleteCase(int rightDiff, int leftDiff) {
+		if ((rightDiff == 1 && leftDiff == 2) || (rightDiff == 2 && leftDiff == 1)) {
+			return 1;
+		}
+		if (rightDiff == 2 && leftDiff == 2) {
+			return 2;
+		}
+		return 3;
+	}
+
+	/**
+	 * the delete rebalance operation at z, from its rank differences to its right and left child
+	 * (for reference see WAVL slide 54).
+	 * @return 0 if z is balanced, 1 (demote), or AT_SIBLING if the case is decided by siblingCase at the 1-child
+	 * (the right child if rightDiff == 1, otherwise the left one)
+	 */
+	static int deleteCase(int rightDiff, int leftDiff) {
+		if (rightDiff != 3 && leftDiff != 3) {
+			return 0;
+		}
+		if ((rightDiff == 2 && leftDiff == 3) || (rightDiff == 3 && leftDiff == 2)) {
+			return 1;
+		}
+		return AT_SIBLING;
+	}
+
+	/**
+	 * the delete rebalance operation when z is a 3,1 node, from the rank differences of its 1-child y to y's
+	 * outer child (on the same side as y) and inner child. works by process of elimination.
+	 * @return 3 (rotate), 4 (double rotate) or 2 (double demote)
+	 */
+	static int siblingCase(int outerDiff, int innerDiff) {
+		if (outerDiff == 1) {
+			return 3;
+		}
+		if (innerDiff == 1) {
+			return 4;
+		}
+		return 2;
+	}
+}
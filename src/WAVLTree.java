@@ -1,3 +1,16 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
 /**
  *
  * WAVLTree
@@ -10,18 +23,164 @@
 public class WAVLTree {
 	
 	private WAVLNode root;
-	private final WAVLNode EXT = new WAVLNode(-1, null); //general object used as external leaf
+	private WAVLNode minItem; //node of the smallest (largest) live key, null if there is none- kept by insert/delete,
+	private WAVLNode maxItem; //rotations and the successor swap move nodes but never change which node holds an extreme
+	private static final WAVLNode EXT = new WAVLTree().new WAVLNode(-1, null); //general object used as external leaf- shared by all trees so nodes can move between trees (join/split)
 	private final int ERROR_INDICTATOR = -1;
+	private int joinRebalances; //rebalancing operations done by joinNodes while this tree is used as a working tree (batch operations)
+
+	private boolean fingerMode; //insert/delete/search/select start at a finger instead of the root
+	private Finger finger; //node touched last (finger mode only)
+	private Finger minFinger; //node with the smallest key (finger mode only)
+	private Finger maxFinger; //node with the largest key (finger mode only)
+	private long locateLow; //window of the node last returned by locate (see Finger)
+	private long locateHigh;
+
+	static final boolean INSTRUMENTED = Boolean.getBoolean("wavl.metrics"); //metrics hooks fold away unless -Dwavl.metrics=true
+	private WAVLTreeMetrics metrics; //null unless enableMetrics was called
+	private int descent; //nodes visited by the last search/position (instrumented, with metrics enabled only)
+
+	//the aggregate kept in every subtree next to its size (at most one is set, see WAVLAggregate).
+	//nodes of a tree with an aggregate are LongNode/DoubleNode/ObjectNode, which keep their item's element and subtree total
+	private final WAVLAggregate.OfLong longAggregate;
+	private final WAVLAggregate.OfDouble doubleAggregate;
+	private final WAVLAggregate.Of<Object> objectAggregate;
+
+	private static final String TOMBSTONE = new String("tombstone"); //value of a lazily deleted node (compared by identity)
+	private boolean lazyDelete; //delete only marks nodes as tombstones, compact removes them (see setLazyDelete)
+	private int tombstones; //nodes marked deleted and not removed yet
+	private int[] tombstoneKeys = new int[0]; //keys marked since the last compact (a key revived and marked again repeats)
+	private int tombstoneKeyCount;
+
+	private WAVLNode pool; //nodes of deleted items kept for later inserts, linked through parent (see setNodePool)
+	private int pooled;
+	private int poolCapacity;
+
+   /**
+    * public WAVLTree()
+    *
+    * creates an empty tree without an aggregate
+    */
+   public WAVLTree() {
+	   this(null, null, null);
+   }
+
+   /**
+    * public WAVLTree(WAVLAggregate.OfLong aggregate)
+    *
+    * creates an empty tree that keeps aggregate over every subtree, see aggregateLong(lo, hi)
+    */
+   public WAVLTree(WAVLAggregate.OfLong aggregate) {
+	   this(requireAggregate(aggregate), null, null);
+   }
+
+   /**
+    * public WAVLTree(WAVLAggregate.OfDouble aggregate)
+    *
+    * creates an empty tree that keeps aggregate over every subtree, see aggregateDouble(lo, hi)
+    */
+   public WAVLTree(WAVLAggregate.OfDouble aggregate) {
+	   this(null, requireAggregate(aggregate), null);
+   }
+
+   /**
+    * public WAVLTree(WAVLAggregate.Of&lt;?&gt; aggregate)
+    *
+    * creates an empty tree that keeps aggregate over every subtree, see aggregate(lo, hi)
+    */
+   @SuppressWarnings("unchecked")
+   public WAVLTree(WAVLAggregate.Of<?> aggregate) {
+	   this(null, null, (WAVLAggregate.Of<Object>) requireAggregate(aggregate));
+   }
+
+   private WAVLTree(WAVLAggregate.OfLong longAggregate, WAVLAggregate.OfDouble doubleAggregate, WAVLAggregate.Of<Object> objectAggregate) {
+	   this.longAggregate = longAggregate;
+	   this.doubleAggregate = doubleAggregate;
+	   this.objectAggregate = objectAggregate;
+   }
+
+   private static <T> T requireAggregate(T aggregate) {
+	   if (aggregate == null) {
+		   throw new IllegalArgumentException("aggregate is null");
+	   }
+	   return aggregate;
+   }
+
+   /**
+    * returns an empty tree with the same aggregate (for split results and working trees, whose nodes come from this tree)
+    */
+   private WAVLTree emptyLike() {
+	   return new WAVLTree(longAggregate, doubleAggregate, objectAggregate);
+   }
+
+   private boolean aggregated() {
+	   return longAggregate != null || doubleAggregate != null || objectAggregate != null;
+   }
+
+   private boolean sameAggregate(WAVLTree other) {
+	   return longAggregate == other.longAggregate && doubleAggregate == other.doubleAggregate
+			   && objectAggregate == other.objectAggregate;
+   }
+
+   /**
+    * creates the node of a new item- of the node class matching the aggregate
+    */
+   private WAVLNode newNode(int k, String i) {
+	   if (longAggregate != null) return new LongNode(k, i);
+	   if (doubleAggregate != null) return new DoubleNode(k, i);
+	   if (objectAggregate != null) return new ObjectNode(k, i);
+	   return new WAVLNode(k, i);
+   }
+
+   /**
+    * the node of an inserted item: a pooled one if there is one, otherwise a new one.
+    * only insert takes from the pool- batches build nodes in parallel tasks and always use newNode
+    */
+   private WAVLNode takeNode(int k, String i) {
+	   if (pooled == 0) {
+		   return newNode(k, i);
+	   }
+	   WAVLNode node = pool;
+	   pool = node.parent;
+	   pooled--;
+	   node.reuse(k, i);
+	   return node;
+   }
+
+   /**
+    * keeps the node of a deleted item (already cut out of the tree) for a later insert, if the pool has room
+    */
+   private void recycle(WAVLNode node) {
+	   if (pooled == poolCapacity) {
+		   return;
+	   }
+	   node.value = null; //don't keep the deleted value alive
+	   node.left = EXT;
+	   node.right = EXT;
+	   node.parent = pool;
+	   pool = node;
+	   pooled++;
+   }
+
+   /**
+    * recomputes the aggregates of node and all of its ancestors, after the items below node changed
+    */
+   private void refreshUp(WAVLNode node) {
+	   while (node != null) {
+		   node.refresh();
+		   node = node.parent;
+	   }
+   }
 	
 
   /**
    * public boolean empty()
    *
-   * returns true if and only if the tree is empty
+   * returns true if and only if the tree is empty (tombstones left by lazy delete don't count)
    *
    */
   public boolean empty() {
-	  return root == null;
+	  return size() == 0;
   }
 
  /**
@@ -31,6 +190,22 @@ public class WAVLTree {
    * otherwise, returns null
    */
   public String search(int k) {
+	  if (INSTRUMENTED && metrics != null) {
+		  Object event = metrics.begin();
+		  String value = searchItem(k);
+		  metrics.searched(event, k, value != null, descent, size());
+		  return value;
+	  }
+	  return searchItem(k);
+  }
+
+  private String searchItem(int k) {
+	  if (fingerMode) {
+		  WAVLNode node = locate(k);
+		  if (node == null || node.key != k) return null;
+		  finger.set(node, locateLow, locateHigh, -1);
+		  return node.value;
+	  }
 	  return treeSearch(k, root);
   }
   
@@ -38,9 +213,12 @@ public class WAVLTree {
    * search for subtree as shown in class
    */
   private String treeSearch(int k, WAVLNode current) { 
+	  int depth = 0;
 	  while (current != null) {
+		depth++;
 		if (k == current.key) {
-			return current.value; 
+			if (INSTRUMENTED && metrics != null) descent = depth; //reads of an untracked tree write nothing
+			return current.value != TOMBSTONE ? current.value : null; 
 		}
 		else {
 			if (k < current.key) {
@@ -51,6 +229,7 @@ public class WAVLTree {
 			}
 		}
 	  }
+	  if (INSTRUMENTED && metrics != null) descent = depth;
         return null;
   }
   
@@ -58,14 +237,16 @@ public class WAVLTree {
    * finds insertion point in subtree.
    * Returns insertion position if not in tree, or the node with insertion key 
    * if already in tree. returns null if tree is empty.
-   * updates sizes "on the way down" (if update sizes true)
+   * sizes are not touched on the way down- insert/delete fix them on the way up, only once the operation is sure to happen
    */
-  private WAVLNode treePosition(int k,WAVLNode searched,boolean updateSizes) {
+  private WAVLNode treePosition(int k,WAVLNode searched) {
 	  WAVLNode prev = null;
+	  int depth = 0;
 	  while (searched != null) {
-		 if(updateSizes) searched.size++; //updates sizes on the way
 		prev = searched;
+		depth++;
 		if (k == searched.key) {
+			if (INSTRUMENTED && metrics != null) descent = depth;
 			return searched;
 		}
 		else {
@@ -77,6 +258,7 @@ public class WAVLTree {
 			}
 		}
 	}
+	  if (INSTRUMENTED && metrics != null) descent = depth;
 	  return prev;
   }
   
@@ -98,6 +280,482 @@ public class WAVLTree {
 
   }
   
+  /**
+   * returns the node with the previous key by value in the tree (such that the key is the maximal key that satisfies key<x.key)
+   * symmetric to successor
+   */
+  private WAVLNode predecessor(WAVLNode x) {
+	  if (x.getLeft()!=null) return maxNode(x.left);
+	  
+	  WAVLNode y=x.parent;
+	  
+	  while(y!=null && x== y.getLeft()) {
+		  x=y;
+		  y=x.parent;
+	  }
+	  
+	  return y;
+  }
+  
+   /**
+    * public void setFingerMode(boolean on)
+    *
+    * turns finger mode on or off (off by default).
+    * in finger mode the tree keeps fingers on the node touched last and on the nodes with the smallest and largest
+    * keys, and insert/delete/search/select search outward from the closest finger instead of starting at the root:
+    * they climb parent links (select uses subtree sizes) only until the subtree in front of them can hold the
+    * key/index, and go down from there.
+    * for keys arriving nearly in order the cost is about log of the distance from a finger instead of log n-
+    * a key next to a finger (the next timestamp, say) is found or inserted without any climbing, and a late key
+    * is reached from the largest key by climbing only as far as it is late.
+    * finger mode makes reads update the fingers, so a tree shared by readers (ConcurrentWAVLTree) must not use it.
+    * throws IllegalStateException if lazy delete is on.
+    */
+   public void setFingerMode(boolean on) {
+	   if (on && lazyDelete) {
+		   throw new IllegalStateException("finger mode does not work with lazy delete");
+	   }
+	   fingerMode = on;
+	   finger = on ? new Finger() : null;
+	   minFinger = on ? new Finger() : null;
+	   maxFinger = on ? new Finger() : null;
+	   resetFingers();
+   }
+
+   /**
+    * public boolean isFingerMode()
+    *
+    * returns true if finger mode is on
+    */
+   public boolean isFingerMode() {
+	   return fingerMode;
+   }
+
+   /**
+    * public void setLazyDelete(boolean on)
+    *
+    * turns lazy delete on or off (off by default).
+    * with lazy delete on, delete only marks the node of the item as a tombstone and takes it out of the sizes
+    * (and aggregates) on its path- no successor swap, no rebalancing, no rotations. search/select/rank/ranges/
+    * cursors/arrays skip tombstones, and inserting a key of a tombstone brings the node back.
+    * compact() removes all tombstones at once. it runs by itself when tombstones outnumber the live items,
+    * or can be called when the tree is idle (after a burst of deletes, say).
+    * batches (insertAll/deleteAll), split, join and save compact first.
+    * turning lazy delete off compacts. throws IllegalStateException if finger mode is on.
+    * lazy delete makes sizes skip nodes- code walking the nodes itself (ConcurrentWAVLTree's optimistic reads) must
+    * check isTombstone().
+    */
+   public void setLazyDelete(boolean on) {
+	   if (on && fingerMode) {
+		   throw new IllegalStateException("lazy delete does not work in finger mode");
+	   }
+	   if (!on) {
+		   compact();
+	   }
+	   lazyDelete = on;
+   }
+
+   /**
+    * public boolean isLazyDelete()
+    *
+    * returns true if lazy delete is on
+    */
+   public boolean isLazyDelete() {
+	   return lazyDelete;
+   }
+
+   /**
+    * public void setNodePool(int capacity)
+    *
+    * keeps up to capacity nodes of deleted items and reuses them for later inserts (0, the default, keeps none),
+    * so a tree with as many inserts as deletes stops allocating once the pool covers the difference between them.
+    * only one by one deletes (delete, pollMin/pollMax) fill the pool- nodes dropped by batches, compact and split
+    * are left to the garbage collector, and lazily deleted nodes are revived in place anyway.
+    * a pooled node comes back holding another item: nodes from getRoot()/getLeft()/getRight() and cursors must not be
+    * kept across deletes (ConcurrentWAVLTree's optimistic reads validate their stamp, a recycled node only fails them).
+    * lowering the capacity drops the extra nodes. throws IllegalArgumentException if capacity is negative.
+    */
+   public void setNodePool(int capacity) {
+	   if (capacity < 0) {
+		   throw new IllegalArgumentException("negative pool capacity " + capacity);
+	   }
+	   poolCapacity = capacity;
+	   while (pooled > capacity) {
+		   WAVLNode node = pool;
+		   pool = node.parent;
+		   node.parent = null;
+		   pooled--;
+	   }
+   }
+
+   /**
+    * public int pooledNodes()
+    *
+    * returns the number of nodes waiting in the node pool
+    */
+   public int pooledNodes() {
+	   return pooled;
+   }
+
+   /**
+    * public int tombstones()
+    *
+    * returns the number of lazily deleted nodes not yet removed by compact
+    */
+   public int tombstones() {
+	   return tombstones;
+   }
+
+   /**
+    * public int compact()
+    *
+    * removes all tombstones left by lazy delete and returns how many there were.
+    * the keys marked since the last compact are sorted and removed in one pass like deleteAll:
+    * the tree is only taken apart and joined back together along the paths to them, subtrees without
+    * tombstones are not touched. O(m log(n/m + 1)) for m tombstones.
+    */
+   public int compact() {
+	   int removed = tombstones;
+	   if (removed > 0) {
+		   int[] sortedKeys = new int[tombstoneKeyCount];
+		   int n = sortItems(Arrays.copyOf(tombstoneKeys, tombstoneKeyCount), null, sortedKeys, null);
+		   mergeBatch(sortedKeys, null, n, false, true);
+		   tombstones = 0;
+	   }
+	   tombstoneKeys = new int[0];
+	   tombstoneKeyCount = 0;
+	   return removed;
+   }
+
+   /**
+    * public WAVLTreeMetrics enableMetrics()
+    *
+    * starts recording insert/delete/search metrics for this tree (see WAVLTreeMetrics) and returns them,
+    * or the ones already being recorded.
+    * the hooks are live only when the JVM runs with -Dwavl.metrics=true- without it the JIT drops them (they cost nothing)
+    * and this throws IllegalStateException. with it, a tree without metrics pays one null check per operation.
+    * like finger mode, metrics make reads write to the tree, so a tree shared by readers must not use them.
+    */
+   public WAVLTreeMetrics enableMetrics() {
+	   if (!INSTRUMENTED) {
+		   throw new IllegalStateException("metrics are switched off, run with -Dwavl.metrics=true");
+	   }
+	   if (metrics == null) {
+		   metrics = new WAVLTreeMetrics();
+		   sampleShape();
+	   }
+	   return metrics;
+   }
+
+   /**
+    * public void disableMetrics()
+    *
+    * stops recording metrics, the WAVLTreeMetrics returned before keep their last values
+    */
+   public void disableMetrics() {
+	   metrics = null;
+   }
+
+   /**
+    * public WAVLTreeMetrics getMetrics()
+    *
+    * returns the metrics being recorded, or null if they are not enabled
+    */
+   public WAVLTreeMetrics getMetrics() {
+	   return metrics;
+   }
+
+   /**
+    * walks the whole tree and hands its shape (height, nodes per rank, 2,2 nodes) to metrics.
+    * called when metrics are enabled and then once the tree has seen as many changes as it has nodes,
+    * so the walk costs O(1) per operation (amortized).
+    * iterative preorder walk- the stack never holds more than one pending right child per level (rank+2 levels).
+    */
+   private void sampleShape() {
+	   int height = -1;
+	   long[] ranks = new long[WAVLTreeMetrics.MAX_RANK + 1];
+	   long twoTwo = 0;
+	   if (root != null) {
+		   WAVLNode[] nodes = new WAVLNode[root.rank + 2];
+		   int[] depths = new int[root.rank + 2];
+		   int top = 0;
+		   nodes[0] = root;
+		   depths[0] = 0;
+		   while (top >= 0) {
+			   WAVLNode node = nodes[top];
+			   int depth = depths[top--];
+			   height = Math.max(height, depth);
+			   ranks[Math.min(node.rank, WAVLTreeMetrics.MAX_RANK)]++;
+			   if (node.rank - node.left.getRank() == 2 && node.rank - node.right.getRank() == 2) twoTwo++;
+			   if (node.right != EXT) {
+				   nodes[++top] = node.right;
+				   depths[top] = depth + 1;
+			   }
+			   if (node.left != EXT) {
+				   nodes[++top] = node.left;
+				   depths[top] = depth + 1;
+			   }
+		   }
+	   }
+	   metrics.shape(height, ranks, twoTwo, size());
+   }
+
+   /**
+    * a node with a window of keys around it: every key in (low, high) is the node's own key or falls in a gap
+    * next to it (the window never reaches past the node's neighbours), so such a key is found or inserted
+    * in the node's subtree, whatever rotations did to the tree since.
+    */
+   private static class Finger {
+	   private WAVLNode node; //null if not set
+	   private long low;
+	   private long high;
+	   private int index; //number of keys smaller than node's key, -1 if not known (only select needs it)
+
+	   private boolean covers(int k) {
+		   return node != null && k > low && k < high;
+	   }
+
+	   private void set(WAVLNode node, long low, long high, int index) {
+		   this.node = node;
+		   this.low = low;
+		   this.high = high;
+		   this.index = index;
+	   }
+
+	   //k was inserted- it is a new neighbour if it fell in the window
+	   private void inserted(int k) {
+		   if (k < node.key) {
+			   if (index >= 0) index++;
+			   if (k > low) low = k;
+		   }
+		   else if (k < high) {
+			   high = k;
+		   }
+	   }
+
+	   //deletionNode (not this node) is about to be deleted- a window over its key only grows, which is still safe
+	   private void deleted(WAVLNode deletionNode) {
+		   if (index >= 0 && deletionNode.key < node.key) index--;
+	   }
+   }
+
+   /**
+    * finds the extremes again after the tree was built or taken apart by anything but insert/delete. O(log n)
+    */
+   private void resetExtremes() {
+	   minItem = liveForward(minNode(root));
+	   maxItem = liveBackward(maxNode(root));
+   }
+
+   /**
+    * forgets the last finger and puts the min/max fingers back on the ends of the tree,
+    * after the tree was changed by anything that does not keep them (batches, split, join)
+    */
+   private void resetFingers() {
+	   if (!fingerMode) {
+		   return;
+	   }
+	   finger.node = null;
+	   minFinger.node = null;
+	   maxFinger.node = null;
+	   if (root != null) {
+		   minFinger.set(minNode(root), Long.MIN_VALUE, (long) minNode(root).key + 1, 0);
+		   maxFinger.set(maxNode(root), (long) maxNode(root).key - 1, Long.MAX_VALUE, size() - 1);
+	   }
+   }
+
+   /**
+    * finds the insertion/deletion point of k- from a finger in finger mode, otherwise from the root (treePosition)
+    */
+   private WAVLNode position(int k) {
+	   return fingerMode ? locate(k) : treePosition(k, root);
+   }
+
+   /**
+    * returns the finger whose window holds k, otherwise the finger with the closest key (null if there is none)
+    */
+   private Finger closestFinger(int k) {
+	   if (finger.covers(k)) return finger;
+	   if (maxFinger.covers(k)) return maxFinger;
+	   if (minFinger.covers(k)) return minFinger;
+	   Finger closest = closer(k, maxFinger, minFinger);
+	   return finger.node == null ? closest : closer(k, finger, closest);
+   }
+
+   private static Finger closer(int k, Finger a, Finger b) {
+	   if (a.node == null) return b.node == null ? null : b;
+	   if (b == null || b.node == null) return a;
+	   return Math.abs((long) k - a.node.key) <= Math.abs((long) k - b.node.key) ? a : b;
+   }
+
+   /**
+    * same as treePosition(k, root), but starts at a finger (if there is one) and also finds the window of the result
+    * (locateLow, locateHigh). if k is not in the tree the window is the gap k falls in.
+    * if k is in a finger's window the descent starts at that finger, otherwise the search climbs from the closest
+    * finger to the first ancestor whose subtree bounds k on the far side, or to the root.
+    * indices are not tracked- reading the subtree sizes on the way would cost a cache miss per level.
+    */
+   private WAVLNode locate(int k) {
+	   if (root == null) {
+		   return null;
+	   }
+	   WAVLNode x = root;
+	   long low = Long.MIN_VALUE; //keys of the subtree of x are in (low, high)
+	   long high = Long.MAX_VALUE;
+	   int depth = 0; //nodes visited, climbing and descending
+	   Finger from = closestFinger(k);
+	   if (from != null && from.covers(k)) {
+		   x = from.node;
+		   low = from.low;
+		   high = from.high;
+	   }
+	   else if (from != null) {
+		   x = from.node;
+		   if (k > x.key) { //climb until x is a left child of a larger key
+			   while (x.parent != null && !(x == x.parent.left && k < x.parent.key)) {
+				   x = x.parent;
+				   depth++;
+			   }
+			   if (x.parent != null) {
+				   high = x.parent.key;
+				   low = from.node.key; //keys in between are in x's subtree with the finger, the descent tightens it
+			   }
+		   }
+		   else { //symmetric- climb until x is a right child of a smaller key
+			   while (x.parent != null && !(x == x.parent.right && k > x.parent.key)) {
+				   x = x.parent;
+				   depth++;
+			   }
+			   if (x.parent != null) {
+				   low = x.parent.key;
+				   high = from.node.key;
+			   }
+		   }
+	   }
+	   WAVLNode prev = null;
+	   while (x != null) {
+		   prev = x;
+		   depth++;
+		   if (k == x.key) {
+			   //a window of a node with children can't reach past its key on that side (the neighbour is below it)
+			   if (x.getLeft() != null) low = (long) k - 1;
+			   if (x.getRight() != null) high = (long) k + 1;
+			   break;
+		   }
+		   if (k < x.key) {
+			   high = x.key;
+			   x = x.getLeft();
+		   }
+		   else {
+			   low = x.key;
+			   x = x.getRight();
+		   }
+	   }
+	   locateLow = low;
+	   locateHigh = high;
+	   if (INSTRUMENTED && metrics != null) descent = depth;
+	   return prev;
+   }
+
+   /**
+    * updates the fingers for insertionNode, just linked at the position found by locate
+    */
+   private void fingerAfterInsert(WAVLNode insertionNode) {
+	   int k = insertionNode.key;
+	   if (k > maxFinger.node.key) maxFinger.set(insertionNode, locateLow, locateHigh, size()); //size not updated yet
+	   else maxFinger.inserted(k);
+	   if (k < minFinger.node.key) {
+		   minFinger.set(insertionNode, locateLow, locateHigh, 0);
+	   }
+	   else minFinger.inserted(k);
+	   finger.set(insertionNode, locateLow, locateHigh, -1); //the gap it was put in, between its neighbours
+   }
+
+   /**
+    * updates the fingers for the deletion of deletionNode (found by locate), before it is deleted:
+    * the finger moves to its successor, or its predecessor if it is the maximum.
+    * the window of the successor reaches back over the gap left by the deleted key.
+    */
+   private void fingerBeforeDelete(WAVLNode deletionNode) {
+	   long low = locateLow;
+	   long high = locateHigh;
+	   if (size() == 1) { //last item
+		   finger.node = null;
+		   minFinger.node = null;
+		   maxFinger.node = null;
+		   return;
+	   }
+	   WAVLNode next;
+	   if (deletionNode.getRight() != null) next = minNode(deletionNode.right);
+	   else next = high == Long.MAX_VALUE ? null : successor(deletionNode); //the window ends at +infinity only if there is no successor
+	   WAVLNode previous = null;
+	   if (deletionNode.getLeft() != null) previous = maxNode(deletionNode.left);
+	   else if (low != Long.MIN_VALUE) previous = predecessor(deletionNode);
+	   long previousKey = previous != null ? previous.key : Long.MIN_VALUE;
+
+	   if (maxFinger.node == deletionNode) maxFinger.set(previous, (long) previous.key - 1, Long.MAX_VALUE, size() - 2);
+	   else maxFinger.deleted(deletionNode);
+	   if (minFinger.node == deletionNode) minFinger.set(next, Long.MIN_VALUE, (long) next.key + 1, 0);
+	   else minFinger.deleted(deletionNode);
+
+	   if (next != null) finger.set(next, previousKey, (long) next.key + 1, -1);
+	   else finger.set(previous, previousKey - 1, Long.MAX_VALUE, -1);
+   }
+
+   /**
+    * selectNode from a finger: climbs from the finger with the closest index (min and max always know theirs,
+    * the last finger if select set it) until the subtree of x holds index i, using subtree sizes to know which
+    * indices it holds, then goes down as selectNode does. the selected node becomes the finger.
+    */
+   private WAVLNode fingerSelect(int i) {
+	   WAVLNode x = root;
+	   int start = 0; //number of keys before the subtree of x
+	   boolean lowKnown = true;
+	   boolean highKnown = true;
+	   long low = Long.MIN_VALUE; //bounds of the keys of x's subtree, if known
+	   long high = Long.MAX_VALUE;
+	   Finger from = null; //min and max are both set or both not
+	   if (maxFinger.node != null) from = maxFinger.index - i < i ? maxFinger : minFinger;
+	   if (finger.node != null && finger.index >= 0 && (from == null || Math.abs(i - finger.index) < Math.abs(i - from.index))) {
+		   from = finger;
+	   }
+	   if (from != null) {
+		   x = from.node;
+		   start = from.index - x.left.size;
+		   while (i < start || i >= start + x.size) {
+			   if (x == x.parent.right) start -= x.parent.left.size + 1;
+			   x = x.parent;
+		   }
+		   if (x.parent != null) { //one bound from the parent, the other (if on the finger's side) from the finger
+			   lowKnown = x == x.parent.right || i > from.index;
+			   highKnown = x == x.parent.left || i < from.index;
+			   if (x == x.parent.right) low = x.parent.key;
+			   else if (i > from.index) low = from.node.key;
+			   if (x == x.parent.left) high = x.parent.key;
+			   else if (i < from.index) high = from.node.key;
+		   }
+	   }
+	   while (true) {
+		   int r = x.left.size;
+		   if (i == start + r) break;
+		   if (i < start + r) {
+			   high = x.key;
+			   highKnown = true;
+			   x = x.left;
+		   }
+		   else {
+			   low = x.key;
+			   lowKnown = true;
+			   start += r + 1;
+			   x = x.right;
+		   }
+	   }
+	   if (!lowKnown || x.getLeft() != null) low = (long) x.key - 1;
+	   if (!highKnown || x.getRight() != null) high = (long) x.key + 1;
+	   finger.set(x, low, high, i);
+	   return x;
+   }
+
   /**
    * public int insert(int k, String i)
    *
@@ -108,23 +766,46 @@ public class WAVLTree {
    * algorithm first inserts like unbalanced binary tree, then  rebalances like algorithm shown in class. 
    */
    public int insert(int k, String i) {
+	   if (INSTRUMENTED && metrics != null) {
+		   Object event = metrics.begin();
+		   descent = 0;
+		   int result = insertItem(k, i);
+		   metrics.inserted(event, k, result, descent, size());
+		   if (metrics.shapeDue(size())) sampleShape();
+		   return result;
+	   }
+	   return insertItem(k, i);
+   }
+
+   private int insertItem(int k, String i) {
 	   
-	   if(empty()) {
+	   if(root == null) {
 		   initializeRoot(k, i); //base case
+		   if (fingerMode) { //the only node- all fingers on it
+			   finger.set(root, Long.MIN_VALUE, Long.MAX_VALUE, 0);
+			   minFinger.set(root, Long.MIN_VALUE, Long.MAX_VALUE, 0);
+			   maxFinger.set(root, Long.MIN_VALUE, Long.MAX_VALUE, 0);
+		   }
 		   return 0;
 	   }
 	   	   
-	   //insertion
-	   if (search(k)!=null) { 
+	   //insertion- one descent both finds the insertion point and checks the key is not in the tree
+	   WAVLNode parentNode=position(k);
+	   if (parentNode.key==k) { 
+		   if (parentNode.value == TOMBSTONE) { //lazily deleted- the node comes back to life in place
+			   revive(parentNode, i);
+			   return 0;
+		   }
 		   return ERROR_INDICTATOR; //for error: key in tree
 	   }
 	   // by this point we know for sure that the key does not exist in the tree 
-	   WAVLNode insertionNode=new WAVLNode(k,i);
+	   WAVLNode insertionNode=takeNode(k,i);
 	   insertionNode.rank=0;
 	   insertionNode.size=1;
 	   insertionNode.left=EXT;
 	   insertionNode.right=EXT; //Initialize all of new node's fields
-	   WAVLNode parentNode=treePosition(k, root,true);
+	   if (minItem == null || k < minItem.key) minItem = insertionNode; //no search needed- compare with the extremes
+	   if (maxItem == null || k > maxItem.key) maxItem = insertionNode;
 	   if(parentNode.key>insertionNode.key) {
 		   parentNode.left=insertionNode;
 		   insertionNode.parent=parentNode;
@@ -133,19 +814,31 @@ public class WAVLTree {
 		   parentNode.right=insertionNode;
 		   insertionNode.parent=parentNode;
 	   }
+	   if (fingerMode) {
+		   fingerAfterInsert(insertionNode);
+	   }
+	   if (aggregated()) {
+		   refreshUp(parentNode); //before rebalancing- rotations recompute their nodes from children already right
+	   }
 	   
 	   //rebalance
+	   //sizes of all of insertionNode's ancestors grow by 1, they are increased while climbing up with the rebalancing
+	   //(resizeNode is the lowest ancestor not yet increased) and the rest of the path is fixed after the loop
 	   
 	   int rebalances=0;
 	   
 	   WAVLNode temp=insertionNode;
+	   WAVLNode resizeNode=parentNode;
 	   int caseNum=whichCase(temp);
 	   
 	   while (caseNum!=0) { //tree isn't fixed
+		   if (INSTRUMENTED && metrics != null) metrics.insertCase(caseNum);
 		   switch (caseNum) {
 		case 1:
 			temp.parent.rank++;  //promote x
 			temp=temp.parent; 
+			temp.size++; //temp is resizeNode
+			resizeNode=temp.parent;
 			rebalances++; //one promote
 			if (temp==root) { //root need not push problem upwards- fixed
 				caseNum=0; 
@@ -162,6 +855,7 @@ public class WAVLTree {
 				leftRotate(temp.parent);
 				temp.left.rank--; //demote z
 			}
+			resizeNode=temp.parent; //rotation recomputed sizes of z and temp from their children
 			rebalances+=2; //1 rotate, 1 demote
 			caseNum=0; 
 			break; 
@@ -180,12 +874,15 @@ public class WAVLTree {
 				temp.parent.left.rank--; //demote z
 				temp.parent.rank++; //promote b
 			}
+			resizeNode=temp.parent.parent; //rotations recomputed sizes of z, temp and b (now on top)
 			rebalances+=5; //2 rotates, 3 demotes/promotes
 			caseNum=0; 
 			break; 
 		} //switch ends  
 	   }
 	   
+	   increaseSizesUp(resizeNode); //rest of the path above the rebalanced part
+	   
 	   return rebalances;
 	   
    }
@@ -194,50 +891,644 @@ public class WAVLTree {
     * initilizes an empty tree by inserting first node to the root of the tree, init size,rank
     */
    private void initializeRoot(int k, String i) {
-	   root=new WAVLNode(k,i);
+	   root=takeNode(k,i);
 	   root.size=1;
 	   root.rank=0;
 	   root.left=EXT;
 	   root.right=EXT;
+	   minItem=root;
+	   maxItem=root;
 }
 
    /**
-    * a methods which determines the current needed rebalancing action needed 
-    * in relation to the position of node checked up the tree.
-    * method uses process of elimintion to determine case under the assumption that there are no other
-    * cases (told but not proven in class). 
-    * @return 0 if tree is balanced, 1,2,3 according to cases shown in lecture (including symmetric cases).
+    * public static WAVLTree fromSorted(int[] keys, String[] values)
+    *
+    * builds a tree from keys sorted in strictly increasing order and their values (values[j] is the info of keys[j])
+    * in O(n), without any rebalancing: the tree is built perfectly balanced (middle key at the root) so a node's rank
+    * is its height, which keeps all rank differences 1 or 2.
+    * large inputs are split into subtrees built in parallel on the common ForkJoinPool.
+    * throws IllegalArgumentException if keys are not strictly increasing or the arrays differ in length.
     */
-   private int whichCase(WAVLNode currentNode) { //0=fine, 1,2,3=case according to lecture
-	   int diff1 = currentNode.parent.getRank() - currentNode.getRank(); //z
-	   if(diff1!=0) return 0;
-	   int diff2 = currentNode.parent.getRank() - currentNode.getSibling().getRank(); //z-y
-	   if (diff2==1) return 1;
-	   int diff3=currentNode.getRank()-currentNode.left.getRank();
-	   if(currentNode.parent.left==currentNode && diff3==1) return 2;
-	   if(currentNode.parent.right==currentNode && diff3==2) return 2;
-	   return 3;
+   public static WAVLTree fromSorted(int[] keys, String[] values) {
+	   if (keys.length != values.length) {
+		   throw new IllegalArgumentException("keys and values differ in length: " + keys.length + " != " + values.length);
+	   }
+	   for (int j = 1; j < keys.length; j++) {
+		   if (keys[j - 1] >= keys[j]) {
+			   throw new IllegalArgumentException("keys are not strictly increasing at index " + j);
+		   }
+	   }
+	   WAVLTree tree = new WAVLTree();
+	   tree.root = tree.buildTree(keys, values);
+	   tree.resetExtremes();
+	   return tree;
    }
 
    /**
-   * public int delete(int k)
-   *
-   * deletes an item with key k from the binary tree, if it is there;
-   * the tree must remain valid (keep its invariants).
-   * returns the number of rebalancing operations, or 0 if no rebalancing operations were needed.
-   * returns -1 if an item with key k was not found in the tree.
-   * algorithm first deletes like unbalanced binary tree, then rebalances like algorithm shown in class. 
-   */
-      public int delete(int k) { 
-    	  
-	   // base case: tree is empty or an item with key k was not found in the tree
-	   if (empty() || search(k) == null) { 
-		   return ERROR_INDICTATOR; 
+    * public static WAVLTree fromUnsorted(int[] keys, String[] values)
+    *
+    * same as fromSorted, but sorts the input first (the arrays themselves are not modified).
+    * if a key appears more than once only its first item is kept, like repeated inserts would.
+    * throws IllegalArgumentException if the arrays differ in length.
+    */
+   public static WAVLTree fromUnsorted(int[] keys, String[] values) {
+	   if (keys.length != values.length) {
+		   throw new IllegalArgumentException("keys and values differ in length: " + keys.length + " != " + values.length);
 	   }
-	   
-	   //deletion
-	   WAVLNode deletionNode = treePosition(k, root, false); //we will update sizes later
-	   
+	   int[] sortedKeys = new int[keys.length];
+	   String[] sortedValues = new String[keys.length];
+	   int n = sortItems(keys, values, sortedKeys, sortedValues);
+	   WAVLTree tree = new WAVLTree();
+	   tree.root = tree.buildTree(Arrays.copyOf(sortedKeys, n), Arrays.copyOf(sortedValues, n));
+	   tree.resetExtremes();
+	   return tree;
+   }
+
+   private static final int BUILD_SEQUENTIAL_THRESHOLD = 1 << 16; //smaller ranges are built by a single thread
+
+   /**
+    * sorts the items by key into sortedKeys/sortedValues (values may be null- keys only) and returns their number.
+    * if a key appears more than once only its first item is kept.
+    */
+   private static int sortItems(int[] keys, String[] values, int[] sortedKeys, String[] sortedValues) {
+	   //sort (key,index) pairs packed in a long- key in the high bits keeps the order, index breaks ties by position
+	   long[] pairs = new long[keys.length];
+	   for (int j = 0; j < keys.length; j++) {
+		   pairs[j] = ((long) keys[j] << 32) | j;
+	   }
+	   if (pairs.length > BUILD_SEQUENTIAL_THRESHOLD) Arrays.parallelSort(pairs);
+	   else Arrays.sort(pairs);
+
+	   int n = 0;
+	   for (int j = 0; j < pairs.length; j++) {
+		   int key = (int) (pairs[j] >> 32);
+		   if (n > 0 && sortedKeys[n - 1] == key) continue; //duplicate key- first one wins
+		   sortedKeys[n] = key;
+		   if (values != null) sortedValues[n] = values[(int) pairs[j]];
+		   n++;
+	   }
+	   return n;
+   }
+
+   /**
+    * builds a balanced tree from sorted keys and returns its root (null if there are no keys)
+    */
+   private WAVLNode buildTree(int[] keys, String[] values) {
+	   if (keys.length == 0) return null;
+	   WAVLNode builtRoot;
+	   if (keys.length > BUILD_SEQUENTIAL_THRESHOLD) {
+		   builtRoot = ForkJoinPool.commonPool().invoke(new BuildTask(keys, values, 0, keys.length));
+	   }
+	   else {
+		   builtRoot = buildRange(keys, values, 0, keys.length);
+	   }
+	   builtRoot.parent = null;
+	   return builtRoot;
+   }
+
+   /**
+    * builds the subtree of keys[from..to) (middle key as root) and returns its root, or EXT for an empty range
+    */
+   private WAVLNode buildRange(int[] keys, String[] values, int from, int to) {
+	   if (from == to) return EXT;
+	   int mid = (from + to) >>> 1;
+	   return buildNode(keys[mid], values[mid], buildRange(keys, values, from, mid), buildRange(keys, values, mid + 1, to));
+   }
+
+   /**
+    * creates the node with the given subtrees, its size, aggregate and rank (height) are computed from theirs
+    */
+   private WAVLNode buildNode(int k, String i, WAVLNode leftNode, WAVLNode rightNode) {
+	   WAVLNode node = newNode(k, i);
+	   node.left = leftNode;
+	   node.right = rightNode;
+	   if (leftNode != EXT) leftNode.parent = node;
+	   if (rightNode != EXT) rightNode.parent = node;
+	   node.size = leftNode.size + rightNode.size + 1;
+	   node.refresh();
+	   node.rank = Math.max(leftNode.getRank(), rightNode.getRank()) + 1;
+	   return node;
+   }
+
+   /**
+    * builds the two halves of a large range in parallel (same split as buildRange)
+    */
+   private class BuildTask extends RecursiveTask<WAVLNode> {
+	   private static final long serialVersionUID = 1L;
+	   private final int[] keys;
+	   private final String[] values;
+	   private final int from;
+	   private final int to;
+
+	   BuildTask(int[] keys, String[] values, int from, int to) {
+		   this.keys = keys;
+		   this.values = values;
+		   this.from = from;
+		   this.to = to;
+	   }
+
+	   @Override
+	   protected WAVLNode compute() {
+		   if (to - from <= BUILD_SEQUENTIAL_THRESHOLD) {
+			   return buildRange(keys, values, from, to);
+		   }
+		   int mid = (from + to) >>> 1;
+		   BuildTask leftTask = new BuildTask(keys, values, from, mid);
+		   leftTask.fork();
+		   WAVLNode rightNode = new BuildTask(keys, values, mid + 1, to).compute();
+		   return buildNode(keys[mid], values[mid], leftTask.join(), rightNode);
+	   }
+   }
+
+   /**
+    * public static WAVLTree join(WAVLTree left, int k, String v, WAVLTree right)
+    *
+    * returns a tree with all items of left, the item (k,v) and all items of right, in O(|rank(left)-rank(right)|+1).
+    * all keys in left must be smaller than k and all keys in right larger than k, otherwise IllegalArgumentException is thrown.
+    * the returned tree has the aggregate of the non empty trees, which must all have the same one (IllegalArgumentException).
+    * the nodes of left and right are moved into the returned tree, both are left empty.
+    * algorithm: the lower tree and k are hung as a new node on the spine of the higher tree, where the ranks meet,
+    * and the tree is then rebalanced upwards like an insertion.
+    */
+   public static WAVLTree join(WAVLTree left, int k, String v, WAVLTree right) {
+	   left.compact(); //joins count every node as live
+	   right.compact();
+	   if (!left.empty() && left.maxNode(left.root).key >= k) {
+		   throw new IllegalArgumentException("keys of left tree must be smaller than " + k);
+	   }
+	   if (!right.empty() && right.minNode(right.root).key <= k) {
+		   throw new IllegalArgumentException("keys of right tree must be larger than " + k);
+	   }
+	   if (!left.empty() && !right.empty() && !left.sameAggregate(right)) {
+		   throw new IllegalArgumentException("left and right tree have different aggregates");
+	   }
+	   WAVLTree tree = (left.empty() ? right : left).emptyLike();
+	   tree.root = tree.joinNodes(left.empty() ? EXT : left.root, tree.newNode(k, v), right.empty() ? EXT : right.root);
+	   tree.resetExtremes();
+	   left.root = null;
+	   right.root = null;
+	   left.resetExtremes();
+	   right.resetExtremes();
+	   left.resetFingers();
+	   right.resetFingers();
+	   return tree;
+   }
+
+   /**
+    * public WAVLTree[] split(int k)
+    *
+    * splits the tree by k in O(log n): returns {tree with all keys smaller than k, tree with all keys larger than k}.
+    * the item with key k (if there is one) is in neither.
+    * the nodes are moved into the returned trees, this tree is left empty.
+    * algorithm: walking down the search path of k, the subtrees hanging off the path are joined back together
+    * on both sides (rank join costs telescope to O(log n) in total).
+    */
+   public WAVLTree[] split(int k) {
+	   compact();
+	   WAVLNode[] parts = splitNode(root == null ? EXT : root, k);
+	   root = null;
+	   resetExtremes();
+	   resetFingers();
+	   WAVLTree smaller = emptyLike();
+	   WAVLTree larger = emptyLike();
+	   smaller.root = parts[0] == EXT ? null : parts[0];
+	   larger.root = parts[1] == EXT ? null : parts[1];
+	   smaller.resetExtremes();
+	   larger.resetExtremes();
+	   return new WAVLTree[] {smaller, larger};
+   }
+
+   /**
+    * splits the subtree of node (detached, EXT if empty) by k and returns {smaller, larger} roots (EXT if empty).
+    * recursion depth is the height of the tree.
+    */
+   private WAVLNode[] splitNode(WAVLNode node, int k) {
+	   if (node == EXT) {
+		   return new WAVLNode[] {EXT, EXT};
+	   }
+	   WAVLNode leftNode = node.left;
+	   WAVLNode rightNode = node.right;
+	   if (leftNode != EXT) leftNode.parent = null; //detach both subtrees
+	   if (rightNode != EXT) rightNode.parent = null;
+	   if (k == node.key) {
+		   return new WAVLNode[] {leftNode, rightNode};
+	   }
+	   WAVLNode[] parts;
+	   if (k < node.key) {
+		   parts = splitNode(leftNode, k);
+		   parts[1] = joinNodes(parts[1], node, rightNode); //node and its right subtree are all larger than k
+	   }
+	   else {
+		   parts = splitNode(rightNode, k);
+		   parts[0] = joinNodes(leftNode, node, parts[0]); //node and its left subtree are all smaller than k
+	   }
+	   return parts;
+   }
+
+   /**
+    * joins the detached subtrees t1 < x < t2 (EXT if empty) using x as the middle node, returns the root of the result.
+    * uses this.root as the working tree (rotations fix it), so it must not be called on a tree in use.
+    */
+   private WAVLNode joinNodes(WAVLNode t1, WAVLNode x, WAVLNode t2) {
+	   int r1 = t1.getRank();
+	   int r2 = t2.getRank();
+	   if (Math.abs(r1 - r2) <= 1) { //ranks close- x is a valid root on top of both
+		   linkJoinNode(x, t1, t2, Math.max(r1, r2) + 1);
+		   x.parent = null;
+		   return x;
+	   }
+	   WAVLNode c, p;
+	   if (r1 > r2) { //go down the right spine of t1 to the first node with rank at most r2 (its rank is r2 or r2-1)
+		   p = t1; //t1 is higher than r2, so c is below it
+		   c = t1.right;
+		   while (c.getRank() > r2) {
+			   p = c;
+			   c = c.right;
+		   }
+		   linkJoinNode(x, c, t2, r2 + 1);
+		   p.right = x;
+		   root = t1;
+	   }
+	   else { //symmetric- left spine of t2
+		   p = t2;
+		   c = t2.left;
+		   while (c.getRank() > r1) {
+			   p = c;
+			   c = c.left;
+		   }
+		   linkJoinNode(x, t1, c, r1 + 1);
+		   p.left = x;
+		   root = t2;
+	   }
+	   x.parent = p;
+	   int added = x.size - c.size; //x replaced c- every node on the spine above grew by the lower tree + x
+	   for (WAVLNode node = p; node != null; node = node.parent) {
+		   node.size += added;
+		   node.refresh();
+	   }
+	   joinRebalance(x);
+	   return root;
+   }
+
+   /**
+    * makes x the parent of l and r with the given rank (x's size and aggregate from theirs)
+    */
+   private void linkJoinNode(WAVLNode x, WAVLNode l, WAVLNode r, int rank) {
+	   x.left = l;
+	   x.right = r;
+	   if (l != EXT) l.parent = x;
+	   if (r != EXT) r.parent = x;
+	   x.size = l.size + r.size + 1;
+	   x.refresh();
+	   x.rank = rank;
+   }
+
+   /**
+    * rebalances after joinNodes hung x on the spine, x may be a 0-child.
+    * same cases as insert (promote / rotate / double rotate), plus the case where x is a 1,1 node whose
+    * sibling is a 2-child: rotating x up and promoting it leaves its old parent valid, and x may be a 0-child again.
+    */
+   private void joinRebalance(WAVLNode x) {
+	   while (x.parent != null && x.parent.rank == x.rank) { //x is a 0-child
+		   WAVLNode z = x.parent;
+		   if (z.rank - x.getSibling().getRank() == 1) { //promote z and go up
+			   z.rank++;
+			   joinRebalances++;
+			   x = z;
+			   continue;
+		   }
+		   boolean xLeft = z.left == x;
+		   WAVLNode inner = xLeft ? x.right : x.left; //x's child on the side of z
+		   WAVLNode outer = xLeft ? x.left : x.right;
+		   if (x.rank - inner.getRank() == 2) { //single rotate (insert case 2)
+			   if (xLeft) rightRotate(z);
+			   else leftRotate(z);
+			   z.rank--; //demote z
+			   joinRebalances += 2; //rotate, demote
+			   return;
+		   }
+		   if (x.rank - outer.getRank() == 2) { //double rotate (insert case 3)
+			   if (xLeft) {
+				   leftRotate(x);
+				   rightRotate(z);
+			   }
+			   else {
+				   rightRotate(x);
+				   leftRotate(z);
+			   }
+			   x.rank--; //demote x
+			   z.rank--; //demote z
+			   inner.rank++; //promote b
+			   joinRebalances += 5; //2 rotates, 3 demotes/promotes (as insert)
+			   return;
+		   }
+		   //x is 1,1- rotate it up and promote it, z keeps its rank
+		   if (xLeft) rightRotate(z);
+		   else leftRotate(z);
+		   x.rank++;
+		   joinRebalances += 2; //rotate, promote
+	   }
+   }
+
+   /**
+    * public int[] insertAll(int[] keys, String[] values)
+    *
+    * inserts the items (keys[j], values[j]) like calling insert for each of them, but in one pass over the tree.
+    * keys already in the tree are skipped; if a key repeats in the batch only its first item is inserted.
+    * returns {number of items inserted, number of rebalancing operations}.
+    * algorithm: the batch is sorted and routed down the tree together- at each node it is split by the node's key,
+    * each part is merged into its subtree and the results are joined back under the node (rank join).
+    * where only a few keys go to a large subtree they are inserted one by one instead, and a batch reaching an
+    * empty subtree is built there as a balanced subtree. large batches fan out over disjoint subtrees in parallel.
+    * rebalancing operations are counted like insert (joins count their promotes/rotates/demotes the same way).
+    * throws IllegalArgumentException if the arrays differ in length.
+    * with an aggregate, of is called on every item of the batch first (keys already in the tree included), and if it
+    * throws the exception is passed on with the tree unchanged.
+    */
+   public int[] insertAll(int[] keys, String[] values) {
+	   if (keys.length != values.length) {
+		   throw new IllegalArgumentException("keys and values differ in length: " + keys.length + " != " + values.length);
+	   }
+	   int[] sortedKeys = new int[keys.length];
+	   String[] sortedValues = new String[keys.length];
+	   int n = sortItems(keys, values, sortedKeys, sortedValues);
+	   checkAggregate(sortedKeys, sortedValues, n);
+	   compact();
+	   return mergeBatch(sortedKeys, sortedValues, n, true, false);
+   }
+
+   /**
+    * calls the aggregate's of on the items keys[0..n) (nothing without an aggregate), so an item it throws on
+    * stops the batch before mergeBatch takes the tree apart- a merge cut short could not put the tree back.
+    */
+   private void checkAggregate(int[] keys, String[] values, int n) {
+	   for (int j = 0; j < n; j++) {
+		   if (longAggregate != null) longAggregate.of(keys[j], values[j]);
+		   else if (doubleAggregate != null) doubleAggregate.of(keys[j], values[j]);
+		   else if (objectAggregate != null) objectAggregate.of(keys[j], values[j]);
+		   else return;
+	   }
+   }
+
+   /**
+    * public int[] deleteAll(int[] keys)
+    *
+    * deletes the items with the given keys like calling delete for each of them, but in one pass over the tree.
+    * keys not in the tree (and repeats) are skipped.
+    * returns {number of items deleted, number of rebalancing operations}, counted as in insertAll.
+    * algorithm: as insertAll- a node whose key is in the batch is dropped and its two merged subtrees are joined
+    * without it (the minimum of the right one is split off and used as the middle node).
+    */
+   public int[] deleteAll(int[] keys) {
+	   int[] sortedKeys = new int[keys.length];
+	   int n = sortItems(keys, null, sortedKeys, null);
+	   compact();
+	   return mergeBatch(sortedKeys, null, n, false, false);
+   }
+
+   private static final int BATCH_ROUTE_RATIO = 32; //a subtree this many times larger than its part of the batch gets the keys one by one
+   private static final int BATCH_PARALLEL_THRESHOLD = 1 << 12; //smaller parts of a batch are merged by a single thread
+
+   /**
+    * merges the sorted batch keys[0..n) into the tree (inserts if insert, otherwise deletes), returns {items changed, rebalances}.
+    * compacting removes only the nodes of the batch that are tombstones.
+    */
+   private int[] mergeBatch(int[] keys, String[] values, int n, boolean insert, boolean compacting) {
+	   int oldSize = size();
+	   BatchTask task = new BatchTask(root == null ? EXT : root, keys, values, 0, n, insert, compacting);
+	   root = null;
+	   WAVLNode merged = n > BATCH_PARALLEL_THRESHOLD ? ForkJoinPool.commonPool().invoke(task) : task.compute();
+	   if (merged != EXT) {
+		   merged.parent = null;
+		   root = merged;
+	   }
+	   resetExtremes();
+	   resetFingers();
+	   return new int[] {Math.abs(size() - oldSize), task.rebalances};
+   }
+
+   /**
+    * merges keys[from..to) of a sorted batch into the detached subtree of node and returns the new subtree root (EXT if empty).
+    * each task uses its own working tree for the joins and the one by one inserts/deletes, so tasks on disjoint
+    * subtrees never touch the same nodes.
+    */
+   private class BatchTask extends RecursiveTask<WAVLNode> {
+	   private static final long serialVersionUID = 1L;
+	   private final WAVLNode node;
+	   private final int[] keys;
+	   private final String[] values;
+	   private final int from;
+	   private final int to;
+	   private final boolean insert;
+	   private final boolean compacting; //removing tombstones- sizes count live items only, so no one by one deletes
+	   private int rebalances; //of this task and the tasks it forked, read after join
+
+	   BatchTask(WAVLNode node, int[] keys, String[] values, int from, int to, boolean insert, boolean compacting) {
+		   this.node = node;
+		   this.keys = keys;
+		   this.values = values;
+		   this.from = from;
+		   this.to = to;
+		   this.insert = insert;
+		   this.compacting = compacting;
+	   }
+
+	   @Override
+	   protected WAVLNode compute() {
+		   WAVLTree work = emptyLike();
+		   WAVLNode merged = merge(work, node, from, to);
+		   rebalances += work.joinRebalances;
+		   return merged;
+	   }
+
+	   private WAVLNode merge(WAVLTree work, WAVLNode node, int from, int to) {
+		   if (from == to) {
+			   return node;
+		   }
+		   if (node == EXT) { //nothing here to merge with
+			   return insert ? work.buildRange(keys, values, from, to) : EXT;
+		   }
+		   if (!compacting && (long) (to - from) * BATCH_ROUTE_RATIO <= node.size) { //few keys for a large subtree- one by one
+			   return mergeOneByOne(work, node, from, to);
+		   }
+		   int mid = lowerBound(keys, from, to, node.key); //first batch key not smaller than node's key
+		   boolean found = mid < to && keys[mid] == node.key;
+		   WAVLNode leftNode = node.left;
+		   WAVLNode rightNode = node.right;
+		   if (leftNode != EXT) leftNode.parent = null; //detach both subtrees
+		   if (rightNode != EXT) rightNode.parent = null;
+		   int rightFrom = found ? mid + 1 : mid;
+		   WAVLNode newLeft;
+		   WAVLNode newRight;
+		   if (to - from > BATCH_PARALLEL_THRESHOLD) {
+			   BatchTask leftTask = new BatchTask(leftNode, keys, values, from, mid, insert, compacting);
+			   leftTask.fork();
+			   newRight = merge(work, rightNode, rightFrom, to);
+			   newLeft = leftTask.join();
+			   rebalances += leftTask.rebalances;
+		   }
+		   else {
+			   newLeft = merge(work, leftNode, from, mid);
+			   newRight = merge(work, rightNode, rightFrom, to);
+		   }
+		   if (found && !insert && (!compacting || node.value == TOMBSTONE)) {
+			   return concatNodes(work, newLeft, newRight);
+		   }
+		   return work.joinNodes(newLeft, node, newRight); //a key of the batch equal to node's is already in the tree- skipped
+	   }
+
+	   //inserts/deletes keys[from..to) one by one into the subtree of node, using it as the working tree
+	   private WAVLNode mergeOneByOne(WAVLTree work, WAVLNode node, int from, int to) {
+		   work.root = node;
+		   for (int j = from; j < to; j++) {
+			   int count = insert ? work.insert(keys[j], values[j]) : work.delete(keys[j]);
+			   if (count != ERROR_INDICTATOR) rebalances += count;
+		   }
+		   WAVLNode merged = work.root == null ? EXT : work.root;
+		   work.root = null;
+		   return merged;
+	   }
+   }
+
+   /**
+    * joins the detached subtrees t1 < t2 (EXT if empty) without a middle item, using the working tree work
+    */
+   private static WAVLNode concatNodes(WAVLTree work, WAVLNode t1, WAVLNode t2) {
+	   if (t1 == EXT) return t2;
+	   if (t2 == EXT) return t1;
+	   WAVLNode x = work.minNode(t2);
+	   WAVLNode rest = work.splitNode(t2, x.key)[1]; //t2 without x
+	   return work.joinNodes(t1, x, rest);
+   }
+
+   /**
+    * returns the first index in keys[from..to) whose key is at least k (to if there is none)
+    */
+   private static int lowerBound(int[] keys, int from, int to, int k) {
+	   while (from < to) {
+		   int mid = (from + to) >>> 1;
+		   if (keys[mid] < k) from = mid + 1;
+		   else to = mid;
+	   }
+	   return from;
+   }
+
+   /**
+    * a methods which determines the current needed rebalancing action needed 
+    * in relation to the position of node checked up the tree.
+    * reads the rank differences around the node, WAVLCases.insertCase decides the case
+    * (parentDiff != 0 returns early- it is the common case, and the sibling need not be looked at).
+    * @return 0 if tree is balanced, 1,2,3 according to cases shown in lecture (including symmetric cases).
+    */
+   private int whichCase(WAVLNode currentNode) { //0=fine, 1,2,3=case according to lecture
+	   int diff1 = currentNode.parent.getRank() - currentNode.getRank(); //z
+	   if(diff1!=0) return 0;
+	   int diff2 = currentNode.parent.getRank() - currentNode.getSibling().getRank(); //z-y
+	   int diff3=currentNode.getRank()-currentNode.left.getRank();
+	   return WAVLCases.insertCase(diff1, diff2, diff3, currentNode.parent.left==currentNode);
+   }
+
+   /**
+    * lazy delete: marks node as a tombstone (its item is gone, the node stays in place) and takes it out of
+    * the sizes (and aggregates) on its path. no rebalancing. returns 0, or -1 if node is a tombstone already.
+    * compacts once tombstones are more than the live items.
+    */
+   private int markDeleted(WAVLNode node) {
+	   if (node.value == TOMBSTONE) {
+		   return ERROR_INDICTATOR;
+	   }
+	   node.value = TOMBSTONE;
+	   if (node == minItem) minItem = liveForward(successor(node));
+	   if (node == maxItem) maxItem = liveBackward(predecessor(node));
+	   decreaseSizesUp(node); //size counts live items, the node's own included
+	   if (aggregated()) {
+		   node.reset();
+		   refreshUp(node);
+	   }
+	   tombstones++;
+	   if (tombstoneKeyCount == tombstoneKeys.length) {
+		   tombstoneKeys = Arrays.copyOf(tombstoneKeys, Math.max(16, 2 * tombstoneKeyCount));
+	   }
+	   tombstoneKeys[tombstoneKeyCount++] = node.key;
+	   if (tombstones > size() || tombstoneKeyCount > size() + tombstones) { //second bound: keys revived and deleted over and over
+		   compact();
+	   }
+	   return 0;
+   }
+
+   /**
+    * gives a tombstone the item (its key, value i) back
+    */
+   private void revive(WAVLNode node, String i) {
+	   node.restore(i); //first- if the aggregate's of throws, nothing has changed
+	   if (minItem == null || node.key < minItem.key) minItem = node;
+	   if (maxItem == null || node.key > maxItem.key) maxItem = node;
+	   increaseSizesUp(node);
+	   if (aggregated()) {
+		   refreshUp(node);
+	   }
+	   tombstones--;
+   }
+
+   /**
+   * public int delete(int k)
+   *
+   * deletes an item with key k from the binary tree, if it is there;
+   * the tree must remain valid (keep its invariants).
+   * returns the number of rebalancing operations, or 0 if no rebalancing operations were needed.
+   * returns -1 if an item with key k was not found in the tree.
+   * algorithm first deletes like unbalanced binary tree, then rebalances like algorithm shown in class. 
+   */
+      public int delete(int k) { 
+    	  if (INSTRUMENTED && metrics != null) {
+    		  Object event = metrics.begin();
+    		  descent = 0;
+    		  int result = deleteItem(k);
+    		  metrics.deleted(event, k, result, descent, size());
+    		  if (metrics.shapeDue(size())) sampleShape();
+    		  return result;
+    	  }
+    	  return deleteItem(k);
+      }
+
+      private int deleteItem(int k) { 
+    	  
+	   //deletion- one descent finds the node to delete (or finds out it is not in the tree)
+	   WAVLNode deletionNode = position(k); //we will update sizes later, on the way up
+	   
+	   // base case: tree is empty or an item with key k was not found in the tree
+	   if (deletionNode == null || deletionNode.key != k) { 
+		   return ERROR_INDICTATOR; 
+	   }
+	   return deleteNode(deletionNode);
+      }
+
+      /**
+       * deletes the item of deletionNode (found by a descent, or an extreme for pollMin/pollMax), rebalances
+       * and returns the number of rebalancing operations, as delete
+       */
+      private int deleteNode(WAVLNode deletionNode) {
+	   if (lazyDelete) {
+		   return markDeleted(deletionNode);
+	   }
+	   int result = removeNode(deletionNode);
+	   if (poolCapacity > 0) {
+		   recycle(deletionNode); //deleteLeaf/deleteUnary/deleteBinary left it as a 1 node tree
+	   }
+	   return result;
+      }
+
+      /**
+       * cuts deletionNode out of the tree and rebalances, as delete (eager)
+       */
+      private int removeNode(WAVLNode deletionNode) {
+	   if (fingerMode) {
+		   fingerBeforeDelete(deletionNode);
+	   }
+	   //an extreme is a leaf or unary- the next one is its neighbour, found before the node is taken out
+	   if (deletionNode == minItem) minItem = successor(deletionNode);
+	   if (deletionNode == maxItem) maxItem = predecessor(deletionNode);
+	   
 	   WAVLNode rebalanceNode = deletionNode.parent; //save for later for rebalancing
 	   
 	   WAVLNode resizeNode=rebalanceNode; //we may mess with rebalanceNode later, save this for size fixing
@@ -283,7 +1574,12 @@ public class WAVLTree {
 		   }
 	   }
 	   
-		 decreaseSizesUp(resizeNode); //fix sizes up the tree- opposite of insert updates. note rebalanceNode is deletednode.parent
+	   if (aggregated()) {
+		   refreshUp(resizeNode); //the item is gone below resizeNode (and the successor moved up)- before rebalancing, as in insert
+	   }
+
+		 //sizes of resizeNode and its ancestors shrink by 1- opposite of insert updates. they are decreased while climbing up
+		 //with the rebalancing (resizeNode is the lowest ancestor not yet decreased) and the rest of the path is fixed once rebalancing stops
 		 
 	   
 	   //"pre rebalance" -special first cases in accordence with WAVL presentation slides 52,53
@@ -294,18 +1590,23 @@ public class WAVLTree {
 	   if (checkLeaf) { //we actually deleted a leaf- we check if special first rebalance applies
 		   int leafCases = leafDeletionCases(rebalanceNode); 
 		   if (leafCases == 1) { //case 1-tree balanced
+			   decreaseSizesUp(resizeNode);
 			   return 0; 
 		   }
 		   if (leafCases == 2) { //case 2- 2,2 node as leaf (demote)
 			   rebalanceNode.rank--; //demote z
+			   rebalanceNode.size--; //rebalanceNode is resizeNode
 			   rebalanceNode = rebalanceNode.parent; //go up
+			   resizeNode = rebalanceNode;
 			  preRebalances++; //1 demote
+			  if (INSTRUMENTED && metrics != null) metrics.deleteCase(WAVLTreeMetrics.LEAF_DEMOTE);
 		   }
 	   }
 	   
 	   if (checkUnary) {
 		   int unaryNumCases = unaryDeletionCases(rebalanceNode); 
 		   if (unaryNumCases == 1 || unaryNumCases == 2) { //  cases 1,2- tree balanced
+			   decreaseSizesUp(resizeNode);
 			   return 0; 
 		   }
 	}
@@ -315,16 +1616,19 @@ public class WAVLTree {
 		 //rebalance
 		 int rebalances = 0+preRebalances; //initial value 1/0- we may have already demoted a leaf
 		 
-		 if(rebalanceNode==null) return rebalances; //if problem already moved up after reaching root- then fixed
+		 if(rebalanceNode==null) return rebalances; //if problem already moved up after reaching root- then fixed (and no sizes left to fix)
 		 
 		 int caseNum = whichCaseDelete(rebalanceNode);
 		 
 		 while (caseNum != 0) { //tree isn't fixed
+			   if (INSTRUMENTED && metrics != null) metrics.deleteCase(caseNum);
 			   switch (caseNum) {
 			   
 			case 1: //demote
 				rebalanceNode.rank--; // demote z 
+				rebalanceNode.size--; //rebalanceNode is resizeNode
 				rebalanceNode = rebalanceNode.parent; 
+				resizeNode = rebalanceNode;
 				rebalances++; //one demote
 				if (rebalanceNode==null) { //root need not push problem upwards- fixed
 					caseNum = 0; 
@@ -343,7 +1647,9 @@ public class WAVLTree {
 					rebalanceNode.left.rank--; //demote y
 				}
 				rebalanceNode.rank--; //demote z
+				rebalanceNode.size--; //rebalanceNode is resizeNode
 				rebalanceNode = rebalanceNode.parent; 
+				resizeNode = rebalanceNode;
 				
 				rebalances+=2; //double demote
 				
@@ -366,12 +1672,14 @@ public class WAVLTree {
 				
 				rebalanceNode.parent.rank++; //promote y
 				rebalanceNode.rank--; //demote z
+				resizeNode = rebalanceNode.parent.parent; //rotation recomputed sizes of z and y (now on top)
 				
 				int diff3 = rebalanceNode.getRank() - rebalanceNode.right.getRank(); 
 				int diff4 = rebalanceNode.getRank() - rebalanceNode.left.getRank(); 
 				if (diff3 == 2 && diff4 == 2) { //if z=2,2 demote z again
 					rebalanceNode.rank--; 
 					rebalances++; 
+					if (INSTRUMENTED && metrics != null) metrics.deleteCase(WAVLTreeMetrics.ROTATE_DEMOTE);
 				}
 
 				rebalances+=3; //rotate, demote,promote (if extra demote: already counted)
@@ -394,6 +1702,7 @@ public class WAVLTree {
 				rebalanceNode.rank-=2; //demote z twice (as NOT properly mentioned in class)
 				rebalanceNode.parent.rank+=2; //promote a twice
 				rebalanceNode.getSibling().rank--; //demote y
+				resizeNode = rebalanceNode.parent.parent; //rotations recomputed sizes of z, y and a (now on top)
 				
 				rebalances+=7; //2 rotations, 3 demotions, 2 promotions
 				
@@ -403,6 +1712,8 @@ public class WAVLTree {
 			   
 		 } // end while loop 
 		 
+		 decreaseSizesUp(resizeNode); //rest of the path above the rebalanced part
+		 
 	   return rebalances; 
 	   
       }
@@ -488,9 +1799,9 @@ public class WAVLTree {
 	   
 	   //give successor all pointers,while fixing pointers in other direction too
 	   succsesor.right=rightNode;
-	   rightNode.parent=succsesor; //not EXT/null
+	   if(rightNode!=EXT) rightNode.parent=succsesor; //EXT when the successor was deletionNode's only right node
 	   succsesor.left=leftNode;
-	   leftNode.parent=succsesor; //not EXT/null
+	   if(leftNode!=EXT) leftNode.parent=succsesor; //EXT is shared- never give it a parent
 	   succsesor.parent=parentNode;
 	   if(parentNode!=null) { //avoid root pointer problems (no need to change roots parent...)
 	   if(deletionNode==parentNode.right) parentNode.right=succsesor;
@@ -519,6 +1830,16 @@ public class WAVLTree {
 
    }
    
+   /**
+    * Receives a node (which should be an inserted nodes parent) and increases sizes by 1 while going up to the root.
+    */
+   private void increaseSizesUp(WAVLNode node) {
+	while (node!=null) {
+		node.size++;
+		node=node.parent;
+	}
+   }
+   
    /**
     * Receives a node (which should be a deleted nodes parent) and decreases sizes by 1 while going up to the root (if we delete a node than its parent should have its size decreased by 1, and also its parent and so on).
     */
@@ -534,15 +1855,7 @@ public class WAVLTree {
     * (for reference see WAVL slide 52).
     */
    private int leafDeletionCases(WAVLNode node) {
-	   int diff1 = node.getRank() - node.right.getRank(); 
-	   int diff2 = node.getRank() - node.left.getRank(); 
-	   if ((diff1 == 1 && diff2 == 2) || (diff1 == 2 && diff2 == 1)) {
-		   return 1; 
-	   }
-	   if (diff1 == 2 && diff2 == 2) { 
-		   return 2; 
-	   }
-	   return 3; 
+	   return WAVLCases.firstDeleteCase(node.getRank() - node.right.getRank(), node.getRank() - node.left.getRank());
    }
    
    /**
@@ -550,15 +1863,7 @@ public class WAVLTree {
     * (for reference see WAVL slide 53).
     */
    private int unaryDeletionCases(WAVLNode node) {
-	   int diff1 = node.getRank() - node.right.getRank(); 
-	   int diff2 = node.getRank() - node.left.getRank(); 
-	   if ((diff1 == 1 && diff2 == 2) || (diff1 == 2 && diff2 == 1)) {
-		   return 1; 
-	   }
-	   if (diff1 == 2 && diff2 == 2) {
-		   return 2; 
-	   }
-	   return 3; 
+	   return WAVLCases.firstDeleteCase(node.getRank() - node.right.getRank(), node.getRank() - node.left.getRank());
    }
    
    /**
@@ -569,35 +1874,17 @@ public class WAVLTree {
    private int whichCaseDelete(WAVLNode node) {
 	   int diff1 = node.getRank() - node.right.getRank(); 
 	   int diff2 = node.getRank() - node.left.getRank(); 
-	   if (diff1 != 3 && diff2 != 3) {
-		   return 0; 
-	   }
-	   if ((diff1 == 2 && diff2 == 3) || (diff1 == 3 && diff2 == 2)) {
-		   return 1; 
+	   int caseNum = WAVLCases.deleteCase(diff1, diff2);
+	   if (caseNum != WAVLCases.AT_SIBLING) {
+		   return caseNum; 
 	   }
 	   if (diff1 == 1) { //normal case
 		   WAVLNode y = node.right; 
-		   int diff3 = y.getRank() - y.right.getRank(); 
-		   int diff4 = y.getRank() - y.left.getRank(); 
-		   if (diff3 == 1) {
-			   return 3; 
-		   }
-		   if (diff4 == 1) {
-			   return 4; 
-		   }
-		   return 2;  
+		   return WAVLCases.siblingCase(y.getRank() - y.right.getRank(), y.getRank() - y.left.getRank());
 	   }
 	   else { // diff2 == 1 (symmetric case)
 		   WAVLNode y = node.left; 
-		   int diff3 = y.getRank() - y.left.getRank(); 
-		   int diff4 = y.getRank() - y.right.getRank(); 
-		   if (diff3 == 1) {
-			   return 3; 
-		   }
-		   if (diff4 == 1) {
-			   return 4; 
-		   }
-		   return 2; //if not 1,3,4
+		   return WAVLCases.siblingCase(y.getRank() - y.left.getRank(), y.getRank() - y.right.getRank());
 	   } 
    }
 	
@@ -605,7 +1892,7 @@ public class WAVLTree {
    /**
     * rotates tree right as shown in class
     * makes y the axis, x=y.right , and B=x.left .
-    * updates sizes.
+    * updates sizes and aggregates.
     * @param x rotation axis, where y=x.left and B=y.right
     * for reference see BST slide 31
     * rank update done separately
@@ -621,18 +1908,20 @@ public class WAVLTree {
 	   y.right=x;
 	   x.parent=y;
 	   x.left=B;
-	   B.parent=x;
+	   if(B!=EXT) B.parent=x; //EXT is shared- never give it a parent
 	   
 	   if(root.parent!=null) root=root.parent; //fix root pointer
 	   
-	   x.size=x.left.size+x.right.size+1; //only x,y sizes changed- so we can use unchanged sizes
-	   y.size=y.left.size+y.right.size+1; //y relies on x size- important to update it first
+	   x.size=x.left.size+x.right.size+x.live(); //only x,y sizes changed- so we can use unchanged sizes
+	   y.size=y.left.size+y.right.size+y.live(); //y relies on x size- important to update it first
+	   x.refresh(); //aggregates in the same order
+	   y.refresh();
    }
    
    /**
     * rotates tree left
     * makes x the axis, x=y.right , and B=x.left .
-    * updates sizes.
+    * updates sizes and aggregates.
     * @param y rotation axis, where y=x.left and B=y.right
     * for reference see BST slide 31
     * rank update done separately
@@ -648,12 +1937,14 @@ public class WAVLTree {
 	   x.left=y;
 	   y.parent=x;
 	   y.right=B;
-	   B.parent=y;
+	   if(B!=EXT) B.parent=y; //EXT is shared- never give it a parent
 	   
 	   if(root.parent!=null) root=root.parent; //fix root pointer
 	   
-	   y.size=y.left.size+y.right.size+1; //only x,y sizes changed- so we can use unchanged sizes
-	   x.size=x.left.size+x.right.size+1; //x relies on y size- important to update it first
+	   y.size=y.left.size+y.right.size+y.live(); //only x,y sizes changed- so we can use unchanged sizes
+	   x.size=x.left.size+x.right.size+x.live(); //x relies on y size- important to update it first
+	   y.refresh(); //aggregates in the same order
+	   x.refresh();
    }
    
    /**
@@ -662,8 +1953,8 @@ public class WAVLTree {
     * Returns the info of the item with the smallest key in the tree,
     * or null if the tree is empty
     */
-   public String min() { // Bottom - Left 
-	   return minNode(root).getValue(); 
+   public String min() { // cached, O(1)
+	   return minItem != null ? minItem.value : null;
    }
    
    private WAVLNode minNode(WAVLNode root) {
@@ -682,8 +1973,8 @@ public class WAVLTree {
     * Returns the info of the item with the largest key in the tree,
     * or null if the tree is empty
     */
-   public String max() { // Bottom - Right  
-	   return maxNode(root).getValue(); 
+   public String max() { // cached, O(1)
+	   return maxItem != null ? maxItem.value : null;
    }
    
    private WAVLNode maxNode(WAVLNode root) { 
@@ -696,29 +1987,107 @@ public class WAVLTree {
 	   return root;  
    }
 
+   /**
+    * public long peekMin()
+    *
+    * Returns the smallest key in the tree, or NO_KEY if the tree is empty. O(1)
+    */
+   public long peekMin() {
+	   return minItem != null ? minItem.key : NO_KEY;
+   }
+
+   /**
+    * public long peekMax()
+    *
+    * Returns the largest key in the tree, or NO_KEY if the tree is empty. O(1)
+    */
+   public long peekMax() {
+	   return maxItem != null ? maxItem.key : NO_KEY;
+   }
+
+   /**
+    * public long pollMin()
+    *
+    * deletes the item with the smallest key and returns its key, or NO_KEY if the tree is empty
+    * (pollMinValue returns the info instead).
+    * no descent- the cached min node is a leaf or unary and goes straight to the delete of those cases,
+    * so the cost is the rebalancing (O(1) amortized) plus the size fix up the path. (in lazy delete mode it is marked)
+    */
+   public long pollMin() {
+	   return pollNode(minItem);
+   }
+
+   /**
+    * public long pollMax()
+    *
+    * deletes the item with the largest key and returns its key, or NO_KEY if the tree is empty, as pollMin
+    */
+   public long pollMax() {
+	   return pollNode(maxItem);
+   }
+
+   /**
+    * public String pollMinValue()
+    *
+    * deletes the item with the smallest key like pollMin, but returns its info (null if the tree is empty-
+    * empty() tells that apart from an item whose info is null). min() is the matching peek.
+    */
+   public String pollMinValue() {
+	   return pollValue(minItem);
+   }
+
+   /**
+    * public String pollMaxValue()
+    *
+    * deletes the item with the largest key like pollMax and returns its info, as pollMinValue
+    */
+   public String pollMaxValue() {
+	   return pollValue(maxItem);
+   }
+
+   private String pollValue(WAVLNode node) {
+	   if (node == null) {
+		   return null;
+	   }
+	   String v = node.value; //read before the node leaves the tree (a pooled node drops its value)
+	   pollNode(node);
+	   return v;
+   }
+
+   private long pollNode(WAVLNode node) {
+	   if (node == null) {
+		   return NO_KEY;
+	   }
+	   int k = node.key; //read before the node leaves the tree
+	   if (fingerMode) { //no locate ran- fingerBeforeDelete only needs to know on which sides the node has no neighbour
+		   locateLow = node == minItem ? Long.MIN_VALUE : (long) k - 1;
+		   locateHigh = node == maxItem ? Long.MAX_VALUE : (long) k + 1;
+	   }
+	   if (INSTRUMENTED && metrics != null) {
+		   Object event = metrics.begin();
+		   int result = deleteNode(node);
+		   metrics.deleted(event, k, result, 0, size());
+		   if (metrics.shapeDue(size())) sampleShape();
+		   return k;
+	   }
+	   deleteNode(node);
+	   return k;
+   }
+
    /**
    * public int[] keysToArray()
    *
    * Returns a sorted array which contains all keys in the tree,
    * or an empty array if the tree is empty.
-   * implemented using  inorder recursion.
+   * implemented by walking successors from the minimum (no recursion).
    */
    public int[] keysToArray() {
 	   int[] keys = new int[size()];
-	   WAVLNode temp = root; 
-	   keysInOrder(temp, keys, 0); 
-	   return keys; 
-   }
-   
- //traverses tree in order using recursion and keeps current index to insert to
-   private int keysInOrder(WAVLNode temp, int[] arr, int i) { 
-	   if (temp == null) {
-			return i;
+	   int i = 0;
+	   for (WAVLNode temp = minNode(root); temp != null; temp = successor(temp)) {
+		   if (temp.value != TOMBSTONE) keys[i++] = temp.key;
 	   }
-	   i = keysInOrder(temp.getLeft(), arr, i);
-	   arr[i++] = temp.getKey(); 
-	   i = keysInOrder(temp.getRight(), arr, i);
-	   return i; 
+	   return keys; 
    }
 
    /**
@@ -727,25 +2096,16 @@ public class WAVLTree {
    * Returns an array which contains all info in the tree,
    * sorted by their respective keys,
    * or an empty array if the tree is empty.
-   * implemented using  inorder recursion.
+   * implemented by walking successors from the minimum (no recursion).
    */
    public String[] infoToArray() {
 	   String[] info = new String[size()]; 
-	   WAVLNode temp = root; 
-	   infoInOrder(temp, info, 0); 
+	   int i = 0;
+	   for (WAVLNode temp = minNode(root); temp != null; temp = successor(temp)) {
+		   if (temp.value != TOMBSTONE) info[i++] = temp.value;
+	   }
 	   return info;  
    }
-    
- //traverses tree in order using recursion and keeps current index to insert to
-   private int infoInOrder(WAVLNode temp, String[] arr, int i) {
-	if (temp == null) {
-		return i;
-	}
-	i = infoInOrder(temp.getLeft(), arr, i);
-	arr[i++] = temp.getValue();
-	i = infoInOrder(temp.getRight(), arr, i);
-	return i;
-	}
 
    /**
     * public int size()
@@ -768,40 +2128,710 @@ public class WAVLTree {
    }
 
    /**
-    * public int select(int i)
+    * public String select(int i)
     *
-    * Returns the value of the i'th smallest key (return -1 if tree is empty)
-    * Example 1: select(1) returns the value of the node with minimal key 
-        * Example 2: select(size()) returns the value of the node with maximal key 
-        * Example 3: select(2) returns the value 2nd smallest minimal node, i.e the value of the node minimal node's successor  
+    * Returns the value of the i'th smallest key, counting from 0, or null if i is out of range (i < 0 or i >= size(),
+    * so always on an empty tree)
+    * Example 1: select(0) returns the value of the node with minimal key 
+        * Example 2: select(size()-1) returns the value of the node with maximal key 
+        * Example 3: select(1) returns the value 2nd smallest minimal node, i.e the value of the node minimal node's successor  
         * implementation like in class
     */   
    public String select(int i) { 
-	   if (i > size() || root == null) {
+	   if (i < 0 || i >= size()) {
 		   return null; 
 	   }
+	   if (fingerMode) {
+		   return fingerSelect(i).getValue();
+	   }
 	   return selectNode(root, i).getValue(); 
    }
    
    /**
-    * Implements selection  ith smallest in list recursively (as shown in class)
+    * Implements selection  ith smallest in list (as shown in class), going down in a loop instead of recursion.
+    * i must be smaller than node's subtree size
     */
    private WAVLNode selectNode(WAVLNode node, int i) {
-	   int r = node.left.size;
-	   if (i == r) {
-		   return node; 
-	   }
-	   else {
+	   while (true) {
+		   int r = node.left.size;
+		   if (i == r && node.value != TOMBSTONE) {
+			   return node; 
+		   }
 		   if (i < r) {
-			   return selectNode(node.left, i); 
+			   node = node.left; 
 		   }
 		   else {
-			   return selectNode(node.right, i - r - 1); 
+			   i -= r + node.live(); //a tombstone at i == r- the item is the smallest of the right subtree
+			   node = node.right; 
 		   }
 	   }
    }
 
-   
+   /**
+    * public int rank(int k)
+    *
+    * Returns the number of keys in the tree smaller than k, in O(log n) using subtree sizes
+    * (so select(rank(k)) returns the value of k when k is in the tree)
+    */
+   public int rank(int k) {
+	   return countBelow(k, false);
+   }
+
+   /**
+    * public int countInRange(int lo, int hi)
+    *
+    * Returns the number of keys in the tree between lo and hi (both inclusive), or 0 if lo > hi. O(log n).
+    */
+   public int countInRange(int lo, int hi) {
+	   if (lo > hi) {
+		   return 0;
+	   }
+	   return countBelow(hi, true) - countBelow(lo, false);
+   }
+
+   /**
+    * counts keys smaller than k (or smaller or equal if inclusive) going down one path:
+    * every time we go right, the node and its left subtree are all smaller
+    */
+   private int countBelow(int k, boolean inclusive) {
+	   int count = 0;
+	   WAVLNode node = root;
+	   while (node != null && node != EXT) {
+		   if (k < node.key || (k == node.key && !inclusive)) {
+			   node = node.left;
+		   }
+		   else {
+			   count += node.left.size + node.live();
+			   node = node.right;
+		   }
+	   }
+	   return count;
+   }
+
+   /**
+    * public long aggregateLong(int lo, int hi)
+    *
+    * Returns the aggregate (WAVLAggregate.OfLong) of the items with keys between lo and hi (both inclusive),
+    * combined in key order, or its identity if there are none. O(log n): below the node where the paths to lo
+    * and hi part, every subtree hanging inside the range is taken whole from its total.
+    * throws IllegalStateException if the tree was not created with an OfLong aggregate.
+    */
+   public long aggregateLong(int lo, int hi) {
+	   WAVLAggregate.OfLong a = longAggregate;
+	   if (a == null) {
+		   throw new IllegalStateException("tree has no OfLong aggregate");
+	   }
+	   WAVLNode top = rangeTop(lo, hi);
+	   if (top == null) {
+		   return a.identity();
+	   }
+	   long total = ((LongNode) top).own;
+	   WAVLNode node = top.left;
+	   while (node != EXT) { //the lo path- nodes >= lo come before everything taken so far
+		   if (node.key >= lo) {
+			   if (node.right != EXT) total = a.combine(((LongNode) node.right).total, total);
+			   total = a.combine(((LongNode) node).own, total);
+			   node = node.left;
+		   }
+		   else {
+			   node = node.right;
+		   }
+	   }
+	   node = top.right;
+	   while (node != EXT) { //the hi path- nodes <= hi come after everything taken so far
+		   if (node.key <= hi) {
+			   if (node.left != EXT) total = a.combine(total, ((LongNode) node.left).total);
+			   total = a.combine(total, ((LongNode) node).own);
+			   node = node.right;
+		   }
+		   else {
+			   node = node.left;
+		   }
+	   }
+	   return total;
+   }
+
+   /**
+    * public double aggregateDouble(int lo, int hi)
+    *
+    * same as aggregateLong for a tree created with a WAVLAggregate.OfDouble (IllegalStateException otherwise)
+    */
+   public double aggregateDouble(int lo, int hi) {
+	   WAVLAggregate.OfDouble a = doubleAggregate;
+	   if (a == null) {
+		   throw new IllegalStateException("tree has no OfDouble aggregate");
+	   }
+	   WAVLNode top = rangeTop(lo, hi);
+	   if (top == null) {
+		   return a.identity();
+	   }
+	   double total = ((DoubleNode) top).own;
+	   WAVLNode node = top.left;
+	   while (node != EXT) {
+		   if (node.key >= lo) {
+			   if (node.right != EXT) total = a.combine(((DoubleNode) node.right).total, total);
+			   total = a.combine(((DoubleNode) node).own, total);
+			   node = node.left;
+		   }
+		   else {
+			   node = node.right;
+		   }
+	   }
+	   node = top.right;
+	   while (node != EXT) {
+		   if (node.key <= hi) {
+			   if (node.left != EXT) total = a.combine(total, ((DoubleNode) node.left).total);
+			   total = a.combine(total, ((DoubleNode) node).own);
+			   node = node.right;
+		   }
+		   else {
+			   node = node.left;
+		   }
+	   }
+	   return total;
+   }
+
+   /**
+    * public &lt;A&gt; A aggregate(int lo, int hi)
+    *
+    * same as aggregateLong for a tree created with a WAVLAggregate.Of&lt;A&gt; (IllegalStateException otherwise)
+    */
+   @SuppressWarnings("unchecked")
+   public <A> A aggregate(int lo, int hi) {
+	   WAVLAggregate.Of<Object> a = objectAggregate;
+	   if (a == null) {
+		   throw new IllegalStateException("tree has no WAVLAggregate.Of aggregate");
+	   }
+	   WAVLNode top = rangeTop(lo, hi);
+	   if (top == null) {
+		   return (A) a.identity();
+	   }
+	   Object total = ((ObjectNode) top).own;
+	   WAVLNode node = top.left;
+	   while (node != EXT) {
+		   if (node.key >= lo) {
+			   if (node.right != EXT) total = a.combine(((ObjectNode) node.right).total, total);
+			   total = a.combine(((ObjectNode) node).own, total);
+			   node = node.left;
+		   }
+		   else {
+			   node = node.right;
+		   }
+	   }
+	   node = top.right;
+	   while (node != EXT) {
+		   if (node.key <= hi) {
+			   if (node.left != EXT) total = a.combine(total, ((ObjectNode) node.left).total);
+			   total = a.combine(total, ((ObjectNode) node).own);
+			   node = node.right;
+		   }
+		   else {
+			   node = node.left;
+		   }
+	   }
+	   return (A) total;
+   }
+
+   /**
+    * returns the highest node with a key between lo and hi (where the search paths of lo and hi part), or null if there is none
+    */
+   private WAVLNode rangeTop(int lo, int hi) {
+	   if (lo > hi) {
+		   return null;
+	   }
+	   WAVLNode node = root;
+	   while (node != null && node != EXT) {
+		   if (node.key < lo) {
+			   node = node.right;
+		   }
+		   else if (node.key > hi) {
+			   node = node.left;
+		   }
+		   else {
+			   return node;
+		   }
+	   }
+	   return null;
+   }
+
+   /**
+    * public int keysInRange(int lo, int hi, int[] out)
+    *
+    * fills out with the keys between lo and hi (both inclusive) in sorted order, stopping when out is full.
+    * returns the number of keys written. O(log n + m) for m keys written, nothing is allocated.
+    */
+   public int keysInRange(int lo, int hi, int[] out) {
+	   return keysInRange(lo, hi, out, 0);
+   }
+
+   /**
+    * public int keysInRange(int lo, int hi, int[] out, int from)
+    *
+    * same as keysInRange(lo, hi, out), writing from out[from] on (for filling one array from several trees).
+    * returns the number of keys written.
+    */
+   public int keysInRange(int lo, int hi, int[] out, int from) {
+	   int i = from;
+	   for (WAVLNode node = ceilingNode(lo); node != null && node.key <= hi && i < out.length; node = successor(node)) {
+		   if (node.value != TOMBSTONE) out[i++] = node.key;
+	   }
+	   return i - from;
+   }
+
+   /**
+    * public int valuesInRange(int lo, int hi, String[] out)
+    *
+    * fills out with the info of the items with keys between lo and hi (both inclusive), sorted by their keys,
+    * stopping when out is full. returns the number of values written. O(log n + m), nothing is allocated.
+    */
+   public int valuesInRange(int lo, int hi, String[] out) {
+	   return valuesInRange(lo, hi, out, 0);
+   }
+
+   /**
+    * public int valuesInRange(int lo, int hi, String[] out, int from)
+    *
+    * same as valuesInRange(lo, hi, out), writing from out[from] on. returns the number of values written.
+    */
+   public int valuesInRange(int lo, int hi, String[] out, int from) {
+	   int i = from;
+	   for (WAVLNode node = ceilingNode(lo); node != null && node.key <= hi && i < out.length; node = successor(node)) {
+		   if (node.value != TOMBSTONE) out[i++] = node.value;
+	   }
+	   return i - from;
+   }
+
+   /**
+    * returns the node with the smallest key that is at least k, or null if there is none
+    */
+   private WAVLNode ceilingNode(int k) {
+	   WAVLNode node = root;
+	   WAVLNode ceiling = null;
+	   while (node != null && node != EXT) {
+		   if (k == node.key) {
+			   return node;
+		   }
+		   if (k < node.key) {
+			   ceiling = node; //candidate, maybe there is a smaller one on the left
+			   node = node.left;
+		   }
+		   else {
+			   node = node.right;
+		   }
+	   }
+	   return ceiling;
+   }
+
+   /**
+    * returns the node with the largest key that is at most k, or null if there is none
+    */
+   private WAVLNode floorNode(int k) {
+	   WAVLNode node = root;
+	   WAVLNode floor = null;
+	   while (node != null && node != EXT) {
+		   if (k == node.key) {
+			   return node;
+		   }
+		   if (k > node.key) {
+			   floor = node; //candidate, maybe there is a larger one on the right
+			   node = node.right;
+		   }
+		   else {
+			   node = node.left;
+		   }
+	   }
+	   return floor;
+   }
+
+   //node, or the first node after (before) it that is not a tombstone
+   private WAVLNode liveForward(WAVLNode node) {
+	   while (node != null && node.value == TOMBSTONE) node = successor(node);
+	   return node;
+   }
+
+   private WAVLNode liveBackward(WAVLNode node) {
+	   while (node != null && node.value == TOMBSTONE) node = predecessor(node);
+	   return node;
+   }
+
+   //the navigation nodes, null if there is none
+   private WAVLNode floorItem(int k) {
+	   return liveBackward(floorNode(k));
+   }
+
+   private WAVLNode ceilingItem(int k) {
+	   return liveForward(ceilingNode(k));
+   }
+
+   private WAVLNode lowerItem(int k) {
+	   return k == Integer.MIN_VALUE ? null : floorItem(k - 1);
+   }
+
+   private WAVLNode higherItem(int k) {
+	   return k == Integer.MAX_VALUE ? null : ceilingItem(k + 1);
+   }
+
+   /**
+    * returned by floorKey/ceilingKey/lowerKey/higherKey when there is no such key (no int is equal to it)
+    */
+   public static final long NO_KEY = Long.MIN_VALUE;
+
+   /**
+    * public long floorKey(int k)
+    *
+    * Returns the largest key that is at most k, or NO_KEY if there is none. O(log n)
+    */
+   public long floorKey(int k) {
+	   return keyOf(floorItem(k));
+   }
+
+   /**
+    * public long ceilingKey(int k)
+    *
+    * Returns the smallest key that is at least k, or NO_KEY if there is none. O(log n)
+    */
+   public long ceilingKey(int k) {
+	   return keyOf(ceilingItem(k));
+   }
+
+   /**
+    * public long lowerKey(int k)
+    *
+    * Returns the largest key that is smaller than k, or NO_KEY if there is none. O(log n)
+    */
+   public long lowerKey(int k) {
+	   return keyOf(lowerItem(k));
+   }
+
+   /**
+    * public long higherKey(int k)
+    *
+    * Returns the smallest key that is larger than k, or NO_KEY if there is none. O(log n)
+    */
+   public long higherKey(int k) {
+	   return keyOf(higherItem(k));
+   }
+
+   private static long keyOf(WAVLNode node) {
+	   return node != null ? node.key : NO_KEY;
+   }
+
+   /**
+    * public String floorValue(int k)
+    *
+    * Returns the info of the item with the largest key that is at most k, or null if there is none
+    */
+   public String floorValue(int k) {
+	   WAVLNode node = floorItem(k);
+	   return node != null ? node.value : null;
+   }
+
+   /**
+    * public String ceilingValue(int k)
+    *
+    * Returns the info of the item with the smallest key that is at least k, or null if there is none
+    */
+   public String ceilingValue(int k) {
+	   WAVLNode node = ceilingItem(k);
+	   return node != null ? node.value : null;
+   }
+
+   /**
+    * public String lowerValue(int k)
+    *
+    * Returns the info of the item with the largest key that is smaller than k, or null if there is none
+    */
+   public String lowerValue(int k) {
+	   WAVLNode node = lowerItem(k);
+	   return node != null ? node.value : null;
+   }
+
+   /**
+    * public String higherValue(int k)
+    *
+    * Returns the info of the item with the smallest key that is larger than k, or null if there is none
+    */
+   public String higherValue(int k) {
+	   WAVLNode node = higherItem(k);
+	   return node != null ? node.value : null;
+   }
+
+   /**
+    * public int nearest(int k, int count, int[] out)
+    *
+    * writes the count keys closest to k (k itself first if it is in the tree) into out, nearest first
+    * (of two keys at the same distance the smaller one first), stopping when out is full or the tree runs out.
+    * returns the number of keys written. one descent finds the ceiling of k, then the walk goes both ways
+    * from there with successor/predecessor: O(log n + count), nothing is allocated.
+    */
+   public int nearest(int k, int count, int[] out) {
+	   int limit = Math.min(count, out.length);
+	   WAVLNode above = ceilingItem(k);
+	   WAVLNode below = liveBackward(above != null ? predecessor(above) : maxNode(root));
+	   int i = 0;
+	   while (i < limit && (above != null || below != null)) {
+		   //distances as longs- they can be larger than any int
+		   if (above == null || (below != null && (long) k - below.key <= (long) above.key - k)) {
+			   out[i++] = below.key;
+			   below = liveBackward(predecessor(below));
+		   }
+		   else {
+			   out[i++] = above.key;
+			   above = liveForward(successor(above));
+		   }
+	   }
+	   return i;
+   }
+
+   /**
+    * public FrozenWAVLTree freeze()
+    *
+    * Returns an immutable copy of the tree in contiguous arrays (Eytzinger layout, see FrozenWAVLTree)
+    * for read-only workloads. the tree itself is unchanged and later changes to it don't show in the copy. O(n)
+    */
+   public FrozenWAVLTree freeze() {
+	   return freeze(false);
+   }
+
+   /**
+    * public FrozenWAVLTree freeze(boolean prefetch)
+    *
+    * same as freeze(), lookups of the copy prefetch the descendants 4 levels ahead if prefetch is set
+    */
+   public FrozenWAVLTree freeze(boolean prefetch) {
+	   return new FrozenWAVLTree(keysToArray(), infoToArray(), prefetch);
+   }
+
+   private static final int SAVE_BUFFER_BYTES = 1 << 16; //save writes through a staging buffer of this size
+
+   /**
+    * public void save(Path path)
+    *
+    * Writes the tree to path in the format of MappedWAVLTree (see there), replacing the file if it exists,
+    * and forces it to the device before returning.
+    * the file is written next to path (path's name with .tmp appended), forced and then moved over path atomically,
+    * so a crash or an error leaves either the old file or the new one whole, never a mix (a temporary file left by a
+    * crash is overwritten by the next save).
+    * nodes are written in key order, so record i is the i'th smallest key and the child records follow from the sizes.
+    * save calls compact() first (the format has no tombstones), so it modifies a tree in lazy delete mode:
+    * its tombstones are removed and cursors and nodes taken from it must not be used afterwards.
+    * throws IllegalStateException if the tree does not fit in a 2GB file.
+    */
+   public void save(Path path) throws IOException {
+	   compact(); //the format has no tombstones
+	   Path temp = tempFile(path);
+	   boolean saved = false;
+	   try {
+		   write(temp);
+		   Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		   saved = true;
+	   }
+	   finally {
+		   if (!saved) Files.deleteIfExists(temp);
+	   }
+	   forceDirectory(path.toAbsolutePath().getParent());
+   }
+
+   /**
+    * the temporary file save(path) writes before moving it over path
+    */
+   static Path tempFile(Path path) {
+	   return path.resolveSibling(path.getFileName() + ".tmp");
+   }
+
+   //makes the rename of a saved file durable, where the platform allows opening a directory
+   private static void forceDirectory(Path dir) {
+	   if (dir == null) {
+		   return;
+	   }
+	   try (FileChannel directory = FileChannel.open(dir, StandardOpenOption.READ)) {
+		   directory.force(true);
+	   }
+	   catch (IOException e) {
+		   //not supported on this platform
+	   }
+   }
+
+   //writes and forces the tree to path in the format of MappedWAVLTree
+   private void write(Path path) throws IOException {
+	   int n = size();
+	   try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+		   ByteBuffer buffer = ByteBuffer.allocate(SAVE_BUFFER_BYTES); //big endian, like the mapping
+		   channel.position(MappedWAVLTree.HEADER_BYTES);
+		   //value region, remembering where each value starts
+		   int[] valueOffsets = new int[n];
+		   long offset = 0;
+		   int i = 0;
+		   for (WAVLNode node = minNode(root); node != null; node = successor(node)) {
+			   valueOffsets[i++] = (int) offset;
+			   byte[] bytes = node.value == null ? null : node.value.getBytes(StandardCharsets.UTF_8);
+			   offset += 4 + (bytes == null ? 0 : bytes.length);
+			   if (MappedWAVLTree.HEADER_BYTES + offset + (long) n * MappedWAVLTree.NODE_BYTES > Integer.MAX_VALUE) {
+				   throw new IllegalStateException("tree too large for a mapped file");
+			   }
+			   put(channel, buffer, bytes == null ? MappedWAVLTree.NONE : bytes.length);
+			   if (bytes != null) put(channel, buffer, bytes);
+		   }
+		   int nodes = MappedWAVLTree.HEADER_BYTES + (int) offset;
+		   //node region
+		   i = 0;
+		   for (WAVLNode node = minNode(root); node != null; node = successor(node), i++) {
+			   if (buffer.remaining() < MappedWAVLTree.NODE_BYTES) flush(channel, buffer);
+			   buffer.putInt(node.key).putInt(node.rank).putInt(node.size);
+			   buffer.putInt(node.left == EXT ? MappedWAVLTree.NONE : i - node.left.size + node.left.left.size);
+			   buffer.putInt(node.right == EXT ? MappedWAVLTree.NONE : i + 1 + node.right.left.size);
+			   buffer.putInt(valueOffsets[i]);
+		   }
+		   flush(channel, buffer);
+		   long length = (long) nodes + (long) n * MappedWAVLTree.NODE_BYTES;
+		   buffer.putInt(MappedWAVLTree.MAGIC).putInt(MappedWAVLTree.VERSION).putInt(n);
+		   buffer.putInt(root == null ? MappedWAVLTree.NONE : root.left.size);
+		   buffer.putInt(nodes).putInt(MappedWAVLTree.HEADER_BYTES).putLong(length);
+		   channel.position(0); //header last- a file cut short never has a valid length
+		   flush(channel, buffer);
+		   channel.force(true);
+	   }
+   }
+
+   /**
+    * public static MappedWAVLTree open(Path path)
+    *
+    * Memory maps a file written by save and returns a read-only tree served straight from the mapping.
+    * only the header is read, so this takes the same time for any size of tree.
+    * throws IOException if the file is not a (complete) saved tree.
+    */
+   public static MappedWAVLTree open(Path path) throws IOException {
+	   return MappedWAVLTree.open(path);
+   }
+
+   private static void put(FileChannel channel, ByteBuffer buffer, int value) throws IOException {
+	   if (buffer.remaining() < 4) flush(channel, buffer);
+	   buffer.putInt(value);
+   }
+
+   private static void put(FileChannel channel, ByteBuffer buffer, byte[] bytes) throws IOException {
+	   for (int from = 0; from < bytes.length; ) {
+		   if (!buffer.hasRemaining()) flush(channel, buffer);
+		   int length = Math.min(buffer.remaining(), bytes.length - from);
+		   buffer.put(bytes, from, length);
+		   from += length;
+	   }
+   }
+
+   private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+	   buffer.flip();
+	   while (buffer.hasRemaining()) channel.write(buffer);
+	   buffer.clear();
+   }
+
+
+   /**
+    * public Cursor cursor()
+    *
+    * Returns a new cursor over this tree, not positioned on any item yet.
+    * a cursor can be re-positioned with seek/seekRank/first/last and reused for any number of scans.
+    */
+   public Cursor cursor() {
+	   return new Cursor();
+   }
+
+   /**
+    * public class Cursor
+    *
+    * a position in the tree that moves in key order by walking parent/child links (like successor),
+    * so stepping allocates nothing and uses no recursion. forward and reverse scans can start anywhere.
+    * after the tree is modified the cursor must be positioned again before it is used.
+    */
+   public class Cursor {
+
+	   private WAVLNode node; //current item, null if not positioned or moved past either end
+
+	   private Cursor() {
+	   }
+
+	   /**
+	    * positions the cursor on the smallest key that is at least k.
+	    * returns true if there is such a key (otherwise the cursor is not valid)
+	    */
+	   public boolean seek(int k) {
+		   node = liveForward(ceilingNode(k));
+		   return node != null;
+	   }
+
+	   /**
+	    * positions the cursor on the i'th smallest key (counting from 0, like select).
+	    * returns true if 0 <= i < size()
+	    */
+	   public boolean seekRank(int i) {
+		   node = i >= 0 && i < size() ? selectNode(root, i) : null;
+		   return node != null;
+	   }
+
+	   /**
+	    * positions the cursor on the minimal key, returns false if the tree is empty
+	    */
+	   public boolean first() {
+		   node = liveForward(minNode(root));
+		   return node != null;
+	   }
+
+	   /**
+	    * positions the cursor on the maximal key, returns false if the tree is empty
+	    */
+	   public boolean last() {
+		   node = liveBackward(maxNode(root));
+		   return node != null;
+	   }
+
+	   /**
+	    * moves to the next key, returns false (and the cursor is no longer valid) if there is none
+	    */
+	   public boolean next() {
+		   if (node != null) {
+			   node = liveForward(successor(node));
+		   }
+		   return node != null;
+	   }
+
+	   /**
+	    * moves to the previous key, returns false (and the cursor is no longer valid) if there is none
+	    */
+	   public boolean prev() {
+		   if (node != null) {
+			   node = liveBackward(predecessor(node));
+		   }
+		   return node != null;
+	   }
+
+	   /**
+	    * returns true if the cursor is positioned on an item
+	    */
+	   public boolean valid() {
+		   return node != null;
+	   }
+
+	   /**
+	    * returns the key of the current item, throws NoSuchElementException if the cursor is not valid
+	    */
+	   public int key() {
+		   return current().key;
+	   }
+
+	   /**
+	    * returns the info of the current item, throws NoSuchElementException if the cursor is not valid
+	    */
+	   public String value() {
+		   return current().value;
+	   }
+
+	   private WAVLNode current() {
+		   if (node == null) {
+			   throw new NoSuchElementException("cursor is not positioned on an item");
+		   }
+		   return node;
+	   }
+   }
+   
    /**
     * public class WAVLNode
    */
@@ -835,7 +2865,7 @@ public class WAVLTree {
   	  * returns value or null if external leaf
   	  */
   	 public String getValue() {
-  		 return rank == -1 ? null : value;  
+  		 return rank == -1 || value == TOMBSTONE ? null : value;  
   	 }
   	 
   	 /**
@@ -869,12 +2899,61 @@ public class WAVLTree {
   	 }
 
   	 /**
-  	  * returns size of subtree with current node at its root
+  	  * returns size of subtree with current node at its root (live items, tombstones don't count)
   	  */
        public int getSubtreeSize() {
       	 return size; 
        }
        
+       /**
+        * recomputes the aggregate of the subtree from the children (whose aggregates must be right),
+        * nothing to do for trees without an aggregate
+        */
+       void refresh() {
+       }
+
+       /**
+        * recomputes the node's own aggregate element after it became a tombstone or came back (nothing to do without an aggregate)
+        */
+       void reset() {
+       }
+
+       /**
+        * gives a tombstone the value back, with its aggregate element (computed before the node changes)
+        */
+       void restore(String value) {
+      	 this.value = value;
+       }
+
+       /**
+        * turns a pooled node into the node of a new item, as newNode would make it
+        */
+       void reuse(int key, String value) {
+      	 this.key = key;
+      	 this.value = value;
+      	 rank = 0;
+      	 size = 1;
+      	 left = EXT;
+      	 right = EXT;
+      	 parent = null;
+      	 reset(); //the aggregate element of the new item
+      	 refresh();
+       }
+
+       /**
+        * returns 1 if the node holds an item, 0 if it is a tombstone (its share of size)
+        */
+       int live() {
+      	 return value != TOMBSTONE ? 1 : 0;
+       }
+
+       /**
+        * returns whether the node was lazily deleted (see setLazyDelete)
+        */
+       public boolean isTombstone() {
+      	 return value == TOMBSTONE;
+       }
+
     	 /**
     	  * returns nodes rank (-1 for EXT)
     	  */
@@ -894,5 +2973,110 @@ public class WAVLTree {
 	}
 
    }
+
+   /**
+    * node of a tree with a WAVLAggregate.OfLong: the element of its item and the total of its subtree
+    */
+   private class LongNode extends WAVLNode {
+	   private long own;
+	   private long total;
+
+	   private LongNode(int key, String value) {
+		   super(key, value);
+		   own = longAggregate.of(key, value);
+		   total = own;
+	   }
+
+	   @Override
+	   void reset() {
+		   own = isTombstone() ? longAggregate.identity() : longAggregate.of(getKey(), getValue());
+	   }
+
+	   @Override
+	   void restore(String value) {
+		   long element = longAggregate.of(getKey(), value);
+		   super.restore(value);
+		   own = element;
+	   }
+
+	   @Override
+	   void refresh() {
+		   WAVLAggregate.OfLong a = longAggregate;
+		   long t = own;
+		   if (getLeft() != null) t = a.combine(((LongNode) getLeft()).total, t);
+		   if (getRight() != null) t = a.combine(t, ((LongNode) getRight()).total);
+		   total = t;
+	   }
+   }
+
+   /**
+    * node of a tree with a WAVLAggregate.OfDouble
+    */
+   private class DoubleNode extends WAVLNode {
+	   private double own;
+	   private double total;
+
+	   private DoubleNode(int key, String value) {
+		   super(key, value);
+		   own = doubleAggregate.of(key, value);
+		   total = own;
+	   }
+
+	   @Override
+	   void reset() {
+		   own = isTombstone() ? doubleAggregate.identity() : doubleAggregate.of(getKey(), getValue());
+	   }
+
+	   @Override
+	   void restore(String value) {
+		   double element = doubleAggregate.of(getKey(), value);
+		   super.restore(value);
+		   own = element;
+	   }
+
+	   @Override
+	   void refresh() {
+		   WAVLAggregate.OfDouble a = doubleAggregate;
+		   double t = own;
+		   if (getLeft() != null) t = a.combine(((DoubleNode) getLeft()).total, t);
+		   if (getRight() != null) t = a.combine(t, ((DoubleNode) getRight()).total);
+		   total = t;
+	   }
+   }
+
+   /**
+    * node of a tree with a WAVLAggregate.Of
+    */
+   private class ObjectNode extends WAVLNode {
+	   private Object own;
+	   private Object total;
+
+	   private ObjectNode(int key, String value) {
+		   super(key, value);
+		   own = objectAggregate.of(key, value);
+		   total = own;
+	   }
+
+	   @Override
+	   void reset() {
+		   own = isTombstone() ? objectAggregate.identity() : objectAggregate.of(getKey(), getValue());
+	   }
+
+	   @Override
+	   void restore(String value) {
+		   Object element = objectAggregate.of(getKey(), value);
+		   super.restore(value);
+		   own = element;
+	   }
+
+	   @Override
+	   void refresh() {
+		   WAVLAggregate.Of<Object> a = objectAggregate;
+		   Object t = own;
+		   if (getLeft() != null) t = a.combine(((ObjectNode) getLeft()).total, t);
+		   if (getRight() != null) t = a.combine(t, ((ObjectNode) getRight()).total);
+		   total = t;
+	   }
+   }
 }
 
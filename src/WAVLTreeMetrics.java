@@ -0,0 +1,281 @@
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ *
+ * WAVLTreeMetrics
+ *
+ * Counters and histograms of the operations of one WAVLTree (see WAVLTree.enableMetrics), so the cost of
+ * finding a key (descent depth) can be told apart from the cost of rebalancing (steps and cases):
+ * operations and misses, how often every insert/delete rebalancing case ran (rotations, promotions and demotions
+ * follow from the cases), histograms of rebalancing steps per insert/delete and of descent depth per operation,
+ * and the shape of the tree (height, nodes per rank, 2,2 nodes), sampled whenever the tree has seen as many
+ * changes as it has nodes.
+ * operations slower than a threshold are recorded as JFR events (WAVLTreeOperationEvent) if the JVM has JFR.
+ * register() publishes all of it as an MXBean.
+ *
+ * counters are written by the thread using the tree without synchronization, readers (JMX) see recent values.
+ *
+ */
+
+public class WAVLTreeMetrics implements WAVLTreeMetricsMXBean {
+
+	static final int BUCKETS = 65; //histograms count 0..63 exactly, the last bucket is 64 and more
+	static final int MAX_RANK = 63; //rank distribution keeps ranks 0..63 (a WAVL tree of 2^31 items has rank < 62)
+	static final int LEAF_DEMOTE = 5; //delete case index: 2,2 leaf demoted before the delete cases start
+	static final int ROTATE_DEMOTE = 6; //delete case index: the extra demote of case 3 when z ends up 2,2
+	private static final long SHAPE_MIN_CHANGES = 1 << 10; //small trees are not sampled after every few changes
+	private static final boolean JFR = jfrAvailable();
+
+	private static final String[] INSERT_CASES = {null, "insert 1 promote", "insert 2 rotate", "insert 3 double rotate"};
+	private static final String[] DELETE_CASES = {null, "delete 1 demote", "delete 2 double demote", "delete 3 rotate",
+			"delete 4 double rotate", "delete 2,2 leaf demote", "delete 3 extra demote"};
+
+	private long inserts, deletes, searches, misses;
+	private long changed; //inserts and deletes that changed the tree
+	private long rebalanceSteps;
+	private long descentSum;
+	private long[] insertCases = new long[INSERT_CASES.length];
+	private long[] deleteCases = new long[DELETE_CASES.length];
+	private long[] insertRebalances = new long[BUCKETS];
+	private long[] deleteRebalances = new long[BUCKETS];
+	private long[] descents = new long[BUCKETS];
+
+	private long changesSinceShape;
+	private volatile int height = -1;
+	private volatile long[] ranks = new long[MAX_RANK + 1];
+	private volatile long twoTwo;
+	private volatile int sampledSize;
+
+	private ObjectName name; //while registered
+
+	WAVLTreeMetrics() {
+	}
+
+	private static boolean jfrAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event");
+			return true;
+		}
+		catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	private static int bucket(int value) {
+		return Math.min(Math.max(value, 0), BUCKETS - 1);
+	}
+
+	/**
+	 * starts timing an operation, returns the JFR event (or null when not recording)
+	 */
+	Object begin() {
+		return JFR ? WAVLTreeOperationEvent.start() : null;
+	}
+
+	void inserted(Object event, int k, int result, int depth, int size) {
+		inserts++;
+		operation(depth);
+		if (result == -1) {
+			misses++;
+		}
+		else {
+			insertRebalances[bucket(result)]++;
+			rebalanceSteps += result;
+			changed++;
+			changesSinceShape++;
+		}
+		if (event != null) WAVLTreeOperationEvent.finish(event, "insert", k, result, depth, size);
+	}
+
+	void deleted(Object event, int k, int result, int depth, int size) {
+		deletes++;
+		operation(depth);
+		if (result == -1) {
+			misses++;
+		}
+		else {
+			deleteRebalances[bucket(result)]++;
+			rebalanceSteps += result;
+			changed++;
+			changesSinceShape++;
+		}
+		if (event != null) WAVLTreeOperationEvent.finish(event, "delete", k, result, depth, size);
+	}
+
+	void searched(Object event, int k, boolean found, int depth, int size) {
+		searches++;
+		operation(depth);
+		if (!found) misses++;
+		if (event != null) WAVLTreeOperationEvent.finish(event, "search", k, -1, depth, size);
+	}
+
+	private void operation(int depth) {
+		descents[bucket(depth)]++;
+		descentSum += depth;
+	}
+
+	void insertCase(int caseNum) {
+		insertCases[caseNum]++;
+	}
+
+	void deleteCase(int caseNum) {
+		deleteCases[caseNum]++;
+	}
+
+	/**
+	 * true once the tree saw as many changes as it has nodes since the last sample
+	 */
+	boolean shapeDue(int size) {
+		return changesSinceShape >= Math.max(size, SHAPE_MIN_CHANGES);
+	}
+
+	void shape(int height, long[] ranks, long twoTwo, int size) {
+		this.height = height;
+		this.ranks = ranks;
+		this.twoTwo = twoTwo;
+		this.sampledSize = size;
+		changesSinceShape = 0;
+	}
+
+	/**
+	 * public ObjectName register(String name)
+	 *
+	 * registers these metrics with the platform MBean server as wavl:type=WAVLTreeMetrics,name=&lt;name&gt;
+	 * and returns the object name. throws IllegalStateException if that name is taken or they are registered already.
+	 */
+	public synchronized ObjectName register(String name) {
+		if (this.name != null) {
+			throw new IllegalStateException("already registered as " + this.name);
+		}
+		try {
+			ObjectName objectName = new ObjectName("wavl:type=WAVLTreeMetrics,name=" + ObjectName.quote(name));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+			this.name = objectName;
+			return objectName;
+		}
+		catch (JMException e) {
+			throw new IllegalStateException("can't register metrics as " + name, e);
+		}
+	}
+
+	/**
+	 * public void unregister()
+	 *
+	 * removes these metrics from the platform MBean server, if registered
+	 */
+	public synchronized void unregister() {
+		if (name == null) {
+			return;
+		}
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			server.unregisterMBean(name);
+		}
+		catch (JMException e) {
+			//unregistered by someone else
+		}
+		name = null;
+	}
+
+	public long getInserts() {
+		return inserts;
+	}
+
+	public long getDeletes() {
+		return deletes;
+	}
+
+	public long getSearches() {
+		return searches;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public long getRebalanceSteps() {
+		return rebalanceSteps;
+	}
+
+	//the rank changes and rotations of every case, see WAVLTree.insert/delete
+	public long getRotations() {
+		return insertCases[2] + 2 * insertCases[3] + deleteCases[3] + 2 * deleteCases[4];
+	}
+
+	public long getPromotions() {
+		return insertCases[1] + insertCases[3] + deleteCases[3] + 2 * deleteCases[4];
+	}
+
+	public long getDemotions() {
+		return insertCases[2] + 2 * insertCases[3] + deleteCases[1] + 2 * deleteCases[2] + deleteCases[3]
+				+ 3 * deleteCases[4] + deleteCases[LEAF_DEMOTE] + deleteCases[ROTATE_DEMOTE];
+	}
+
+	public Map<String, Long> getCaseCounts() {
+		Map<String, Long> counts = new LinkedHashMap<String, Long>();
+		for (int c = 1; c < INSERT_CASES.length; c++) counts.put(INSERT_CASES[c], insertCases[c]);
+		for (int c = 1; c < DELETE_CASES.length; c++) counts.put(DELETE_CASES[c], deleteCases[c]);
+		return counts;
+	}
+
+	public long[] getInsertRebalanceHistogram() {
+		return insertRebalances.clone();
+	}
+
+	public long[] getDeleteRebalanceHistogram() {
+		return deleteRebalances.clone();
+	}
+
+	public long[] getDescentDepthHistogram() {
+		return descents.clone();
+	}
+
+	public double getMeanDescentDepth() {
+		long operations = inserts + deletes + searches;
+		return operations == 0 ? 0 : (double) descentSum / operations;
+	}
+
+	//per insert/delete that changed the tree
+	public double getMeanRebalanceSteps() {
+		return changed == 0 ? 0 : (double) rebalanceSteps / changed;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public long[] getRankDistribution() {
+		long[] r = ranks;
+		int last = r.length - 1;
+		while (last >= 0 && r[last] == 0) last--;
+		return Arrays.copyOf(r, last + 1);
+	}
+
+	public long getTwoTwoNodes() {
+		return twoTwo;
+	}
+
+	public int getSampledSize() {
+		return sampledSize;
+	}
+
+	/**
+	 * zeroes the operation counters and histograms (the shape stays until the next sample)
+	 */
+	public void reset() {
+		inserts = deletes = searches = misses = changed = 0;
+		rebalanceSteps = descentSum = 0;
+		insertCases = new long[INSERT_CASES.length];
+		deleteCases = new long[DELETE_CASES.length];
+		insertRebalances = new long[BUCKETS];
+		deleteRebalances = new long[BUCKETS];
+		descents = new long[BUCKETS];
+	}
+}
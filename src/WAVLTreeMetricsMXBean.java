@@ -0,0 +1,77 @@
+import java.util.Map;
+
+/**
+ *
+ * WAVLTreeMetricsMXBean
+ *
+ * management interface of WAVLTreeMetrics (see there), for WAVLTreeMetrics.register
+ *
+ */
+
+public interface WAVLTreeMetricsMXBean {
+
+	long getInserts();
+
+	long getDeletes();
+
+	long getSearches();
+
+	/**
+	 * inserts of a key already in the tree, deletes and searches of a missing key
+	 */
+	long getMisses();
+
+	/**
+	 * rebalancing steps of all inserts and deletes, as returned by them
+	 */
+	long getRebalanceSteps();
+
+	long getRotations();
+
+	long getPromotions();
+
+	long getDemotions();
+
+	/**
+	 * how often every rebalancing case ran, by name
+	 */
+	Map<String, Long> getCaseCounts();
+
+	/**
+	 * entry i counts the inserts that took i rebalancing steps (the last entry: that many or more)
+	 */
+	long[] getInsertRebalanceHistogram();
+
+	long[] getDeleteRebalanceHistogram();
+
+	/**
+	 * entry i counts the operations that visited i nodes to find their key (the last entry: that many or more)
+	 */
+	long[] getDescentDepthHistogram();
+
+	double getMeanDescentDepth();
+
+	double getMeanRebalanceSteps();
+
+	/**
+	 * height of the tree when the shape was last sampled (-1 if it was empty)
+	 */
+	int getHeight();
+
+	/**
+	 * entry r counts the nodes of rank r when the shape was last sampled
+	 */
+	long[] getRankDistribution();
+
+	/**
+	 * nodes with rank difference 2 to both children when the shape was last sampled
+	 */
+	long getTwoTwoNodes();
+
+	/**
+	 * number of items when the shape was last sampled
+	 */
+	int getSampledSize();
+
+	void reset();
+}
@@ -0,0 +1,73 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ *
+ * WAVLTreeOperationEvent
+ *
+ * JFR event for an insert/delete/search of a tree with metrics (WAVLTreeMetrics) that took longer than the
+ * threshold (20 us unless the recording's settings say otherwise).
+ * only touched through start/finish, and only when the JVM has JFR (WAVLTreeMetrics checks),
+ * so the trees still run on a JVM without it.
+ * jdk.jfr is why the project builds for Java 11 (the first release that has it).
+ *
+ */
+
+@Name("wavl.Operation")
+@Label("WAVL Tree Operation")
+@Category("WAVL Tree")
+@Description("insert/delete/search of a WAVLTree slower than the threshold")
+@Threshold("20 us")
+@StackTrace(false)
+class WAVLTreeOperationEvent extends Event {
+
+	@Label("Operation")
+	String operation;
+
+	@Label("Key")
+	int key;
+
+	@Label("Rebalance Steps")
+	@Description("rebalancing steps as returned by insert/delete, -1 if nothing changed")
+	int rebalances;
+
+	@Label("Descent Depth")
+	@Description("nodes visited to find the key")
+	int depth;
+
+	@Label("Tree Size")
+	int size;
+
+	/**
+	 * returns a started event, or null if the event is not being recorded
+	 */
+	static Object start() {
+		WAVLTreeOperationEvent event = new WAVLTreeOperationEvent();
+		if (!event.isEnabled()) {
+			return null;
+		}
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * ends an event returned by start and commits it if it took longer than the threshold
+	 */
+	static void finish(Object started, String operation, int key, int rebalances, int depth, int size) {
+		WAVLTreeOperationEvent event = (WAVLTreeOperationEvent) started;
+		event.end();
+		if (event.shouldCommit()) {
+			event.operation = operation;
+			event.key = key;
+			event.rebalances = rebalances;
+			event.depth = depth;
+			event.size = size;
+			event.commit();
+		}
+	}
+}
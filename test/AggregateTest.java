@@ -0,0 +1,142 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * range aggregates (WAVLAggregate) against the same fold over a TreeMap's sub map, through inserts, deletes,
+ * batches, the node pool, split and join. the string aggregate is not commutative, so it also checks key order.
+ */
+class AggregateTest {
+
+	private static final int KEYS = 2000;
+
+	//the keys in order, joined by commas (not commutative)
+	private static final WAVLAggregate.Of<String> KEY_LIST = new WAVLAggregate.Of<String>() {
+		public String identity() { return ""; }
+		public String of(int key, String value) { return Integer.toString(key); }
+		public String combine(String left, String right) { return left.isEmpty() ? right : right.isEmpty() ? left : left + "," + right; }
+	};
+
+	@Test
+	void rangesMatchTreeMap() {
+		Random rand = new Random(19);
+		WAVLTree sum = new WAVLTree(WAVLAggregate.sum());
+		WAVLTree min = new WAVLTree(WAVLAggregate.min());
+		WAVLTree max = new WAVLTree(WAVLAggregate.max());
+		WAVLTree count = new WAVLTree(WAVLAggregate.count("7"));
+		WAVLTree doubleSum = new WAVLTree(WAVLAggregate.doubleSum());
+		WAVLTree keyList = new WAVLTree(KEY_LIST);
+		WAVLTree[] trees = {sum, min, max, count, doubleSum, keyList};
+		sum.setNodePool(64); //reused nodes must get the element of their new item
+		TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+		for (int j = 0; j < 20000; j++) {
+			int k = rand.nextInt(KEYS);
+			int op = rand.nextInt(100);
+			if (op < 55) {
+				String v = Integer.toString(rand.nextInt(10) - 3);
+				for (WAVLTree tree : trees) tree.insert(k, v);
+				expected.putIfAbsent(k, v);
+			}
+			else if (op < 98) {
+				for (WAVLTree tree : trees) tree.delete(k);
+				expected.remove(k);
+			}
+			else {
+				int[] keys = new int[1 + rand.nextInt(300)];
+				String[] values = new String[keys.length];
+				for (int i = 0; i < keys.length; i++) {
+					keys[i] = rand.nextInt(KEYS);
+					values[i] = Integer.toString(rand.nextInt(10));
+					expected.putIfAbsent(keys[i], values[i]);
+				}
+				for (WAVLTree tree : trees) tree.insertAll(keys, values);
+			}
+			if (j % 50 == 0) {
+				int lo = rand.nextInt(KEYS + 2) - 1;
+				int hi = lo + rand.nextInt(KEYS + 2 - lo) - 1; //hi < lo too: an empty range
+				compare(trees, expected, lo, hi);
+			}
+		}
+		for (WAVLTree tree : trees) WAVLTreeChecker.check(tree, expected);
+		compare(trees, expected, Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+
+	@Test
+	void splitAndJoinKeepTheAggregate() {
+		Random rand = new Random(190);
+		WAVLTree tree = new WAVLTree(KEY_LIST);
+		TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+		for (int j = 0; j < 3000; j++) {
+			int k = rand.nextInt(10000);
+			tree.insert(k, "v");
+			expected.put(k, "v");
+		}
+		for (int round = 0; round < 100; round++) {
+			int k = rand.nextInt(10000);
+			WAVLTree[] parts = tree.split(k);
+			assertEquals(keyList(expected.headMap(k, false)), parts[0].aggregate(Integer.MIN_VALUE, Integer.MAX_VALUE));
+			assertEquals(keyList(expected.tailMap(k, false)), parts[1].aggregate(Integer.MIN_VALUE, Integer.MAX_VALUE));
+			tree = WAVLTree.join(parts[0], k, "v", parts[1]);
+			expected.put(k, "v");
+			WAVLTreeChecker.check(tree, expected);
+			assertEquals(keyList(expected), tree.aggregate(Integer.MIN_VALUE, Integer.MAX_VALUE));
+		}
+		WAVLTree other = new WAVLTree(WAVLAggregate.sum());
+		other.insert(20000, "1");
+		WAVLTree[] parts = tree.split(5000);
+		assertThrows(IllegalArgumentException.class, () -> WAVLTree.join(parts[0], 5000, "v", other), "different aggregates");
+	}
+
+	@Test
+	void wrongAccessorOrNoAggregate() {
+		assertThrows(IllegalArgumentException.class, () -> new WAVLTree((WAVLAggregate.OfLong) null));
+		WAVLTree plain = new WAVLTree();
+		plain.insert(1, "1");
+		assertThrows(IllegalStateException.class, () -> plain.aggregateLong(0, 5));
+		assertThrows(IllegalStateException.class, () -> plain.aggregateDouble(0, 5));
+		assertThrows(IllegalStateException.class, () -> plain.aggregate(0, 5));
+		WAVLTree sum = new WAVLTree(WAVLAggregate.sum());
+		assertEquals(0, sum.aggregateLong(0, 5));
+		assertThrows(IllegalStateException.class, () -> sum.aggregateDouble(0, 5));
+		assertEquals(Long.MAX_VALUE, new WAVLTree(WAVLAggregate.min()).aggregateLong(0, 5));
+		sum.insert(3, null); //null counts as 0
+		sum.insert(4, "5");
+		assertEquals(5, sum.aggregateLong(0, 5));
+	}
+
+	private static void compare(WAVLTree[] trees, TreeMap<Integer, String> expected, int lo, int hi) {
+		Map<Integer, String> range = lo <= hi ? expected.subMap(lo, true, hi, true) : new TreeMap<Integer, String>();
+		long sum = 0;
+		long min = Long.MAX_VALUE;
+		long max = Long.MIN_VALUE;
+		long count = 0;
+		for (String v : range.values()) {
+			long x = Long.parseLong(v);
+			sum += x;
+			min = Math.min(min, x);
+			max = Math.max(max, x);
+			if (v.equals("7")) count++;
+		}
+		String what = " of [" + lo + ", " + hi + "]";
+		assertEquals(sum, trees[0].aggregateLong(lo, hi), "sum" + what);
+		assertEquals(min, trees[1].aggregateLong(lo, hi), "min" + what);
+		assertEquals(max, trees[2].aggregateLong(lo, hi), "max" + what);
+		assertEquals(count, trees[3].aggregateLong(lo, hi), "count" + what);
+		assertEquals((double) sum, trees[4].aggregateDouble(lo, hi), "double sum" + what);
+		assertEquals(keyList(range), trees[5].aggregate(lo, hi), "key list" + what);
+	}
+
+	private static String keyList(Map<Integer, String> items) {
+		StringBuilder list = new StringBuilder();
+		for (int k : items.keySet()) {
+			if (list.length() > 0) list.append(',');
+			list.append(k);
+		}
+		return list.toString();
+	}
+}
@@ -0,0 +1,116 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * WAVLTree.insertAll and deleteAll against a TreeMap, small batches (routed one by one) and large ones (joined,
+ * in parallel), checking the tree's invariants after every batch.
+ */
+class BatchTest {
+
+	private static final int ROUNDS = 200;
+
+	@Test
+	void insertAllAndDeleteAllMatchTreeMap() {
+		Random rand = new Random(11);
+		WAVLTree tree = new WAVLTree();
+		TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+		for (int round = 0; round < ROUNDS; round++) {
+			int n = batchSize(rand);
+			int[] keys = new int[n];
+			if (rand.nextInt(3) > 0) {
+				String[] values = new String[n];
+				int inserted = 0;
+				for (int j = 0; j < n; j++) {
+					keys[j] = rand.nextInt(20000);
+					values[j] = "v" + round + "_" + j;
+					if (expected.putIfAbsent(keys[j], values[j]) == null) inserted++; //first item of a repeated key wins
+				}
+				assertEquals(inserted, tree.insertAll(keys, values)[0], "inserted in round " + round);
+			}
+			else {
+				int deleted = 0;
+				for (int j = 0; j < n; j++) {
+					keys[j] = rand.nextInt(20000);
+					if (expected.remove(keys[j]) != null) deleted++;
+				}
+				assertEquals(deleted, tree.deleteAll(keys)[0], "deleted in round " + round);
+			}
+			WAVLTreeChecker.check(tree, expected);
+		}
+	}
+
+	@Test
+	void batchesOverTombstones() {
+		Random rand = new Random(12);
+		WAVLTree tree = new WAVLTree();
+		tree.setLazyDelete(true);
+		TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+		for (int round = 0; round < ROUNDS; round++) {
+			for (int j = 0; j < 50; j++) { //single deletes leave tombstones for the next batch
+				int k = rand.nextInt(5000);
+				tree.delete(k);
+				expected.remove(k);
+			}
+			int n = batchSize(rand);
+			int[] keys = new int[n];
+			String[] values = new String[n];
+			for (int j = 0; j < n; j++) {
+				keys[j] = rand.nextInt(5000);
+				values[j] = "v" + keys[j];
+				expected.putIfAbsent(keys[j], values[j]);
+			}
+			tree.insertAll(keys, values);
+			WAVLTreeChecker.check(tree, expected);
+		}
+	}
+
+	@Test
+	void throwingAggregateLeavesTheTreeUnchanged() {
+		WAVLTree tree = new WAVLTree(WAVLAggregate.sum());
+		TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+		for (int k = 0; k < 1000; k++) {
+			tree.insert(k, Integer.toString(k));
+			expected.put(k, Integer.toString(k));
+		}
+		for (int n : new int[] {10, 10000}) { //one by one and parallel merges
+			int[] keys = new int[n];
+			String[] values = new String[n];
+			for (int j = 0; j < n; j++) {
+				keys[j] = 1000 + j;
+				values[j] = Integer.toString(j);
+			}
+			values[n / 2] = "not a number";
+			assertThrows(NumberFormatException.class, () -> tree.insertAll(keys, values));
+			WAVLTreeChecker.check(tree, expected);
+			assertEquals(999 * 1000 / 2, tree.aggregateLong(0, Integer.MAX_VALUE));
+		}
+	}
+
+	@Test
+	void mismatchedArraysAreRejected() {
+		WAVLTree tree = WAVLTree.fromSorted(new int[] {1, 2, 3}, new String[] {"a", "b", "c"});
+		assertThrows(IllegalArgumentException.class, () -> tree.insertAll(new int[] {4, 5}, new String[] {"d"}));
+		assertArrayEquals(new int[] {1, 2, 3}, tree.keysToArray());
+		assertArrayEquals(new int[] {0, 0}, new WAVLTree().deleteAll(new int[] {1, 2}));
+	}
+
+	//mostly small, sometimes past the parallel threshold
+	private static int batchSize(Random rand) {
+		switch (rand.nextInt(4)) {
+		case 0:
+			return rand.nextInt(4);
+		case 1:
+			return rand.nextInt(100);
+		case 2:
+			return rand.nextInt(2000);
+		default:
+			return 4000 + rand.nextInt(8000);
+		}
+	}
+}
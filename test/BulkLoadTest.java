@@ -0,0 +1,100 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * WAVLTree.fromSorted and fromUnsorted against a TreeMap: every size up to a few hundred, the parallel build
+ * of large inputs, and trees that go on with inserts and deletes after the bulk load.
+ */
+class BulkLoadTest {
+
+	@Test
+	void everySmallSize() {
+		for (int n = 0; n <= 300; n++) {
+			TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+			for (int k = 0; k < n; k++) expected.put(3 * k - n, "v" + k);
+			WAVLTree tree = fromSorted(expected);
+			WAVLTreeChecker.check(tree, expected);
+			if (n > 0) {
+				assertEquals(expected.firstEntry().getValue(), tree.min(), "min of " + n);
+				assertEquals(expected.lastEntry().getValue(), tree.max(), "max of " + n);
+			}
+		}
+	}
+
+	@Test
+	void largeInputsBuiltInParallel() {
+		Random rand = new Random(5);
+		TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+		expected.put(Integer.MIN_VALUE, "lowest");
+		expected.put(Integer.MAX_VALUE, "highest");
+		while (expected.size() < 200000) {
+			int k = rand.nextInt();
+			expected.put(k, "v" + k);
+		}
+		WAVLTree tree = fromSorted(expected);
+		WAVLTreeChecker.check(tree, expected);
+		for (int j = 0; j < 20000; j++) { //goes on like any other tree
+			int k = rand.nextInt();
+			if (rand.nextBoolean()) {
+				tree.insert(k, "n" + k);
+				expected.putIfAbsent(k, "n" + k);
+			}
+			else {
+				k = expected.ceilingKey(k) != null ? expected.ceilingKey(k) : k;
+				tree.delete(k);
+				expected.remove(k);
+			}
+		}
+		WAVLTreeChecker.check(tree, expected);
+	}
+
+	@Test
+	void fromUnsortedKeepsTheFirstOfRepeatedKeys() {
+		Random rand = new Random(50);
+		for (int round = 0; round < 50; round++) {
+			int n = round == 0 ? 0 : rand.nextInt(round < 45 ? 2000 : 100000);
+			int[] keys = new int[n];
+			String[] values = new String[n];
+			TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+			for (int j = 0; j < n; j++) {
+				keys[j] = rand.nextInt(Math.max(1, n)) - n / 2; //plenty of repeats
+				values[j] = "v" + j;
+				expected.putIfAbsent(keys[j], values[j]);
+			}
+			int[] keysBefore = keys.clone();
+			WAVLTree tree = WAVLTree.fromUnsorted(keys, values);
+			WAVLTreeChecker.check(tree, expected);
+			assertArrayEquals(keysBefore, keys, "input left as it was");
+
+			WAVLTree inserted = new WAVLTree();
+			for (int j = 0; j < n; j++) inserted.insert(keys[j], values[j]);
+			assertArrayEquals(inserted.infoToArray(), tree.infoToArray());
+		}
+	}
+
+	@Test
+	void badInputIsRejected() {
+		assertThrows(IllegalArgumentException.class, () -> WAVLTree.fromSorted(new int[] {1, 3, 2}, new String[] {"a", "b", "c"}));
+		assertThrows(IllegalArgumentException.class, () -> WAVLTree.fromSorted(new int[] {1, 2, 2}, new String[] {"a", "b", "c"}));
+		assertThrows(IllegalArgumentException.class, () -> WAVLTree.fromSorted(new int[] {1, 2}, new String[] {"a"}));
+		assertThrows(IllegalArgumentException.class, () -> WAVLTree.fromUnsorted(new int[] {1, 2}, new String[] {"a"}));
+	}
+
+	private static WAVLTree fromSorted(TreeMap<Integer, String> items) {
+		int[] keys = new int[items.size()];
+		String[] values = new String[items.size()];
+		int i = 0;
+		for (Map.Entry<Integer, String> e : items.entrySet()) {
+			keys[i] = e.getKey();
+			values[i++] = e.getValue();
+		}
+		return WAVLTree.fromSorted(keys, values);
+	}
+}
@@ -0,0 +1,160 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * ConcurrentWAVLTree against a plain WAVLTree running the same operations, and the modes it refuses
+ */
+class ConcurrentWAVLTreeTest {
+
+	@Test
+	void rejectsFingerMode() {
+		WAVLTree tree = new WAVLTree();
+		tree.setFingerMode(true);
+		assertThrows(IllegalArgumentException.class, () -> new ConcurrentWAVLTree(tree));
+	}
+
+	@Test
+	void sameAnswersAsWAVLTree() {
+		compare(new WAVLTree(), new WAVLTree(), new Random(3));
+	}
+
+	@Test
+	void sameAnswersWithLazyDelete() {
+		WAVLTree lazy = new WAVLTree();
+		lazy.setLazyDelete(true);
+		compare(lazy, new WAVLTree(), new Random(4));
+	}
+
+	@Test
+	void writersAndReadersTogether() throws InterruptedException {
+		stress(new WAVLTree(), new Random(5));
+	}
+
+	@Test
+	void writersAndReadersWithLazyDeleteAndNodePool() throws InterruptedException {
+		WAVLTree lazy = new WAVLTree();
+		lazy.setLazyDelete(true);
+		stress(lazy, new Random(6));
+		WAVLTree pooled = new WAVLTree();
+		pooled.setNodePool(64); //optimistic readers may land on a recycled node- their stamp must catch it
+		stress(pooled, new Random(7));
+	}
+
+	private static final int STRESS_KEYS = 4000;
+	private static final int WRITERS = 3;
+	private static final int READERS = 3;
+	private static final int WRITES = 30000; //per writer
+
+	//writers change disjoint keys (k % WRITERS), readers check that every answer is one some state could give:
+	//a value read for k is a value of k, and the final contents are what the writers left
+	private static void stress(WAVLTree wrapped, Random rand) throws InterruptedException {
+		final ConcurrentWAVLTree concurrent = new ConcurrentWAVLTree(wrapped);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		final AtomicBoolean done = new AtomicBoolean();
+		final List<TreeMap<Integer, String>> written = new ArrayList<TreeMap<Integer, String>>();
+		List<Thread> writers = new ArrayList<Thread>();
+		List<Thread> readers = new ArrayList<Thread>();
+		for (int w = 0; w < WRITERS; w++) {
+			final int writer = w;
+			final long seed = rand.nextLong();
+			final TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+			written.add(expected);
+			writers.add(new Thread(() -> {
+				Random r = new Random(seed);
+				for (int j = 0; j < WRITES && failure.get() == null; j++) {
+					int k = r.nextInt(STRESS_KEYS / WRITERS) * WRITERS + writer;
+					if (r.nextInt(3) == 0) {
+						assertEquals(expected.remove(k) == null, concurrent.delete(k) == -1, "delete " + k);
+					}
+					else {
+						String v = "v" + k + ":" + j;
+						boolean inserted = concurrent.insert(k, v) != -1;
+						assertEquals(!expected.containsKey(k), inserted, "insert " + k);
+						if (inserted) expected.put(k, v);
+					}
+				}
+			}));
+		}
+		for (int t = 0; t < READERS; t++) {
+			final long seed = rand.nextLong();
+			readers.add(new Thread(() -> {
+				Random r = new Random(seed);
+				while (!done.get() && failure.get() == null) {
+					int k = r.nextInt(STRESS_KEYS + 2) - 1;
+					String v = concurrent.search(k);
+					if (v != null) assertTrue(v.startsWith("v" + k + ":"), "search " + k + " gave " + v);
+					int rank = concurrent.rank(k);
+					assertTrue(rank >= 0 && rank <= STRESS_KEYS, "rank " + k + " gave " + rank);
+					checkValue(concurrent.select(r.nextInt(STRESS_KEYS)), "select");
+					checkValue(concurrent.min(), "min");
+					checkValue(concurrent.max(), "max");
+					int size = concurrent.size();
+					assertTrue(size >= 0 && size <= STRESS_KEYS, "size " + size);
+				}
+			}));
+		}
+		Thread.UncaughtExceptionHandler keep = (thread, e) -> failure.compareAndSet(null, e);
+		for (Thread thread : writers) thread.setUncaughtExceptionHandler(keep);
+		for (Thread thread : readers) thread.setUncaughtExceptionHandler(keep);
+		for (Thread thread : readers) thread.start();
+		for (Thread thread : writers) thread.start();
+		for (Thread thread : writers) thread.join();
+		done.set(true);
+		for (Thread thread : readers) thread.join();
+		if (failure.get() != null) throw new AssertionError(failure.get());
+
+		TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+		for (TreeMap<Integer, String> part : written) expected.putAll(part);
+		WAVLTreeChecker.check(wrapped, expected);
+		assertEquals(expected.size(), concurrent.size());
+		for (int k = -1; k <= STRESS_KEYS; k++) {
+			assertEquals(expected.get(k), concurrent.search(k), "search " + k);
+		}
+		assertEquals(expected.isEmpty() ? null : expected.firstEntry().getValue(), concurrent.min());
+		assertNull(concurrent.select(expected.size()));
+	}
+
+	//a value any writer could have inserted (v<key>:<write>), or null
+	private static void checkValue(String v, String what) {
+		if (v == null) return;
+		int colon = v.indexOf(':');
+		assertTrue(v.startsWith("v") && colon > 1, what + " gave " + v);
+		int k = Integer.parseInt(v.substring(1, colon));
+		assertTrue(k >= 0 && k < STRESS_KEYS, what + " gave " + v);
+	}
+
+	//runs random writes on both trees, comparing the reads of the concurrent one with the plain one
+	static void compare(WAVLTree wrapped, WAVLTree plain, Random rand) {
+		ConcurrentWAVLTree concurrent = new ConcurrentWAVLTree(wrapped);
+		for (int round = 0; round < 20; round++) {
+			for (int j = 0; j < 500; j++) {
+				int k = rand.nextInt(2000);
+				if (rand.nextInt(3) == 0) assertEquals(plain.delete(k) == -1, concurrent.delete(k) == -1, "delete " + k);
+				else assertEquals(plain.insert(k, "v" + k) == -1, concurrent.insert(k, "v" + k) == -1, "insert " + k);
+			}
+			assertEquals(plain.size(), concurrent.size());
+			assertArrayEquals(plain.keysToArray(), concurrent.keysToArray());
+			assertEquals(plain.min(), concurrent.min());
+			assertEquals(plain.max(), concurrent.max());
+			for (int k = -1; k <= 2000; k++) {
+				assertEquals(plain.search(k), concurrent.search(k), "search " + k);
+				assertEquals(plain.rank(k), concurrent.rank(k), "rank " + k);
+			}
+			for (int i = -1; i <= plain.size(); i++) {
+				assertEquals(plain.select(i), concurrent.select(i), "select " + i);
+			}
+		}
+	}
+}
@@ -0,0 +1,107 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * WAVLTree.Cursor scans and seeks against a TreeMap's entries, on a plain tree and on one with tombstones
+ * (which every move must skip).
+ */
+class CursorTest {
+
+	@Test
+	void plain() {
+		run(new WAVLTree(), new Random(8));
+	}
+
+	@Test
+	void withTombstones() {
+		WAVLTree tree = new WAVLTree();
+		tree.setLazyDelete(true);
+		run(tree, new Random(80));
+	}
+
+	@Test
+	void emptyTreeAndInvalidCursor() {
+		WAVLTree tree = new WAVLTree();
+		WAVLTree.Cursor cursor = tree.cursor();
+		assertFalse(cursor.valid());
+		assertThrows(NoSuchElementException.class, () -> cursor.key());
+		assertThrows(NoSuchElementException.class, () -> cursor.value());
+		assertFalse(cursor.first());
+		assertFalse(cursor.last());
+		assertFalse(cursor.seek(0));
+		assertFalse(cursor.seekRank(0));
+		assertFalse(cursor.next());
+		assertFalse(cursor.prev());
+		tree.insert(3, "c");
+		assertTrue(cursor.first());
+		assertFalse(cursor.next()); //moved past the end: stays invalid
+		assertFalse(cursor.prev());
+		assertThrows(NoSuchElementException.class, () -> cursor.key());
+		assertFalse(cursor.seek(4));
+		assertFalse(cursor.seekRank(1));
+		assertFalse(cursor.seekRank(-1));
+	}
+
+	private static void run(WAVLTree tree, Random rand) {
+		TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+		WAVLTree.Cursor cursor = tree.cursor(); //one cursor reused across every change, positioned again each time
+		for (int round = 0; round < 30; round++) {
+			for (int j = 0; j < 400; j++) {
+				int k = rand.nextInt(3000);
+				if (rand.nextInt(3) > 0) {
+					tree.insert(k, "v" + k);
+					expected.putIfAbsent(k, "v" + k);
+				}
+				else {
+					tree.delete(k);
+					expected.remove(k);
+				}
+			}
+			WAVLTreeChecker.check(tree, expected);
+
+			boolean more = cursor.first(); //forward scan
+			for (Map.Entry<Integer, String> e : expected.entrySet()) {
+				assertTrue(more);
+				assertEquals(e.getKey().intValue(), cursor.key());
+				assertEquals(e.getValue(), cursor.value());
+				more = cursor.next();
+			}
+			assertFalse(more);
+			more = cursor.last(); //reverse scan
+			for (Map.Entry<Integer, String> e : expected.descendingMap().entrySet()) {
+				assertTrue(more);
+				assertEquals(e.getKey().intValue(), cursor.key());
+				more = cursor.prev();
+			}
+			assertFalse(more);
+
+			for (int j = 0; j < 100; j++) { //seek, then a few steps either way
+				int k = rand.nextInt(3200) - 100;
+				Map.Entry<Integer, String> e = expected.ceilingEntry(k);
+				assertEquals(e != null, cursor.seek(k), "seek " + k);
+				for (int step = 0; e != null && step < 5; step++) {
+					assertEquals(e.getKey().intValue(), cursor.key(), "seek " + k + " step " + step);
+					assertEquals(e.getValue(), cursor.value());
+					boolean forward = rand.nextBoolean();
+					e = forward ? expected.higherEntry(e.getKey()) : expected.lowerEntry(e.getKey());
+					assertEquals(e != null, forward ? cursor.next() : cursor.prev());
+				}
+				if (!expected.isEmpty()) {
+					int i = rand.nextInt(expected.size());
+					assertTrue(cursor.seekRank(i));
+					assertEquals(tree.select(i), cursor.value(), "seekRank " + i);
+					assertEquals(i, tree.rank(cursor.key()));
+				}
+			}
+		}
+	}
+}
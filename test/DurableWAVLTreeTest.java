@@ -0,0 +1,149 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * DurableWAVLTree recovering from what a crash leaves in its directory, under every SyncPolicy,
+ * against a TreeMap of the operations that must survive.
+ */
+class DurableWAVLTreeTest {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void reopensWhatWasClosed() throws IOException {
+		for (DurableWAVLTree.SyncPolicy policy : DurableWAVLTree.SyncPolicy.values()) {
+			Path treeDir = dir.resolve(policy.name());
+			TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+			Random rand = new Random(14);
+			for (int session = 0; session < 3; session++) { //a small checkpointBytes: checkpoints in between
+				try (DurableWAVLTree tree = new DurableWAVLTree(treeDir, policy, 5, 4096)) {
+					compare(tree, expected, policy);
+					randomOperations(tree, expected, rand, 1000);
+				}
+			}
+			try (DurableWAVLTree tree = new DurableWAVLTree(treeDir, policy, 5, 4096)) {
+				compare(tree, expected, policy);
+			}
+		}
+	}
+
+	@Test
+	void tornTrailingRecordIsDropped() throws IOException {
+		for (DurableWAVLTree.SyncPolicy policy : DurableWAVLTree.SyncPolicy.values()) {
+			Path treeDir = dir.resolve(policy.name());
+			Path log = treeDir.resolve(DurableWAVLTree.LOG);
+			TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+			Random rand = new Random(15);
+			try (DurableWAVLTree tree = new DurableWAVLTree(treeDir, policy, 5, 1L << 30)) {
+				randomOperations(tree, expected, rand, 500);
+			}
+			for (int cut = 0; cut < 30; cut++) {
+				long before = Files.size(log);
+				try (DurableWAVLTree tree = new DurableWAVLTree(treeDir, policy, 5, 1L << 30)) {
+					tree.insert(100000 + cut, "last " + cut); //not in expected: its record is torn below
+				}
+				long after = Files.size(log);
+				byte[] bytes = Files.readAllBytes(log);
+				if (cut % 3 == 0) {
+					bytes[(int) after - 1] ^= 1; //whole but with a wrong CRC
+				}
+				else {
+					bytes = Arrays.copyOf(bytes, (int) (before + rand.nextInt((int) (after - before)))); //cut anywhere in the record
+				}
+				Files.write(log, bytes);
+				try (DurableWAVLTree tree = new DurableWAVLTree(treeDir, policy, 5, 1L << 30)) {
+					compare(tree, expected, policy);
+					assertEquals(before, Files.size(log), policy + ": the torn record is cut off the log");
+					randomOperations(tree, expected, rand, 20); //appends after the cut
+				}
+			}
+			try (DurableWAVLTree tree = new DurableWAVLTree(treeDir, policy, 5, 1L << 30)) {
+				compare(tree, expected, policy);
+			}
+		}
+	}
+
+	@Test
+	void crashBetweenCheckpointAndLogTruncate() throws IOException {
+		for (DurableWAVLTree.SyncPolicy policy : DurableWAVLTree.SyncPolicy.values()) {
+			Path treeDir = dir.resolve(policy.name());
+			Path log = treeDir.resolve(DurableWAVLTree.LOG);
+			TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+			Random rand = new Random(16);
+			for (int round = 0; round < 5; round++) {
+				try (DurableWAVLTree tree = new DurableWAVLTree(treeDir, policy, 5, 1L << 30)) {
+					randomOperations(tree, expected, rand, 400); //same keys over and over: inserts, deletes and reinserts
+				}
+				byte[] records = Files.readAllBytes(log);
+				try (DurableWAVLTree tree = new DurableWAVLTree(treeDir, policy, 5, 1L << 30)) {
+					tree.checkpoint();
+				}
+				assertEquals(0, Files.size(log));
+				Files.write(log, records); //the checkpoint was moved into place, but the log was never cut
+				try (DurableWAVLTree tree = new DurableWAVLTree(treeDir, policy, 5, 1L << 30)) {
+					compare(tree, expected, policy);
+				}
+			}
+			Files.write(WAVLTree.tempFile(treeDir.resolve(DurableWAVLTree.CHECKPOINT)), new byte[] {1, 2}); //a save cut short
+			try (DurableWAVLTree tree = new DurableWAVLTree(treeDir, policy, 5, 1L << 30)) {
+				compare(tree, expected, policy);
+			}
+		}
+	}
+
+	@Test
+	void closedTreeRejectsWrites() throws IOException {
+		DurableWAVLTree tree = new DurableWAVLTree(dir, DurableWAVLTree.SyncPolicy.OS, 5, 4096);
+		tree.insert(1, "a");
+		tree.close();
+		tree.close(); //closing twice is fine
+		assertThrows(IllegalStateException.class, () -> tree.insert(2, "b"));
+		assertThrows(IllegalStateException.class, () -> tree.delete(1));
+		assertThrows(IllegalStateException.class, () -> tree.checkpoint());
+		assertThrows(IllegalArgumentException.class, () -> new DurableWAVLTree(dir, DurableWAVLTree.SyncPolicy.INTERVAL, 0, 4096));
+	}
+
+	//inserts (some values null or empty) and deletes on a small key range, applied to expected too
+	private static void randomOperations(DurableWAVLTree tree, TreeMap<Integer, String> expected, Random rand, int count) {
+		for (int j = 0; j < count; j++) {
+			int k = rand.nextInt(300);
+			if (rand.nextInt(3) > 0) {
+				String v = rand.nextInt(10) == 0 ? null : rand.nextInt(10) == 0 ? "" : "v" + rand.nextInt(1000);
+				int result = tree.insert(k, v);
+				assertEquals(expected.containsKey(k), result == -1, "insert of " + k);
+				if (result != -1) expected.put(k, v); //not putIfAbsent, which replaces a null value
+			}
+			else {
+				int result = tree.delete(k);
+				assertEquals(expected.containsKey(k), result != -1, "delete of " + k);
+				expected.remove(k);
+			}
+		}
+	}
+
+	private static void compare(DurableWAVLTree tree, TreeMap<Integer, String> expected, DurableWAVLTree.SyncPolicy policy) {
+		int[] keys = new int[expected.size()];
+		String[] values = new String[expected.size()];
+		int i = 0;
+		for (Map.Entry<Integer, String> e : expected.entrySet()) {
+			keys[i] = e.getKey();
+			values[i++] = e.getValue();
+		}
+		assertEquals(expected.size(), tree.size(), policy + ": size");
+		assertArrayEquals(keys, tree.keysToArray(), policy + ": keys");
+		assertArrayEquals(values, tree.infoToArray(), policy + ": values");
+	}
+}
@@ -0,0 +1,128 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * finger mode against a TreeMap: insert/delete/search/select starting from the fingers must give the same
+ * answers as starting from the root, for keys arriving nearly in order, keys arriving at random, and with
+ * finger mode turned off and on again in between.
+ */
+class FingerModeTest {
+
+	@Test
+	void nearlySortedKeys() {
+		Random rand = new Random(12);
+		WAVLTree tree = new WAVLTree();
+		tree.setFingerMode(true);
+		TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+		int next = 0;
+		for (int j = 0; j < 60000; j++) {
+			int op = rand.nextInt(10);
+			if (op < 6) { //mostly the next key, sometimes a late one
+				int k = rand.nextInt(8) == 0 ? next - rand.nextInt(200) : next++;
+				insert(tree, expected, k);
+			}
+			else if (op < 8) { //expire the oldest keys, or one near the newest
+				int k = rand.nextBoolean() && !expected.isEmpty() ? expected.firstKey() : next - rand.nextInt(50);
+				delete(tree, expected, k);
+			}
+			else {
+				read(tree, expected, next - rand.nextInt(300), rand);
+			}
+			if (j % 6000 == 0) check(tree, expected);
+		}
+		check(tree, expected);
+	}
+
+	@Test
+	void randomKeys() {
+		Random rand = new Random(120);
+		WAVLTree tree = new WAVLTree();
+		tree.setFingerMode(true);
+		TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+		for (int j = 0; j < 60000; j++) {
+			int k = rand.nextInt(5000) - 2500;
+			int op = rand.nextInt(10);
+			if (op < 5) insert(tree, expected, k);
+			else if (op < 8) delete(tree, expected, k);
+			else read(tree, expected, k, rand);
+			if (j % 6000 == 0) check(tree, expected);
+		}
+		check(tree, expected);
+	}
+
+	@Test
+	void turnedOffAndOnAgain() {
+		Random rand = new Random(1200);
+		WAVLTree tree = new WAVLTree();
+		TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+		for (int round = 0; round < 20; round++) {
+			tree.setFingerMode(round % 2 == 0); //the fingers start over from the tree as it is
+			assertEquals(round % 2 == 0, tree.isFingerMode());
+			for (int j = 0; j < 2000; j++) {
+				int k = rand.nextInt(3000);
+				int op = rand.nextInt(10);
+				if (op < 5) insert(tree, expected, k);
+				else if (op < 8) delete(tree, expected, k);
+				else read(tree, expected, k, rand);
+			}
+			check(tree, expected);
+		}
+	}
+
+	@Test
+	void emptyTreeAndLazyDelete() {
+		WAVLTree tree = new WAVLTree();
+		tree.setFingerMode(true);
+		TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+		read(tree, expected, 1, new Random(0));
+		insert(tree, expected, 1);
+		delete(tree, expected, 1); //back to empty: the fingers must not keep the old node
+		read(tree, expected, 1, new Random(0));
+		insert(tree, expected, 2);
+		WAVLTreeChecker.check(tree, expected);
+		assertThrows(IllegalStateException.class, () -> tree.setLazyDelete(true));
+		tree.setFingerMode(false);
+		tree.setLazyDelete(true);
+		assertThrows(IllegalStateException.class, () -> tree.setFingerMode(true));
+	}
+
+	private static void check(WAVLTree tree, TreeMap<Integer, String> expected) {
+		WAVLTreeChecker.check(tree, expected);
+		int i = 0;
+		for (String value : expected.values()) {
+			assertEquals(value, tree.select(i++), "select " + (i - 1));
+		}
+	}
+
+	private static void insert(WAVLTree tree, TreeMap<Integer, String> expected, int k) {
+		boolean had = expected.containsKey(k);
+		int result = tree.insert(k, "v" + k);
+		assertTrue(had ? result == -1 : result >= 0, "insert " + k);
+		expected.putIfAbsent(k, "v" + k);
+	}
+
+	private static void delete(WAVLTree tree, TreeMap<Integer, String> expected, int k) {
+		boolean had = expected.remove(k) != null;
+		int result = tree.delete(k);
+		assertTrue(had ? result >= 0 : result == -1, "delete " + k);
+	}
+
+	private static void read(WAVLTree tree, TreeMap<Integer, String> expected, int k, Random rand) {
+		assertEquals(expected.get(k), tree.search(k), "search " + k);
+		assertEquals(expected.size(), tree.size());
+		if (!expected.isEmpty()) {
+			int i = rand.nextInt(expected.size()); //values name their keys: "v" + k
+			int selected = Integer.parseInt(tree.select(i).substring(1));
+			assertTrue(expected.containsKey(selected), "select " + i);
+			assertEquals(i, tree.rank(selected), "select " + i);
+			assertEquals(expected.firstEntry().getValue(), tree.min());
+			assertEquals(expected.lastEntry().getValue(), tree.max());
+		}
+	}
+}
@@ -0,0 +1,151 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * freeze and FrozenWAVLTree against a TreeMap: every size up to a few hundred (each fills the Eytzinger
+ * array differently), large trees with and without prefetching, frozen copies of trees with tombstones,
+ * and copies staying as they were while the tree goes on.
+ */
+class FrozenWAVLTreeTest {
+
+	@Test
+	void everySmallSize() {
+		for (int n = 0; n <= 300; n++) {
+			WAVLTree tree = new WAVLTree();
+			TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+			for (int k = 0; k < n; k++) {
+				tree.insert(2 * k, "v" + k);
+				expected.put(2 * k, "v" + k);
+			}
+			compare(tree.freeze(n % 2 == 0), expected, new Random(n));
+		}
+	}
+
+	@Test
+	void largeTreesWithAndWithoutPrefetch() {
+		Random rand = new Random(15);
+		WAVLTree tree = new WAVLTree();
+		TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+		tree.insert(Integer.MIN_VALUE, "lowest");
+		expected.put(Integer.MIN_VALUE, "lowest");
+		tree.insert(Integer.MAX_VALUE, "highest");
+		expected.put(Integer.MAX_VALUE, "highest");
+		for (int round = 0; round < 4; round++) {
+			for (int j = 0; j < 30000; j++) {
+				int k = rand.nextInt();
+				tree.insert(k, "v" + k);
+				expected.putIfAbsent(k, "v" + k);
+			}
+			compare(tree.freeze(false), expected, rand);
+			compare(tree.freeze(true), expected, rand);
+		}
+	}
+
+	@Test
+	void tombstonesAreLeftOut() {
+		Random rand = new Random(150);
+		WAVLTree tree = new WAVLTree();
+		tree.setLazyDelete(true);
+		TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+		for (int j = 0; j < 20000; j++) {
+			int k = rand.nextInt(5000);
+			if (rand.nextInt(3) > 0) {
+				tree.insert(k, "v" + k);
+				expected.putIfAbsent(k, "v" + k);
+			}
+			else {
+				tree.delete(k);
+				expected.remove(k);
+			}
+			if (j % 4000 == 0) compare(tree.freeze(), expected, rand);
+		}
+		compare(tree.freeze(), expected, rand);
+	}
+
+	@Test
+	void laterChangesDoNotShow() {
+		Random rand = new Random(1500);
+		WAVLTree tree = new WAVLTree();
+		TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+		for (int k = 0; k < 1000; k++) {
+			tree.insert(k, "v" + k);
+			expected.put(k, "v" + k);
+		}
+		FrozenWAVLTree frozen = tree.freeze();
+		for (int k = 0; k < 1000; k += 2) tree.delete(k);
+		for (int k = 1000; k < 1500; k++) tree.insert(k, "n" + k);
+		compare(frozen, expected, rand);
+		for (int k = 0; k < 1000; k += 2) expected.remove(k);
+		for (int k = 1000; k < 1500; k++) expected.put(k, "n" + k);
+		WAVLTreeChecker.check(tree, expected);
+		compare(tree.freeze(), expected, rand);
+	}
+
+	private static void compare(FrozenWAVLTree frozen, TreeMap<Integer, String> expected, Random rand) {
+		String what = " of " + expected.size();
+		assertEquals(expected.size(), frozen.size(), "size" + what);
+		assertEquals(expected.isEmpty(), frozen.empty());
+		assertEquals(expected.isEmpty() ? null : expected.firstEntry().getValue(), frozen.min(), "min" + what);
+		assertEquals(expected.isEmpty() ? null : expected.lastEntry().getValue(), frozen.max(), "max" + what);
+		int[] sorted = frozen.keysToArray();
+		assertArrayEquals(expected.keySet().stream().mapToInt(Integer::intValue).toArray(), sorted);
+		String[] sortedValues = expected.values().toArray(new String[0]);
+		assertArrayEquals(sortedValues, frozen.infoToArray());
+		assertEquals(null, frozen.select(-1));
+		assertEquals(null, frozen.select(expected.size()));
+
+		int i = 0;
+		for (int k : expected.keySet()) {
+			assertEquals(expected.get(k), frozen.search(k), "search " + k + what);
+			assertEquals(true, frozen.contains(k));
+			assertEquals(expected.get(k), frozen.select(i), "select " + i + what);
+			assertEquals(i, frozen.rank(k), "rank " + k + what);
+			if (k != Integer.MIN_VALUE && !expected.containsKey(k - 1)) { //a missing key just below
+				assertEquals(null, frozen.search(k - 1), "search " + (k - 1) + what);
+				assertEquals(false, frozen.contains(k - 1));
+				assertEquals(i, frozen.rank(k - 1), "rank " + (k - 1) + what);
+			}
+			i++;
+		}
+		assertEquals(expected.headMap(Integer.MAX_VALUE).size(), frozen.rank(Integer.MAX_VALUE));
+
+		for (int j = 0; j < 200; j++) {
+			int lo;
+			int hi;
+			if (expected.isEmpty() || j % 2 == 0) {
+				lo = rand.nextInt();
+				hi = j % 10 == 0 ? lo - 1 : lo + rand.nextInt(Integer.MAX_VALUE - Math.max(lo, 0));
+			}
+			else { //around keys of the tree
+				lo = sorted[rand.nextInt(expected.size())] - rand.nextInt(2);
+				hi = lo + rand.nextInt(1 << 20);
+				if (hi < lo) hi = Integer.MAX_VALUE;
+			}
+			//the range as indexes into the sorted keys, already checked against the TreeMap above
+			int from = ceilingIndex(sorted, lo);
+			int count = lo > hi ? 0 : (hi == Integer.MAX_VALUE ? sorted.length : ceilingIndex(sorted, hi + 1)) - from;
+			String in = " in [" + lo + ", " + hi + "]" + what;
+			assertEquals(count, frozen.countInRange(lo, hi), "count" + in);
+			int limit = rand.nextInt(3) == 0 ? rand.nextInt(10) : count;
+			int want = Math.min(limit, count);
+			int[] keys = new int[limit];
+			String[] values = new String[limit];
+			assertEquals(want, frozen.keysInRange(lo, hi, keys), "keys" + in);
+			assertEquals(want, frozen.valuesInRange(lo, hi, values), "values" + in);
+			assertArrayEquals(Arrays.copyOfRange(sorted, from, from + want), Arrays.copyOf(keys, want), "keys" + in);
+			assertArrayEquals(Arrays.copyOfRange(sortedValues, from, from + want), Arrays.copyOf(values, want), "values" + in);
+		}
+		assertEquals(expected.size(), frozen.countInRange(Integer.MIN_VALUE, Integer.MAX_VALUE));
+	}
+
+	private static int ceilingIndex(int[] sorted, int k) {
+		int i = Arrays.binarySearch(sorted, k);
+		return i >= 0 ? i : -i - 1;
+	}
+}
@@ -0,0 +1,180 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * WAVLTree.join and split on random trees, against the same result built by per-key insert/delete,
+ * checking the rank rule, sizes and parent links of every tree they return (WAVLTreeChecker).
+ */
+class JoinSplitTest {
+
+	private static final int ROUNDS = 300;
+
+	@Test
+	void splitMatchesPerKeyDeletes() {
+		Random rand = new Random(6);
+		for (int round = 0; round < ROUNDS; round++) {
+			TreeMap<Integer, String> items = randomItems(rand, rand.nextInt(2000), 0, 10000);
+			WAVLTree tree = build(items, rand);
+			int k = rand.nextInt(10002) - 1; //present or not, below and above every key too
+			WAVLTree[] parts = tree.split(k);
+
+			assertTrue(tree.empty(), "split leaves the tree empty");
+			WAVLTreeChecker.check(parts[0], new TreeMap<Integer, String>(items.headMap(k, false)));
+			WAVLTreeChecker.check(parts[1], new TreeMap<Integer, String>(items.tailMap(k, false)));
+
+			WAVLTree smaller = build(items, rand); //per key: delete everything from k up
+			WAVLTree larger = build(items, rand);
+			for (int key : items.keySet()) {
+				if (key >= k) smaller.delete(key);
+				if (key <= k) larger.delete(key);
+			}
+			WAVLTreeChecker.check(smaller);
+			WAVLTreeChecker.check(larger);
+			assertArrayEquals(smaller.keysToArray(), parts[0].keysToArray());
+			assertArrayEquals(smaller.infoToArray(), parts[0].infoToArray());
+			assertArrayEquals(larger.keysToArray(), parts[1].keysToArray());
+			assertArrayEquals(larger.infoToArray(), parts[1].infoToArray());
+		}
+	}
+
+	@Test
+	void joinMatchesPerKeyInserts() {
+		Random rand = new Random(7);
+		for (int round = 0; round < ROUNDS; round++) {
+			int k = 5000 + rand.nextInt(1000);
+			//sizes from empty to thousands on either side, so the ranks of the two trees differ by anything
+			TreeMap<Integer, String> leftItems = randomItems(rand, sizeOfSide(rand), 0, k);
+			TreeMap<Integer, String> rightItems = randomItems(rand, sizeOfSide(rand), k + 1, 20000);
+			WAVLTree left = build(leftItems, rand);
+			WAVLTree right = build(rightItems, rand);
+			WAVLTree joined = WAVLTree.join(left, k, "k", right);
+
+			assertTrue(left.empty() && right.empty(), "join leaves both trees empty");
+			TreeMap<Integer, String> expected = new TreeMap<Integer, String>(leftItems);
+			expected.put(k, "k");
+			expected.putAll(rightItems);
+			WAVLTreeChecker.check(joined, expected);
+
+			WAVLTree perKey = build(leftItems, rand);
+			perKey.insert(k, "k");
+			for (Map.Entry<Integer, String> e : rightItems.entrySet()) perKey.insert(e.getKey(), e.getValue());
+			WAVLTreeChecker.check(perKey);
+			assertArrayEquals(perKey.keysToArray(), joined.keysToArray());
+			assertArrayEquals(perKey.infoToArray(), joined.infoToArray());
+
+			joined.insert(k + 20000, "after"); //the joined tree goes on like any other
+			joined.delete(k);
+			expected.put(k + 20000, "after");
+			expected.remove(k);
+			WAVLTreeChecker.check(joined, expected);
+		}
+	}
+
+	@Test
+	void splitThenJoinRestoresTheTree() {
+		Random rand = new Random(8);
+		for (int round = 0; round < ROUNDS; round++) {
+			TreeMap<Integer, String> items = randomItems(rand, 1 + rand.nextInt(3000), 0, 10000);
+			WAVLTree tree = build(items, rand);
+			int k = pick(items, rand);
+			WAVLTree[] parts = tree.split(k);
+			WAVLTree joined = WAVLTree.join(parts[0], k, items.get(k), parts[1]);
+			WAVLTreeChecker.check(joined, items);
+			assertEquals(items.firstEntry().getValue(), joined.min());
+			assertEquals(items.lastEntry().getValue(), joined.max());
+		}
+	}
+
+	@Test
+	void repeatedSplitsWithLazyDelete() {
+		Random rand = new Random(9);
+		TreeMap<Integer, String> items = randomItems(rand, 5000, 0, 100000);
+		WAVLTree tree = build(items, rand);
+		tree.setLazyDelete(true);
+		for (int j = 0; j < 1000; j++) { //tombstones, which split must drop
+			int k = pick(items, rand);
+			tree.delete(k);
+			items.remove(k);
+		}
+		while (items.size() > 1) {
+			int k = pick(items, rand);
+			WAVLTree[] parts = tree.split(k);
+			boolean keepSmaller = rand.nextBoolean();
+			items = new TreeMap<Integer, String>(keepSmaller ? items.headMap(k, false) : items.tailMap(k, false));
+			tree = parts[keepSmaller ? 0 : 1];
+			WAVLTreeChecker.check(tree, items);
+			assertEquals(0, tree.tombstones());
+		}
+	}
+
+	@Test
+	void joinRejectsOverlappingKeys() {
+		WAVLTree left = WAVLTree.fromSorted(new int[] {1, 5, 9}, new String[] {"a", "b", "c"});
+		WAVLTree right = WAVLTree.fromSorted(new int[] {12, 15}, new String[] {"d", "e"});
+		assertThrows(IllegalArgumentException.class, () -> WAVLTree.join(left, 9, "x", right));
+		assertThrows(IllegalArgumentException.class, () -> WAVLTree.join(left, 13, "x", right));
+		assertThrows(IllegalArgumentException.class, () -> WAVLTree.join(right, 10, "x", left));
+		WAVLTreeChecker.check(left);
+		WAVLTreeChecker.check(right);
+		assertEquals(3, left.size());
+		assertEquals(2, right.size());
+	}
+
+	//mostly small, sometimes empty or large
+	private static int sizeOfSide(Random rand) {
+		switch (rand.nextInt(4)) {
+		case 0:
+			return 0;
+		case 1:
+			return 1 + rand.nextInt(8);
+		case 2:
+			return rand.nextInt(200);
+		default:
+			return rand.nextInt(4000);
+		}
+	}
+
+	//up to n distinct keys in [lo, hi)
+	private static TreeMap<Integer, String> randomItems(Random rand, int n, int lo, int hi) {
+		TreeMap<Integer, String> items = new TreeMap<Integer, String>();
+		for (int j = 0; j < n && hi > lo; j++) {
+			int k = lo + rand.nextInt(hi - lo);
+			items.put(k, "v" + k);
+		}
+		return items;
+	}
+
+	//a tree of items by per-key inserts in random order, or by the linear bulk load
+	private static WAVLTree build(TreeMap<Integer, String> items, Random rand) {
+		int[] keys = new int[items.size()];
+		String[] values = new String[items.size()];
+		int i = 0;
+		for (Map.Entry<Integer, String> e : items.entrySet()) {
+			keys[i] = e.getKey();
+			values[i++] = e.getValue();
+		}
+		if (rand.nextBoolean()) return WAVLTree.fromSorted(keys, values);
+		for (int j = keys.length - 1; j > 0; j--) {
+			int r = rand.nextInt(j + 1);
+			int t = keys[j];
+			keys[j] = keys[r];
+			keys[r] = t;
+		}
+		WAVLTree tree = new WAVLTree();
+		for (int k : keys) tree.insert(k, "v" + k);
+		return tree;
+	}
+
+	//a random key of items (not empty)
+	private static int pick(TreeMap<Integer, String> items, Random rand) {
+		return items.ceilingKey(items.firstKey() + rand.nextInt(items.lastKey() - items.firstKey() + 1));
+	}
+}
@@ -0,0 +1,128 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * lazy delete (tombstones, revives, compact) against a TreeMap, checking the tree's invariants along the way.
+ */
+class LazyDeleteTest {
+
+	@Test
+	void randomOperationsMatchTreeMap() {
+		Random rand = new Random(20);
+		WAVLTree tree = new WAVLTree();
+		tree.setLazyDelete(true);
+		TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+		for (int j = 0; j < 30000; j++) {
+			int k = rand.nextInt(3000);
+			int op = rand.nextInt(10);
+			if (op < 5) {
+				int result = tree.insert(k, "v" + j);
+				assertEquals(expected.containsKey(k), result == -1, "insert of " + k);
+				expected.putIfAbsent(k, "v" + j);
+			}
+			else if (op < 9) {
+				int result = tree.delete(k);
+				assertEquals(expected.containsKey(k), result == 0, "lazy delete of " + k); //no rebalancing
+				expected.remove(k);
+			}
+			else if (rand.nextInt(20) == 0) {
+				int tombstones = tree.tombstones();
+				assertEquals(tombstones, tree.compact());
+				assertEquals(0, tree.tombstones());
+			}
+			assertTrue(tree.tombstones() <= tree.size() + 1, "compacts once tombstones outnumber items");
+			if (j % 1000 == 0) {
+				WAVLTreeChecker.check(tree, expected);
+				compareQueries(tree, expected);
+			}
+		}
+		WAVLTreeChecker.check(tree, expected);
+		compareQueries(tree, expected);
+		tree.setLazyDelete(false);
+		assertEquals(0, tree.tombstones(), "turning lazy delete off compacts");
+		WAVLTreeChecker.check(tree, expected);
+	}
+
+	@Test
+	void aggregatesSkipTombstones() {
+		Random rand = new Random(21);
+		WAVLTree tree = new WAVLTree(WAVLAggregate.sum());
+		tree.setLazyDelete(true);
+		TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+		for (int j = 0; j < 10000; j++) {
+			int k = rand.nextInt(1000);
+			if (rand.nextBoolean()) {
+				tree.insert(k, Integer.toString(k));
+				expected.putIfAbsent(k, Integer.toString(k));
+			}
+			else {
+				tree.delete(k);
+				expected.remove(k);
+			}
+			if (j % 100 == 0) {
+				int lo = rand.nextInt(1000);
+				int hi = lo + rand.nextInt(1000 - lo);
+				long sum = 0;
+				for (int key : expected.subMap(lo, true, hi, true).keySet()) sum += key;
+				assertEquals(sum, tree.aggregateLong(lo, hi), "sum of [" + lo + ", " + hi + "]");
+			}
+		}
+		WAVLTreeChecker.check(tree, expected);
+	}
+
+	@Test
+	void throwingAggregateLeavesATombstoneUnrevived() {
+		WAVLTree tree = new WAVLTree(WAVLAggregate.sum());
+		tree.setLazyDelete(true);
+		TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+		for (int k = 0; k < 100; k++) {
+			tree.insert(k, "1");
+			expected.put(k, "1");
+		}
+		tree.delete(40);
+		expected.remove(40);
+		assertThrows(NumberFormatException.class, () -> tree.insert(40, "not a number"));
+		assertEquals(1, tree.tombstones());
+		assertNull(tree.search(40));
+		assertEquals(99, tree.aggregateLong(0, 99));
+		WAVLTreeChecker.check(tree, expected);
+		tree.delete(0); //the extremes moved past tombstones stay right
+		tree.delete(99);
+		expected.remove(0);
+		expected.remove(99);
+		assertEquals("1", tree.min());
+		assertEquals(1, tree.peekMin());
+		assertEquals(98, tree.peekMax());
+		WAVLTreeChecker.check(tree, expected);
+	}
+
+	@Test
+	void fingerModeIsRejected() {
+		WAVLTree tree = new WAVLTree();
+		tree.setFingerMode(true);
+		assertThrows(IllegalStateException.class, () -> tree.setLazyDelete(true));
+	}
+
+	//search, select, rank, min and max skip tombstones
+	private static void compareQueries(WAVLTree tree, TreeMap<Integer, String> expected) {
+		int i = 0;
+		for (int k : expected.keySet()) {
+			assertEquals(expected.get(k), tree.search(k));
+			assertEquals(expected.get(k), tree.select(i));
+			assertEquals(i, tree.rank(k));
+			i++;
+		}
+		for (int k = 0; k < 3000; k += 7) {
+			if (!expected.containsKey(k)) assertNull(tree.search(k), "search of deleted " + k);
+		}
+		assertEquals(expected.isEmpty() ? null : expected.firstEntry().getValue(), tree.min());
+		assertEquals(expected.isEmpty() ? null : expected.lastEntry().getValue(), tree.max());
+	}
+}
@@ -0,0 +1,125 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.reflect.Field;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * WAVLTreeMetrics against counts kept next to a TreeMap. the hooks only run with -Dwavl.metrics=true, which the
+ * build's metrics execution sets; without it only the check that metrics are refused runs.
+ */
+class MetricsTest {
+
+	@Test
+	void refusedWithoutTheFlag() {
+		assumeFalse(WAVLTree.INSTRUMENTED);
+		assertThrows(IllegalStateException.class, () -> new WAVLTree().enableMetrics());
+	}
+
+	@Test
+	void countsMatchTheOperations() {
+		assumeTrue(WAVLTree.INSTRUMENTED);
+		Random rand = new Random(17);
+		WAVLTree tree = new WAVLTree();
+		WAVLTreeMetrics metrics = tree.enableMetrics();
+		assertSame(metrics, tree.enableMetrics());
+		TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+		long inserts = 0, deletes = 0, searches = 0, misses = 0, steps = 0;
+		long[] insertSteps = new long[WAVLTreeMetrics.BUCKETS];
+		long[] deleteSteps = new long[WAVLTreeMetrics.BUCKETS];
+		for (int j = 0; j < 50000; j++) {
+			int k = rand.nextInt(5000);
+			int op = rand.nextInt(3);
+			if (op == 0) {
+				int result = tree.insert(k, "v" + k);
+				inserts++;
+				if (result == -1) misses++;
+				else {
+					steps += result;
+					insertSteps[Math.min(result, WAVLTreeMetrics.BUCKETS - 1)]++;
+				}
+				expected.putIfAbsent(k, "v" + k);
+			}
+			else if (op == 1) {
+				int result = tree.delete(k);
+				deletes++;
+				if (result == -1) misses++;
+				else {
+					steps += result;
+					deleteSteps[Math.min(result, WAVLTreeMetrics.BUCKETS - 1)]++;
+				}
+				expected.remove(k);
+			}
+			else {
+				searches++;
+				if (tree.search(k) == null) misses++;
+			}
+		}
+		WAVLTreeChecker.check(tree, expected);
+		assertEquals(inserts, metrics.getInserts());
+		assertEquals(deletes, metrics.getDeletes());
+		assertEquals(searches, metrics.getSearches());
+		assertEquals(misses, metrics.getMisses());
+		assertEquals(steps, metrics.getRebalanceSteps());
+		assertArrayEquals(insertSteps, metrics.getInsertRebalanceHistogram());
+		assertArrayEquals(deleteSteps, metrics.getDeleteRebalanceHistogram());
+		long descents = 0;
+		for (long count : metrics.getDescentDepthHistogram()) descents += count;
+		assertEquals(inserts + deletes + searches, descents, "one descent depth per operation");
+		assertTrue(metrics.getMeanDescentDepth() >= 1 && metrics.getMeanDescentDepth() <= 2 * 13, "mean depth " + metrics.getMeanDescentDepth());
+		long cases = 0;
+		for (long count : metrics.getCaseCounts().values()) cases += count;
+		assertTrue(cases > 0 && metrics.getRotations() > 0 && metrics.getPromotions() > 0 && metrics.getDemotions() > 0);
+
+		//the shape is sampled after as many changes as nodes: every node has a rank, the height bounds the ranks
+		assertTrue(metrics.getSampledSize() > 0);
+		long nodes = 0;
+		for (long count : metrics.getRankDistribution()) nodes += count;
+		assertEquals(metrics.getSampledSize(), nodes);
+		assertTrue(metrics.getHeight() >= metrics.getRankDistribution().length - 1);
+
+		metrics.reset();
+		assertEquals(0, metrics.getInserts() + metrics.getDeletes() + metrics.getSearches() + metrics.getRebalanceSteps());
+		tree.search(-1);
+		assertEquals(1, metrics.getSearches());
+		assertEquals(1, metrics.getMisses());
+	}
+
+	@Test
+	void untrackedTreesWriteNothingOnReads() throws ReflectiveOperationException {
+		assumeTrue(WAVLTree.INSTRUMENTED);
+		Field descent = WAVLTree.class.getDeclaredField("descent");
+		descent.setAccessible(true);
+		WAVLTree tree = new WAVLTree();
+		for (int k = 0; k < 1000; k++) tree.insert(k, "v" + k);
+		for (int k = -10; k < 1010; k++) tree.search(k);
+		assertEquals(0, descent.getInt(tree), "reads without metrics left a descent depth");
+
+		WAVLTreeMetrics metrics = tree.enableMetrics();
+		tree.search(500);
+		assertTrue(descent.getInt(tree) > 0);
+		tree.disableMetrics();
+		assertNull(tree.getMetrics());
+		tree.insert(5000, "x");
+		tree.search(5000);
+		assertEquals(1, metrics.getSearches(), "metrics stop with disableMetrics");
+		assertEquals(0, metrics.getInserts());
+	}
+
+	@Test
+	void concurrentTreeRefusesMetrics() {
+		assumeTrue(WAVLTree.INSTRUMENTED);
+		WAVLTree tree = new WAVLTree();
+		tree.enableMetrics();
+		assertThrows(IllegalArgumentException.class, () -> new ConcurrentWAVLTree(tree));
+	}
+}
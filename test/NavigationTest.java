@@ -0,0 +1,131 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * floorKey/ceilingKey/lowerKey/higherKey, their value twins and nearest against TreeMap's navigation methods,
+ * on a plain tree, a lazy-delete tree (tombstones must be stepped over) and one in finger mode,
+ * with keys reaching the ends of the int range.
+ */
+class NavigationTest {
+
+	@Test
+	void plain() {
+		run(new WAVLTree(), new Random(21));
+	}
+
+	@Test
+	void withTombstones() {
+		WAVLTree tree = new WAVLTree();
+		tree.setLazyDelete(true);
+		run(tree, new Random(210));
+	}
+
+	@Test
+	void fingerMode() {
+		WAVLTree tree = new WAVLTree();
+		tree.setFingerMode(true);
+		run(tree, new Random(2100));
+	}
+
+	@Test
+	void emptyTree() {
+		WAVLTree tree = new WAVLTree();
+		TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+		for (int k : new int[] {Integer.MIN_VALUE, 0, Integer.MAX_VALUE}) {
+			compare(tree, expected, k, new Random(k));
+		}
+	}
+
+	private static void run(WAVLTree tree, Random rand) {
+		TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+		for (int k : new int[] {Integer.MIN_VALUE, Integer.MIN_VALUE + 1, Integer.MAX_VALUE - 1, Integer.MAX_VALUE}) {
+			tree.insert(k, "v" + k);
+			expected.put(k, "v" + k);
+		}
+		for (int round = 0; round < 30; round++) {
+			for (int j = 0; j < 300; j++) {
+				int k = key(rand);
+				if (rand.nextInt(3) > 0) {
+					tree.insert(k, "v" + k);
+					expected.putIfAbsent(k, "v" + k);
+				}
+				else {
+					tree.delete(k);
+					expected.remove(k);
+				}
+			}
+			WAVLTreeChecker.check(tree, expected);
+			for (int j = 0; j < 300; j++) {
+				compare(tree, expected, key(rand), rand);
+			}
+			for (int k : new int[] {Integer.MIN_VALUE, Integer.MIN_VALUE + 1, Integer.MAX_VALUE - 1, Integer.MAX_VALUE}) {
+				compare(tree, expected, k, rand);
+			}
+		}
+	}
+
+	//mostly a narrow band (many hits and near misses), some keys near the ends of the int range
+	private static int key(Random rand) {
+		switch (rand.nextInt(6)) {
+		case 0:
+			return Integer.MIN_VALUE + rand.nextInt(50);
+		case 1:
+			return Integer.MAX_VALUE - rand.nextInt(50);
+		default:
+			return rand.nextInt(4000) - 2000;
+		}
+	}
+
+	private static void compare(WAVLTree tree, TreeMap<Integer, String> expected, int k, Random rand) {
+		assertEquals(keyOf(expected.floorKey(k)), tree.floorKey(k), "floorKey " + k);
+		assertEquals(keyOf(expected.ceilingKey(k)), tree.ceilingKey(k), "ceilingKey " + k);
+		assertEquals(keyOf(expected.lowerKey(k)), tree.lowerKey(k), "lowerKey " + k);
+		assertEquals(keyOf(expected.higherKey(k)), tree.higherKey(k), "higherKey " + k);
+		assertEquals(valueOf(expected.floorEntry(k)), tree.floorValue(k), "floorValue " + k);
+		assertEquals(valueOf(expected.ceilingEntry(k)), tree.ceilingValue(k), "ceilingValue " + k);
+		assertEquals(valueOf(expected.lowerEntry(k)), tree.lowerValue(k), "lowerValue " + k);
+		assertEquals(valueOf(expected.higherEntry(k)), tree.higherValue(k), "higherValue " + k);
+
+		int count = rand.nextInt(4) == 0 ? expected.size() + 2 : rand.nextInt(12);
+		int[] out = new int[rand.nextInt(4) == 0 ? Math.max(0, count - 3) : count]; //sometimes out is the limit
+		int[] want = nearest(expected, k, Math.min(count, out.length));
+		assertEquals(want.length, tree.nearest(k, count, out), "nearest " + count + " to " + k);
+		assertArrayEquals(want, Arrays.copyOf(out, want.length), "nearest " + count + " to " + k);
+	}
+
+	//merges the keys above and below k by distance, the smaller key first on a tie (k itself is at distance 0)
+	private static int[] nearest(TreeMap<Integer, String> expected, int k, int limit) {
+		Iterator<Integer> above = expected.tailMap(k, true).keySet().iterator();
+		Iterator<Integer> below = expected.headMap(k, false).descendingKeySet().iterator();
+		Integer a = above.hasNext() ? above.next() : null;
+		Integer b = below.hasNext() ? below.next() : null;
+		int[] out = new int[Math.min(limit, expected.size())];
+		for (int i = 0; i < out.length; i++) {
+			if (a == null || (b != null && (long) k - b <= (long) a - k)) {
+				out[i] = b;
+				b = below.hasNext() ? below.next() : null;
+			}
+			else {
+				out[i] = a;
+				a = above.hasNext() ? above.next() : null;
+			}
+		}
+		return out;
+	}
+
+	private static long keyOf(Integer key) {
+		return key != null ? key : WAVLTree.NO_KEY;
+	}
+
+	private static String valueOf(Map.Entry<Integer, String> e) {
+		return e != null ? e.getValue() : null;
+	}
+}
@@ -0,0 +1,128 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * the node pool (setNodePool) against a TreeMap: recycled nodes must come back as clean nodes of their new item,
+ * in every pool size, next to batches, polls and finger mode, and pooledNodes must follow the documented rules-
+ * one by one deletes fill the pool up to its capacity, inserts empty it, batches leave it alone.
+ */
+class NodePoolTest {
+
+	@Test
+	void everyCapacity() {
+		int[] capacities = {0, 1, 16, 1 << 20};
+		for (int c = 0; c < capacities.length; c++) {
+			WAVLTree tree = new WAVLTree();
+			tree.setNodePool(capacities[c]);
+			run(tree, capacities[c], new Random(23 + c));
+		}
+	}
+
+	@Test
+	void fingerMode() {
+		WAVLTree tree = new WAVLTree();
+		tree.setFingerMode(true); //the fingers must not be left on a pooled node
+		tree.setNodePool(16);
+		run(tree, 16, new Random(230));
+	}
+
+	@Test
+	void loweringTheCapacityDropsNodes() throws ReflectiveOperationException {
+		WAVLTree tree = new WAVLTree();
+		tree.setNodePool(100);
+		for (int k = 0; k < 200; k++) tree.insert(k, "v" + k);
+		for (int k = 0; k < 150; k++) tree.delete(k);
+		assertEquals(100, tree.pooledNodes());
+		assertEquals("v150", tree.pollMinValue()); //the pool is full: this node is dropped
+		assertEquals(100, tree.pooledNodes());
+		assertPoolHoldsNoValues(tree);
+		tree.setNodePool(10);
+		assertEquals(10, tree.pooledNodes());
+		assertPoolHoldsNoValues(tree);
+		tree.setNodePool(0);
+		assertEquals(0, tree.pooledNodes());
+		for (int k = 0; k < 150; k++) tree.insert(k, "n" + k);
+		TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+		for (int k = 0; k < 150; k++) expected.put(k, "n" + k);
+		for (int k = 151; k < 200; k++) expected.put(k, "v" + k);
+		WAVLTreeChecker.check(tree, expected);
+		assertThrows(IllegalArgumentException.class, () -> tree.setNodePool(-1));
+		assertEquals(0, tree.pooledNodes());
+	}
+
+	private static void run(WAVLTree tree, int capacity, Random rand) {
+		TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+		for (int j = 0; j < 30000; j++) {
+			int pooled = tree.pooledNodes();
+			int op = rand.nextInt(100);
+			if (op < 50) {
+				int k = rand.nextInt(3000);
+				boolean added = !expected.containsKey(k);
+				tree.insert(k, "v" + k + ":" + j);
+				expected.putIfAbsent(k, "v" + k + ":" + j);
+				assertEquals(added && pooled > 0 ? pooled - 1 : pooled, tree.pooledNodes(), "insert " + k);
+			}
+			else if (op < 85) {
+				int k = rand.nextInt(3000);
+				boolean removed = expected.remove(k) != null;
+				tree.delete(k);
+				assertEquals(removed && pooled < capacity ? pooled + 1 : pooled, tree.pooledNodes(), "delete " + k);
+			}
+			else if (op < 95) {
+				Map.Entry<Integer, String> e = rand.nextBoolean() ? expected.pollFirstEntry() : expected.pollLastEntry();
+				if (e != null) {
+					assertEquals(e.getValue(), e.getKey() == (int) tree.peekMin() ? tree.pollMinValue() : tree.pollMaxValue());
+					assertEquals(pooled < capacity ? pooled + 1 : pooled, tree.pooledNodes(), "poll");
+				}
+			}
+			else { //batches neither take from the pool nor fill it
+				int[] keys = new int[1 + rand.nextInt(50)];
+				String[] values = new String[keys.length];
+				for (int i = 0; i < keys.length; i++) {
+					keys[i] = rand.nextInt(3000);
+					values[i] = "b" + keys[i];
+				}
+				if (rand.nextBoolean()) {
+					tree.insertAll(keys, values);
+					for (int i = 0; i < keys.length; i++) expected.putIfAbsent(keys[i], values[i]);
+				}
+				else {
+					tree.deleteAll(keys);
+					for (int k : keys) expected.remove(k);
+				}
+				assertEquals(pooled, tree.pooledNodes(), "batch");
+			}
+			if (j % 3000 == 0) WAVLTreeChecker.check(tree, expected);
+		}
+		WAVLTreeChecker.check(tree, expected);
+		try {
+			assertPoolHoldsNoValues(tree);
+		}
+		catch (ReflectiveOperationException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	//walks the pool (linked through parent) and checks that no deleted value is kept alive by it
+	private static void assertPoolHoldsNoValues(WAVLTree tree) throws ReflectiveOperationException {
+		Field poolField = WAVLTree.class.getDeclaredField("pool");
+		poolField.setAccessible(true);
+		Object node = poolField.get(tree);
+		int count = 0;
+		while (node != null) {
+			WAVLTree.WAVLNode n = (WAVLTree.WAVLNode) node;
+			assertNull(n.getValue(), "pooled node keeps a value");
+			node = n.getParent();
+			count++;
+		}
+		assertEquals(tree.pooledNodes(), count);
+	}
+}
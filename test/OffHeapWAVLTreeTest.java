@@ -0,0 +1,66 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * OffHeapWAVLTree against a TreeMap across several chunks, and its behaviour once closed
+ */
+class OffHeapWAVLTreeTest {
+
+	@Test
+	void sameAnswersAsTreeMap() {
+		Random rand = new Random(30);
+		TreeMap<Long, Long> expected = new TreeMap<Long, Long>();
+		try (OffHeapWAVLTree tree = new OffHeapWAVLTree(6, Long.MIN_VALUE)) { //64 records per chunk
+			for (int j = 0; j < 20000; j++) {
+				long k = rand.nextInt(3000) - 1500L;
+				if (rand.nextInt(3) > 0) {
+					assertEquals(expected.containsKey(k), tree.insert(k, 7 * k) == -1, "insert " + k);
+					expected.put(k, 7 * k);
+				}
+				else {
+					assertEquals(expected.remove(k) == null, tree.delete(k) == -1, "delete " + k);
+				}
+			}
+			assertEquals(expected.size(), tree.size());
+			long i = 0;
+			for (long k : expected.keySet()) {
+				assertEquals(7 * k, tree.search(k));
+				assertEquals(7 * k, tree.select(i));
+				assertEquals(i, tree.rank(k));
+				i++;
+			}
+			assertEquals(Long.MIN_VALUE, tree.search(5000));
+			assertEquals(Long.MIN_VALUE, tree.select(expected.size()));
+			assertEquals(7 * expected.firstKey(), tree.min());
+			assertEquals(7 * expected.lastKey(), tree.max());
+			assertArrayEquals(expected.keySet().stream().mapToLong(Long::longValue).toArray(), tree.keysToArray());
+			assertArrayEquals(expected.values().stream().mapToLong(Long::longValue).toArray(), tree.infoToArray());
+		}
+	}
+
+	@Test
+	void closedTreeRejectsEveryCall() {
+		OffHeapWAVLTree tree = new OffHeapWAVLTree();
+		tree.insert(1, 10);
+		tree.close();
+		tree.close(); //closing twice is fine
+		assertThrows(IllegalStateException.class, () -> tree.empty());
+		assertThrows(IllegalStateException.class, () -> tree.size());
+		assertThrows(IllegalStateException.class, () -> tree.search(1));
+		assertThrows(IllegalStateException.class, () -> tree.contains(1));
+		assertThrows(IllegalStateException.class, () -> tree.insert(2, 20));
+		assertThrows(IllegalStateException.class, () -> tree.delete(1));
+		assertThrows(IllegalStateException.class, () -> tree.min());
+		assertThrows(IllegalStateException.class, () -> tree.max());
+		assertThrows(IllegalStateException.class, () -> tree.select(0));
+		assertThrows(IllegalStateException.class, () -> tree.rank(1));
+		assertThrows(IllegalStateException.class, () -> tree.keysToArray());
+		assertThrows(IllegalStateException.class, () -> tree.infoToArray());
+	}
+}
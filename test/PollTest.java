@@ -0,0 +1,95 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * peekMin/peekMax and the poll methods as a double ended priority queue against TreeMap's first/last entries,
+ * in every mode that changes how the extremes are kept or deleted.
+ */
+class PollTest {
+
+	@Test
+	void plain() {
+		run(new WAVLTree(), new Random(22));
+	}
+
+	@Test
+	void lazyDelete() {
+		WAVLTree tree = new WAVLTree();
+		tree.setLazyDelete(true);
+		run(tree, new Random(23));
+	}
+
+	@Test
+	void fingerMode() {
+		WAVLTree tree = new WAVLTree();
+		tree.setFingerMode(true);
+		run(tree, new Random(24));
+	}
+
+	@Test
+	void nodePool() {
+		WAVLTree tree = new WAVLTree();
+		tree.setNodePool(16); //polled nodes come back for the next inserts
+		run(tree, new Random(25));
+	}
+
+	@Test
+	void emptyTree() {
+		WAVLTree tree = new WAVLTree();
+		assertEquals(WAVLTree.NO_KEY, tree.peekMin());
+		assertEquals(WAVLTree.NO_KEY, tree.peekMax());
+		assertEquals(WAVLTree.NO_KEY, tree.pollMin());
+		assertEquals(WAVLTree.NO_KEY, tree.pollMax());
+		assertNull(tree.pollMinValue());
+		assertNull(tree.pollMaxValue());
+		tree.insert(4, null);
+		assertNull(tree.pollMaxValue()); //an item with null info: empty() tells the cases apart
+		assertTrue(tree.empty());
+		assertEquals(WAVLTree.NO_KEY, tree.pollMin());
+		WAVLTreeChecker.check(tree);
+	}
+
+	private static void run(WAVLTree tree, Random rand) {
+		TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+		for (int j = 0; j < 40000; j++) {
+			int op = rand.nextInt(10);
+			if (op < 5) {
+				int k = rand.nextInt(10000);
+				tree.insert(k, "v" + k);
+				expected.putIfAbsent(k, "v" + k);
+			}
+			else if (op < 9) {
+				boolean min = rand.nextBoolean();
+				Map.Entry<Integer, String> e = min ? expected.pollFirstEntry() : expected.pollLastEntry();
+				if (rand.nextBoolean()) {
+					assertEquals(e == null ? WAVLTree.NO_KEY : e.getKey(), min ? tree.pollMin() : tree.pollMax());
+				}
+				else {
+					assertEquals(e == null ? null : e.getValue(), min ? tree.pollMinValue() : tree.pollMaxValue());
+				}
+			}
+			else {
+				int k = rand.nextInt(10000); //deletes elsewhere move the extremes too
+				tree.delete(k);
+				expected.remove(k);
+			}
+			assertEquals(expected.isEmpty() ? WAVLTree.NO_KEY : expected.firstKey(), tree.peekMin());
+			assertEquals(expected.isEmpty() ? WAVLTree.NO_KEY : expected.lastKey(), tree.peekMax());
+			assertEquals(expected.isEmpty() ? null : expected.firstEntry().getValue(), tree.min());
+			assertEquals(expected.isEmpty() ? null : expected.lastEntry().getValue(), tree.max());
+			if (j % 5000 == 0) WAVLTreeChecker.check(tree, expected);
+		}
+		while (!expected.isEmpty()) { //drain
+			assertEquals(expected.pollFirstEntry().getValue(), tree.pollMinValue());
+		}
+		WAVLTreeChecker.check(tree, expected);
+		assertEquals(WAVLTree.NO_KEY, tree.pollMin());
+	}
+}
@@ -0,0 +1,94 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * rank, select, countInRange, keysInRange and valuesInRange against a TreeMap's sub maps,
+ * on a plain tree and on one with tombstones (lazy delete), which every range query must skip.
+ */
+class RangeTest {
+
+	@Test
+	void plain() {
+		run(new WAVLTree(), new Random(7));
+	}
+
+	@Test
+	void withTombstones() {
+		WAVLTree tree = new WAVLTree();
+		tree.setLazyDelete(true);
+		run(tree, new Random(70));
+	}
+
+	@Test
+	void emptyTree() {
+		WAVLTree tree = new WAVLTree();
+		assertEquals(0, tree.rank(5));
+		assertEquals(0, tree.countInRange(Integer.MIN_VALUE, Integer.MAX_VALUE));
+		assertEquals(0, tree.keysInRange(Integer.MIN_VALUE, Integer.MAX_VALUE, new int[4]));
+		assertEquals(0, tree.valuesInRange(Integer.MIN_VALUE, Integer.MAX_VALUE, new String[4]));
+	}
+
+	private static void run(WAVLTree tree, Random rand) {
+		TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+		for (int round = 0; round < 40; round++) {
+			for (int j = 0; j < 500; j++) {
+				int k = rand.nextInt(4000) - 2000;
+				if (rand.nextInt(3) > 0) {
+					tree.insert(k, "v" + k);
+					expected.putIfAbsent(k, "v" + k);
+				}
+				else {
+					tree.delete(k);
+					expected.remove(k);
+				}
+			}
+			WAVLTreeChecker.check(tree, expected);
+			int i = 0;
+			for (int k : expected.keySet()) {
+				assertEquals(i, tree.rank(k), "rank " + k);
+				assertEquals(i + 1, tree.rank(k + 1), "rank after " + k);
+				assertEquals("v" + k, tree.select(i), "select " + i);
+				i++;
+			}
+			assertEquals(0, tree.rank(Integer.MIN_VALUE));
+			assertEquals(expected.size(), tree.rank(Integer.MAX_VALUE));
+			for (int j = 0; j < 200; j++) {
+				int lo = rand.nextInt(4400) - 2200;
+				int hi = j % 10 == 0 ? lo - 1 - rand.nextInt(10) : lo + rand.nextInt(4400 - (lo + 2200));
+				compareRange(tree, expected, lo, hi, rand);
+			}
+			compareRange(tree, expected, Integer.MIN_VALUE, Integer.MAX_VALUE, rand);
+		}
+	}
+
+	private static void compareRange(WAVLTree tree, TreeMap<Integer, String> expected, int lo, int hi, Random rand) {
+		NavigableMap<Integer, String> range = lo <= hi ? expected.subMap(lo, true, hi, true) : new TreeMap<Integer, String>();
+		String what = " in [" + lo + ", " + hi + "]";
+		assertEquals(range.size(), tree.countInRange(lo, hi), "count" + what);
+
+		int limit = rand.nextInt(3) == 0 ? rand.nextInt(20) : range.size() + 5; //sometimes out fills up first
+		int from = rand.nextInt(4);
+		int[] keys = new int[from + limit];
+		String[] values = new String[from + limit];
+		int m = from == 0 ? tree.keysInRange(lo, hi, keys) : tree.keysInRange(lo, hi, keys, from);
+		int n = from == 0 ? tree.valuesInRange(lo, hi, values) : tree.valuesInRange(lo, hi, values, from);
+		int want = Math.min(limit, range.size());
+		assertEquals(want, m, "keys" + what);
+		assertEquals(want, n, "values" + what);
+		assertArrayEquals(range.keySet().stream().mapToInt(Integer::intValue).limit(want).toArray(),
+				Arrays.copyOfRange(keys, from, from + m), "keys" + what);
+		assertArrayEquals(range.values().stream().limit(want).toArray(String[]::new),
+				Arrays.copyOfRange(values, from, from + n), "values" + what);
+		for (int j = 0; j < from; j++) {
+			assertEquals(0, keys[j], "keysInRange wrote before from");
+			assertEquals(null, values[j], "valuesInRange wrote before from");
+		}
+	}
+}
@@ -0,0 +1,71 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * every tree with its own copy of the rebalancing cases must return the same rebalance counts as WAVLTree
+ * (and -1 for the same duplicate inserts and missing deletes), so the copies can't drift apart unnoticed.
+ */
+class RebalanceParityTest {
+
+	private static final int OPERATIONS = 20000;
+	private static final int KEYS = 3000;
+
+	@Test
+	void sameCountsAsWAVLTree() {
+		Random rand = new Random(5);
+		WAVLTree reference = new WAVLTree();
+		IntIntWAVLTree intInt = new IntIntWAVLTree();
+		LongLongWAVLTree longLong = new LongLongWAVLTree();
+		LongObjWAVLTree<String> longObj = new LongObjWAVLTree<String>();
+		ComparatorWAVLTree<Integer, String> comparator = new ComparatorWAVLTree<Integer, String>();
+		ArenaWAVLTree arena = new ArenaWAVLTree();
+		PersistentWAVLTree persistent = new PersistentWAVLTree();
+		CompactWAVLTree compact = new CompactWAVLTree();
+		PackedWAVLTree packed = new PackedWAVLTree();
+		try (OffHeapWAVLTree offHeap = new OffHeapWAVLTree()) {
+			for (int j = 0; j < OPERATIONS; j++) {
+				int k = rand.nextInt(KEYS);
+				String what = " at operation " + j + " on key " + k;
+				if (rand.nextInt(5) < 3) {
+					int expected = reference.insert(k, "v");
+					assertEquals(expected, intInt.insert(k, 1), "IntIntWAVLTree insert" + what);
+					assertEquals(expected, longLong.insert(k, 1), "LongLongWAVLTree insert" + what);
+					assertEquals(expected, longObj.insert(k, "v"), "LongObjWAVLTree insert" + what);
+					assertEquals(expected, comparator.insert(k, "v"), "ComparatorWAVLTree insert" + what);
+					assertEquals(expected, arena.insert(k, "v"), "ArenaWAVLTree insert" + what);
+					assertEquals(expected, offHeap.insert(k, 1), "OffHeapWAVLTree insert" + what);
+					assertEquals(expected, persistent.insert(k, "v"), "PersistentWAVLTree insert" + what);
+					assertEquals(expected, compact.insert(k, "v"), "CompactWAVLTree insert" + what);
+					assertEquals(expected, packed.insert(k, "v"), "PackedWAVLTree insert" + what);
+				}
+				else {
+					int expected = reference.delete(k);
+					assertEquals(expected, intInt.delete(k), "IntIntWAVLTree delete" + what);
+					assertEquals(expected, longLong.delete(k), "LongLongWAVLTree delete" + what);
+					assertEquals(expected, longObj.delete(k), "LongObjWAVLTree delete" + what);
+					assertEquals(expected, comparator.delete(k), "ComparatorWAVLTree delete" + what);
+					assertEquals(expected, arena.delete(k), "ArenaWAVLTree delete" + what);
+					assertEquals(expected, offHeap.delete(k), "OffHeapWAVLTree delete" + what);
+					assertEquals(expected, persistent.delete(k), "PersistentWAVLTree delete" + what);
+					assertEquals(expected, compact.delete(k), "CompactWAVLTree delete" + what);
+					assertEquals(expected, packed.delete(k), "PackedWAVLTree delete" + what);
+				}
+			}
+			WAVLTreeChecker.check(reference);
+			int[] keys = reference.keysToArray();
+			assertArrayEquals(keys, intInt.keysToArray());
+			assertArrayEquals(keys, arena.keysToArray());
+			assertArrayEquals(keys, persistent.keysToArray());
+			assertArrayEquals(keys, compact.keysToArray());
+			assertArrayEquals(keys, packed.keysToArray());
+			assertEquals(keys.length, longLong.size());
+			assertEquals(keys.length, longObj.size());
+			assertEquals(keys.length, comparator.size());
+			assertEquals(keys.length, offHeap.size());
+		}
+	}
+}
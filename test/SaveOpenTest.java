@@ -0,0 +1,106 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * WAVLTree.save then WAVLTree.open against a TreeMap, and files a crash could leave behind.
+ */
+class SaveOpenTest {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void roundTripMatchesTreeMap() throws IOException {
+		Random rand = new Random(13);
+		WAVLTree tree = new WAVLTree();
+		tree.setLazyDelete(true); //save compacts the tombstones away
+		TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+		String[] odd = {null, "", "\u00fcn\u00efc\u00f6d\u00e9", "\u65e5\u672c\u8a9e", "emoji \ud83d\ude00", "x"};
+		for (int j = 0; j < 5000; j++) {
+			int k = rand.nextInt(20000) - 10000;
+			if (rand.nextInt(4) > 0) {
+				String v = rand.nextInt(3) == 0 ? odd[rand.nextInt(odd.length)] : "v" + k;
+				if (tree.insert(k, v) != -1) expected.put(k, v);
+			}
+			else {
+				tree.delete(k);
+				expected.remove(k);
+			}
+		}
+		Path file = dir.resolve("tree");
+		tree.save(file);
+		assertEquals(0, tree.tombstones());
+		WAVLTreeChecker.check(tree, expected);
+		assertFalse(Files.exists(dir.resolve("tree.tmp")), "temporary file moved over the target");
+
+		MappedWAVLTree mapped = WAVLTree.open(file);
+		assertEquals(expected.size(), mapped.size());
+		int[] keys = new int[expected.size()];
+		String[] values = new String[expected.size()];
+		int i = 0;
+		for (Map.Entry<Integer, String> e : expected.entrySet()) {
+			keys[i] = e.getKey();
+			values[i] = e.getValue();
+			assertEquals(e.getValue(), mapped.search(e.getKey()), "search of " + e.getKey());
+			assertEquals(e.getValue(), mapped.select(i), "select of " + i);
+			assertEquals(i, mapped.rank(e.getKey()), "rank of " + e.getKey());
+			i++;
+		}
+		assertArrayEquals(keys, mapped.keysToArray());
+		assertArrayEquals(values, mapped.infoToArray());
+		assertEquals(expected.firstEntry().getValue(), mapped.min());
+		assertEquals(expected.lastEntry().getValue(), mapped.max());
+		for (int j = 0; j < 200; j++) {
+			int lo = rand.nextInt(20000) - 10000;
+			int hi = lo + rand.nextInt(5000);
+			assertEquals(expected.subMap(lo, true, hi, true).size(), mapped.countInRange(lo, hi));
+		}
+	}
+
+	@Test
+	void savingReplacesTheFile() throws IOException {
+		Path file = dir.resolve("tree");
+		WAVLTree.fromSorted(new int[] {1, 2, 3}, new String[] {"a", "b", "c"}).save(file);
+		Files.write(dir.resolve("tree.tmp"), new byte[] {1, 2, 3}); //left by a crash during an earlier save
+		WAVLTree.fromSorted(new int[] {7}, new String[] {null}).save(file);
+		MappedWAVLTree mapped = WAVLTree.open(file);
+		assertArrayEquals(new int[] {7}, mapped.keysToArray());
+		assertNull(mapped.search(7));
+		assertFalse(Files.exists(dir.resolve("tree.tmp")));
+
+		new WAVLTree().save(file);
+		assertEquals(0, WAVLTree.open(file).size());
+		assertNull(WAVLTree.open(file).min());
+	}
+
+	@Test
+	void truncatedFilesAreRejected() throws IOException {
+		WAVLTree tree = new WAVLTree();
+		for (int k = 0; k < 1000; k++) tree.insert(k, "value " + k);
+		Path file = dir.resolve("tree");
+		tree.save(file);
+		byte[] bytes = Files.readAllBytes(file);
+		Path cut = dir.resolve("cut");
+		for (int length : new int[] {0, 8, 31, 32, 100, bytes.length / 2, bytes.length - 1}) {
+			Files.write(cut, Arrays.copyOf(bytes, length));
+			assertThrows(IOException.class, () -> WAVLTree.open(cut), "file cut to " + length + " bytes");
+		}
+		byte[] longer = Arrays.copyOf(bytes, bytes.length + 4); //garbage after the end
+		Files.write(cut, longer);
+		assertThrows(IOException.class, () -> WAVLTree.open(cut));
+	}
+}
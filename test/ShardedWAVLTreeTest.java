@@ -0,0 +1,143 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * ShardedWAVLTree resharding (splits and merges) while writers and readers run, then its answers against a model.
+ */
+class ShardedWAVLTreeTest {
+
+	private static final int KEYS = 20000;
+	private static final int WRITERS = 3;
+	private static final int READERS = 2;
+
+	@Test
+	void reshardingUnderConcurrentWritesAndReads() throws InterruptedException {
+		final ShardedWAVLTree tree = new ShardedWAVLTree(4, 1024); //splits while growing, merges while shrinking
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		final AtomicBoolean done = new AtomicBoolean();
+		final List<TreeMap<Integer, String>> written = new ArrayList<TreeMap<Integer, String>>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int w = 0; w < WRITERS; w++) {
+			final int writer = w;
+			final TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+			written.add(expected);
+			threads.add(new Thread(() -> {
+				Random r = new Random(18 + writer);
+				for (int j = 0; j < 40000 && failure.get() == null; j++) { //mostly inserts, then mostly deletes
+					int k = r.nextInt(KEYS / WRITERS) * WRITERS + writer - KEYS / 2;
+					boolean insert = r.nextInt(10) < (j < 20000 ? 8 : 2);
+					if (insert) {
+						String v = "v" + k;
+						assertEquals(!expected.containsKey(k), tree.insert(k, v) != -1, "insert " + k);
+						expected.put(k, v);
+					}
+					else {
+						assertEquals(expected.remove(k) != null, tree.delete(k) != -1, "delete " + k);
+					}
+				}
+			}));
+		}
+		for (int t = 0; t < READERS; t++) {
+			final long seed = 180 + t;
+			threads.add(new Thread(() -> {
+				Random r = new Random(seed);
+				int[] out = new int[64];
+				while (!done.get() && failure.get() == null) {
+					int k = r.nextInt(KEYS) - KEYS / 2;
+					String v = tree.search(k);
+					if (v != null) assertEquals("v" + k, v);
+					String selected = tree.select(r.nextInt(KEYS));
+					if (selected != null) assertTrue(selected.startsWith("v"), "select gave " + selected);
+					int rank = tree.rank(k);
+					assertTrue(rank >= 0 && rank <= KEYS, "rank " + rank);
+					int m = tree.keysInRange(k, k + 1000, out);
+					for (int i = 0; i < m; i++) {
+						assertTrue(out[i] >= k && out[i] <= k + 1000, "key " + out[i] + " outside [" + k + ", " + (k + 1000) + "]");
+						if (i > 0) assertTrue(out[i - 1] < out[i], "keys out of order");
+					}
+				}
+			}));
+		}
+		for (Thread thread : threads) thread.setUncaughtExceptionHandler((th, e) -> failure.compareAndSet(null, e));
+		for (Thread thread : threads) thread.start();
+		for (Thread thread : threads.subList(0, WRITERS)) thread.join();
+		done.set(true);
+		for (Thread thread : threads.subList(WRITERS, threads.size())) thread.join();
+		if (failure.get() != null) throw new AssertionError(failure.get());
+
+		assertTrue(tree.reshapeCounts()[0] > 0, "no split ran");
+		TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+		for (TreeMap<Integer, String> part : written) expected.putAll(part);
+		compare(tree, expected, new Random(181));
+
+		//only shards whose lock nobody waited for merge, which concurrent writers may never allow- shrink alone
+		Random rand = new Random(183);
+		for (int j = 0; j < 100000; j++) {
+			int k = rand.nextInt(KEYS) - KEYS / 2;
+			assertEquals(expected.remove(k) != null, tree.delete(k) != -1, "delete " + k);
+		}
+		assertTrue(tree.reshapeCounts()[1] > 0, "no merge ran");
+		compare(tree, expected, rand);
+	}
+
+	@Test
+	void singleThreadedAgainstTreeMap() {
+		ShardedWAVLTree tree = new ShardedWAVLTree(1, 64);
+		TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+		Random rand = new Random(182);
+		for (int j = 0; j < 100000; j++) {
+			int k = rand.nextInt(5000);
+			if (rand.nextInt(2) == 0) {
+				assertEquals(!expected.containsKey(k), tree.insert(k, "v" + k) != -1);
+				expected.put(k, "v" + k);
+			}
+			else {
+				assertEquals(expected.remove(k) != null, tree.delete(k) != -1);
+			}
+			if (j % 10000 == 0) compare(tree, expected, rand);
+		}
+		compare(tree, expected, rand);
+	}
+
+	private static void compare(ShardedWAVLTree tree, TreeMap<Integer, String> expected, Random rand) {
+		int[] keys = new int[expected.size()];
+		String[] values = new String[expected.size()];
+		int i = 0;
+		for (Map.Entry<Integer, String> e : expected.entrySet()) {
+			keys[i] = e.getKey();
+			values[i] = e.getValue();
+			assertEquals(e.getValue(), tree.select(i), "select " + i);
+			assertEquals(i, tree.rank(e.getKey()), "rank " + e.getKey());
+			assertEquals(e.getValue(), tree.search(e.getKey()), "search " + e.getKey());
+			i++;
+		}
+		assertNull(tree.select(expected.size()));
+		assertEquals(expected.size(), tree.size());
+		assertEquals(expected.size(), Arrays.stream(tree.shardSizes()).sum());
+		assertArrayEquals(keys, tree.keysToArray());
+		assertArrayEquals(values, tree.infoToArray());
+		assertEquals(expected.isEmpty() ? null : expected.firstEntry().getValue(), tree.min());
+		assertEquals(expected.isEmpty() ? null : expected.lastEntry().getValue(), tree.max());
+		for (int j = 0; j < 200; j++) {
+			int lo = rand.nextInt(KEYS) - KEYS / 2;
+			int hi = lo + rand.nextInt(20000);
+			int[] out = new int[rand.nextInt(500)];
+			int m = tree.keysInRange(lo, hi, out);
+			int[] want = expected.subMap(lo, true, hi, true).keySet().stream().mapToInt(Integer::intValue).limit(out.length).toArray();
+			assertArrayEquals(want, Arrays.copyOf(out, m), "keys in [" + lo + ", " + hi + "]");
+		}
+	}
+}
@@ -0,0 +1,72 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * checks the invariants of a WAVLTree through its public nodes: search tree order, the rank rule
+ * (every rank difference is 1 or 2, every leaf has rank 0), subtree sizes and parent links.
+ */
+final class WAVLTreeChecker {
+
+	private WAVLTreeChecker() {
+	}
+
+	/**
+	 * fails unless tree is a valid WAVL tree holding exactly the items of expected
+	 */
+	static void check(WAVLTree tree, TreeMap<Integer, String> expected) {
+		check(tree);
+		assertEquals(expected.size(), tree.size(), "size");
+		int[] keys = tree.keysToArray();
+		String[] info = tree.infoToArray();
+		int i = 0;
+		for (Map.Entry<Integer, String> e : expected.entrySet()) {
+			assertEquals(e.getKey().intValue(), keys[i], "key " + i);
+			assertEquals(e.getValue(), info[i], "value of " + e.getKey());
+			i++;
+		}
+	}
+
+	/**
+	 * fails unless tree is a valid WAVL tree
+	 */
+	static void check(WAVLTree tree) {
+		WAVLTree.WAVLNode root = tree.getRoot();
+		if (root == null) {
+			assertTrue(tree.empty(), "no root but not empty");
+			assertEquals(0, tree.size(), "size of an empty tree");
+			return;
+		}
+		assertNull(root.getParent(), "parent of the root");
+		check(root, Long.MIN_VALUE, Long.MAX_VALUE);
+	}
+
+	//checks the subtree of node, whose keys must lie strictly between lo and hi. returns its item count
+	private static int check(WAVLTree.WAVLNode node, long lo, long hi) {
+		int k = node.getKey();
+		assertTrue(lo < k && k < hi, "key " + k + " out of order");
+		int rank = node.getRank();
+		WAVLTree.WAVLNode left = node.getLeft();
+		WAVLTree.WAVLNode right = node.getRight();
+		int leftRank = left == null ? -1 : left.getRank();
+		int rightRank = right == null ? -1 : right.getRank();
+		assertTrue(rank - leftRank == 1 || rank - leftRank == 2, "rank difference " + (rank - leftRank) + " left of " + k);
+		assertTrue(rank - rightRank == 1 || rank - rightRank == 2, "rank difference " + (rank - rightRank) + " right of " + k);
+		if (left == null && right == null) assertEquals(0, rank, "rank of leaf " + k);
+		int size = node.isTombstone() ? 0 : 1;
+		if (left != null) {
+			assertSame(node, left.getParent(), "parent of " + left.getKey());
+			size += check(left, lo, k);
+		}
+		if (right != null) {
+			assertSame(node, right.getParent(), "parent of " + right.getKey());
+			size += check(right, k, hi);
+		}
+		assertEquals(size, node.getSubtreeSize(), "size of " + k);
+		return size;
+	}
+}
@@ -0,0 +1,109 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * random inserts and deletes against a TreeMap, checking the tree's invariants along the way
+ * (the checks the old test.java main printed).
+ */
+class WAVLTreeTest {
+
+	@Test
+	void randomInsertsAndDeletes() {
+		Random rand = new Random(1);
+		WAVLTree tree = new WAVLTree();
+		TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+		tree.insert(-4, "-4");
+		expected.put(-4, "-4");
+		for (int i = 1; i <= 10000; i++) {
+			int x = rand.nextInt(50000);
+			int result = tree.insert(x, Integer.toString(x));
+			if (expected.containsKey(x)) assertEquals(-1, result, "insert of existing " + x);
+			else assertTrue(result >= 0, "insert of " + x);
+			expected.putIfAbsent(x, Integer.toString(x));
+			if (i % 1000 == 0) WAVLTreeChecker.check(tree, expected);
+		}
+		WAVLTreeChecker.check(tree, expected);
+
+		List<Integer> keys = new ArrayList<Integer>(expected.keySet());
+		Collections.shuffle(keys, rand);
+		int deleted = 0;
+		for (int x : keys.subList(0, keys.size() - 1)) { //all but one
+			assertTrue(tree.delete(x) >= 0, "delete of " + x);
+			assertEquals(-1, tree.delete(x), "delete of deleted " + x);
+			expected.remove(x);
+			if (++deleted % 1000 == 0) WAVLTreeChecker.check(tree, expected);
+		}
+		WAVLTreeChecker.check(tree, expected);
+		assertEquals(1, tree.size());
+		assertEquals(0, tree.getRoot().getRank());
+	}
+
+	@Test
+	void searchSelectAndRank() {
+		Random rand = new Random(2);
+		WAVLTree tree = new WAVLTree();
+		TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+		for (int i = 0; i < 2000; i++) {
+			int x = rand.nextInt(10000);
+			tree.insert(x, "v" + x);
+			expected.putIfAbsent(x, "v" + x);
+		}
+		WAVLTreeChecker.check(tree, expected);
+		int i = 0;
+		for (int k : expected.keySet()) {
+			assertEquals("v" + k, tree.search(k));
+			assertEquals("v" + k, tree.select(i));
+			assertEquals(i, tree.rank(k));
+			i++;
+		}
+		assertNull(tree.select(-1));
+		assertNull(tree.select(expected.size()));
+		assertNull(tree.search(-1));
+		assertEquals(expected.firstEntry().getValue(), tree.min());
+		assertEquals(expected.lastEntry().getValue(), tree.max());
+	}
+
+	@Test
+	void sharedExternalLeafKeepsNoParent() throws ReflectiveOperationException {
+		Field ext = WAVLTree.class.getDeclaredField("EXT");
+		ext.setAccessible(true);
+		WAVLTree.WAVLNode shared = (WAVLTree.WAVLNode) ext.get(null);
+		Random rand = new Random(3);
+		WAVLTree tree = new WAVLTree();
+		TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+		for (int i = 0; i < 20000; i++) { //binary deletes whose successor is the right child leave EXT in its place
+			int x = rand.nextInt(500);
+			if (rand.nextBoolean()) {
+				tree.insert(x, "v" + x);
+				expected.putIfAbsent(x, "v" + x);
+			}
+			else {
+				tree.delete(x);
+				expected.remove(x);
+			}
+			assertNull(shared.getParent(), "parent of EXT after operation " + i);
+		}
+		WAVLTreeChecker.check(tree, expected);
+	}
+
+	@Test
+	void emptyTree() {
+		WAVLTree tree = new WAVLTree();
+		WAVLTreeChecker.check(tree);
+		assertEquals(0, tree.keysToArray().length);
+		assertEquals(-1, tree.delete(3));
+		assertNull(tree.search(3));
+		assertNull(tree.min());
+		assertNull(tree.select(0));
+	}
+}